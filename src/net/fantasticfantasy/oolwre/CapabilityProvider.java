@@ -27,8 +27,8 @@
  */
 package net.fantasticfantasy.oolwre;
 
-import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import org.lwjgl.opengl.GL;
 import org.lwjgl.opengl.GLCapabilities;
 
@@ -41,7 +41,7 @@ public class CapabilityProvider {
 	private static Map<Thread, CapabilityProvider> threads;
 	
 	static {
-		threads = new HashMap<>();
+		threads = new ConcurrentHashMap<>();
 	}
 	
 	private GLCapabilities caps;
@@ -27,17 +27,18 @@
  */
 package net.fantasticfantasy.oolwre;
 
-import java.util.ArrayDeque;
 import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
 
 /**The <code>ExceptionQueue</code> is used to post and poll {@link Throwable}s.
+ * It may be posted to from any thread, such as a {@link RenderThread}.
  */
 public class ExceptionQueue {
 	
 	private static Queue<OOLWREException> queue;
 	
 	static {
-		queue = new ArrayDeque<>();
+		queue = new ConcurrentLinkedQueue<>();
 	}
 	
 	/**Throws and remove the next element from the {@link ExceptionQueue},
@@ -46,8 +47,9 @@ public class ExceptionQueue {
 	 * @throws OOLWREException
 	 */
 	public static void poll() throws OOLWREException {
-		if (!queue.isEmpty()) {
-			throw queue.poll();
+		OOLWREException e = queue.poll();
+		if (e != null) {
+			throw e;
 		}
 	}
 	
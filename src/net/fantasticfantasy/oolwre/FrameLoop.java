@@ -0,0 +1,411 @@
+/*Copyright (c) 2017 Fantastic Fantasy All rights reserved.
+ *
+ * Permission to use, copy, modify and/or redistribute in source or binary form
+ * is hereby granted, free of charge, subject to the following conditions:
+ *
+ * - Redistribution of source code shall include the above copyright notice,
+ *  this list of conditions and the following disclaimer.
+ *
+ * - Redistribution in binary form shall include the above copyright notice,
+ *  this list of conditions and the following disclaimer in the documentation
+ *  and/or other materials provided with the distribution.
+ *
+ * - Neither the name Object Oriented Lightweight Render Engine nor the names
+ *  of its contributors may be used to endorse or promote products derived
+ *  from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE
+ * OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package net.fantasticfantasy.oolwre;
+
+import java.util.concurrent.locks.LockSupport;
+import org.lwjgl.glfw.GLFW;
+
+/**A <code>FrameLoop</code> drives a {@link Window} until it should close:
+ * every frame, it polls the events, runs the simulation by fixed steps, renders
+ * with the interpolation factor between the last two steps and swaps the
+ * buffers.<br><br>
+ * The simulation always advances by {@link #setUpdateRate(double) the same
+ * step}, whatever the frame rate, and the remaining time is passed to
+ * {@link Callback#render(double)} to interpolate the rendered state.<br>
+ * Frames can be limited to a {@link #setTargetFrameRate(double) target rate}.
+ * The deadline of a frame is met by sleeping while it is far and spinning when
+ * it is close, the spinning margin adapting to the measured accuracy of the
+ * sleeps.<br>
+ * With {@link SyncMode#ADAPTIVE adaptive} synchronization, the late swap
+ * control extension is used if available; otherwise the swap interval is
+ * raised when frames keep missing the refresh and lowered once they fit again.
+ * <br><br>
+ * The loop must run on the thread owning the context of the window.
+ */
+public class FrameLoop {
+	
+	/**The number of frames over which the misses are counted before changing
+	 * the swap interval. */
+	private static final int ADAPT_FRAMES = 60;
+	
+	/**The time spun in addition to the estimated sleep error, in nanoseconds. */
+	private static final long SPIN_MARGIN = 200000L;
+	
+	private final Window window;
+	private final Callback callback;
+	private long step;
+	private long framePeriod;
+	private long maxFrameDelta;
+	private int maxUpdates;
+	private double refreshRate;
+	private SyncMode syncMode;
+	private int maxSwapInterval;
+	private int swapInterval;
+	private boolean tearControl;
+	private volatile boolean syncChanged;
+	private volatile boolean running;
+	
+	private long deadline;
+	private long sleepError;
+	private int adaptFrames;
+	private int adaptMisses;
+	private long adaptWork;
+	
+	private final FrameTimeHistogram frameTimes;
+	private final FrameTimeHistogram workTimes;
+	private long frameCount;
+	private long updateCount;
+	private long droppedUpdates;
+	private long missedFrames;
+	private double interpolation;
+	private double frameRate;
+	
+	/**Constructs a {@link FrameLoop} updating 60 times per second, without
+	 * frame rate limit and with vertical synchronization on.
+	 * 
+	 * @param window - The {@link Window} to drive
+	 * @param callback - The {@link Callback} updating and rendering the frames
+	 */
+	public FrameLoop(Window window, Callback callback) {
+		if (window == null) {
+			throw new NullPointerException("Window is null!");
+		} else if (callback == null) {
+			throw new NullPointerException("Callback is null!");
+		}
+		this.window = window;
+		this.callback = callback;
+		this.step = 1000000000L / 60;
+		this.maxFrameDelta = 250000000L;
+		this.maxUpdates = 8;
+		Monitor primary = Monitor.getPrimaryMonitor();
+		int refreshRate = primary != null ? primary.getRefreshRate() : 0;
+		this.refreshRate = refreshRate > 0 ? refreshRate : 60;
+		this.syncMode = SyncMode.ON;
+		this.maxSwapInterval = 2;
+		this.swapInterval = 1;
+		this.frameTimes = new FrameTimeHistogram();
+		this.workTimes = new FrameTimeHistogram();
+	}
+	
+	/**Sets the number of simulation steps per second.
+	 * 
+	 * @param rate - The rate, in Hz
+	 */
+	public void setUpdateRate(double rate) {
+		if (!(rate > 0)) {
+			throw new IllegalArgumentException("'rate' <= 0 (" + rate + ")");
+		}
+		this.step = Math.max(1, Math.round(1e9 / rate));
+	}
+	
+	/**Sets the maximum number of frames per second.
+	 * 
+	 * @param rate - The rate, in Hz, or 0 for no limit
+	 */
+	public void setTargetFrameRate(double rate) {
+		if (rate < 0) {
+			throw new IllegalArgumentException("'rate' < 0 (" + rate + ")");
+		}
+		this.framePeriod = rate == 0 ? 0 : Math.round(1e9 / rate);
+		this.deadline = System.nanoTime();
+	}
+	
+	/**Sets the maximum number of simulation steps run during a frame. When a
+	 * frame is late by more steps, the extra ones are dropped so that the
+	 * simulation cannot fall behind forever.
+	 * 
+	 * @param maxUpdates - The number of steps
+	 */
+	public void setMaxUpdatesPerFrame(int maxUpdates) {
+		if (maxUpdates < 1) {
+			throw new IllegalArgumentException("'maxUpdates' < 1 (" + maxUpdates + ")");
+		}
+		this.maxUpdates = maxUpdates;
+	}
+	
+	/**Sets the refresh rate of the display, used to detect missed
+	 * synchronizations. Defaults to the rate of the primary {@link Monitor}.
+	 * 
+	 * @param refreshRate - The refresh rate, in Hz
+	 */
+	public void setRefreshRate(double refreshRate) {
+		if (!(refreshRate > 0)) {
+			throw new IllegalArgumentException("'refreshRate' <= 0 (" + refreshRate + ")");
+		}
+		this.refreshRate = refreshRate;
+	}
+	
+	/**Sets the vertical synchronization mode. Applied at the next frame.
+	 * 
+	 * @param syncMode - The {@link SyncMode}
+	 */
+	public void setSyncMode(SyncMode syncMode) {
+		if (syncMode == null) {
+			throw new NullPointerException("Sync mode is null!");
+		}
+		this.syncMode = syncMode;
+		this.swapInterval = 1;
+		this.adaptFrames = 0;
+		this.adaptMisses = 0;
+		this.adaptWork = 0;
+		this.syncChanged = true;
+	}
+	
+	/**Sets the highest swap interval used by {@link SyncMode#ADAPTIVE}.
+	 * 
+	 * @param maxSwapInterval - The interval, 2 by default
+	 */
+	public void setMaxSwapInterval(int maxSwapInterval) {
+		if (maxSwapInterval < 1) {
+			throw new IllegalArgumentException("'maxSwapInterval' < 1 (" + maxSwapInterval + ")");
+		}
+		this.maxSwapInterval = maxSwapInterval;
+	}
+	
+	/**Runs frames until the {@link Window} should close or {@link #stop()} is
+	 * called.
+	 */
+	public void run() {
+		this.running = true;
+		String tear = Platform.isWindows() ? "WGL_EXT_swap_control_tear" :
+				"GLX_EXT_swap_control_tear";
+		this.tearControl = GLFW.glfwExtensionSupported(tear);
+		this.syncChanged = false;
+		this.applySwapInterval();
+		long previous = System.nanoTime();
+		long accumulator = 0;
+		this.deadline = previous;
+		while (this.running && !this.window.shouldClose()) {
+			long start = System.nanoTime();
+			long delta = start - previous;
+			previous = start;
+			if (this.frameCount > 0) {
+				this.frameTimes.record(delta);
+				double rate = 1e9 / Math.max(delta, 1);
+				this.frameRate = this.frameRate == 0 ? rate : this.frameRate + (rate - this.frameRate) * 0.05;
+				this.adapt(delta);
+			}
+			if (this.syncChanged) {
+				this.syncChanged = false;
+				this.applySwapInterval();
+			}
+			this.window.pollEvents();
+			accumulator += Math.min(delta, this.maxFrameDelta);
+			int updates = 0;
+			while (accumulator >= this.step) {
+				if (updates == this.maxUpdates) {
+					this.droppedUpdates += accumulator / this.step;
+					accumulator %= this.step;
+					break;
+				}
+				this.callback.update(this.step / 1e9);
+				accumulator -= this.step;
+				updates++;
+			}
+			this.updateCount += updates;
+			this.interpolation = (double) accumulator / this.step;
+			this.callback.render(this.interpolation);
+			long work = System.nanoTime() - start;
+			this.workTimes.record(work);
+			this.adaptWork = Math.max(this.adaptWork, work);
+			this.pace();
+			this.window.swapBuffers();
+			this.frameCount++;
+		}
+		this.running = false;
+	}
+	
+	/**Makes {@link #run()} return after the current frame. May be called
+	 * from any thread.
+	 */
+	public void stop() {
+		this.running = false;
+	}
+	
+	public boolean isRunning() {
+		return this.running;
+	}
+	
+	/**Returns the durations between the starts of two frames.
+	 */
+	public FrameTimeHistogram getFrameTimes() {
+		return this.frameTimes;
+	}
+	
+	/**Returns the durations of the updates and renders of the frames, without
+	 * the waiting for the deadline and the swap.
+	 */
+	public FrameTimeHistogram getWorkTimes() {
+		return this.workTimes;
+	}
+	
+	/**Returns the number of frames swapped.
+	 */
+	public long getFrameCount() {
+		return this.frameCount;
+	}
+	
+	/**Returns the number of simulation steps run.
+	 */
+	public long getUpdateCount() {
+		return this.updateCount;
+	}
+	
+	/**Returns the number of simulation steps dropped because the frames were
+	 * too late.
+	 * 
+	 * @see #setMaxUpdatesPerFrame(int)
+	 */
+	public long getDroppedUpdates() {
+		return this.droppedUpdates;
+	}
+	
+	/**Returns the number of frames which took more than one and a half
+	 * expected period.
+	 */
+	public long getMissedFrames() {
+		return this.missedFrames;
+	}
+	
+	/**Returns the interpolation factor passed to the last render.
+	 */
+	public double getInterpolation() {
+		return this.interpolation;
+	}
+	
+	/**Returns the smoothed number of frames per second.
+	 */
+	public double getFrameRate() {
+		return this.frameRate;
+	}
+	
+	/**Returns the swap interval in use, -1 for late swap tearing.
+	 */
+	public int getSwapInterval() {
+		if (this.syncMode == SyncMode.OFF) {
+			return 0;
+		} else if (this.syncMode == SyncMode.ADAPTIVE && this.tearControl) {
+			return -1;
+		}
+		return this.swapInterval;
+	}
+	
+	private void applySwapInterval() {
+		this.window.swapInterval(this.getSwapInterval());
+	}
+	
+	private void adapt(long delta) {
+		long expected = this.framePeriod;
+		if (this.syncMode != SyncMode.OFF) {
+			expected = Math.max(expected, (long) (1e9 / this.refreshRate * Math.max(this.swapInterval, 1)));
+		}
+		boolean missed = expected > 0 && delta > expected + expected / 2;
+		if (missed) {
+			this.missedFrames++;
+			this.adaptMisses++;
+		}
+		if (this.syncMode != SyncMode.ADAPTIVE || this.tearControl || ++this.adaptFrames < ADAPT_FRAMES) {
+			return;
+		}
+		long refresh = (long) (1e9 / this.refreshRate);
+		int interval = this.swapInterval;
+		if (this.adaptMisses > ADAPT_FRAMES / 10 && interval < this.maxSwapInterval) {
+			interval++;
+		} else if (this.adaptMisses == 0 && interval > 1 && this.adaptWork < refresh * (interval - 1) * 4 / 5) {
+			interval--;
+		}
+		this.adaptFrames = 0;
+		this.adaptMisses = 0;
+		this.adaptWork = 0;
+		if (interval != this.swapInterval) {
+			this.swapInterval = interval;
+			this.applySwapInterval();
+		}
+	}
+	
+	private void pace() {
+		if (this.framePeriod <= 0) {
+			return;
+		}
+		this.deadline += this.framePeriod;
+		long late = System.nanoTime() - this.deadline;
+		if (late > this.framePeriod) {
+			this.deadline += late;
+			return;
+		}
+		while (true) {
+			long remaining = this.deadline - System.nanoTime();
+			if (remaining <= 0) {
+				return;
+			} else if (remaining > this.sleepError + SPIN_MARGIN) {
+				long request = remaining - this.sleepError - SPIN_MARGIN;
+				long before = System.nanoTime();
+				LockSupport.parkNanos(request);
+				long error = Math.max(System.nanoTime() - before - request, 0);
+				this.sleepError = error > this.sleepError ? error : this.sleepError - (this.sleepError - error) / 16;
+			} else {
+				Thread.yield();
+			}
+		}
+	}
+	
+	/**The vertical synchronization modes of a {@link FrameLoop}<br><br>
+	 * {@link #OFF}<br>
+	 * {@link #ON}<br>
+	 * {@link #ADAPTIVE}
+	 */
+	public static enum SyncMode {
+		
+		/**Swaps immediately, with a swap interval of 0*/
+		OFF,
+		
+		/**Waits for the vertical blank, with a swap interval of 1*/
+		ON,
+		
+		/**Waits for the vertical blank unless the frame is late*/
+		ADAPTIVE;
+	}
+	
+	/**Updates and renders the frames of a {@link FrameLoop}.
+	 */
+	public static interface Callback {
+		
+		/**Advances the simulation by one step.
+		 * 
+		 * @param step - The duration of the step, in seconds
+		 */
+		public void update(double step);
+		
+		/**Renders a frame.
+		 * 
+		 * @param alpha - The fraction of a step elapsed since the last update,
+		 * from 0 to 1, to interpolate between the previous and the current state
+		 */
+		public void render(double alpha);
+	}
+}
@@ -0,0 +1,184 @@
+/*Copyright (c) 2017 Fantastic Fantasy All rights reserved.
+ *
+ * Permission to use, copy, modify and/or redistribute in source or binary form
+ * is hereby granted, free of charge, subject to the following conditions:
+ *
+ * - Redistribution of source code shall include the above copyright notice,
+ *  this list of conditions and the following disclaimer.
+ *
+ * - Redistribution in binary form shall include the above copyright notice,
+ *  this list of conditions and the following disclaimer in the documentation
+ *  and/or other materials provided with the distribution.
+ *
+ * - Neither the name Object Oriented Lightweight Render Engine nor the names
+ *  of its contributors may be used to endorse or promote products derived
+ *  from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE
+ * OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package net.fantasticfantasy.oolwre;
+
+import java.util.Arrays;
+
+/**A <code>FrameTimeHistogram</code> counts durations into buckets of equal
+ * width, so that the distribution of the frame times can be read without
+ * keeping every sample. Durations longer than the last bucket are counted in
+ * an overflow bucket, but the exact minimum, maximum and mean are kept.
+ */
+public class FrameTimeHistogram {
+	
+	private final long bucketWidth;
+	private final long[] buckets;
+	private long overflow;
+	private long count;
+	private long total;
+	private long min;
+	private long max;
+	
+	/**Constructs a {@link FrameTimeHistogram} of 0.25ms buckets up to 100ms.
+	 */
+	public FrameTimeHistogram() {
+		this(250000L, 400);
+	}
+	
+	/**Constructs a {@link FrameTimeHistogram}.
+	 * 
+	 * @param bucketWidth - The width of a bucket, in nanoseconds
+	 * @param bucketCount - The number of buckets
+	 */
+	public FrameTimeHistogram(long bucketWidth, int bucketCount) {
+		if (bucketWidth <= 0) {
+			throw new IllegalArgumentException("'bucketWidth' <= 0 (" + bucketWidth + ")");
+		} else if (bucketCount <= 0) {
+			throw new IllegalArgumentException("'bucketCount' <= 0 (" + bucketCount + ")");
+		}
+		this.bucketWidth = bucketWidth;
+		this.buckets = new long[bucketCount];
+		this.reset();
+	}
+	
+	/**Adds a duration to this histogram.
+	 * 
+	 * @param nanos - The duration, in nanoseconds
+	 */
+	public void record(long nanos) {
+		if (nanos < 0) {
+			nanos = 0;
+		}
+		long bucket = nanos / this.bucketWidth;
+		if (bucket < this.buckets.length) {
+			this.buckets[(int) bucket]++;
+		} else {
+			this.overflow++;
+		}
+		this.count++;
+		this.total += nanos;
+		this.min = Math.min(this.min, nanos);
+		this.max = Math.max(this.max, nanos);
+	}
+	
+	/**Removes every duration from this histogram.
+	 */
+	public void reset() {
+		Arrays.fill(this.buckets, 0);
+		this.overflow = 0;
+		this.count = 0;
+		this.total = 0;
+		this.min = Long.MAX_VALUE;
+		this.max = 0;
+	}
+	
+	public long getBucketWidth() {
+		return this.bucketWidth;
+	}
+	
+	public int getBucketCount() {
+		return this.buckets.length;
+	}
+	
+	/**Returns the number of durations in
+	 * <code>[bucket * width, (bucket + 1) * width)</code>.
+	 * 
+	 * @param bucket - The index of the bucket
+	 */
+	public long getBucket(int bucket) {
+		return this.buckets[bucket];
+	}
+	
+	/**Returns the number of durations longer than the last bucket.
+	 */
+	public long getOverflow() {
+		return this.overflow;
+	}
+	
+	/**Returns the number of durations recorded.
+	 */
+	public long getCount() {
+		return this.count;
+	}
+	
+	/**Returns the shortest duration, or 0 if none was recorded.
+	 */
+	public long getMin() {
+		return this.count == 0 ? 0 : this.min;
+	}
+	
+	public long getMax() {
+		return this.max;
+	}
+	
+	/**Returns the mean duration, or 0 if none was recorded.
+	 */
+	public double getMean() {
+		return this.count == 0 ? 0 : (double) this.total / this.count;
+	}
+	
+	/**Returns an estimate of the duration under which a fraction of the
+	 * durations lie, interpolated in its bucket. The durations in the overflow
+	 * bucket are assumed to be the maximum.
+	 * 
+	 * @param fraction - The fraction, from 0 to 1; 0.99 for the 99th percentile
+	 */
+	public long getPercentile(double fraction) {
+		if (fraction < 0 || fraction > 1) {
+			throw new IllegalArgumentException("'fraction' not in [0, 1] (" + fraction + ")");
+		} else if (this.count == 0) {
+			return 0;
+		}
+		double rank = fraction * this.count;
+		long seen = 0;
+		for (int i = 0; i < this.buckets.length; i++) {
+			long bucket = this.buckets[i];
+			if (bucket > 0 && seen + bucket >= rank) {
+				double within = (rank - seen) / bucket;
+				long value = (long) ((i + within) * this.bucketWidth);
+				return Math.max(this.getMin(), Math.min(this.max, value));
+			}
+			seen += bucket;
+		}
+		return this.max;
+	}
+	
+	/**Returns the number of durations longer than <code>nanos</code>, counted
+	 * from the buckets.
+	 * 
+	 * @param nanos - The duration, in nanoseconds
+	 */
+	public long countAbove(long nanos) {
+		long first = nanos / this.bucketWidth + 1;
+		long above = this.overflow;
+		for (long i = Math.max(first, 0); i < this.buckets.length; i++) {
+			above += this.buckets[(int) i];
+		}
+		return above;
+	}
+}
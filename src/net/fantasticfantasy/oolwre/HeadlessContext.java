@@ -0,0 +1,140 @@
+/*Copyright (c) 2017 Fantastic Fantasy All rights reserved.
+ *
+ * Permission to use, copy, modify and/or redistribute in source or binary form
+ * is hereby granted, free of charge, subject to the following conditions:
+ *
+ * - Redistribution of source code shall include the above copyright notice,
+ *  this list of conditions and the following disclaimer.
+ *
+ * - Redistribution in binary form shall include the above copyright notice,
+ *  this list of conditions and the following disclaimer in the documentation
+ *  and/or other materials provided with the distribution.
+ *
+ * - Neither the name Object Oriented Lightweight Render Engine nor the names
+ *  of its contributors may be used to endorse or promote products derived
+ *  from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE
+ * OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package net.fantasticfantasy.oolwre;
+
+import org.lwjgl.glfw.GLFW;
+
+/**A <code>HeadlessContext</code> is an OpenGL context without any visible
+ * surface, to render offscreen into framebuffers, for instance on servers.
+ * It is backed by a hidden 1x1 GLFW window, whose default framebuffer must not
+ * be used.<br>
+ * <br>
+ * On machines without display, OOLWRE should be initialized with
+ * {@link OOLWRE#initHeadless()} and the context created with the
+ * {@link WindowHints.ContextCreationAPI#OSMESA OSMesa} or
+ * {@link WindowHints.ContextCreationAPI#EGL EGL} API, which also run on
+ * software rasterizers such as llvmpipe.
+ */
+public class HeadlessContext {
+	
+	private long name;
+	private final boolean forwardCompat;
+	private CapabilityProvider provider;
+	
+	/**Constructs a {@link HeadlessContext}. A copy of the hints is made
+	 * invisible before creating the context, so <code>hints</code> is left
+	 * unchanged.
+	 * 
+	 * @param hints - The hints to create the context
+	 * 
+	 * @throws InitializationException If the context could not be created
+	 */
+	public HeadlessContext(WindowHints hints) throws InitializationException {
+		if (hints == null) {
+			throw new NullPointerException("Hints are null!");
+		}
+		WindowHints copy = new WindowHints(hints);
+		copy.visible = WindowHints.Boolean.FALSE;
+		copy.focused = WindowHints.Boolean.FALSE;
+		copy.decorated = WindowHints.Boolean.FALSE;
+		copy.makeActive();
+		this.name = GLFW.glfwCreateWindow(1, 1, "OOLWRE Headless Context", 0, 0);
+		if (this.name == 0) {
+			throw new InitializationException("Could not create a headless context with the " +
+					copy.contextCreationAPI + " API!");
+		}
+		this.forwardCompat = copy.openGLForwardCompat == WindowHints.Boolean.TRUE;
+	}
+	
+	/**Returns {@link WindowHints} requesting a core context of the given
+	 * version, created with <code>api</code>.
+	 * 
+	 * @param api - The {@link WindowHints.ContextCreationAPI}
+	 * @param major - The major OpenGL version
+	 * @param minor - The minor OpenGL version
+	 */
+	public static WindowHints createHints(WindowHints.ContextCreationAPI api, int major, int minor) {
+		WindowHints hints = new WindowHints();
+		hints.contextCreationAPI = api;
+		hints.contextVersionMajor = major;
+		hints.contextVersionMinor = minor;
+		if (major > 3 || (major == 3 && minor >= 2)) {
+			hints.openGLProfile = WindowHints.OpenGLProfile.CORE_PROFILE;
+			hints.openGLForwardCompat = WindowHints.Boolean.TRUE;
+		}
+		hints.samples = 0;
+		return hints;
+	}
+	
+	/**Returns the {@link GLFW} name of the hidden window.
+	 */
+	public final long getName() {
+		return this.name;
+	}
+	
+	/**Makes this context current on the calling {@link Thread} and creates
+	 * its {@link CapabilityProvider} if needed.
+	 * 
+	 * @return The {@link CapabilityProvider} of the calling thread
+	 */
+	public CapabilityProvider makeContextCurrent() {
+		this.check();
+		GLFW.glfwMakeContextCurrent(this.name);
+		this.provider = CapabilityProvider.create(this.forwardCompat);
+		return this.provider;
+	}
+	
+	/**Releases the context from the calling {@link Thread}.
+	 */
+	public void releaseContext() {
+		GLFW.glfwMakeContextCurrent(0);
+	}
+	
+	/**Destroys this context, and the {@link CapabilityProvider} created by
+	 * {@link #makeContextCurrent()}.
+	 */
+	public void destroy() {
+		this.check();
+		if (this.provider != null) {
+			this.provider.destroy();
+			this.provider = null;
+		}
+		GLFW.glfwDestroyWindow(this.name);
+		this.name = 0;
+	}
+	
+	public boolean isDestroyed() {
+		return this.name == 0;
+	}
+	
+	private void check() {
+		if (this.name == 0) {
+			throw new IllegalStateException("Headless context is destroyed!");
+		}
+	}
+}
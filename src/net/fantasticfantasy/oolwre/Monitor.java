@@ -57,6 +57,7 @@ public final class Monitor {
 	protected int redBits;
 	protected int greenBits;
 	protected int blueBits;
+	protected int refreshRate;
 	
 	private String physicalName;
 	
@@ -71,6 +72,7 @@ public final class Monitor {
 		this.redBits = vidMode.redBits();
 		this.greenBits = vidMode.greenBits();
 		this.blueBits = vidMode.blueBits();
+		this.refreshRate = vidMode.refreshRate();
 		this.physicalName = GLFW.glfwGetMonitorName(this.name);
 	}
 	
@@ -122,6 +124,14 @@ public final class Monitor {
 		return this.blueBits;
 	}
 	
+	/**Returns the {@link Monitor}'s refresh rate
+	 * 
+	 * @return The refresh rate, in Hz
+	 */
+	public int getRefreshRate() {
+		return this.refreshRate;
+	}
+	
 	/**Returns the monitor's physical name.<br>
 	 * <b>See</b> {@link GLFW#glfwGetMonitorName(long) glfwGetMonitorName()}
 	 * 
@@ -170,7 +180,7 @@ public final class Monitor {
 		return "net.fantasticfantasy.engine3D.Monitor{name=" + this.name +
 				",width=" + this.width + ",height=" + this.height + ",redBits=" +
 				this.redBits + ",greenBits=" + this.greenBits + ",blueBits=" +
-				this.blueBits + ",physicalName=" + this.physicalName + "}";
+				this.blueBits + ",refreshRate=" + this.refreshRate + ",physicalName=" + this.physicalName + "}";
 	}
 
 	/**Returns the primary {@link Monitor}.
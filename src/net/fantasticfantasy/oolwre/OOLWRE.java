@@ -60,6 +60,25 @@ public class OOLWRE {
 		System.setProperty("oolwre.initialized", "true");
 	}
 	
+	/**Initializes OOLWRE and {@link GLFW} without any display, for
+	 * {@link HeadlessContext}s. Where GLFW supports it, the null platform is
+	 * selected, which only creates {@link WindowHints.ContextCreationAPI#OSMESA
+	 * OSMesa} and {@link WindowHints.ContextCreationAPI#EGL EGL} contexts.
+	 * Otherwise, the native platform is initialized as by {@link #init()}.
+	 * 
+	 * @throws OOLWREException - If any error occurs
+	 */
+	public static void initHeadless() throws OOLWREException {
+		//The platform hint is a compile time constant, only the native library tells if it is supported
+		int[] major = new int[1], minor = new int[1], rev = new int[1];
+		GLFW.glfwGetVersion(major, minor, rev);
+		if (major[0] > 3 || (major[0] == 3 && minor[0] >= 4)) {
+			GLFW.glfwInitHint(GLFW.GLFW_PLATFORM, GLFW.GLFW_PLATFORM_NULL);
+		}
+		init();
+		System.setProperty("oolwre.headless", "true");
+	}
+	
 	public static void terminate() {
 		GLFW.glfwTerminate();
 	}
@@ -68,6 +87,10 @@ public class OOLWRE {
 		return Boolean.getBoolean("oolwre.initialized");
 	}
 	
+	public static boolean isHeadless() {
+		return Boolean.getBoolean("oolwre.headless");
+	}
+	
 	public static String getVersionString() {
 		return System.getProperty("oolwre.version");
 	}
@@ -0,0 +1,276 @@
+/*Copyright (c) 2017 Fantastic Fantasy All rights reserved.
+ *
+ * Permission to use, copy, modify and/or redistribute in source or binary form
+ * is hereby granted, free of charge, subject to the following conditions:
+ *
+ * - Redistribution of source code shall include the above copyright notice,
+ *  this list of conditions and the following disclaimer.
+ *
+ * - Redistribution in binary form shall include the above copyright notice,
+ *  this list of conditions and the following disclaimer in the documentation
+ *  and/or other materials provided with the distribution.
+ *
+ * - Neither the name Object Oriented Lightweight Render Engine nor the names
+ *  of its contributors may be used to endorse or promote products derived
+ *  from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE
+ * OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package net.fantasticfantasy.oolwre;
+
+import java.util.concurrent.locks.LockSupport;
+import org.lwjgl.glfw.GLFW;
+import net.fantasticfantasy.oolwre.render.data.DataProvider;
+import net.fantasticfantasy.oolwre.util.TripleBuffer;
+
+/**A <code>RenderThread</code> renders the frames of a {@link Window} on a
+ * dedicated {@link Thread}, while the main thread keeps polling the events
+ * and running the simulation.<br><br>
+ * The simulation fills the snapshot returned by {@link #getSnapshot()} with
+ * everything needed to draw a frame and hands it over with
+ * {@link #publish()}. Snapshots go through a {@link TripleBuffer}, so neither
+ * thread waits for the other: a slow frame on either side delays only that
+ * side, and the render thread always draws the latest snapshot.<br>
+ * The context of the window is made current on the render thread, which also
+ * owns its {@link CapabilityProvider} and {@link DataProvider}. Failures of
+ * the render thread are posted to the {@link ExceptionQueue}.
+ * <pre>
+ * RenderThread&lt;Scene&gt; renderer = new RenderThread&lt;&gt;(window, new Scene(), new Scene(), new Scene(), sceneRenderer);
+ * renderer.start();
+ * while (!window.shouldClose()) {
+ * 	window.pollEvents();
+ * 	simulation.update(renderer.getSnapshot());
+ * 	renderer.publish();
+ * }
+ * renderer.stop();</pre>
+ *
+ * @param <T> The type of the snapshots
+ */
+public class RenderThread<T> {
+	
+	private final Window window;
+	private final Renderer<T> renderer;
+	private final TripleBuffer<T> snapshots;
+	private boolean forwardCompat;
+	private volatile Thread thread;
+	private volatile boolean running;
+	
+	private final FrameTimeHistogram latencies;
+	private volatile long renderedFrames;
+	private volatile long lastLatency;
+	private volatile long lastFrameTime;
+	
+	/**Constructs a {@link RenderThread} exchanging three snapshots.
+	 * 
+	 * @param window - The {@link Window} to render to
+	 * @param first - The first snapshot
+	 * @param second - The second snapshot
+	 * @param third - The third snapshot
+	 * @param renderer - The {@link Renderer} drawing the snapshots
+	 */
+	public RenderThread(Window window, T first, T second, T third, Renderer<T> renderer) {
+		if (window == null) {
+			throw new NullPointerException("Window is null!");
+		} else if (renderer == null) {
+			throw new NullPointerException("Renderer is null!");
+		}
+		this.window = window;
+		this.renderer = renderer;
+		this.snapshots = new TripleBuffer<>(first, second, third);
+		this.latencies = new FrameTimeHistogram();
+	}
+	
+	/**Sets whether or not the {@link CapabilityProvider} of the render thread
+	 * is created forward compatible. Must be called before {@link #start()}.
+	 * 
+	 * @param forwardCompat - Whether or not OpenGL should be forward compatible
+	 */
+	public void setForwardCompatible(boolean forwardCompat) {
+		this.forwardCompat = forwardCompat;
+	}
+	
+	/**Releases the context of the {@link Window} from the current thread and
+	 * starts rendering on a new one.
+	 * 
+	 * @throws IllegalStateException If the render thread is already running
+	 */
+	public synchronized void start() {
+		if (this.thread != null) {
+			throw new IllegalStateException("Render thread is already running!");
+		}
+		GLFW.glfwMakeContextCurrent(0);
+		this.running = true;
+		this.thread = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				RenderThread.this.loop();
+			}
+		}, "OOLWRE Render Thread");
+		this.thread.start();
+	}
+	
+	/**Stops the render thread and waits for it to release the context, which
+	 * can then be made current on the calling thread again.
+	 */
+	public synchronized void stop() {
+		if (this.thread == null) {
+			return;
+		}
+		this.running = false;
+		LockSupport.unpark(this.thread);
+		boolean interrupted = false;
+		while (true) {
+			try {
+				this.thread.join();
+				break;
+			} catch (InterruptedException e) {
+				interrupted = true;
+			}
+		}
+		this.thread = null;
+		if (interrupted) {
+			Thread.currentThread().interrupt();
+		}
+	}
+	
+	public boolean isRunning() {
+		return this.running;
+	}
+	
+	/**Returns the snapshot to fill before {@link #publish()}. Simulation side.
+	 */
+	public T getSnapshot() {
+		return this.snapshots.getWriteBuffer();
+	}
+	
+	/**Hands the snapshot over to the render thread. Simulation side.
+	 */
+	public void publish() {
+		this.publish(System.nanoTime());
+	}
+	
+	/**Hands the snapshot over to the render thread. Simulation side.
+	 * 
+	 * @param inputTime - The {@link System#nanoTime()} of the oldest input the
+	 * snapshot reflects, used to measure the input latency
+	 */
+	public void publish(long inputTime) {
+		this.snapshots.publish(inputTime);
+		Thread thread = this.thread;
+		if (thread != null) {
+			LockSupport.unpark(thread);
+		}
+	}
+	
+	/**Returns the durations between the publication of the snapshots, or the
+	 * input time they were published with, and the swap of their frame. The
+	 * histogram is written by the render thread: synchronize on it to read it
+	 * consistently.
+	 */
+	public FrameTimeHistogram getLatencies() {
+		return this.latencies;
+	}
+	
+	/**Returns the latency of the last frame, in nanoseconds.
+	 * 
+	 * @see #getLatencies()
+	 */
+	public long getLastLatency() {
+		return this.lastLatency;
+	}
+	
+	/**Returns the duration of the last render and swap, in nanoseconds.
+	 */
+	public long getLastFrameTime() {
+		return this.lastFrameTime;
+	}
+	
+	/**Returns the number of frames rendered.
+	 */
+	public long getRenderedFrames() {
+		return this.renderedFrames;
+	}
+	
+	/**Returns the number of snapshots published.
+	 */
+	public long getPublishedSnapshots() {
+		return this.snapshots.getPublishedCount();
+	}
+	
+	/**Returns the number of snapshots overwritten before they were rendered,
+	 * that is the number of simulation steps never displayed.
+	 */
+	public long getSkippedSnapshots() {
+		return this.snapshots.getOverwrittenCount();
+	}
+	
+	private void loop() {
+		this.window.makeContextCurrent();
+		CapabilityProvider provider = CapabilityProvider.create(this.forwardCompat);
+		DataProvider data = new DataProvider(provider);
+		data.link();
+		try {
+			this.renderer.init();
+			try {
+				while (this.running) {
+					if (!this.snapshots.update()) {
+						LockSupport.park(this);
+						continue;
+					}
+					long start = System.nanoTime();
+					this.renderer.render(this.snapshots.getReadBuffer());
+					this.window.swapBuffers();
+					long end = System.nanoTime();
+					long latency = end - this.snapshots.getReadStamp();
+					synchronized (this.latencies) {
+						this.latencies.record(latency);
+					}
+					this.lastLatency = latency;
+					this.lastFrameTime = end - start;
+					this.renderedFrames++;
+				}
+			} finally {
+				this.renderer.dispose();
+			}
+		} catch (Throwable t) {
+			ExceptionQueue.post(t, "Render thread failed");
+		} finally {
+			this.running = false;
+			data.deleteAll();
+			data.unlink();
+			provider.destroy();
+			GLFW.glfwMakeContextCurrent(0);
+		}
+	}
+	
+	/**Draws the snapshots of a {@link RenderThread}. Every method is called
+	 * on the render thread, with the context of the window current.
+	 * 
+	 * @param <T> The type of the snapshots
+	 */
+	public static interface Renderer<T> {
+		
+		/**Creates the resources used to render.
+		 */
+		public void init();
+		
+		/**Renders a snapshot. The buffers are swapped afterwards.
+		 * 
+		 * @param snapshot - The latest snapshot published
+		 */
+		public void render(T snapshot);
+		
+		/**Deletes the resources created by {@link #init()}.
+		 */
+		public void dispose();
+	}
+}
@@ -724,11 +724,16 @@ public class Window {
 		GLFW.glfwMakeContextCurrent(this.name);
 	}
 	
-	/**Processes all pending events.<br>
+	/**Processes all pending events, then dispatches the events of this
+	 * {@link Window} to its listeners if its {@link WindowEventsHandler} is set
+	 * to {@link WindowEventsHandler#setAutoDispatch(boolean) auto dispatch}.<br>
 	 * <b>See</b> {@link GLFW#glfwPollEvents() glfwPollEvents()}
 	 */
 	public void pollEvents() {
 		GLFW.glfwPollEvents();
+		if (this.eventsHandler.isAutoDispatch()) {
+			this.eventsHandler.dispatchEvents();
+		}
 	}
 	
 	/**Posts an empty event from the current thread to the main thread event queue.<br>
@@ -31,6 +31,7 @@ import java.nio.IntBuffer;
 import org.lwjgl.glfw.GLFW;
 import org.lwjgl.glfw.GLFWImage;
 import net.fantasticfantasy.oolwre.image.Image;
+import net.fantasticfantasy.oolwre.util.EnumLookup;
 import net.fantasticfantasy.oolwre.util.convert.ImageConverts;
 
 /**The <code>Cursor</code> class represents the user
@@ -299,6 +300,17 @@ public final class WindowCursor {
 		
 		private int value;
 		
+		private static final EnumLookup<Mode> LOOKUP;
+		
+		static {
+			Mode[] modes = values();
+			int[] values = new int[modes.length];
+			for (int i = 0; i < modes.length; i++) {
+				values[i] = modes[i].value;
+			}
+			LOOKUP = new EnumLookup<>(modes, values);
+		}
+		
 		Mode(int value) {
 			this.value = value;
 		}
@@ -312,12 +324,7 @@ public final class WindowCursor {
 		}
 		
 		public static Mode forValue(int value) {
-			for (Mode mode : values()) {
-				if (mode.value == value) {
-					return mode;
-				}
-			}
-			return null;
+			return LOOKUP.get(value);
 		}
 	}
 }
@@ -27,12 +27,15 @@
  */
 package net.fantasticfantasy.oolwre;
 
-import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
 import org.lwjgl.glfw.GLFW;
+import org.lwjgl.glfw.GLFWCharCallback;
+import org.lwjgl.glfw.GLFWCursorPosCallback;
 import org.lwjgl.glfw.GLFWKeyCallback;
 import org.lwjgl.glfw.GLFWMouseButtonCallback;
 import org.lwjgl.glfw.GLFWScrollCallback;
+import net.fantasticfantasy.oolwre.event.EventQueue;
 import net.fantasticfantasy.oolwre.event.KeyboardListener;
 import net.fantasticfantasy.oolwre.event.MouseButtonListener;
 import net.fantasticfantasy.oolwre.event.ScrollListener;
@@ -41,10 +44,22 @@ import net.fantasticfantasy.oolwre.event.ScrollListener;
  * to handle the events from a {@link Window}.<br>
  * Every {@link Window}s have a <code>WindowEventsHandler
  * </code> that can be queried by calling
- * {@link Window#getEventsHandler() getEventsHandler()}.
+ * {@link Window#getEventsHandler() getEventsHandler()}.<br><br>
+ * The GLFW callbacks only post the events to an {@link EventQueue}, so
+ * polling is never slowed down by the listeners. The listeners are called by
+ * {@link #dispatchEvents()}, which {@link Window#pollEvents()} invokes unless
+ * {@link #setAutoDispatch(boolean) auto dispatch} is disabled, in which case
+ * any thread may dispatch the events or read the queue through its own
+ * {@link EventQueue.Cursor}. The cursor of the dispatch is closed while auto
+ * dispatch is disabled, and only created again by the next dispatch, so that
+ * it never holds the queue back. Listeners may be added and removed from any
+ * thread.
  */
 public final class WindowEventsHandler {
 	
+	/**The default number of events the {@link EventQueue} can hold*/
+	public static final int DEFAULT_QUEUE_CAPACITY = 1024;
+	
 	/**The owner {@link Window} of the {@link WindowEventsHandler}*/
 	protected Window owner;
 	
@@ -52,15 +67,89 @@ public final class WindowEventsHandler {
 	private List<MouseButtonListener> mouses;
 	private List<ScrollListener> scrolls;
 	
+	private EventQueue queue;
+	private EventQueue.Cursor cursor;
+	private Dispatcher dispatcher;
+	private volatile boolean autoDispatch;
+	
 	/**Constructor*/
 	protected WindowEventsHandler(Window owner) {
 		this.owner = owner;
-		GLFW.glfwSetKeyCallback(this.owner.name, new Keyboard(this));
-		GLFW.glfwSetMouseButtonCallback(this.owner.name, new Mouse(this));
-		GLFW.glfwSetScrollCallback(this.owner.name, new Scroll(this));
-		this.keys = new ArrayList<>();
-		this.mouses = new ArrayList<>();
-		this.scrolls = new ArrayList<>();
+		this.keys = new CopyOnWriteArrayList<>();
+		this.mouses = new CopyOnWriteArrayList<>();
+		this.scrolls = new CopyOnWriteArrayList<>();
+		this.queue = new EventQueue(DEFAULT_QUEUE_CAPACITY);
+		this.cursor = this.queue.createCursor();
+		this.dispatcher = new Dispatcher(this);
+		this.autoDispatch = true;
+		GLFW.glfwSetKeyCallback(this.owner.name, new Keyboard(this.queue));
+		GLFW.glfwSetMouseButtonCallback(this.owner.name, new Mouse(this.queue));
+		GLFW.glfwSetScrollCallback(this.owner.name, new Scroll(this.queue));
+		GLFW.glfwSetCursorPosCallback(this.owner.name, new CursorPos(this.queue));
+		GLFW.glfwSetCharCallback(this.owner.name, new Char(this.queue));
+	}
+	
+	/**Returns the {@link EventQueue} the events of the owner {@link Window}
+	 * are posted to.
+	 * 
+	 * @return The event queue
+	 */
+	public EventQueue getEventQueue() {
+		return this.queue;
+	}
+	
+	/**Sets whether or not {@link Window#pollEvents()} calls
+	 * {@link #dispatchEvents()} after polling.
+	 * 
+	 * @param autoDispatch - Whether or not the events are dispatched automatically
+	 */
+	public void setAutoDispatch(boolean autoDispatch) {
+		synchronized (this.dispatcher) {
+			this.autoDispatch = autoDispatch;
+			if (autoDispatch) {
+				if (this.cursor == null) {
+					this.cursor = this.queue.createCursor();
+				}
+			} else if (this.cursor != null) {
+				this.cursor.close();
+				this.cursor = null;
+			}
+		}
+	}
+	
+	/**Returns whether or not {@link Window#pollEvents()} calls
+	 * {@link #dispatchEvents()} after polling.
+	 * 
+	 * @return Whether or not the events are dispatched automatically
+	 */
+	public boolean isAutoDispatch() {
+		return this.autoDispatch;
+	}
+	
+	/**Calls the listeners for every event queued since the last dispatch.
+	 * May be called from any thread, one at a time. While auto dispatch is
+	 * disabled, the first call only starts reading the events posted from
+	 * then on.
+	 * 
+	 * @return The number of events dispatched
+	 */
+	public int dispatchEvents() {
+		synchronized (this.dispatcher) {
+			if (this.cursor == null) {
+				this.cursor = this.queue.createCursor();
+			}
+			return this.cursor.drain(this.dispatcher);
+		}
+	}
+	
+	/**Returns the durations between the posting of the events and the end of
+	 * their dispatch to the listeners. Synchronize on the returned histogram
+	 * to read it while events are dispatched.
+	 * 
+	 * @return The dispatch latencies
+	 */
+	public FrameTimeHistogram getDispatchLatencies() {
+		return this.dispatcher.latencies;
 	}
 	
 	/**Adds the specified {@link KeyboardListener} to the
@@ -119,58 +208,116 @@ public final class WindowEventsHandler {
 	
 	private static class Keyboard extends GLFWKeyCallback {
 		
-		private WindowEventsHandler owner;
+		private EventQueue queue;
 		
-		private Keyboard(WindowEventsHandler owner) {
-			this.owner = owner;
+		private Keyboard(EventQueue queue) {
+			this.queue = queue;
 		}
 		
 		public void invoke(long window, int key, int scancode, int action, int mods) {
-			for (int i = 0; i < this.owner.keys.size(); i++) {
-				KeyboardListener listener = this.owner.keys.get(i);
-				if (action == GLFW.GLFW_PRESS) {
-					listener.keyPressed(key, scancode, mods);
-				} else if (action == GLFW.GLFW_RELEASE) {
-					listener.keyReleased(key, scancode, mods);
-				} else if (action == GLFW.GLFW_REPEAT) {
-					listener.keyRepeat(key, scancode, mods);
-				}
-			}
+			this.queue.postKey(key, scancode, action, mods, System.nanoTime());
 		}
 	}
 	
 	private static class Mouse extends GLFWMouseButtonCallback {
 		
-		private WindowEventsHandler owner;
+		private EventQueue queue;
 		
-		private Mouse(WindowEventsHandler owner) {
-			this.owner = owner;
+		private Mouse(EventQueue queue) {
+			this.queue = queue;
 		}
 		
 		public void invoke(long window, int button, int action, int mods) {
-			for (int i = 0; i < this.owner.mouses.size(); i++) {
-				MouseButtonListener listener = this.owner.mouses.get(i);
-				if (action == GLFW.GLFW_PRESS) {
-					listener.mousePressed(button, mods);
-				} else if (action == GLFW.GLFW_RELEASE) {
-					listener.mouseReleased(button, mods);
-				}
-			}
+			this.queue.postMouseButton(button, action, mods, System.nanoTime());
 		}
 	}
 	
 	private static class Scroll extends GLFWScrollCallback {
 		
+		private EventQueue queue;
+		
+		private Scroll(EventQueue queue) {
+			this.queue = queue;
+		}
+		
+		public void invoke(long window, double dx, double dy) {
+			this.queue.postScroll(dx, dy, System.nanoTime());
+		}
+	}
+	
+	private static class CursorPos extends GLFWCursorPosCallback {
+		
+		private EventQueue queue;
+		
+		private CursorPos(EventQueue queue) {
+			this.queue = queue;
+		}
+		
+		public void invoke(long window, double x, double y) {
+			this.queue.postCursorPos(x, y, System.nanoTime());
+		}
+	}
+	
+	private static class Char extends GLFWCharCallback {
+		
+		private EventQueue queue;
+		
+		private Char(EventQueue queue) {
+			this.queue = queue;
+		}
+		
+		public void invoke(long window, int codepoint) {
+			this.queue.postChar(codepoint, System.nanoTime());
+		}
+	}
+	
+	private static class Dispatcher implements EventQueue.Handler {
+		
 		private WindowEventsHandler owner;
+		private FrameTimeHistogram latencies;
 		
-		private Scroll(WindowEventsHandler owner) {
+		private Dispatcher(WindowEventsHandler owner) {
 			this.owner = owner;
+			this.latencies = new FrameTimeHistogram(10000L, 1000);
 		}
 		
-		public void invoke(long window, double dx, double dy) {
-			for (int i = 0; i < this.owner.scrolls.size(); i++) {
-				ScrollListener listener = this.owner.scrolls.get(i);
-				listener.scrollMoved(dx, dy);
+		public void handle(EventQueue.Event event) {
+			int code = event.getCode();
+			int action = event.getAction();
+			int mods = event.getMods();
+			switch (event.getType()) {
+				case EventQueue.KEY:
+					int scancode = event.getScancode();
+					for (KeyboardListener listener : this.owner.keys) {
+						if (action == GLFW.GLFW_PRESS) {
+							listener.keyPressed(code, scancode, mods);
+						} else if (action == GLFW.GLFW_RELEASE) {
+							listener.keyReleased(code, scancode, mods);
+						} else if (action == GLFW.GLFW_REPEAT) {
+							listener.keyRepeat(code, scancode, mods);
+						}
+					}
+					break;
+				case EventQueue.MOUSE_BUTTON:
+					for (MouseButtonListener listener : this.owner.mouses) {
+						if (action == GLFW.GLFW_PRESS) {
+							listener.mousePressed(code, mods);
+						} else if (action == GLFW.GLFW_RELEASE) {
+							listener.mouseReleased(code, mods);
+						}
+					}
+					break;
+				case EventQueue.SCROLL:
+					double dx = event.getX();
+					double dy = event.getY();
+					for (ScrollListener listener : this.owner.scrolls) {
+						listener.scrollMoved(dx, dy);
+					}
+					break;
+			}
+			long latency = System.nanoTime() - event.getTime();
+			synchronized (this.latencies) {
+				this.latencies.record(latency);
 			}
 		}
 	}
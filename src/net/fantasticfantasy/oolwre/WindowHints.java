@@ -218,6 +218,43 @@ public final class WindowHints {
 	 */
 	public WindowHints() {}
 	
+	/**Constructs a copy of <code>hints</code>.
+	 * 
+	 * @param hints - The {@link WindowHints} to copy
+	 */
+	public WindowHints(WindowHints hints) {
+		if (hints == null) {
+			throw new NullPointerException("Hints are null!");
+		}
+		this.resizable = hints.resizable;
+		this.decorated = hints.decorated;
+		this.visible = hints.visible;
+		this.focused = hints.focused;
+		this.autoIconify = hints.autoIconify;
+		this.floating = hints.floating;
+		this.maximized = hints.maximized;
+		this.redBits = hints.redBits;
+		this.greenBits = hints.greenBits;
+		this.blueBits = hints.blueBits;
+		this.alphaBits = hints.alphaBits;
+		this.depthBits = hints.depthBits;
+		this.stencilBits = hints.stencilBits;
+		this.samples = hints.samples;
+		this.refreshRate = hints.refreshRate;
+		this.stereo = hints.stereo;
+		this.sRGBCapable = hints.sRGBCapable;
+		this.doublebuffer = hints.doublebuffer;
+		this.clientAPI = hints.clientAPI;
+		this.contextCreationAPI = hints.contextCreationAPI;
+		this.contextVersionMajor = hints.contextVersionMajor;
+		this.contextVersionMinor = hints.contextVersionMinor;
+		this.openGLForwardCompat = hints.openGLForwardCompat;
+		this.openGLDebugContext = hints.openGLDebugContext;
+		this.openGLProfile = hints.openGLProfile;
+		this.contextRobustness = hints.contextRobustness;
+		this.contextReleaseBehavior = hints.contextReleaseBehavior;
+	}
+	
 	/**Sets the color bits to the <code>monitor</code>'s color bits
 	 * 
 	 * @param monitor - The {@link Monitor}
@@ -305,7 +342,8 @@ public final class WindowHints {
 	
 	/**OpenGL Context Creation APIs<br><br>
 	 * {@link #NATIVE}<br>
-	 * {@link #EGL}
+	 * {@link #EGL}<br>
+	 * {@link #OSMESA}
 	 */
 	public static enum ContextCreationAPI {
 		
@@ -313,7 +351,11 @@ public final class WindowHints {
 		NATIVE(GLFW.GLFW_NATIVE_CONTEXT_API),
 		
 		/**Represents {@link GLFW#GLFW_EGL_CONTEXT_API GLFW_EGL_CONTEXT_API}*/
-		EGL(GLFW.GLFW_EGL_CONTEXT_API);
+		EGL(GLFW.GLFW_EGL_CONTEXT_API),
+		
+		/**Represents {@link GLFW#GLFW_OSMESA_CONTEXT_API GLFW_OSMESA_CONTEXT_API},
+		 * a software context which needs no display nor GPU*/
+		OSMESA(GLFW.GLFW_OSMESA_CONTEXT_API);
 		
 		private int value;
 		
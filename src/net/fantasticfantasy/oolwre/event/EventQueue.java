@@ -0,0 +1,366 @@
+/*Copyright (c) 2017 Fantastic Fantasy All rights reserved.
+ *
+ * Permission to use, copy, modify and/or redistribute in source or binary form
+ * is hereby granted, free of charge, subject to the following conditions:
+ *
+ * - Redistribution of source code shall include the above copyright notice,
+ *  this list of conditions and the following disclaimer.
+ *
+ * - Redistribution in binary form shall include the above copyright notice,
+ *  this list of conditions and the following disclaimer in the documentation
+ *  and/or other materials provided with the distribution.
+ *
+ * - Neither the name Object Oriented Lightweight Render Engine nor the names
+ *  of its contributors may be used to endorse or promote products derived
+ *  from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE
+ * OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package net.fantasticfantasy.oolwre.event;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**An <code>EventQueue</code> is a preallocated ring of input event records,
+ * written by a single producer, usually the thread polling the events, and
+ * read by any number of {@link Cursor}s, each of which sees every event.<br>
+ * Records hold primitive fields only, so posting allocates nothing. The
+ * producer never waits: when the slowest cursor is a whole ring behind, new
+ * events are dropped and {@link #getDroppedCount() counted}. Cursors read
+ * the events in batches, without locking, from any thread.
+ */
+public final class EventQueue {
+	
+	/**The type of a key event: <code>code</code> is the key and
+	 * <code>scancode</code>, <code>action</code> and <code>mods</code> are
+	 * set. */
+	public static final int KEY = 1;
+	
+	/**The type of a mouse button event: <code>code</code> is the button and
+	 * <code>action</code> and <code>mods</code> are set. */
+	public static final int MOUSE_BUTTON = 2;
+	
+	/**The type of a scroll event: <code>x</code> and <code>y</code> are the
+	 * offsets. */
+	public static final int SCROLL = 3;
+	
+	/**The type of a cursor position event: <code>x</code> and <code>y</code>
+	 * are the position, in screen coordinates. */
+	public static final int CURSOR_POS = 4;
+	
+	/**The type of a character event: <code>code</code> is the Unicode code
+	 * point. */
+	public static final int CHAR = 5;
+	
+	private final int mask;
+	private final int[] types;
+	private final int[] codes;
+	private final int[] scancodes;
+	private final int[] actions;
+	private final int[] mods;
+	private final double[] xs;
+	private final double[] ys;
+	private final long[] times;
+	
+	private final AtomicLong head;
+	private long cachedMin;
+	private volatile Cursor[] cursors;
+	private volatile long dropped;
+	
+	/**Constructs an {@link EventQueue}.
+	 * 
+	 * @param capacity - The number of records, rounded up to a power of two
+	 */
+	public EventQueue(int capacity) {
+		if (capacity <= 0 || capacity > 1 << 30) {
+			throw new IllegalArgumentException("'capacity' not in [1, 2^30] (" + capacity + ")");
+		}
+		int size = Integer.highestOneBit(capacity);
+		if (size < capacity) {
+			size <<= 1;
+		}
+		this.mask = size - 1;
+		this.types = new int[size];
+		this.codes = new int[size];
+		this.scancodes = new int[size];
+		this.actions = new int[size];
+		this.mods = new int[size];
+		this.xs = new double[size];
+		this.ys = new double[size];
+		this.times = new long[size];
+		this.head = new AtomicLong();
+		this.cursors = new Cursor[0];
+	}
+	
+	/**Posts a key event. Producer side.
+	 * 
+	 * @param key - The key code
+	 * @param scancode - The scancode
+	 * @param action - The action
+	 * @param mods - The modifiers
+	 * @param time - The {@link System#nanoTime()} of the event
+	 * 
+	 * @return Whether or not the event was queued
+	 */
+	public boolean postKey(int key, int scancode, int action, int mods, long time) {
+		return this.post(KEY, key, scancode, action, mods, 0, 0, time);
+	}
+	
+	/**Posts a mouse button event. Producer side.
+	 * 
+	 * @param button - The button
+	 * @param action - The action
+	 * @param mods - The modifiers
+	 * @param time - The {@link System#nanoTime()} of the event
+	 * 
+	 * @return Whether or not the event was queued
+	 */
+	public boolean postMouseButton(int button, int action, int mods, long time) {
+		return this.post(MOUSE_BUTTON, button, 0, action, mods, 0, 0, time);
+	}
+	
+	/**Posts a scroll event. Producer side.
+	 * 
+	 * @param dx - The <code>x</code> offset
+	 * @param dy - The <code>y</code> offset
+	 * @param time - The {@link System#nanoTime()} of the event
+	 * 
+	 * @return Whether or not the event was queued
+	 */
+	public boolean postScroll(double dx, double dy, long time) {
+		return this.post(SCROLL, 0, 0, 0, 0, dx, dy, time);
+	}
+	
+	/**Posts a cursor position event. Producer side.
+	 * 
+	 * @param x - The <code>x</code> position
+	 * @param y - The <code>y</code> position
+	 * @param time - The {@link System#nanoTime()} of the event
+	 * 
+	 * @return Whether or not the event was queued
+	 */
+	public boolean postCursorPos(double x, double y, long time) {
+		return this.post(CURSOR_POS, 0, 0, 0, 0, x, y, time);
+	}
+	
+	/**Posts a character event. Producer side.
+	 * 
+	 * @param codepoint - The Unicode code point
+	 * @param time - The {@link System#nanoTime()} of the event
+	 * 
+	 * @return Whether or not the event was queued
+	 */
+	public boolean postChar(int codepoint, long time) {
+		return this.post(CHAR, codepoint, 0, 0, 0, 0, 0, time);
+	}
+	
+	/**Creates a {@link Cursor} reading the events posted from now on.
+	 */
+	public synchronized Cursor createCursor() {
+		Cursor cursor = new Cursor(this.head.get());
+		Cursor[] cursors = Arrays.copyOf(this.cursors, this.cursors.length + 1);
+		cursors[cursors.length - 1] = cursor;
+		this.cursors = cursors;
+		return cursor;
+	}
+	
+	public int getCapacity() {
+		return this.mask + 1;
+	}
+	
+	/**Returns the number of events queued since the creation of this
+	 * {@link EventQueue}.
+	 */
+	public long getPostedCount() {
+		return this.head.get();
+	}
+	
+	/**Returns the number of events dropped because a {@link Cursor} was too
+	 * far behind.
+	 */
+	public long getDroppedCount() {
+		return this.dropped;
+	}
+	
+	private boolean post(int type, int code, int scancode, int action, int mods, double x, double y, long time) {
+		long sequence = this.head.get();
+		long wrap = sequence - this.mask - 1;
+		if (wrap >= this.cachedMin) {
+			long min = sequence;
+			for (Cursor cursor : this.cursors) {
+				min = Math.min(min, cursor.sequence.get());
+			}
+			this.cachedMin = min;
+			if (wrap >= min) {
+				this.dropped++;
+				return false;
+			}
+		}
+		int slot = (int) sequence & this.mask;
+		this.types[slot] = type;
+		this.codes[slot] = code;
+		this.scancodes[slot] = scancode;
+		this.actions[slot] = action;
+		this.mods[slot] = mods;
+		this.xs[slot] = x;
+		this.ys[slot] = y;
+		this.times[slot] = time;
+		this.head.lazySet(sequence + 1);
+		return true;
+	}
+	
+	private synchronized void remove(Cursor cursor) {
+		Cursor[] cursors = this.cursors;
+		for (int i = 0; i < cursors.length; i++) {
+			if (cursors[i] == cursor) {
+				Cursor[] remaining = new Cursor[cursors.length - 1];
+				System.arraycopy(cursors, 0, remaining, 0, i);
+				System.arraycopy(cursors, i + 1, remaining, i, remaining.length - i);
+				this.cursors = remaining;
+				return;
+			}
+		}
+	}
+	
+	/**A <code>Cursor</code> reads the events of an {@link EventQueue}. A
+	 * cursor must be drained by one thread at a time.
+	 */
+	public final class Cursor {
+		
+		private final AtomicLong sequence;
+		private final Event event;
+		
+		private Cursor(long sequence) {
+			this.sequence = new AtomicLong(sequence);
+			this.event = new Event();
+		}
+		
+		/**Returns the number of events waiting to be read.
+		 */
+		public int available() {
+			return (int) (EventQueue.this.head.get() - this.sequence.get());
+		}
+		
+		/**Passes every waiting event to <code>handler</code>.
+		 * 
+		 * @param handler - The {@link Handler}
+		 * 
+		 * @return The number of events read
+		 */
+		public int drain(Handler handler) {
+			return this.drain(handler, Integer.MAX_VALUE);
+		}
+		
+		/**Passes up to <code>max</code> waiting events to <code>handler</code>.
+		 * The slots are released once the whole batch has been handled.
+		 * 
+		 * @param handler - The {@link Handler}
+		 * @param max - The maximum number of events
+		 * 
+		 * @return The number of events read
+		 */
+		public int drain(Handler handler, int max) {
+			long start = this.sequence.get();
+			long end = Math.min(EventQueue.this.head.get(), start + max);
+			long sequence = start;
+			try {
+				while (sequence < end) {
+					this.event.slot = (int) sequence++ & EventQueue.this.mask;
+					handler.handle(this.event);
+				}
+			} finally {
+				this.sequence.lazySet(sequence);
+			}
+			return (int) (sequence - start);
+		}
+		
+		/**Skips every waiting event.
+		 */
+		public void skip() {
+			this.sequence.lazySet(EventQueue.this.head.get());
+		}
+		
+		/**Detaches this {@link Cursor} from its queue, which no longer waits
+		 * for it.
+		 */
+		public void close() {
+			EventQueue.this.remove(this);
+		}
+	}
+	
+	/**An <code>Event</code> is a view of a record of an {@link EventQueue},
+	 * only valid during {@link Handler#handle(Event)}.
+	 */
+	public final class Event {
+		
+		private int slot;
+		
+		private Event() {}
+		
+		/**Returns {@link EventQueue#KEY}, {@link EventQueue#MOUSE_BUTTON},
+		 * {@link EventQueue#SCROLL}, {@link EventQueue#CURSOR_POS} or
+		 * {@link EventQueue#CHAR}.
+		 */
+		public int getType() {
+			return EventQueue.this.types[this.slot];
+		}
+		
+		/**Returns the key, the button or the code point.
+		 */
+		public int getCode() {
+			return EventQueue.this.codes[this.slot];
+		}
+		
+		public int getScancode() {
+			return EventQueue.this.scancodes[this.slot];
+		}
+		
+		public int getAction() {
+			return EventQueue.this.actions[this.slot];
+		}
+		
+		public int getMods() {
+			return EventQueue.this.mods[this.slot];
+		}
+		
+		/**Returns the <code>x</code> offset of a scroll event or the
+		 * <code>x</code> position of a cursor position event.
+		 */
+		public double getX() {
+			return EventQueue.this.xs[this.slot];
+		}
+		
+		/**Returns the <code>y</code> offset of a scroll event or the
+		 * <code>y</code> position of a cursor position event.
+		 */
+		public double getY() {
+			return EventQueue.this.ys[this.slot];
+		}
+		
+		/**Returns the {@link System#nanoTime()} of the event.
+		 */
+		public long getTime() {
+			return EventQueue.this.times[this.slot];
+		}
+	}
+	
+	/**Handles the events read by a {@link Cursor}.
+	 */
+	public static interface Handler {
+		
+		/**Handles an event.
+		 * 
+		 * @param event - The event, only valid during this call
+		 */
+		public void handle(EventQueue.Event event);
+	}
+}
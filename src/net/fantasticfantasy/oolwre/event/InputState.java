@@ -0,0 +1,423 @@
+/*Copyright (c) 2017 Fantastic Fantasy All rights reserved.
+ *
+ * Permission to use, copy, modify and/or redistribute in source or binary form
+ * is hereby granted, free of charge, subject to the following conditions:
+ *
+ * - Redistribution of source code shall include the above copyright notice,
+ *  this list of conditions and the following disclaimer.
+ *
+ * - Redistribution in binary form shall include the above copyright notice,
+ *  this list of conditions and the following disclaimer in the documentation
+ *  and/or other materials provided with the distribution.
+ *
+ * - Neither the name Object Oriented Lightweight Render Engine nor the names
+ *  of its contributors may be used to endorse or promote products derived
+ *  from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE
+ * OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package net.fantasticfantasy.oolwre.event;
+
+import java.util.Arrays;
+import org.lwjgl.glfw.GLFW;
+import org.lwjgl.glfw.GLFWGamepadState;
+import net.fantasticfantasy.oolwre.Window;
+
+/**An <code>InputState</code> holds the state of the keyboard, the mouse,
+ * the text input and the gamepads for the current frame, so that game code
+ * can query it in constant time, without allocation nor native calls.<br><br>
+ * The state is built from the {@link EventQueue} of a {@link Window} through
+ * its own {@link EventQueue.Cursor}: every call to {@link #update()} applies
+ * the events posted since the previous call. A key pressed and released
+ * between two updates is still reported as pressed and released during the
+ * frame. Gamepads are polled once per update, if
+ * {@link #setGamepadsEnabled(boolean) enabled}, in which case
+ * {@link #update()} must be called by the main thread.
+ * <pre>
+ * window.pollEvents();
+ * input.update();
+ * if (input.isKeyPressed(GLFW.GLFW_KEY_SPACE)) {
+ * 	jump();
+ * }</pre>
+ */
+public class InputState implements EventQueue.Handler {
+	
+	/**The number of joysticks tracked. */
+	public static final int JOYSTICK_COUNT = GLFW.GLFW_JOYSTICK_LAST + 1;
+	
+	private static final int KEY_WORDS = (GLFW.GLFW_KEY_LAST >> 6) + 1;
+	private static final int GAMEPAD_AXES = GLFW.GLFW_GAMEPAD_AXIS_LAST + 1;
+	private static final int JOYSTICK_CHECK_INTERVAL = 60;
+	
+	private final EventQueue.Cursor cursor;
+	
+	private final long[] keys;
+	private final long[] keysPressed;
+	private final long[] keysReleased;
+	private final long[] keysRepeated;
+	private int buttons;
+	private int buttonsPressed;
+	private int buttonsReleased;
+	
+	private double cursorX;
+	private double cursorY;
+	private double previousCursorX;
+	private double previousCursorY;
+	private double scrollX;
+	private double scrollY;
+	
+	private int[] chars;
+	private int charCount;
+	
+	private boolean gamepadsEnabled;
+	private final GLFWGamepadState gamepadState;
+	private final boolean[] gamepadsConnected;
+	private final int[] gamepadButtons;
+	private final int[] previousGamepadButtons;
+	private final float[] gamepadAxes;
+	private int joystickCheck;
+	
+	private long frame;
+	
+	/**Constructs an {@link InputState} reading the events of a {@link Window}.
+	 * 
+	 * @param window - The {@link Window}
+	 */
+	public InputState(Window window) {
+		this(window.getEventsHandler().getEventQueue());
+	}
+	
+	/**Constructs an {@link InputState} reading the events of an
+	 * {@link EventQueue}.
+	 * 
+	 * @param queue - The {@link EventQueue}
+	 */
+	public InputState(EventQueue queue) {
+		if (queue == null) {
+			throw new NullPointerException("Queue is null!");
+		}
+		this.cursor = queue.createCursor();
+		this.keys = new long[KEY_WORDS];
+		this.keysPressed = new long[KEY_WORDS];
+		this.keysReleased = new long[KEY_WORDS];
+		this.keysRepeated = new long[KEY_WORDS];
+		this.chars = new int[32];
+		this.gamepadState = GLFWGamepadState.create();
+		this.gamepadsConnected = new boolean[JOYSTICK_COUNT];
+		this.gamepadButtons = new int[JOYSTICK_COUNT];
+		this.previousGamepadButtons = new int[JOYSTICK_COUNT];
+		this.gamepadAxes = new float[JOYSTICK_COUNT * GAMEPAD_AXES];
+	}
+	
+	/**Sets whether or not the gamepads are polled by {@link #update()}.
+	 * 
+	 * @param gamepadsEnabled - Whether or not the gamepads are polled
+	 */
+	public void setGamepadsEnabled(boolean gamepadsEnabled) {
+		this.gamepadsEnabled = gamepadsEnabled;
+		this.joystickCheck = 0;
+		if (!gamepadsEnabled) {
+			Arrays.fill(this.gamepadsConnected, false);
+			Arrays.fill(this.gamepadButtons, 0);
+			Arrays.fill(this.previousGamepadButtons, 0);
+			Arrays.fill(this.gamepadAxes, 0);
+		}
+	}
+	
+	/**Starts a new frame: applies the events posted since the last update and
+	 * polls the gamepads.
+	 */
+	public void update() {
+		Arrays.fill(this.keysPressed, 0);
+		Arrays.fill(this.keysReleased, 0);
+		Arrays.fill(this.keysRepeated, 0);
+		this.buttonsPressed = 0;
+		this.buttonsReleased = 0;
+		this.previousCursorX = this.cursorX;
+		this.previousCursorY = this.cursorY;
+		this.scrollX = 0;
+		this.scrollY = 0;
+		this.charCount = 0;
+		this.cursor.drain(this);
+		if (this.gamepadsEnabled) {
+			this.pollGamepads();
+		}
+		this.frame++;
+	}
+	
+	/**Applies an event. Called by {@link #update()}.
+	 */
+	public void handle(EventQueue.Event event) {
+		int code = event.getCode();
+		switch (event.getType()) {
+			case EventQueue.KEY:
+				if (code < 0 || code > GLFW.GLFW_KEY_LAST) {
+					break;
+				}
+				int word = code >> 6;
+				long bit = 1L << code;
+				int action = event.getAction();
+				if (action == GLFW.GLFW_PRESS) {
+					this.keys[word] |= bit;
+					this.keysPressed[word] |= bit;
+				} else if (action == GLFW.GLFW_RELEASE) {
+					this.keys[word] &= ~bit;
+					this.keysReleased[word] |= bit;
+				} else if (action == GLFW.GLFW_REPEAT) {
+					this.keysRepeated[word] |= bit;
+				}
+				break;
+			case EventQueue.MOUSE_BUTTON:
+				if (code < 0 || code > GLFW.GLFW_MOUSE_BUTTON_LAST) {
+					break;
+				}
+				if (event.getAction() == GLFW.GLFW_PRESS) {
+					this.buttons |= 1 << code;
+					this.buttonsPressed |= 1 << code;
+				} else if (event.getAction() == GLFW.GLFW_RELEASE) {
+					this.buttons &= ~(1 << code);
+					this.buttonsReleased |= 1 << code;
+				}
+				break;
+			case EventQueue.SCROLL:
+				this.scrollX += event.getX();
+				this.scrollY += event.getY();
+				break;
+			case EventQueue.CURSOR_POS:
+				this.cursorX = event.getX();
+				this.cursorY = event.getY();
+				break;
+			case EventQueue.CHAR:
+				if (this.charCount == this.chars.length) {
+					this.chars = Arrays.copyOf(this.chars, this.charCount * 2);
+				}
+				this.chars[this.charCount++] = code;
+				break;
+		}
+	}
+	
+	/**Returns the number of updates since the creation of this {@link InputState}.
+	 */
+	public long getFrame() {
+		return this.frame;
+	}
+	
+	/**Returns whether or not a key is held down.
+	 * 
+	 * @param key - The GLFW key code
+	 */
+	public boolean isKeyDown(int key) {
+		return isSet(this.keys, key);
+	}
+	
+	/**Returns whether or not a key was pressed during the last frame.
+	 * 
+	 * @param key - The GLFW key code
+	 */
+	public boolean isKeyPressed(int key) {
+		return isSet(this.keysPressed, key);
+	}
+	
+	/**Returns whether or not a key was released during the last frame.
+	 * 
+	 * @param key - The GLFW key code
+	 */
+	public boolean isKeyReleased(int key) {
+		return isSet(this.keysReleased, key);
+	}
+	
+	/**Returns whether or not a key was repeated during the last frame.
+	 * 
+	 * @param key - The GLFW key code
+	 */
+	public boolean isKeyRepeated(int key) {
+		return isSet(this.keysRepeated, key);
+	}
+	
+	/**Returns whether or not a mouse button is held down.
+	 * 
+	 * @param button - The GLFW mouse button
+	 */
+	public boolean isButtonDown(int button) {
+		return button >= 0 && button <= GLFW.GLFW_MOUSE_BUTTON_LAST && (this.buttons & 1 << button) != 0;
+	}
+	
+	/**Returns whether or not a mouse button was pressed during the last frame.
+	 * 
+	 * @param button - The GLFW mouse button
+	 */
+	public boolean isButtonPressed(int button) {
+		return button >= 0 && button <= GLFW.GLFW_MOUSE_BUTTON_LAST && (this.buttonsPressed & 1 << button) != 0;
+	}
+	
+	/**Returns whether or not a mouse button was released during the last frame.
+	 * 
+	 * @param button - The GLFW mouse button
+	 */
+	public boolean isButtonReleased(int button) {
+		return button >= 0 && button <= GLFW.GLFW_MOUSE_BUTTON_LAST && (this.buttonsReleased & 1 << button) != 0;
+	}
+	
+	public double getCursorX() {
+		return this.cursorX;
+	}
+	
+	public double getCursorY() {
+		return this.cursorY;
+	}
+	
+	/**Returns the horizontal movement of the cursor during the last frame.
+	 */
+	public double getCursorDeltaX() {
+		return this.cursorX - this.previousCursorX;
+	}
+	
+	/**Returns the vertical movement of the cursor during the last frame.
+	 */
+	public double getCursorDeltaY() {
+		return this.cursorY - this.previousCursorY;
+	}
+	
+	/**Returns the horizontal scrolling during the last frame.
+	 */
+	public double getScrollX() {
+		return this.scrollX;
+	}
+	
+	/**Returns the vertical scrolling during the last frame.
+	 */
+	public double getScrollY() {
+		return this.scrollY;
+	}
+	
+	/**Returns the number of characters typed during the last frame.
+	 */
+	public int getCharCount() {
+		return this.charCount;
+	}
+	
+	/**Returns a character typed during the last frame.
+	 * 
+	 * @param index - The index of the character, in typing order
+	 * 
+	 * @return The Unicode code point
+	 */
+	public int getChar(int index) {
+		if (index < 0 || index >= this.charCount) {
+			throw new IndexOutOfBoundsException("Index: " + index + ", Count: " + this.charCount);
+		}
+		return this.chars[index];
+	}
+	
+	/**Appends the characters typed during the last frame to <code>dest</code>.
+	 * 
+	 * @param dest - The destination {@link StringBuilder}
+	 */
+	public void getText(StringBuilder dest) {
+		for (int i = 0; i < this.charCount; i++) {
+			dest.appendCodePoint(this.chars[i]);
+		}
+	}
+	
+	/**Returns whether or not a gamepad is connected to a joystick slot.
+	 * 
+	 * @param joystick - The GLFW joystick
+	 */
+	public boolean isGamepadConnected(int joystick) {
+		return joystick >= 0 && joystick < JOYSTICK_COUNT && this.gamepadsConnected[joystick];
+	}
+	
+	/**Returns whether or not a gamepad button is held down.
+	 * 
+	 * @param joystick - The GLFW joystick
+	 * @param button - The GLFW gamepad button
+	 */
+	public boolean isGamepadButtonDown(int joystick, int button) {
+		return this.isGamepadConnected(joystick) && isSet(this.gamepadButtons[joystick], button);
+	}
+	
+	/**Returns whether or not a gamepad button was pressed since the last frame.
+	 * 
+	 * @param joystick - The GLFW joystick
+	 * @param button - The GLFW gamepad button
+	 */
+	public boolean isGamepadButtonPressed(int joystick, int button) {
+		return this.isGamepadConnected(joystick) &&
+				isSet(this.gamepadButtons[joystick] & ~this.previousGamepadButtons[joystick], button);
+	}
+	
+	/**Returns whether or not a gamepad button was released since the last frame.
+	 * 
+	 * @param joystick - The GLFW joystick
+	 * @param button - The GLFW gamepad button
+	 */
+	public boolean isGamepadButtonReleased(int joystick, int button) {
+		return this.isGamepadConnected(joystick) &&
+				isSet(~this.gamepadButtons[joystick] & this.previousGamepadButtons[joystick], button);
+	}
+	
+	/**Returns the value of a gamepad axis, from -1 to 1, or 0 if the gamepad is
+	 * not connected.
+	 * 
+	 * @param joystick - The GLFW joystick
+	 * @param axis - The GLFW gamepad axis
+	 */
+	public float getGamepadAxis(int joystick, int axis) {
+		if (!this.isGamepadConnected(joystick) || axis < 0 || axis >= GAMEPAD_AXES) {
+			return 0;
+		}
+		return this.gamepadAxes[joystick * GAMEPAD_AXES + axis];
+	}
+	
+	/**Stops reading the events of the {@link EventQueue}.
+	 */
+	public void destroy() {
+		this.cursor.close();
+	}
+	
+	private void pollGamepads() {
+		boolean check = this.joystickCheck-- <= 0;
+		if (check) {
+			this.joystickCheck = JOYSTICK_CHECK_INTERVAL;
+		}
+		for (int joystick = 0; joystick < JOYSTICK_COUNT; joystick++) {
+			this.previousGamepadButtons[joystick] = this.gamepadButtons[joystick];
+			if (!check && !this.gamepadsConnected[joystick]) {
+				continue;
+			}
+			boolean connected = GLFW.glfwGetGamepadState(joystick, this.gamepadState);
+			this.gamepadsConnected[joystick] = connected;
+			if (!connected) {
+				this.gamepadButtons[joystick] = 0;
+				continue;
+			}
+			int buttons = 0;
+			for (int button = 0; button <= GLFW.GLFW_GAMEPAD_BUTTON_LAST; button++) {
+				if (this.gamepadState.buttons(button) == GLFW.GLFW_PRESS) {
+					buttons |= 1 << button;
+				}
+			}
+			this.gamepadButtons[joystick] = buttons;
+			for (int axis = 0; axis < GAMEPAD_AXES; axis++) {
+				this.gamepadAxes[joystick * GAMEPAD_AXES + axis] = this.gamepadState.axes(axis);
+			}
+		}
+	}
+	
+	private static boolean isSet(int buttons, int button) {
+		return button >= 0 && button <= GLFW.GLFW_GAMEPAD_BUTTON_LAST && (buttons & 1 << button) != 0;
+	}
+	
+	private static boolean isSet(long[] bits, int key) {
+		return key >= 0 && key <= GLFW.GLFW_KEY_LAST && (bits[key >> 6] & 1L << key) != 0;
+	}
+}
@@ -30,6 +30,7 @@ package net.fantasticfantasy.oolwre.event;
 import org.lwjgl.glfw.GLFW;
 import org.lwjgl.glfw.GLFWKeyCallback;
 import net.fantasticfantasy.oolwre.Window;
+import net.fantasticfantasy.oolwre.util.EnumLookup;
 
 /**A <code>KeyboardListener</code> is used to call
  * methods on the time a key event is triggered.<br>
@@ -322,6 +323,17 @@ public interface KeyboardListener {
 		
 		private int value;
 		
+		private static final EnumLookup<Key> LOOKUP;
+		
+		static {
+			Key[] keys = values();
+			int[] values = new int[keys.length];
+			for (int i = 0; i < keys.length; i++) {
+				values[i] = keys[i].value;
+			}
+			LOOKUP = new EnumLookup<>(keys, values);
+		}
+		
 		Key(int value) {
 			this.value = value;
 		}
@@ -337,12 +349,7 @@ public interface KeyboardListener {
 		 * @param val - The {@link GLFW} value
 		 */
 		public static Key forGlfwValue(int val) {
-			for (Key key : values()) {
-				if (key.value == val) {
-					return key;
-				}
-			}
-			return null;
+			return LOOKUP.get(val);
 		}
 	}
 }
@@ -33,6 +33,8 @@ import org.lwjgl.opengl.GL11;
 import org.lwjgl.opengl.GL12;
 import org.lwjgl.opengl.GL30;
 import net.fantasticfantasy.oolwre.render.data.Texture;
+import net.fantasticfantasy.oolwre.util.EnumLookup;
+import net.fantasticfantasy.oolwre.util.GlConstant;
 
 /**An <code>Image</code> represents an abstract
  * image that contains width, height and data.
@@ -127,7 +129,7 @@ public abstract class Image {
 	 * {@link #LUMINANCE}<br>
 	 * {@link #LUMINANCE_ALPHA}
 	 */
-	public static enum Format {
+	public static enum Format implements GlConstant {
 		RED(GL11.GL_RED),
 		GREEN(GL11.GL_GREEN),
 		BLUE(GL11.GL_BLUE),
@@ -154,6 +156,8 @@ public abstract class Image {
 		
 		private int value;
 		
+		private static final EnumLookup<Format> LOOKUP = EnumLookup.of(values());
+		
 		Format(int value) {
 			this.value = value;
 		}
@@ -162,13 +166,32 @@ public abstract class Image {
 			return this.value;
 		}
 		
-		public static Format forGLValue(int glValue) {
-			for (Format format : values()) {
-				if (format.value == glValue) {
-					return format;
-				}
+		/**Returns the number of components of a pixel of this {@link Format},
+		 * a depth-stencil pair counting as one.
+		 */
+		public int getComponentCount() {
+			switch (this) {
+				case RG:
+				case RG_INT:
+				case LUMINANCE_ALPHA:
+					return 2;
+				case RGB:
+				case BGR:
+				case RGB_INT:
+				case BGR_INT:
+					return 3;
+				case RGBA:
+				case BGRA:
+				case RGBA_INT:
+				case BGRA_INT:
+					return 4;
+				default:
+					return 1;
 			}
-			return null;
+		}
+		
+		public static Format forGLValue(int glValue) {
+			return LOOKUP.get(glValue);
 		}
 	}
 }
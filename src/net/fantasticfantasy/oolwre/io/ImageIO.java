@@ -62,6 +62,29 @@ public class ImageIO {
 	 * from <code>in</code> does not match any valid image format
 	 */
 	public static Image readImage(InputStream in, int initialCapacity) throws IOException {
+		return readImage(in, initialCapacity, 0);
+	}
+	
+	/**Reads the bytes from <code>in</code> and returns the
+	 * decoded {@link Image}, converted to <code>channels</code>
+	 * 8 bits components per pixel.
+	 * 
+	 * @param in - The {@link InputStream} from where to read data
+	 * @param initialCapacity - The initial capacity of the
+	 * {@link ByteBuffer} where to store data
+	 * @param channels - The number of components per pixel, from 1
+	 * to 4, or 0 to keep the components of the encoded image
+	 * 
+	 * @return The decoded {@link Image}, whose buffer must be released
+	 * with {@link STBImage#stbi_image_free(ByteBuffer) stbi_image_free()}
+	 * 
+	 * @throws IOException If any I/O error occurs or if the bytes
+	 * from <code>in</code> does not match any valid image format
+	 */
+	public static Image readImage(InputStream in, int initialCapacity, int channels) throws IOException {
+		if (channels < 0 || channels > 4) {
+			throw new IllegalArgumentException("'channels' not in [0, 4] (" + channels + ")");
+		}
 		ByteBuffer buffer = BufferUtils.createByteBuffer(initialCapacity);
 		try (ReadableByteChannel rbc = Channels.newChannel(in)) {
 			while (rbc.read(buffer) != -1) {
@@ -73,7 +96,7 @@ public class ImageIO {
 		buffer.flip();
 		int[] w = new int[1];
 		int[] h = new int[1];
-		final ByteBuffer finalByteBuffer = STBImage.stbi_load_from_memory(buffer, w, h, new int[1], 0);
+		final ByteBuffer finalByteBuffer = STBImage.stbi_load_from_memory(buffer, w, h, new int[1], channels);
 		if (finalByteBuffer == null) {
 			throw new IOException("'in' data does not match any available image format");
 		}
@@ -144,4 +144,161 @@ public final class OOLWREMath {
 			return val;
 		}
 	}
+	
+	/**Converts <code>value</code> to an IEEE 754 half-precision float, rounding
+	 * to the nearest representable value and ties to the even one, as the IEEE
+	 * 754 default rounding does. Values too large to be represented are
+	 * converted to infinity.
+	 * 
+	 * @param value The value to be converted
+	 * 
+	 * @return The bits of the half-precision float
+	 */
+	public static short toHalfFloat(float value) {
+		int bits = Float.floatToIntBits(value);
+		int sign = (bits >>> 16) & 0x8000;
+		int abs = bits & 0x7fffffff;
+		if (abs >= 0x7f800000) {
+			//Infinity or NaN
+			return (short) (sign | 0x7c00 | (abs > 0x7f800000 ? 0x200 : 0));
+		}
+		//Adding one less than half the dropped unit, plus the kept low bit, rounds ties to even
+		int rounded = abs + 0xfff + ((abs >>> 13) & 1);
+		if (rounded >= 0x47800000) {
+			//Overflow
+			return (short) (sign | 0x7c00);
+		} else if (rounded >= 0x38800000) {
+			//Normal
+			return (short) (sign | ((rounded - 0x38000000) >>> 13));
+		} else if (abs < 0x33000000) {
+			//Underflow
+			return (short) sign;
+		}
+		//Subnormal
+		int exp = abs >>> 23;
+		int mant = (abs & 0x7fffff) | 0x800000;
+		int shift = 126 - exp;
+		return (short) (sign | ((mant + (1 << (shift - 1)) - 1 + ((mant >>> shift) & 1)) >>> shift));
+	}
+	
+	/**Converts the IEEE 754 half-precision float <code>half</code> to a float.
+	 * 
+	 * @param half The bits of the half-precision float
+	 * 
+	 * @return The result
+	 */
+	public static float fromHalfFloat(short half) {
+		int sign = (half & 0x8000) << 16;
+		int exp = (half >>> 10) & 0x1f;
+		int mant = half & 0x3ff;
+		if (exp == 0) {
+			float val = mant * 5.9604645E-8f;
+			return sign == 0 ? val : -val;
+		} else if (exp == 0x1f) {
+			return Float.intBitsToFloat(sign | 0x7f800000 | (mant << 13));
+		}
+		return Float.intBitsToFloat(sign | ((exp + 112) << 23) | (mant << 13));
+	}
+	
+	/**Converts <code>value</code>, clamped between 0 and 1, to an unsigned
+	 * normalized 8 bits integer.
+	 * 
+	 * @param value The value to be converted
+	 * 
+	 * @return The result, between 0 and 255
+	 */
+	public static byte toUnorm8(float value) {
+		return (byte) Math.round(clamp(0f, 1f, value) * 255f);
+	}
+	
+	/**Converts <code>value</code>, clamped between -1 and 1, to a signed
+	 * normalized 8 bits integer.
+	 * 
+	 * @param value The value to be converted
+	 * 
+	 * @return The result, between -127 and 127
+	 */
+	public static byte toSnorm8(float value) {
+		return (byte) Math.round(clamp(-1f, 1f, value) * 127f);
+	}
+	
+	/**Converts <code>value</code>, clamped between 0 and 1, to an unsigned
+	 * normalized 16 bits integer.
+	 * 
+	 * @param value The value to be converted
+	 * 
+	 * @return The result, between 0 and 65535
+	 */
+	public static short toUnorm16(float value) {
+		return (short) Math.round(clamp(0f, 1f, value) * 65535f);
+	}
+	
+	/**Converts <code>value</code>, clamped between -1 and 1, to a signed
+	 * normalized 16 bits integer.
+	 * 
+	 * @param value The value to be converted
+	 * 
+	 * @return The result, between -32767 and 32767
+	 */
+	public static short toSnorm16(float value) {
+		return (short) Math.round(clamp(-1f, 1f, value) * 32767f);
+	}
+	
+	/**Converts the unsigned normalized 8 bits integer <code>value</code> to a float.
+	 * 
+	 * @param value The value to be converted
+	 * 
+	 * @return The result, between 0 and 1
+	 */
+	public static float fromUnorm8(byte value) {
+		return (value & 0xff) / 255f;
+	}
+	
+	/**Converts the signed normalized 8 bits integer <code>value</code> to a float.
+	 * 
+	 * @param value The value to be converted
+	 * 
+	 * @return The result, between -1 and 1
+	 */
+	public static float fromSnorm8(byte value) {
+		return Math.max(value / 127f, -1f);
+	}
+	
+	/**Converts the unsigned normalized 16 bits integer <code>value</code> to a float.
+	 * 
+	 * @param value The value to be converted
+	 * 
+	 * @return The result, between 0 and 1
+	 */
+	public static float fromUnorm16(short value) {
+		return (value & 0xffff) / 65535f;
+	}
+	
+	/**Converts the signed normalized 16 bits integer <code>value</code> to a float.
+	 * 
+	 * @param value The value to be converted
+	 * 
+	 * @return The result, between -1 and 1
+	 */
+	public static float fromSnorm16(short value) {
+		return Math.max(value / 32767f, -1f);
+	}
+	
+	/**Packs the four values, clamped between -1 and 1, in a signed normalized
+	 * 10-10-10-2 word, as read by the <code>GL_INT_2_10_10_10_REV</code> type.
+	 * 
+	 * @param x The <code>x</code> component, stored in the lowest bits
+	 * @param y The <code>y</code> component
+	 * @param z The <code>z</code> component
+	 * @param w The <code>w</code> component, stored in the highest 2 bits
+	 * 
+	 * @return The packed word
+	 */
+	public static int packSnorm2101010(float x, float y, float z, float w) {
+		int px = Math.round(clamp(-1f, 1f, x) * 511f) & 0x3ff;
+		int py = Math.round(clamp(-1f, 1f, y) * 511f) & 0x3ff;
+		int pz = Math.round(clamp(-1f, 1f, z) * 511f) & 0x3ff;
+		int pw = Math.round(clamp(-1f, 1f, w)) & 0x3;
+		return px | (py << 10) | (pz << 20) | (pw << 30);
+	}
 }
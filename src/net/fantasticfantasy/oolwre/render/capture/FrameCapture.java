@@ -0,0 +1,256 @@
+/*Copyright (c) 2017 Fantastic Fantasy All rights reserved.
+ *
+ * Permission to use, copy, modify and/or redistribute in source or binary form
+ * is hereby granted, free of charge, subject to the following conditions:
+ *
+ * - Redistribution of source code shall include the above copyright notice,
+ *  this list of conditions and the following disclaimer.
+ *
+ * - Redistribution in binary form shall include the above copyright notice,
+ *  this list of conditions and the following disclaimer in the documentation
+ *  and/or other materials provided with the distribution.
+ *
+ * - Neither the name Object Oriented Lightweight Render Engine nor the names
+ *  of its contributors may be used to endorse or promote products derived
+ *  from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE
+ * OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package net.fantasticfantasy.oolwre.render.capture;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import org.lwjgl.system.MemoryUtil;
+import net.fantasticfantasy.oolwre.CapabilityProvider;
+import net.fantasticfantasy.oolwre.image.Image;
+import net.fantasticfantasy.oolwre.render.data.Type;
+import net.fantasticfantasy.oolwre.render.target.PixelReadback;
+import net.fantasticfantasy.oolwre.render.target.RenderTarget;
+
+/**A <code>FrameCapture</code> records frames without stalling the render
+ * thread. Each {@link #capture(int, int) capture} queues an asynchronous
+ * {@link PixelReadback} of the back buffer, or of a {@link RenderTarget},
+ * which completes a few frames later; the pixels are then copied, flipped top
+ * row first, into a reusable frame buffer and handed to a
+ * {@link FrameEncoder} on background threads.<br>
+ * <br>
+ * The number of frames waiting for the encoder is bounded: when the encoder
+ * falls behind, new frames are dropped rather than blocking the render
+ * thread, and counted by {@link #getDroppedFrameCount()}.
+ */
+public class FrameCapture {
+	
+	private final PixelReadback readback;
+	private final FrameEncoder encoder;
+	private final ExecutorService executor;
+	private final BlockingQueue<ByteBuffer> frames;
+	private final int maxFrames;
+	private final AtomicLong encoded;
+	private final AtomicReference<IOException> error;
+	private final PixelReadback.Listener listener;
+	private int allocated;
+	private long frameIndex;
+	private long dropped;
+	
+	/**Constructs a {@link FrameCapture} using the current {@link Thread}'s
+	 * {@link CapabilityProvider}, with a latency of 3 frames and up to 8
+	 * frames waiting for the encoder.
+	 * 
+	 * @param encoder - The {@link FrameEncoder}
+	 */
+	public FrameCapture(FrameEncoder encoder) {
+		this(CapabilityProvider.get(), encoder, 3, 8, Math.max(1, Runtime.getRuntime().availableProcessors() - 1));
+	}
+	
+	/**Constructs a {@link FrameCapture}.
+	 * 
+	 * @param provider - The {@link CapabilityProvider}
+	 * @param encoder - The {@link FrameEncoder}
+	 * @param latency - The number of readbacks in flight
+	 * @param maxFrames - The maximum number of frames waiting for the encoder
+	 * @param threads - The number of encoder threads, 1 if the encoder is not
+	 * concurrent
+	 */
+	public FrameCapture(CapabilityProvider provider, FrameEncoder encoder, int latency, int maxFrames, int threads) {
+		if (encoder == null) {
+			throw new NullPointerException("Encoder is null!");
+		} else if (maxFrames <= 0) {
+			throw new IllegalArgumentException("'maxFrames' <= 0 (" + maxFrames + ")");
+		} else if (threads <= 0) {
+			throw new IllegalArgumentException("'threads' <= 0 (" + threads + ")");
+		}
+		this.readback = new PixelReadback(provider, latency);
+		this.encoder = encoder;
+		this.executor = Executors.newFixedThreadPool(encoder.isConcurrent() ? threads : 1, new ThreadFactory() {
+			private final AtomicInteger count = new AtomicInteger();
+			
+			@Override
+			public Thread newThread(Runnable r) {
+				Thread thread = new Thread(r, "OOLWRE Capture Encoder " + this.count.getAndIncrement());
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+		this.frames = new ArrayBlockingQueue<>(maxFrames);
+		this.maxFrames = maxFrames;
+		this.encoded = new AtomicLong();
+		this.error = new AtomicReference<>();
+		this.listener = new PixelReadback.Listener() {
+			@Override
+			public void onReadback(ByteBuffer pixels, int width, int height) {
+				FrameCapture.this.submit(pixels, width, height);
+			}
+		};
+	}
+	
+	/**Queues the capture of the back buffer of the default framebuffer, to be
+	 * called before swapping the buffers, and hands the completed captures to
+	 * the encoder.
+	 * 
+	 * @param width - The width of the default framebuffer
+	 * @param height - The height of the default framebuffer
+	 */
+	public void capture(int width, int height) {
+		this.readback.poll();
+		this.readback.read(null, 0, 0, 0, width, height, Image.Format.RGBA, Type.UNSIGNED_BYTE, this.listener);
+	}
+	
+	/**Queues the capture of the first color attachment of <code>target</code>,
+	 * and hands the completed captures to the encoder.
+	 * 
+	 * @param target - The {@link RenderTarget}, single-sampled
+	 */
+	public void capture(RenderTarget target) {
+		this.readback.poll();
+		this.readback.read(target.getFramebuffer(), 0, 0, 0, target.getWidth(), target.getHeight(),
+				Image.Format.RGBA, Type.UNSIGNED_BYTE, this.listener);
+	}
+	
+	/**Hands the completed captures to the encoder, for frames without
+	 * capture.
+	 */
+	public void poll() {
+		this.readback.poll();
+	}
+	
+	/**Waits for the pending readbacks, and hands them to the encoder.
+	 */
+	public void flush() {
+		this.readback.finish();
+	}
+	
+	/**Returns the number of frames dropped because the encoder fell behind.
+	 */
+	public long getDroppedFrameCount() {
+		return this.dropped;
+	}
+	
+	/**Returns the number of frames encoded.
+	 */
+	public long getEncodedFrameCount() {
+		return this.encoded.get();
+	}
+	
+	/**Throws the first error raised by the encoder, if any.
+	 * 
+	 * @throws IOException The error of the encoder
+	 */
+	public void checkError() throws IOException {
+		IOException e = this.error.get();
+		if (e != null) {
+			throw e;
+		}
+	}
+	
+	/**Completes the pending captures, waits for the encoder to finish and
+	 * closes it, then releases every resource.
+	 * 
+	 * @throws IOException If the encoder raised an error or could not be
+	 * closed
+	 */
+	public void destroy() throws IOException {
+		try {
+			this.readback.finish();
+		} finally {
+			this.readback.destroy();
+			this.executor.shutdown();
+			boolean interrupted = false;
+			while (true) {
+				try {
+					this.executor.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+					break;
+				} catch (InterruptedException e) {
+					interrupted = true;
+				}
+			}
+			ByteBuffer frame;
+			while ((frame = this.frames.poll()) != null) {
+				MemoryUtil.memFree(frame);
+			}
+			this.encoder.close();
+			if (interrupted) {
+				Thread.currentThread().interrupt();
+			}
+		}
+		this.checkError();
+	}
+	
+	/**Copies the pixels into a free frame, top row first, and hands it to the
+	 * encoder threads. Called on the render thread.
+	 */
+	private void submit(ByteBuffer pixels, final int width, final int height) {
+		int stride = width * 4;
+		int size = stride * height;
+		ByteBuffer frame = this.frames.poll();
+		if (frame == null) {
+			if (this.allocated == this.maxFrames) {
+				this.dropped++;
+				return;
+			}
+			this.allocated++;
+			frame = MemoryUtil.memAlloc(size);
+		} else if (frame.capacity() < size) {
+			MemoryUtil.memFree(frame);
+			frame = MemoryUtil.memAlloc(size);
+		}
+		long src = MemoryUtil.memAddress(pixels);
+		long dst = MemoryUtil.memAddress0(frame);
+		for (int y = 0; y < height; y++) {
+			MemoryUtil.memCopy(src + (long) (height - 1 - y) * stride, dst + (long) y * stride, stride);
+		}
+		frame.clear().limit(size);
+		final ByteBuffer encodedFrame = frame;
+		final long index = this.frameIndex++;
+		this.executor.execute(new Runnable() {
+			@Override
+			public void run() {
+				try {
+					FrameCapture.this.encoder.encode(encodedFrame, width, height, index);
+					FrameCapture.this.encoded.incrementAndGet();
+				} catch (IOException e) {
+					FrameCapture.this.error.compareAndSet(null, e);
+				} finally {
+					FrameCapture.this.frames.offer(encodedFrame);
+				}
+			}
+		});
+	}
+}
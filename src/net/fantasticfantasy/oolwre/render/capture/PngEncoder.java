@@ -0,0 +1,75 @@
+/*Copyright (c) 2017 Fantastic Fantasy All rights reserved.
+ *
+ * Permission to use, copy, modify and/or redistribute in source or binary form
+ * is hereby granted, free of charge, subject to the following conditions:
+ *
+ * - Redistribution of source code shall include the above copyright notice,
+ *  this list of conditions and the following disclaimer.
+ *
+ * - Redistribution in binary form shall include the above copyright notice,
+ *  this list of conditions and the following disclaimer in the documentation
+ *  and/or other materials provided with the distribution.
+ *
+ * - Neither the name Object Oriented Lightweight Render Engine nor the names
+ *  of its contributors may be used to endorse or promote products derived
+ *  from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE
+ * OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package net.fantasticfantasy.oolwre.render.capture;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import org.lwjgl.stb.STBImageWrite;
+
+/**A <code>PngEncoder</code> writes every frame to its own PNG file, named
+ * after a prefix and the frame index, using the {@link STBImageWrite}
+ * library. Frames are encoded concurrently.
+ */
+public class PngEncoder implements FrameEncoder {
+	
+	private final Path directory;
+	private final String prefix;
+	
+	/**Constructs a {@link PngEncoder}.
+	 * 
+	 * @param directory - The directory of the files, which must exist
+	 * @param prefix - The prefix of the file names
+	 */
+	public PngEncoder(Path directory, String prefix) {
+		if (directory == null) {
+			throw new NullPointerException("Directory is null!");
+		}
+		this.directory = directory;
+		this.prefix = prefix == null ? "" : prefix;
+	}
+	
+	/**Writes <code>pixels</code> to <code>prefix</code> followed by the frame
+	 * index on six digits and <code>.png</code>.
+	 */
+	@Override
+	public void encode(ByteBuffer pixels, int width, int height, long frame) throws IOException {
+		Path file = this.directory.resolve(String.format("%s%06d.png", this.prefix, frame));
+		if (!STBImageWrite.stbi_write_png(file.toString(), width, height, 4, pixels, width * 4)) {
+			throw new IOException("Could not write " + file);
+		}
+	}
+	
+	@Override
+	public boolean isConcurrent() {
+		return true;
+	}
+	
+	@Override
+	public void close() {}
+}
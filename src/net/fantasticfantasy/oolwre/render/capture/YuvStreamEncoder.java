@@ -0,0 +1,137 @@
+/*Copyright (c) 2017 Fantastic Fantasy All rights reserved.
+ *
+ * Permission to use, copy, modify and/or redistribute in source or binary form
+ * is hereby granted, free of charge, subject to the following conditions:
+ *
+ * - Redistribution of source code shall include the above copyright notice,
+ *  this list of conditions and the following disclaimer.
+ *
+ * - Redistribution in binary form shall include the above copyright notice,
+ *  this list of conditions and the following disclaimer in the documentation
+ *  and/or other materials provided with the distribution.
+ *
+ * - Neither the name Object Oriented Lightweight Render Engine nor the names
+ *  of its contributors may be used to endorse or promote products derived
+ *  from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE
+ * OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package net.fantasticfantasy.oolwre.render.capture;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import org.lwjgl.system.MemoryUtil;
+
+/**A <code>YuvStreamEncoder</code> writes the frames to a channel as a raw
+ * YUV 4:2:0 planar stream (I420), with BT.601 limited range values, such as
+ * expected by video encoders reading <code>rawvideo</code> input. Frames are
+ * encoded in order on a single thread.
+ */
+public class YuvStreamEncoder implements FrameEncoder {
+	
+	private final WritableByteChannel channel;
+	private ByteBuffer yuv;
+	
+	/**Constructs a {@link YuvStreamEncoder}, which closes <code>channel</code>
+	 * when closed.
+	 * 
+	 * @param channel - The {@link WritableByteChannel} receiving the stream
+	 */
+	public YuvStreamEncoder(WritableByteChannel channel) {
+		if (channel == null) {
+			throw new NullPointerException("Channel is null!");
+		}
+		this.channel = channel;
+	}
+	
+	/**Opens a {@link YuvStreamEncoder} writing to a file, truncated first.
+	 * 
+	 * @param file - The path of the file
+	 * 
+	 * @throws IOException If the file could not be opened
+	 */
+	public static YuvStreamEncoder open(Path file) throws IOException {
+		return new YuvStreamEncoder(FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+				StandardOpenOption.TRUNCATE_EXISTING));
+	}
+	
+	@Override
+	public void encode(ByteBuffer pixels, int width, int height, long frame) throws IOException {
+		int cw = (width + 1) >> 1;
+		int ch = (height + 1) >> 1;
+		int lumaSize = width * height;
+		int chromaSize = cw * ch;
+		int size = lumaSize + 2 * chromaSize;
+		if (this.yuv == null || this.yuv.capacity() < size) {
+			if (this.yuv != null) {
+				MemoryUtil.memFree(this.yuv);
+			}
+			this.yuv = MemoryUtil.memAlloc(size);
+		}
+		ByteBuffer yuv = this.yuv;
+		int stride = width * 4;
+		for (int y = 0; y < height; y++) {
+			int src = y * stride;
+			int dst = y * width;
+			for (int x = 0; x < width; x++, src += 4) {
+				int r = pixels.get(src) & 0xFF;
+				int g = pixels.get(src + 1) & 0xFF;
+				int b = pixels.get(src + 2) & 0xFF;
+				yuv.put(dst + x, (byte) (((66 * r + 129 * g + 25 * b + 128) >> 8) + 16));
+			}
+		}
+		for (int cy = 0; cy < ch; cy++) {
+			int y0 = cy << 1;
+			int y1 = Math.min(y0 + 1, height - 1);
+			for (int cx = 0; cx < cw; cx++) {
+				int x0 = cx << 1;
+				int x1 = Math.min(x0 + 1, width - 1);
+				int p00 = y0 * stride + x0 * 4;
+				int p01 = y0 * stride + x1 * 4;
+				int p10 = y1 * stride + x0 * 4;
+				int p11 = y1 * stride + x1 * 4;
+				int r = ((pixels.get(p00) & 0xFF) + (pixels.get(p01) & 0xFF) + (pixels.get(p10) & 0xFF) +
+						(pixels.get(p11) & 0xFF) + 2) >> 2;
+				int g = ((pixels.get(p00 + 1) & 0xFF) + (pixels.get(p01 + 1) & 0xFF) +
+						(pixels.get(p10 + 1) & 0xFF) + (pixels.get(p11 + 1) & 0xFF) + 2) >> 2;
+				int b = ((pixels.get(p00 + 2) & 0xFF) + (pixels.get(p01 + 2) & 0xFF) +
+						(pixels.get(p10 + 2) & 0xFF) + (pixels.get(p11 + 2) & 0xFF) + 2) >> 2;
+				int index = cy * cw + cx;
+				yuv.put(lumaSize + index, (byte) (((-38 * r - 74 * g + 112 * b + 128) >> 8) + 128));
+				yuv.put(lumaSize + chromaSize + index, (byte) (((112 * r - 94 * g - 18 * b + 128) >> 8) + 128));
+			}
+		}
+		yuv.position(0).limit(size);
+		while (yuv.hasRemaining()) {
+			this.channel.write(yuv);
+		}
+		yuv.clear();
+	}
+	
+	@Override
+	public boolean isConcurrent() {
+		return false;
+	}
+	
+	@Override
+	public void close() throws IOException {
+		this.channel.close();
+		if (this.yuv != null) {
+			MemoryUtil.memFree(this.yuv);
+			this.yuv = null;
+		}
+	}
+}
@@ -0,0 +1,926 @@
+/*Copyright (c) 2017 Fantastic Fantasy All rights reserved.
+ *
+ * Permission to use, copy, modify and/or redistribute in source or binary form
+ * is hereby granted, free of charge, subject to the following conditions:
+ *
+ * - Redistribution of source code shall include the above copyright notice,
+ *  this list of conditions and the following disclaimer.
+ *
+ * - Redistribution in binary form shall include the above copyright notice,
+ *  this list of conditions and the following disclaimer in the documentation
+ *  and/or other materials provided with the distribution.
+ *
+ * - Neither the name Object Oriented Lightweight Render Engine nor the names
+ *  of its contributors may be used to endorse or promote products derived
+ *  from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE
+ * OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package net.fantasticfantasy.oolwre.render.culling;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import net.fantasticfantasy.oolwre.math.Vector3f;
+
+/**An <code>AABBTree</code> is a dynamic bounding volume hierarchy of axis
+ * aligned boxes, used to reject whole groups of objects during culling and
+ * picking.<br><br>
+ * Every object is stored in a leaf, identified by a <i>proxy</i> returned by
+ * {@link #insert(float, float, float, float, float, float, int) insert(...)}.
+ * Leaves are enlarged by a margin so that small moves do not restructure the
+ * tree. Objects can be updated in two ways:
+ * <ul>
+ * <li>{@link #move(int, float, float, float, float, float, float) move(...)}
+ * reinserts the leaf when it leaves its enlarged box, keeping the tree
+ * balanced;</li>
+ * <li>{@link #setBounds(int, float, float, float, float, float, float)
+ * setBounds(...)} only writes the leaf, and may be called from several threads
+ * for different proxies. The parents are then updated by
+ * {@link #refit(ForkJoinPool)}, and the tree can be rebuilt from scratch with
+ * {@link #rebuild()} once its quality has degraded.</li>
+ * </ul>
+ * The queries do not allocate anything, but reuse an internal stack: they are
+ * not thread safe, and must not modify the tree from their visitor.
+ */
+public final class AABBTree {
+	
+	private static final int NONE = -1;
+	private static final int BINS = 16;
+	private static final int PARALLEL_THRESHOLD = 4096;
+	
+	private final float margin;
+	
+	private float[] boxes;
+	private int[] parents;
+	private int[] children1;
+	private int[] children2;
+	private int[] heights;
+	private int[] data;
+	private int capacity;
+	private int nodeCount;
+	private int freeList;
+	private int root;
+	private int proxyCount;
+	
+	private int[] stack;
+	private int[] maskStack;
+	private int[] order;
+	private int[] levelStarts;
+	private final float[] binBoxes;
+	private final int[] binCounts;
+	private final float[] binAreas;
+	
+	/**Constructs an empty {@link AABBTree}.
+	 * 
+	 * @param margin - The distance by which the boxes of the leaves are enlarged
+	 */
+	public AABBTree(float margin) {
+		if (margin < 0f) {
+			throw new IllegalArgumentException("'margin' < 0 (" + margin + ")");
+		}
+		this.margin = margin;
+		this.root = NONE;
+		this.freeList = NONE;
+		this.allocate(16);
+		this.stack = new int[64];
+		this.maskStack = new int[64];
+		this.order = new int[0];
+		this.levelStarts = new int[0];
+		this.binBoxes = new float[BINS * 6];
+		this.binCounts = new int[BINS];
+		this.binAreas = new float[BINS];
+	}
+	
+	/**Inserts an object.
+	 * 
+	 * @param minX - The minimum <code>x</code> coordinate
+	 * @param minY - The minimum <code>y</code> coordinate
+	 * @param minZ - The minimum <code>z</code> coordinate
+	 * @param maxX - The maximum <code>x</code> coordinate
+	 * @param maxY - The maximum <code>y</code> coordinate
+	 * @param maxZ - The maximum <code>z</code> coordinate
+	 * @param userData - A value passed to the visitors, usually the index of
+	 * the object
+	 * 
+	 * @return The proxy of the object
+	 */
+	public int insert(float minX, float minY, float minZ, float maxX, float maxY, float maxZ, int userData) {
+		int leaf = this.allocateNode();
+		this.setBox(leaf, minX - this.margin, minY - this.margin, minZ - this.margin, maxX + this.margin,
+				maxY + this.margin, maxZ + this.margin);
+		this.data[leaf] = userData;
+		this.heights[leaf] = 0;
+		this.insertLeaf(leaf);
+		this.proxyCount++;
+		return leaf;
+	}
+	
+	/**Inserts an object.
+	 * 
+	 * @param min - The minimum corner of the box
+	 * @param max - The maximum corner of the box
+	 * @param userData - A value passed to the visitors
+	 * 
+	 * @return The proxy of the object
+	 */
+	public int insert(Vector3f min, Vector3f max, int userData) {
+		return this.insert(min.x, min.y, min.z, max.x, max.y, max.z, userData);
+	}
+	
+	/**Removes an object.
+	 * 
+	 * @param proxy - The proxy returned by {@link #insert(float, float, float,
+	 * float, float, float, int) insert(...)}
+	 */
+	public void remove(int proxy) {
+		this.checkProxy(proxy);
+		this.removeLeaf(proxy);
+		this.freeNode(proxy);
+		this.proxyCount--;
+	}
+	
+	/**Moves an object. The tree is only modified if the new box is not
+	 * contained in the enlarged box of the leaf.
+	 * 
+	 * @param proxy - The proxy of the object
+	 * @param minX - The minimum <code>x</code> coordinate
+	 * @param minY - The minimum <code>y</code> coordinate
+	 * @param minZ - The minimum <code>z</code> coordinate
+	 * @param maxX - The maximum <code>x</code> coordinate
+	 * @param maxY - The maximum <code>y</code> coordinate
+	 * @param maxZ - The maximum <code>z</code> coordinate
+	 * 
+	 * @return Whether or not the leaf has been reinserted
+	 */
+	public boolean move(int proxy, float minX, float minY, float minZ, float maxX, float maxY, float maxZ) {
+		this.checkProxy(proxy);
+		float[] b = this.boxes;
+		int i = proxy * 6;
+		if (b[i] <= minX && b[i + 1] <= minY && b[i + 2] <= minZ && b[i + 3] >= maxX && b[i + 4] >= maxY &&
+				b[i + 5] >= maxZ) {
+			return false;
+		}
+		this.removeLeaf(proxy);
+		this.setBox(proxy, minX - this.margin, minY - this.margin, minZ - this.margin, maxX + this.margin,
+				maxY + this.margin, maxZ + this.margin);
+		this.insertLeaf(proxy);
+		return true;
+	}
+	
+	/**Moves an object.
+	 * 
+	 * @param proxy - The proxy of the object
+	 * @param min - The minimum corner of the box
+	 * @param max - The maximum corner of the box
+	 * 
+	 * @return Whether or not the leaf has been reinserted
+	 * 
+	 * @see #move(int, float, float, float, float, float, float)
+	 */
+	public boolean move(int proxy, Vector3f min, Vector3f max) {
+		return this.move(proxy, min.x, min.y, min.z, max.x, max.y, max.z);
+	}
+	
+	/**Sets the box of an object without updating its parents, which must be
+	 * done by {@link #refit(ForkJoinPool)} before the next query. Different
+	 * proxies may be updated concurrently.
+	 * 
+	 * @param proxy - The proxy of the object
+	 * @param minX - The minimum <code>x</code> coordinate
+	 * @param minY - The minimum <code>y</code> coordinate
+	 * @param minZ - The minimum <code>z</code> coordinate
+	 * @param maxX - The maximum <code>x</code> coordinate
+	 * @param maxY - The maximum <code>y</code> coordinate
+	 * @param maxZ - The maximum <code>z</code> coordinate
+	 */
+	public void setBounds(int proxy, float minX, float minY, float minZ, float maxX, float maxY, float maxZ) {
+		this.checkProxy(proxy);
+		this.setBox(proxy, minX - this.margin, minY - this.margin, minZ - this.margin, maxX + this.margin,
+				maxY + this.margin, maxZ + this.margin);
+	}
+	
+	/**Recomputes the boxes of every internal node from the boxes of the leaves,
+	 * without changing the structure of the tree. The nodes are processed level
+	 * by level, and the large levels are split among the threads of
+	 * <code>pool</code>.
+	 * 
+	 * @param pool - The {@link ForkJoinPool}, or <code>null</code> to refit on
+	 * the calling thread
+	 */
+	public void refit(ForkJoinPool pool) {
+		if (this.root == NONE || this.heights[this.root] == 0) {
+			return;
+		}
+		int levels = this.heights[this.root];
+		if (this.levelStarts.length < levels + 2) {
+			this.levelStarts = new int[levels + 2];
+		} else {
+			Arrays.fill(this.levelStarts, 0);
+		}
+		int internal = this.nodeCount - this.proxyCount;
+		if (this.order.length < internal) {
+			this.order = new int[internal];
+		}
+		//Counting sort of the internal nodes by height
+		for (int n = 0; n < this.capacity; n++) {
+			if (this.heights[n] > 0) {
+				this.levelStarts[this.heights[n] + 1]++;
+			}
+		}
+		for (int h = 1; h <= levels; h++) {
+			this.levelStarts[h + 1] += this.levelStarts[h];
+		}
+		int[] fill = Arrays.copyOf(this.levelStarts, levels + 1);
+		for (int n = 0; n < this.capacity; n++) {
+			if (this.heights[n] > 0) {
+				this.order[fill[this.heights[n]]++] = n;
+			}
+		}
+		for (int h = 1; h <= levels; h++) {
+			int start = this.levelStarts[h], end = this.levelStarts[h + 1];
+			if (pool != null && end - start >= PARALLEL_THRESHOLD) {
+				pool.invoke(new RefitTask(this, start, end));
+			} else {
+				this.refitRange(start, end);
+			}
+		}
+	}
+	
+	/**Rebuilds the whole tree top-down, splitting the nodes with a binned
+	 * surface area heuristic. The proxies stay valid.
+	 */
+	public void rebuild() {
+		if (this.proxyCount < 3) {
+			return;
+		}
+		int[] leaves = new int[this.proxyCount];
+		int count = 0;
+		for (int n = 0; n < this.capacity; n++) {
+			if (this.heights[n] == 0) {
+				leaves[count++] = n;
+			} else if (this.heights[n] > 0) {
+				this.freeNode(n);
+			}
+		}
+		this.root = this.build(leaves, 0, count);
+		this.parents[this.root] = NONE;
+	}
+	
+	/**Visits every object whose box overlaps the specified box.
+	 * 
+	 * @param minX - The minimum <code>x</code> coordinate
+	 * @param minY - The minimum <code>y</code> coordinate
+	 * @param minZ - The minimum <code>z</code> coordinate
+	 * @param maxX - The maximum <code>x</code> coordinate
+	 * @param maxY - The maximum <code>y</code> coordinate
+	 * @param maxZ - The maximum <code>z</code> coordinate
+	 * @param visitor - The {@link Visitor}
+	 */
+	public void queryAABB(float minX, float minY, float minZ, float maxX, float maxY, float maxZ,
+			Visitor visitor) {
+		if (this.root == NONE) {
+			return;
+		}
+		float[] b = this.boxes;
+		int top = 0;
+		this.stack[top++] = this.root;
+		while (top > 0) {
+			int node = this.stack[--top];
+			int i = node * 6;
+			if (b[i] > maxX || b[i + 1] > maxY || b[i + 2] > maxZ || b[i + 3] < minX || b[i + 4] < minY ||
+					b[i + 5] < minZ) {
+				continue;
+			}
+			if (this.heights[node] == 0) {
+				if (!visitor.visit(node, this.data[node])) {
+					return;
+				}
+			} else {
+				top = this.push(top, this.children1[node], 0);
+				top = this.push(top, this.children2[node], 0);
+			}
+		}
+	}
+	
+	/**Visits every object whose box intersects <code>frustum</code>. Subtrees
+	 * entirely inside the frustum are visited without further tests.
+	 * 
+	 * @param frustum - The {@link Frustum}
+	 * @param visitor - The {@link Visitor}
+	 */
+	public void queryFrustum(Frustum frustum, Visitor visitor) {
+		if (this.root == NONE) {
+			return;
+		}
+		float[] b = this.boxes, p = frustum.planes, n = frustum.absNormals;
+		int top = 0;
+		top = this.push(top, this.root, (1 << Frustum.PLANE_COUNT) - 1);
+		while (top > 0) {
+			int node = this.stack[--top];
+			int mask = this.maskStack[top];
+			if (mask != 0) {
+				int i = node * 6;
+				float cx = (b[i] + b[i + 3]) * 0.5f, cy = (b[i + 1] + b[i + 4]) * 0.5f;
+				float cz = (b[i + 2] + b[i + 5]) * 0.5f;
+				float ex = (b[i + 3] - b[i]) * 0.5f, ey = (b[i + 4] - b[i + 1]) * 0.5f;
+				float ez = (b[i + 5] - b[i + 2]) * 0.5f;
+				boolean outside = false;
+				for (int plane = 0; plane < Frustum.PLANE_COUNT; plane++) {
+					if ((mask & (1 << plane)) == 0) {
+						continue;
+					}
+					int k = plane * 4;
+					float distance = p[k] * cx + p[k + 1] * cy + p[k + 2] * cz + p[k + 3];
+					float extent = n[k] * ex + n[k + 1] * ey + n[k + 2] * ez;
+					if (distance < -extent) {
+						outside = true;
+						break;
+					} else if (distance >= extent) {
+						mask &= ~(1 << plane);
+					}
+				}
+				if (outside) {
+					continue;
+				}
+			}
+			if (this.heights[node] == 0) {
+				if (!visitor.visit(node, this.data[node])) {
+					return;
+				}
+			} else {
+				top = this.push(top, this.children1[node], mask);
+				top = this.push(top, this.children2[node], mask);
+			}
+		}
+	}
+	
+	/**Casts a ray through the tree and passes every object whose box is hit
+	 * to <code>visitor</code>, which can shorten the ray.
+	 * 
+	 * @param ox - The <code>x</code> coordinate of the origin
+	 * @param oy - The <code>y</code> coordinate of the origin
+	 * @param oz - The <code>z</code> coordinate of the origin
+	 * @param dx - The <code>x</code> component of the direction
+	 * @param dy - The <code>y</code> component of the direction
+	 * @param dz - The <code>z</code> component of the direction
+	 * @param maxDistance - The length of the ray, in units of the direction
+	 * @param visitor - The {@link RayVisitor}
+	 */
+	public void raycast(float ox, float oy, float oz, float dx, float dy, float dz, float maxDistance,
+			RayVisitor visitor) {
+		if (this.root == NONE) {
+			return;
+		}
+		float ix = 1f / dx, iy = 1f / dy, iz = 1f / dz;
+		float[] b = this.boxes;
+		int top = 0;
+		this.stack[top++] = this.root;
+		while (top > 0) {
+			int node = this.stack[--top];
+			int i = node * 6;
+			float t1 = (b[i] - ox) * ix, t2 = (b[i + 3] - ox) * ix;
+			float near = Math.min(t1, t2), far = Math.max(t1, t2);
+			t1 = (b[i + 1] - oy) * iy;
+			t2 = (b[i + 4] - oy) * iy;
+			near = Math.max(near, Math.min(t1, t2));
+			far = Math.min(far, Math.max(t1, t2));
+			t1 = (b[i + 2] - oz) * iz;
+			t2 = (b[i + 5] - oz) * iz;
+			near = Math.max(near, Math.min(t1, t2));
+			far = Math.min(far, Math.max(t1, t2));
+			//NaN slabs (zero direction on the boundary) are treated as a hit
+			if (near > far || far < 0f || near > maxDistance) {
+				continue;
+			}
+			if (this.heights[node] == 0) {
+				float distance = visitor.hit(node, this.data[node], maxDistance);
+				if (distance <= 0f) {
+					return;
+				}
+				maxDistance = Math.min(maxDistance, distance);
+			} else {
+				top = this.push(top, this.children1[node], 0);
+				top = this.push(top, this.children2[node], 0);
+			}
+		}
+	}
+	
+	/**Casts a ray through the tree.
+	 * 
+	 * @param origin - The origin of the ray
+	 * @param direction - The direction of the ray
+	 * @param maxDistance - The length of the ray, in units of the direction
+	 * @param visitor - The {@link RayVisitor}
+	 * 
+	 * @see #raycast(float, float, float, float, float, float, float, RayVisitor)
+	 */
+	public void raycast(Vector3f origin, Vector3f direction, float maxDistance, RayVisitor visitor) {
+		this.raycast(origin.x, origin.y, origin.z, direction.x, direction.y, direction.z, maxDistance, visitor);
+	}
+	
+	/**Stores the enlarged box of an object in <code>min</code> and <code>max</code>.
+	 * 
+	 * @param proxy - The proxy of the object
+	 * @param min - The destination of the minimum corner
+	 * @param max - The destination of the maximum corner
+	 */
+	public void getBounds(int proxy, Vector3f min, Vector3f max) {
+		this.checkProxy(proxy);
+		int i = proxy * 6;
+		min.set(this.boxes[i], this.boxes[i + 1], this.boxes[i + 2]);
+		max.set(this.boxes[i + 3], this.boxes[i + 4], this.boxes[i + 5]);
+	}
+	
+	public int getUserData(int proxy) {
+		this.checkProxy(proxy);
+		return this.data[proxy];
+	}
+	
+	/**Returns the number of objects in the tree.
+	 */
+	public int size() {
+		return this.proxyCount;
+	}
+	
+	/**Returns the height of the tree, 0 being a single leaf.
+	 */
+	public int getHeight() {
+		return this.root == NONE ? 0 : this.heights[this.root];
+	}
+	
+	/**Returns the sum of the surface areas of the internal nodes divided by the
+	 * surface area of the root, which grows as the quality of the tree degrades.
+	 */
+	public float getAreaRatio() {
+		if (this.root == NONE) {
+			return 0f;
+		}
+		float rootArea = this.area(this.root);
+		float total = 0f;
+		for (int n = 0; n < this.capacity; n++) {
+			if (this.heights[n] > 0) {
+				total += this.area(n);
+			}
+		}
+		return rootArea == 0f ? 0f : total / rootArea;
+	}
+	
+	private void insertLeaf(int leaf) {
+		if (this.root == NONE) {
+			this.root = leaf;
+			this.parents[leaf] = NONE;
+			return;
+		}
+		int index = this.root;
+		while (this.heights[index] > 0) {
+			int child1 = this.children1[index], child2 = this.children2[index];
+			float area = this.area(index);
+			float combinedArea = this.unionArea(index, leaf);
+			float cost = 2f * combinedArea;
+			float inheritance = 2f * (combinedArea - area);
+			float cost1 = this.unionArea(child1, leaf) + inheritance;
+			if (this.heights[child1] > 0) {
+				cost1 -= this.area(child1);
+			}
+			float cost2 = this.unionArea(child2, leaf) + inheritance;
+			if (this.heights[child2] > 0) {
+				cost2 -= this.area(child2);
+			}
+			if (cost < cost1 && cost < cost2) {
+				break;
+			}
+			index = cost1 < cost2 ? child1 : child2;
+		}
+		int sibling = index;
+		int oldParent = this.parents[sibling];
+		int newParent = this.allocateNode();
+		this.parents[newParent] = oldParent;
+		this.data[newParent] = NONE;
+		this.union(newParent, leaf, sibling);
+		this.heights[newParent] = this.heights[sibling] + 1;
+		if (oldParent != NONE) {
+			this.replaceChild(oldParent, sibling, newParent);
+		} else {
+			this.root = newParent;
+		}
+		this.children1[newParent] = sibling;
+		this.children2[newParent] = leaf;
+		this.parents[sibling] = newParent;
+		this.parents[leaf] = newParent;
+		this.fixUpwards(this.parents[leaf]);
+	}
+	
+	private void removeLeaf(int leaf) {
+		if (leaf == this.root) {
+			this.root = NONE;
+			return;
+		}
+		int parent = this.parents[leaf];
+		int grandParent = this.parents[parent];
+		int sibling = this.children1[parent] == leaf ? this.children2[parent] : this.children1[parent];
+		if (grandParent != NONE) {
+			this.replaceChild(grandParent, parent, sibling);
+			this.parents[sibling] = grandParent;
+			this.freeNode(parent);
+			this.fixUpwards(grandParent);
+		} else {
+			this.root = sibling;
+			this.parents[sibling] = NONE;
+			this.freeNode(parent);
+		}
+	}
+	
+	private void fixUpwards(int index) {
+		while (index != NONE) {
+			index = this.balance(index);
+			int child1 = this.children1[index], child2 = this.children2[index];
+			this.heights[index] = 1 + Math.max(this.heights[child1], this.heights[child2]);
+			this.union(index, child1, child2);
+			index = this.parents[index];
+		}
+	}
+	
+	private int balance(int a) {
+		if (this.heights[a] < 2) {
+			return a;
+		}
+		int b = this.children1[a], c = this.children2[a];
+		int balance = this.heights[c] - this.heights[b];
+		if (balance > 1) {
+			//Rotate c up
+			int f = this.children1[c], g = this.children2[c];
+			this.children1[c] = a;
+			this.parents[c] = this.parents[a];
+			this.parents[a] = c;
+			if (this.parents[c] != NONE) {
+				this.replaceChild(this.parents[c], a, c);
+			} else {
+				this.root = c;
+			}
+			if (this.heights[f] > this.heights[g]) {
+				this.children2[c] = f;
+				this.children2[a] = g;
+				this.parents[g] = a;
+				this.union(a, b, g);
+				this.union(c, a, f);
+				this.heights[a] = 1 + Math.max(this.heights[b], this.heights[g]);
+				this.heights[c] = 1 + Math.max(this.heights[a], this.heights[f]);
+			} else {
+				this.children2[c] = g;
+				this.children2[a] = f;
+				this.parents[f] = a;
+				this.union(a, b, f);
+				this.union(c, a, g);
+				this.heights[a] = 1 + Math.max(this.heights[b], this.heights[f]);
+				this.heights[c] = 1 + Math.max(this.heights[a], this.heights[g]);
+			}
+			return c;
+		} else if (balance < -1) {
+			//Rotate b up
+			int d = this.children1[b], e = this.children2[b];
+			this.children1[b] = a;
+			this.parents[b] = this.parents[a];
+			this.parents[a] = b;
+			if (this.parents[b] != NONE) {
+				this.replaceChild(this.parents[b], a, b);
+			} else {
+				this.root = b;
+			}
+			if (this.heights[d] > this.heights[e]) {
+				this.children2[b] = d;
+				this.children1[a] = e;
+				this.parents[e] = a;
+				this.union(a, c, e);
+				this.union(b, a, d);
+				this.heights[a] = 1 + Math.max(this.heights[c], this.heights[e]);
+				this.heights[b] = 1 + Math.max(this.heights[a], this.heights[d]);
+			} else {
+				this.children2[b] = e;
+				this.children1[a] = d;
+				this.parents[d] = a;
+				this.union(a, c, d);
+				this.union(b, a, e);
+				this.heights[a] = 1 + Math.max(this.heights[c], this.heights[d]);
+				this.heights[b] = 1 + Math.max(this.heights[a], this.heights[e]);
+			}
+			return b;
+		}
+		return a;
+	}
+	
+	private int build(int[] leaves, int start, int end) {
+		if (end - start == 1) {
+			return leaves[start];
+		}
+		float[] b = this.boxes;
+		float cMinX = Float.POSITIVE_INFINITY, cMinY = Float.POSITIVE_INFINITY, cMinZ = Float.POSITIVE_INFINITY;
+		float cMaxX = Float.NEGATIVE_INFINITY, cMaxY = Float.NEGATIVE_INFINITY, cMaxZ = Float.NEGATIVE_INFINITY;
+		for (int j = start; j < end; j++) {
+			int i = leaves[j] * 6;
+			float x = b[i] + b[i + 3], y = b[i + 1] + b[i + 4], z = b[i + 2] + b[i + 5];
+			cMinX = Math.min(cMinX, x);
+			cMinY = Math.min(cMinY, y);
+			cMinZ = Math.min(cMinZ, z);
+			cMaxX = Math.max(cMaxX, x);
+			cMaxY = Math.max(cMaxY, y);
+			cMaxZ = Math.max(cMaxZ, z);
+		}
+		int axis = 0;
+		float axisMin = cMinX, axisExtent = cMaxX - cMinX;
+		if (cMaxY - cMinY > axisExtent) {
+			axis = 1;
+			axisMin = cMinY;
+			axisExtent = cMaxY - cMinY;
+		}
+		if (cMaxZ - cMinZ > axisExtent) {
+			axis = 2;
+			axisMin = cMinZ;
+			axisExtent = cMaxZ - cMinZ;
+		}
+		int middle = (start + end) >>> 1;
+		if (axisExtent > 0f) {
+			int split = this.findSplit(leaves, start, end, axis, axisMin, axisExtent);
+			if (split > 0) {
+				//Partition the leaves around the chosen bin
+				int i = start, j = end - 1;
+				float scale = BINS / axisExtent;
+				while (i <= j) {
+					int node = leaves[i] * 6;
+					int bin = Math.min(BINS - 1, (int) ((b[node + axis] + b[node + axis + 3] - axisMin) * scale));
+					if (bin < split) {
+						i++;
+					} else {
+						int swap = leaves[i];
+						leaves[i] = leaves[j];
+						leaves[j--] = swap;
+					}
+				}
+				if (i > start && i < end) {
+					middle = i;
+				}
+			}
+		}
+		int left = this.build(leaves, start, middle);
+		int right = this.build(leaves, middle, end);
+		int node = this.allocateNode();
+		this.children1[node] = left;
+		this.children2[node] = right;
+		this.parents[left] = node;
+		this.parents[right] = node;
+		this.data[node] = NONE;
+		this.heights[node] = 1 + Math.max(this.heights[left], this.heights[right]);
+		this.union(node, left, right);
+		return node;
+	}
+	
+	private int findSplit(int[] leaves, int start, int end, int axis, float axisMin, float axisExtent) {
+		float[] b = this.boxes, bins = this.binBoxes;
+		Arrays.fill(this.binCounts, 0);
+		for (int k = 0; k < BINS; k++) {
+			emptyBox(bins, k);
+		}
+		float scale = BINS / axisExtent;
+		for (int j = start; j < end; j++) {
+			int i = leaves[j] * 6;
+			int bin = Math.min(BINS - 1, (int) ((b[i + axis] + b[i + axis + 3] - axisMin) * scale));
+			this.binCounts[bin]++;
+			int k = bin * 6;
+			for (int c = 0; c < 3; c++) {
+				bins[k + c] = Math.min(bins[k + c], b[i + c]);
+				bins[k + c + 3] = Math.max(bins[k + c + 3], b[i + c + 3]);
+			}
+		}
+		//Sweep from the right to accumulate the areas of the right sides
+		float[] rightAreas = this.binAreas;
+		float minX = Float.POSITIVE_INFINITY, minY = minX, minZ = minX;
+		float maxX = Float.NEGATIVE_INFINITY, maxY = maxX, maxZ = maxX;
+		int rightCount = 0;
+		for (int k = BINS - 1; k > 0; k--) {
+			int i = k * 6;
+			minX = Math.min(minX, bins[i]);
+			minY = Math.min(minY, bins[i + 1]);
+			minZ = Math.min(minZ, bins[i + 2]);
+			maxX = Math.max(maxX, bins[i + 3]);
+			maxY = Math.max(maxY, bins[i + 4]);
+			maxZ = Math.max(maxZ, bins[i + 5]);
+			rightCount += this.binCounts[k];
+			rightAreas[k] = rightCount == 0 ? 0f : rightCount * area(maxX - minX, maxY - minY, maxZ - minZ);
+		}
+		minX = minY = minZ = Float.POSITIVE_INFINITY;
+		maxX = maxY = maxZ = Float.NEGATIVE_INFINITY;
+		int leftCount = 0;
+		int best = 0;
+		float bestCost = Float.POSITIVE_INFINITY;
+		for (int k = 0; k < BINS - 1; k++) {
+			int i = k * 6;
+			minX = Math.min(minX, bins[i]);
+			minY = Math.min(minY, bins[i + 1]);
+			minZ = Math.min(minZ, bins[i + 2]);
+			maxX = Math.max(maxX, bins[i + 3]);
+			maxY = Math.max(maxY, bins[i + 4]);
+			maxZ = Math.max(maxZ, bins[i + 5]);
+			leftCount += this.binCounts[k];
+			if (leftCount == 0 || leftCount == end - start) {
+				continue;
+			}
+			float cost = leftCount * area(maxX - minX, maxY - minY, maxZ - minZ) + rightAreas[k + 1];
+			if (cost < bestCost) {
+				bestCost = cost;
+				best = k + 1;
+			}
+		}
+		return best;
+	}
+	
+	private void refitRange(int start, int end) {
+		for (int j = start; j < end; j++) {
+			int node = this.order[j];
+			this.union(node, this.children1[node], this.children2[node]);
+		}
+	}
+	
+	private int push(int top, int node, int mask) {
+		if (top == this.stack.length) {
+			this.stack = Arrays.copyOf(this.stack, top * 2);
+			this.maskStack = Arrays.copyOf(this.maskStack, top * 2);
+		}
+		this.stack[top] = node;
+		this.maskStack[top] = mask;
+		return top + 1;
+	}
+	
+	private void replaceChild(int parent, int oldChild, int newChild) {
+		if (this.children1[parent] == oldChild) {
+			this.children1[parent] = newChild;
+		} else {
+			this.children2[parent] = newChild;
+		}
+	}
+	
+	private void setBox(int node, float minX, float minY, float minZ, float maxX, float maxY, float maxZ) {
+		int i = node * 6;
+		this.boxes[i] = minX;
+		this.boxes[i + 1] = minY;
+		this.boxes[i + 2] = minZ;
+		this.boxes[i + 3] = maxX;
+		this.boxes[i + 4] = maxY;
+		this.boxes[i + 5] = maxZ;
+	}
+	
+	private void union(int dest, int a, int b) {
+		float[] box = this.boxes;
+		int d = dest * 6, i = a * 6, j = b * 6;
+		box[d] = Math.min(box[i], box[j]);
+		box[d + 1] = Math.min(box[i + 1], box[j + 1]);
+		box[d + 2] = Math.min(box[i + 2], box[j + 2]);
+		box[d + 3] = Math.max(box[i + 3], box[j + 3]);
+		box[d + 4] = Math.max(box[i + 4], box[j + 4]);
+		box[d + 5] = Math.max(box[i + 5], box[j + 5]);
+	}
+	
+	private float area(int node) {
+		int i = node * 6;
+		return area(this.boxes[i + 3] - this.boxes[i], this.boxes[i + 4] - this.boxes[i + 1],
+				this.boxes[i + 5] - this.boxes[i + 2]);
+	}
+	
+	private float unionArea(int a, int b) {
+		float[] box = this.boxes;
+		int i = a * 6, j = b * 6;
+		return area(Math.max(box[i + 3], box[j + 3]) - Math.min(box[i], box[j]),
+				Math.max(box[i + 4], box[j + 4]) - Math.min(box[i + 1], box[j + 1]),
+				Math.max(box[i + 5], box[j + 5]) - Math.min(box[i + 2], box[j + 2]));
+	}
+	
+	private static float area(float dx, float dy, float dz) {
+		return dx * dy + dy * dz + dz * dx;
+	}
+	
+	private static void emptyBox(float[] boxes, int index) {
+		int i = index * 6;
+		boxes[i] = boxes[i + 1] = boxes[i + 2] = Float.POSITIVE_INFINITY;
+		boxes[i + 3] = boxes[i + 4] = boxes[i + 5] = Float.NEGATIVE_INFINITY;
+	}
+	
+	private int allocateNode() {
+		if (this.freeList == NONE) {
+			int oldCapacity = this.capacity;
+			this.allocate(oldCapacity * 2);
+			for (int n = oldCapacity; n < this.capacity; n++) {
+				this.parents[n] = n + 1 < this.capacity ? n + 1 : NONE;
+				this.heights[n] = NONE;
+			}
+			this.freeList = oldCapacity;
+		}
+		int node = this.freeList;
+		this.freeList = this.parents[node];
+		this.parents[node] = NONE;
+		this.children1[node] = NONE;
+		this.children2[node] = NONE;
+		this.heights[node] = 0;
+		this.nodeCount++;
+		return node;
+	}
+	
+	private void freeNode(int node) {
+		this.parents[node] = this.freeList;
+		this.heights[node] = NONE;
+		this.freeList = node;
+		this.nodeCount--;
+	}
+	
+	private void allocate(int capacity) {
+		if (this.boxes == null) {
+			this.boxes = new float[capacity * 6];
+			this.parents = new int[capacity];
+			this.children1 = new int[capacity];
+			this.children2 = new int[capacity];
+			this.heights = new int[capacity];
+			this.data = new int[capacity];
+			for (int n = 0; n < capacity; n++) {
+				this.parents[n] = n + 1 < capacity ? n + 1 : NONE;
+				this.heights[n] = NONE;
+			}
+			this.freeList = 0;
+		} else {
+			this.boxes = Arrays.copyOf(this.boxes, capacity * 6);
+			this.parents = Arrays.copyOf(this.parents, capacity);
+			this.children1 = Arrays.copyOf(this.children1, capacity);
+			this.children2 = Arrays.copyOf(this.children2, capacity);
+			this.heights = Arrays.copyOf(this.heights, capacity);
+			this.data = Arrays.copyOf(this.data, capacity);
+		}
+		this.capacity = capacity;
+	}
+	
+	private void checkProxy(int proxy) {
+		if (proxy < 0 || proxy >= this.capacity || this.heights[proxy] != 0) {
+			throw new IllegalArgumentException("Invalid proxy (" + proxy + ")");
+		}
+	}
+	
+	/**Receives the objects found by the box and frustum queries.
+	 */
+	public static interface Visitor {
+		
+		/**Called for every object found.
+		 * 
+		 * @param proxy - The proxy of the object
+		 * @param userData - The value passed when the object was inserted
+		 * 
+		 * @return Whether or not the query should continue
+		 */
+		public boolean visit(int proxy, int userData);
+	}
+	
+	/**Receives the objects whose box is hit by a ray.
+	 */
+	public static interface RayVisitor {
+		
+		/**Called for every object whose box is hit by the ray. The visitor
+		 * usually performs an exact intersection test.
+		 * 
+		 * @param proxy - The proxy of the object
+		 * @param userData - The value passed when the object was inserted
+		 * @param maxDistance - The current length of the ray
+		 * 
+		 * @return The new length of the ray, <code>maxDistance</code> to
+		 * continue unchanged, or 0 to stop the query
+		 */
+		public float hit(int proxy, int userData, float maxDistance);
+	}
+	
+	private static final class RefitTask extends RecursiveAction {
+		
+		private static final long serialVersionUID = 1L;
+		
+		private final AABBTree tree;
+		private final int start;
+		private final int end;
+		
+		private RefitTask(AABBTree tree, int start, int end) {
+			this.tree = tree;
+			this.start = start;
+			this.end = end;
+		}
+		
+		protected void compute() {
+			if (this.end - this.start > PARALLEL_THRESHOLD) {
+				int middle = (this.start + this.end) >>> 1;
+				invokeAll(new RefitTask(this.tree, this.start, middle), new RefitTask(this.tree, middle, this.end));
+			} else {
+				this.tree.refitRange(this.start, this.end);
+			}
+		}
+	}
+}
@@ -0,0 +1,216 @@
+/*Copyright (c) 2017 Fantastic Fantasy All rights reserved.
+ *
+ * Permission to use, copy, modify and/or redistribute in source or binary form
+ * is hereby granted, free of charge, subject to the following conditions:
+ *
+ * - Redistribution of source code shall include the above copyright notice,
+ *  this list of conditions and the following disclaimer.
+ *
+ * - Redistribution in binary form shall include the above copyright notice,
+ *  this list of conditions and the following disclaimer in the documentation
+ *  and/or other materials provided with the distribution.
+ *
+ * - Neither the name Object Oriented Lightweight Render Engine nor the names
+ *  of its contributors may be used to endorse or promote products derived
+ *  from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE
+ * OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package net.fantasticfantasy.oolwre.render.culling;
+
+import java.util.Arrays;
+
+/**A <code>BoundsArray</code> stores the bounding volumes of many objects in a
+ * structure of arrays, so that culling loops read contiguous floats.<br>
+ * Every entry is an axis aligned box, stored as its center and half extents,
+ * and a bounding sphere sharing the same center. Culling an entry tests
+ * whichever of the two volumes is the tightest for every plane, so entries set
+ * with {@link #setSphere(int, float, float, float, float) setSphere(...)} are
+ * culled as spheres and entries set with
+ * {@link #setAABB(int, float, float, float, float, float, float) setAABB(...)}
+ * as boxes.<br><br>
+ * The arrays are exposed to allow filling them directly; they are replaced
+ * when the capacity grows, so they must be queried again after
+ * {@link #add()} or {@link #setSize(int)}.
+ */
+public final class BoundsArray {
+	
+	private float[] centerX, centerY, centerZ;
+	private float[] extentX, extentY, extentZ;
+	private float[] radius;
+	private int size;
+	
+	public BoundsArray() {
+		this(64);
+	}
+	
+	/**Constructs a {@link BoundsArray}.
+	 * 
+	 * @param capacity - The initial capacity
+	 */
+	public BoundsArray(int capacity) {
+		if (capacity < 0) {
+			throw new IllegalArgumentException("'capacity' < 0 (" + capacity + ")");
+		}
+		this.allocate(capacity);
+	}
+	
+	/**Appends an entry, which is left uninitialized.
+	 * 
+	 * @return The index of the new entry
+	 */
+	public int add() {
+		this.setSize(this.size + 1);
+		return this.size - 1;
+	}
+	
+	/**Sets entry <code>i</code> to an axis aligned box.
+	 * 
+	 * @param i - The index of the entry
+	 * @param minX - The minimum <code>x</code> coordinate
+	 * @param minY - The minimum <code>y</code> coordinate
+	 * @param minZ - The minimum <code>z</code> coordinate
+	 * @param maxX - The maximum <code>x</code> coordinate
+	 * @param maxY - The maximum <code>y</code> coordinate
+	 * @param maxZ - The maximum <code>z</code> coordinate
+	 */
+	public void setAABB(int i, float minX, float minY, float minZ, float maxX, float maxY, float maxZ) {
+		this.check(i);
+		float ex = (maxX - minX) * 0.5f, ey = (maxY - minY) * 0.5f, ez = (maxZ - minZ) * 0.5f;
+		this.centerX[i] = (minX + maxX) * 0.5f;
+		this.centerY[i] = (minY + maxY) * 0.5f;
+		this.centerZ[i] = (minZ + maxZ) * 0.5f;
+		this.extentX[i] = ex;
+		this.extentY[i] = ey;
+		this.extentZ[i] = ez;
+		this.radius[i] = (float) Math.sqrt(ex * ex + ey * ey + ez * ez);
+	}
+	
+	/**Sets entry <code>i</code> to a sphere.
+	 * 
+	 * @param i - The index of the entry
+	 * @param x - The <code>x</code> coordinate of the center
+	 * @param y - The <code>y</code> coordinate of the center
+	 * @param z - The <code>z</code> coordinate of the center
+	 * @param radius - The radius
+	 */
+	public void setSphere(int i, float x, float y, float z, float radius) {
+		this.check(i);
+		this.centerX[i] = x;
+		this.centerY[i] = y;
+		this.centerZ[i] = z;
+		this.extentX[i] = radius;
+		this.extentY[i] = radius;
+		this.extentZ[i] = radius;
+		this.radius[i] = radius;
+	}
+	
+	/**Removes entry <code>i</code> by moving the last entry in its place.
+	 * 
+	 * @param i - The index of the entry
+	 * 
+	 * @return The former index of the entry moved to <code>i</code>, or -1 if
+	 * <code>i</code> was the last entry
+	 */
+	public int removeSwap(int i) {
+		this.check(i);
+		int last = --this.size;
+		if (i == last) {
+			return -1;
+		}
+		this.centerX[i] = this.centerX[last];
+		this.centerY[i] = this.centerY[last];
+		this.centerZ[i] = this.centerZ[last];
+		this.extentX[i] = this.extentX[last];
+		this.extentY[i] = this.extentY[last];
+		this.extentZ[i] = this.extentZ[last];
+		this.radius[i] = this.radius[last];
+		return last;
+	}
+	
+	public void clear() {
+		this.size = 0;
+	}
+	
+	public int size() {
+		return this.size;
+	}
+	
+	/**Sets the number of entries, growing the arrays if needed. New entries are
+	 * left uninitialized.
+	 * 
+	 * @param size - The number of entries
+	 */
+	public void setSize(int size) {
+		if (size < 0) {
+			throw new IllegalArgumentException("'size' < 0 (" + size + ")");
+		}
+		if (size > this.centerX.length) {
+			this.allocate(Math.max(size, this.centerX.length * 2));
+		}
+		this.size = size;
+	}
+	
+	public float[] getCenterX() {
+		return this.centerX;
+	}
+	
+	public float[] getCenterY() {
+		return this.centerY;
+	}
+	
+	public float[] getCenterZ() {
+		return this.centerZ;
+	}
+	
+	public float[] getExtentX() {
+		return this.extentX;
+	}
+	
+	public float[] getExtentY() {
+		return this.extentY;
+	}
+	
+	public float[] getExtentZ() {
+		return this.extentZ;
+	}
+	
+	public float[] getRadius() {
+		return this.radius;
+	}
+	
+	private void allocate(int capacity) {
+		if (this.centerX == null) {
+			this.centerX = new float[capacity];
+			this.centerY = new float[capacity];
+			this.centerZ = new float[capacity];
+			this.extentX = new float[capacity];
+			this.extentY = new float[capacity];
+			this.extentZ = new float[capacity];
+			this.radius = new float[capacity];
+		} else {
+			this.centerX = Arrays.copyOf(this.centerX, capacity);
+			this.centerY = Arrays.copyOf(this.centerY, capacity);
+			this.centerZ = Arrays.copyOf(this.centerZ, capacity);
+			this.extentX = Arrays.copyOf(this.extentX, capacity);
+			this.extentY = Arrays.copyOf(this.extentY, capacity);
+			this.extentZ = Arrays.copyOf(this.extentZ, capacity);
+			this.radius = Arrays.copyOf(this.radius, capacity);
+		}
+	}
+	
+	private void check(int i) {
+		if (i < 0 || i >= this.size) {
+			throw new IndexOutOfBoundsException("Index: " + i + ", Size: " + this.size);
+		}
+	}
+}
@@ -0,0 +1,127 @@
+/*Copyright (c) 2017 Fantastic Fantasy All rights reserved.
+ *
+ * Permission to use, copy, modify and/or redistribute in source or binary form
+ * is hereby granted, free of charge, subject to the following conditions:
+ *
+ * - Redistribution of source code shall include the above copyright notice,
+ *  this list of conditions and the following disclaimer.
+ *
+ * - Redistribution in binary form shall include the above copyright notice,
+ *  this list of conditions and the following disclaimer in the documentation
+ *  and/or other materials provided with the distribution.
+ *
+ * - Neither the name Object Oriented Lightweight Render Engine nor the names
+ *  of its contributors may be used to endorse or promote products derived
+ *  from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE
+ * OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package net.fantasticfantasy.oolwre.render.culling;
+
+import java.util.Arrays;
+
+/**An {@link OcclusionBackend} evaluating the visibility of the objects on the
+ * CPU through a {@link Test}, such as a software rasterizer or a precomputed
+ * visibility set. It needs no OpenGL context, so the scheduling logic of an
+ * {@link OcclusionCuller} can be run headlessly.<br>
+ * To simulate the latency of the GPU, the result of a query can be made
+ * unavailable for {@link #setResultDelay(int) a number} of calls to
+ * {@link #isResultAvailable(int)}.
+ */
+public class CPUOcclusionBackend implements OcclusionBackend {
+	
+	private final Test test;
+	private boolean[] results;
+	private int[] delays;
+	private int[] free;
+	private int freeCount;
+	private int queryCount;
+	private int resultDelay;
+	
+	/**Constructs a {@link CPUOcclusionBackend} with results available
+	 * immediately.
+	 * 
+	 * @param test - The {@link Test} evaluating the visibility of the objects
+	 */
+	public CPUOcclusionBackend(Test test) {
+		if (test == null) {
+			throw new NullPointerException("Test is null!");
+		}
+		this.test = test;
+		this.results = new boolean[16];
+		this.delays = new int[16];
+		this.free = new int[16];
+	}
+	
+	/**Sets the number of calls to {@link #isResultAvailable(int)} returning
+	 * <code>false</code> after a query has been issued.
+	 * 
+	 * @param resultDelay - The delay, 0 for results available immediately
+	 */
+	public void setResultDelay(int resultDelay) {
+		if (resultDelay < 0) {
+			throw new IllegalArgumentException("'resultDelay' < 0 (" + resultDelay + ")");
+		}
+		this.resultDelay = resultDelay;
+	}
+	
+	public int createQuery() {
+		if (this.freeCount > 0) {
+			return this.free[--this.freeCount];
+		}
+		int query = ++this.queryCount;
+		if (query >= this.results.length) {
+			this.results = Arrays.copyOf(this.results, query * 2);
+			this.delays = Arrays.copyOf(this.delays, query * 2);
+		}
+		return query;
+	}
+	
+	public void deleteQuery(int query) {
+		if (this.freeCount == this.free.length) {
+			this.free = Arrays.copyOf(this.free, this.freeCount * 2);
+		}
+		this.free[this.freeCount++] = query;
+	}
+	
+	public void beginQueries() {}
+	
+	public void issueQuery(int query, int object) {
+		this.results[query] = this.test.isVisible(object);
+		this.delays[query] = this.resultDelay;
+	}
+	
+	public void endQueries() {}
+	
+	public boolean isResultAvailable(int query) {
+		if (this.delays[query] > 0) {
+			this.delays[query]--;
+			return false;
+		}
+		return true;
+	}
+	
+	public boolean getResult(int query) {
+		return this.results[query];
+	}
+	
+	/**Evaluates the visibility of the objects tested by a {@link CPUOcclusionBackend}.
+	 */
+	public static interface Test {
+		
+		/**Returns whether or not any part of an object is visible.
+		 * 
+		 * @param object - The index of the object
+		 */
+		public boolean isVisible(int object);
+	}
+}
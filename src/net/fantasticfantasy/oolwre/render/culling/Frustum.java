@@ -0,0 +1,182 @@
+/*Copyright (c) 2017 Fantastic Fantasy All rights reserved.
+ *
+ * Permission to use, copy, modify and/or redistribute in source or binary form
+ * is hereby granted, free of charge, subject to the following conditions:
+ *
+ * - Redistribution of source code shall include the above copyright notice,
+ *  this list of conditions and the following disclaimer.
+ *
+ * - Redistribution in binary form shall include the above copyright notice,
+ *  this list of conditions and the following disclaimer in the documentation
+ *  and/or other materials provided with the distribution.
+ *
+ * - Neither the name Object Oriented Lightweight Render Engine nor the names
+ *  of its contributors may be used to endorse or promote products derived
+ *  from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE
+ * OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package net.fantasticfantasy.oolwre.render.culling;
+
+import net.fantasticfantasy.oolwre.math.Matrix4f;
+import net.fantasticfantasy.oolwre.math.Vector4f;
+
+/**A <code>Frustum</code> is the volume visible through a view-projection
+ * {@link Matrix4f}, described by six planes pointing inwards.<br>
+ * A plane <code>(a, b, c, d)</code> contains the points for which
+ * <code>a * x + b * y + c * z + d = 0</code>; points in front of every plane
+ * are inside the frustum.
+ */
+public final class Frustum {
+	
+	public static final int LEFT = 0;
+	public static final int RIGHT = 1;
+	public static final int BOTTOM = 2;
+	public static final int TOP = 3;
+	public static final int NEAR = 4;
+	public static final int FAR = 5;
+	public static final int PLANE_COUNT = 6;
+	
+	final float[] planes;
+	final float[] absNormals;
+	
+	/**Constructs a {@link Frustum} containing all the space.
+	 */
+	public Frustum() {
+		this.planes = new float[PLANE_COUNT * 4];
+		this.absNormals = new float[PLANE_COUNT * 4];
+		for (int i = 0; i < PLANE_COUNT; i++) {
+			this.planes[i * 4 + 3] = Float.POSITIVE_INFINITY;
+		}
+	}
+	
+	/**Constructs a {@link Frustum} and {@link #set(Matrix4f) extracts} its
+	 * planes from <code>viewProjection</code>.
+	 * 
+	 * @param viewProjection - The view-projection {@link Matrix4f}
+	 */
+	public Frustum(Matrix4f viewProjection) {
+		this.planes = new float[PLANE_COUNT * 4];
+		this.absNormals = new float[PLANE_COUNT * 4];
+		this.set(viewProjection);
+	}
+	
+	/**Extracts the planes of the frustum from <code>viewProjection</code>, using
+	 * the Gribb-Hartmann method. The planes are normalized, so that the value of
+	 * a plane equation is the signed distance to the plane.
+	 * 
+	 * @param viewProjection - The column-major view-projection {@link Matrix4f},
+	 * for OpenGL clip space
+	 * 
+	 * @return <code>this</code>
+	 */
+	public Frustum set(Matrix4f viewProjection) {
+		Matrix4f m = viewProjection;
+		//Rows of the matrix: element (row r, column c) is fcr
+		this.setPlane(LEFT, m.f03 + m.f00, m.f13 + m.f10, m.f23 + m.f20, m.f33 + m.f30);
+		this.setPlane(RIGHT, m.f03 - m.f00, m.f13 - m.f10, m.f23 - m.f20, m.f33 - m.f30);
+		this.setPlane(BOTTOM, m.f03 + m.f01, m.f13 + m.f11, m.f23 + m.f21, m.f33 + m.f31);
+		this.setPlane(TOP, m.f03 - m.f01, m.f13 - m.f11, m.f23 - m.f21, m.f33 - m.f31);
+		this.setPlane(NEAR, m.f03 + m.f02, m.f13 + m.f12, m.f23 + m.f22, m.f33 + m.f32);
+		this.setPlane(FAR, m.f03 - m.f02, m.f13 - m.f12, m.f23 - m.f22, m.f33 - m.f32);
+		return this;
+	}
+	
+	/**Sets a plane of this frustum. The plane is normalized.
+	 * 
+	 * @param plane - The index of the plane, from {@link #LEFT} to {@link #FAR}
+	 * @param a - The <code>x</code> component of the normal
+	 * @param b - The <code>y</code> component of the normal
+	 * @param c - The <code>z</code> component of the normal
+	 * @param d - The distance term
+	 * 
+	 * @return <code>this</code>
+	 */
+	public Frustum setPlane(int plane, float a, float b, float c, float d) {
+		float length = (float) Math.sqrt(a * a + b * b + c * c);
+		float inverse = length == 0f ? 0f : 1f / length;
+		int i = plane * 4;
+		this.planes[i] = a * inverse;
+		this.planes[i + 1] = b * inverse;
+		this.planes[i + 2] = c * inverse;
+		this.planes[i + 3] = d * inverse;
+		this.absNormals[i] = Math.abs(this.planes[i]);
+		this.absNormals[i + 1] = Math.abs(this.planes[i + 1]);
+		this.absNormals[i + 2] = Math.abs(this.planes[i + 2]);
+		return this;
+	}
+	
+	/**Stores a plane of this frustum in <code>dest</code>.
+	 * 
+	 * @param plane - The index of the plane, from {@link #LEFT} to {@link #FAR}
+	 * @param dest - The destination {@link Vector4f}, or <code>null</code> if a
+	 * new vector is to be created
+	 * 
+	 * @return The plane
+	 */
+	public Vector4f getPlane(int plane, Vector4f dest) {
+		if (dest == null) {
+			dest = new Vector4f();
+		}
+		int i = plane * 4;
+		dest.set(this.planes[i], this.planes[i + 1], this.planes[i + 2], this.planes[i + 3]);
+		return dest;
+	}
+	
+	/**Returns whether or not the point is inside this frustum.
+	 */
+	public boolean testPoint(float x, float y, float z) {
+		return this.testSphere(x, y, z, 0f);
+	}
+	
+	/**Returns whether or not the sphere intersects this frustum.
+	 * 
+	 * @param x - The <code>x</code> coordinate of the center
+	 * @param y - The <code>y</code> coordinate of the center
+	 * @param z - The <code>z</code> coordinate of the center
+	 * @param radius - The radius
+	 */
+	public boolean testSphere(float x, float y, float z, float radius) {
+		float[] p = this.planes;
+		for (int i = 0; i < PLANE_COUNT * 4; i += 4) {
+			if (p[i] * x + p[i + 1] * y + p[i + 2] * z + p[i + 3] < -radius) {
+				return false;
+			}
+		}
+		return true;
+	}
+	
+	/**Returns whether or not the axis aligned box intersects this frustum. The
+	 * test is conservative: boxes close to the corners of the frustum may be
+	 * reported as intersecting.
+	 * 
+	 * @param minX - The minimum <code>x</code> coordinate
+	 * @param minY - The minimum <code>y</code> coordinate
+	 * @param minZ - The minimum <code>z</code> coordinate
+	 * @param maxX - The maximum <code>x</code> coordinate
+	 * @param maxY - The maximum <code>y</code> coordinate
+	 * @param maxZ - The maximum <code>z</code> coordinate
+	 */
+	public boolean testAABB(float minX, float minY, float minZ, float maxX, float maxY, float maxZ) {
+		float cx = (minX + maxX) * 0.5f, cy = (minY + maxY) * 0.5f, cz = (minZ + maxZ) * 0.5f;
+		float ex = (maxX - minX) * 0.5f, ey = (maxY - minY) * 0.5f, ez = (maxZ - minZ) * 0.5f;
+		float[] p = this.planes, n = this.absNormals;
+		for (int i = 0; i < PLANE_COUNT * 4; i += 4) {
+			float distance = p[i] * cx + p[i + 1] * cy + p[i + 2] * cz + p[i + 3];
+			float extent = n[i] * ex + n[i + 1] * ey + n[i + 2] * ez;
+			if (distance < -extent) {
+				return false;
+			}
+		}
+		return true;
+	}
+}
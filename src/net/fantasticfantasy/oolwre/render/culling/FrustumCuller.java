@@ -0,0 +1,202 @@
+/*Copyright (c) 2017 Fantastic Fantasy All rights reserved.
+ *
+ * Permission to use, copy, modify and/or redistribute in source or binary form
+ * is hereby granted, free of charge, subject to the following conditions:
+ *
+ * - Redistribution of source code shall include the above copyright notice,
+ *  this list of conditions and the following disclaimer.
+ *
+ * - Redistribution in binary form shall include the above copyright notice,
+ *  this list of conditions and the following disclaimer in the documentation
+ *  and/or other materials provided with the distribution.
+ *
+ * - Neither the name Object Oriented Lightweight Render Engine nor the names
+ *  of its contributors may be used to endorse or promote products derived
+ *  from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE
+ * OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package net.fantasticfantasy.oolwre.render.culling;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**A <code>FrustumCuller</code> tests the entries of a {@link BoundsArray}
+ * against a {@link Frustum} and outputs the indices of the visible entries, in
+ * increasing order, in a compact <code>int</code> array.<br><br>
+ * Large arrays are split in chunks culled in parallel by a {@link ForkJoinPool}.
+ * Every chunk writes its visible indices in the part of the output array that
+ * matches its own range, and the chunks are then packed together, so no
+ * intermediate buffer is needed.
+ */
+public final class FrustumCuller {
+	
+	/**The default number of entries culled by a single task.
+	 */
+	public static final int DEFAULT_CHUNK_SIZE = 16384;
+	
+	private final ForkJoinPool pool;
+	private final int chunkSize;
+	private int[] chunkCounts;
+	
+	/**Constructs a {@link FrustumCuller} running on the common
+	 * {@link ForkJoinPool}.
+	 */
+	public FrustumCuller() {
+		this(ForkJoinPool.commonPool(), DEFAULT_CHUNK_SIZE);
+	}
+	
+	/**Constructs a {@link FrustumCuller}.
+	 * 
+	 * @param pool - The {@link ForkJoinPool} running the chunks, or
+	 * <code>null</code> to always cull on the calling thread
+	 * @param chunkSize - The number of entries culled by a single task
+	 */
+	public FrustumCuller(ForkJoinPool pool, int chunkSize) {
+		if (chunkSize < 1) {
+			throw new IllegalArgumentException("'chunkSize' < 1 (" + chunkSize + ")");
+		}
+		this.pool = pool;
+		this.chunkSize = chunkSize;
+		this.chunkCounts = new int[0];
+	}
+	
+	/**Culls every entry of <code>bounds</code>. This method is not thread safe.
+	 * 
+	 * @param frustum - The {@link Frustum}
+	 * @param bounds - The {@link BoundsArray}
+	 * @param visible - The output array, at least as long as
+	 * <code>bounds.size()</code>
+	 * 
+	 * @return The number of visible entries, stored at the beginning of
+	 * <code>visible</code>
+	 */
+	public int cull(Frustum frustum, BoundsArray bounds, int[] visible) {
+		if (frustum == null) {
+			throw new NullPointerException("Frustum is null!");
+		} else if (bounds == null) {
+			throw new NullPointerException("Bounds are null!");
+		} else if (visible.length < bounds.size()) {
+			throw new IllegalArgumentException("Output array is too small (" + visible.length + ")");
+		}
+		int size = bounds.size();
+		int chunks = (size + this.chunkSize - 1) / this.chunkSize;
+		if (this.pool == null || chunks < 2) {
+			return cullRange(frustum, bounds, 0, size, visible, 0);
+		}
+		if (this.chunkCounts.length < chunks) {
+			this.chunkCounts = new int[chunks];
+		}
+		this.pool.invoke(new ChunkTask(frustum, bounds, visible, this.chunkCounts, this.chunkSize, 0, chunks));
+		int count = this.chunkCounts[0];
+		for (int c = 1; c < chunks; c++) {
+			int chunkCount = this.chunkCounts[c];
+			System.arraycopy(visible, c * this.chunkSize, visible, count, chunkCount);
+			count += chunkCount;
+		}
+		return count;
+	}
+	
+	/**Culls the entries of <code>bounds</code> from <code>start</code> inclusive
+	 * to <code>end</code> exclusive on the calling thread.
+	 * 
+	 * @param frustum - The {@link Frustum}
+	 * @param bounds - The {@link BoundsArray}
+	 * @param start - The first entry
+	 * @param end - The entry after the last one
+	 * @param visible - The output array
+	 * @param offset - The position of the first visible index in
+	 * <code>visible</code>, which must leave room for <code>end - start</code>
+	 * indices
+	 * 
+	 * @return The number of visible entries
+	 */
+	public static int cullRange(Frustum frustum, BoundsArray bounds, int start, int end, int[] visible,
+			int offset) {
+		float[] cx = bounds.getCenterX(), cy = bounds.getCenterY(), cz = bounds.getCenterZ();
+		float[] ex = bounds.getExtentX(), ey = bounds.getExtentY(), ez = bounds.getExtentZ();
+		float[] radius = bounds.getRadius();
+		float[] p = frustum.planes, n = frustum.absNormals;
+		//The planes are copied to locals so that they stay in registers
+		float la = p[0], lb = p[1], lc = p[2], ld = p[3];
+		float ra = p[4], rb = p[5], rc = p[6], rd = p[7];
+		float ba = p[8], bb = p[9], bc = p[10], bd = p[11];
+		float ta = p[12], tb = p[13], tc = p[14], td = p[15];
+		float na = p[16], nb = p[17], nc = p[18], nd = p[19];
+		float fa = p[20], fb = p[21], fc = p[22], fd = p[23];
+		float lx = n[0], ly = n[1], lz = n[2];
+		float rx = n[4], ry = n[5], rz = n[6];
+		float bx = n[8], by = n[9], bz = n[10];
+		float tx = n[12], ty = n[13], tz = n[14];
+		float nx = n[16], ny = n[17], nz = n[18];
+		float fx = n[20], fy = n[21], fz = n[22];
+		int count = offset;
+		for (int i = start; i < end; i++) {
+			float x = cx[i], y = cy[i], z = cz[i];
+			float sx = ex[i], sy = ey[i], sz = ez[i], r = radius[i];
+			float le = lx * sx + ly * sy + lz * sz;
+			float re = rx * sx + ry * sy + rz * sz;
+			float be = bx * sx + by * sy + bz * sz;
+			float te = tx * sx + ty * sy + tz * sz;
+			float ne = nx * sx + ny * sy + nz * sz;
+			float fe = fx * sx + fy * sy + fz * sz;
+			//Math.min is avoided: its NaN and negative zero handling is not needed here
+			boolean inside = la * x + lb * y + lc * z + ld >= -(le < r ? le : r) &
+					ra * x + rb * y + rc * z + rd >= -(re < r ? re : r) &
+					ba * x + bb * y + bc * z + bd >= -(be < r ? be : r) &
+					ta * x + tb * y + tc * z + td >= -(te < r ? te : r) &
+					na * x + nb * y + nc * z + nd >= -(ne < r ? ne : r) &
+					fa * x + fb * y + fc * z + fd >= -(fe < r ? fe : r);
+			//Branch free append: the slot is overwritten when the entry is culled
+			visible[count] = i;
+			count += inside ? 1 : 0;
+		}
+		return count - offset;
+	}
+	
+	private static final class ChunkTask extends RecursiveAction {
+		
+		private static final long serialVersionUID = 1L;
+		
+		private final Frustum frustum;
+		private final BoundsArray bounds;
+		private final int[] visible;
+		private final int[] counts;
+		private final int chunkSize;
+		private final int firstChunk;
+		private final int lastChunk;
+		
+		private ChunkTask(Frustum frustum, BoundsArray bounds, int[] visible, int[] counts, int chunkSize,
+				int firstChunk, int lastChunk) {
+			this.frustum = frustum;
+			this.bounds = bounds;
+			this.visible = visible;
+			this.counts = counts;
+			this.chunkSize = chunkSize;
+			this.firstChunk = firstChunk;
+			this.lastChunk = lastChunk;
+		}
+		
+		protected void compute() {
+			if (this.lastChunk - this.firstChunk > 1) {
+				int middle = (this.firstChunk + this.lastChunk) >>> 1;
+				invokeAll(new ChunkTask(this.frustum, this.bounds, this.visible, this.counts, this.chunkSize,
+						this.firstChunk, middle), new ChunkTask(this.frustum, this.bounds, this.visible, this.counts,
+						this.chunkSize, middle, this.lastChunk));
+			} else {
+				int start = this.firstChunk * this.chunkSize;
+				int end = Math.min(start + this.chunkSize, this.bounds.size());
+				this.counts[this.firstChunk] = cullRange(this.frustum, this.bounds, start, end, this.visible, start);
+			}
+		}
+	}
+}
@@ -0,0 +1,173 @@
+/*Copyright (c) 2017 Fantastic Fantasy All rights reserved.
+ *
+ * Permission to use, copy, modify and/or redistribute in source or binary form
+ * is hereby granted, free of charge, subject to the following conditions:
+ *
+ * - Redistribution of source code shall include the above copyright notice,
+ *  this list of conditions and the following disclaimer.
+ *
+ * - Redistribution in binary form shall include the above copyright notice,
+ *  this list of conditions and the following disclaimer in the documentation
+ *  and/or other materials provided with the distribution.
+ *
+ * - Neither the name Object Oriented Lightweight Render Engine nor the names
+ *  of its contributors may be used to endorse or promote products derived
+ *  from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE
+ * OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package net.fantasticfantasy.oolwre.render.culling;
+
+import java.nio.ByteBuffer;
+import org.lwjgl.BufferUtils;
+import org.lwjgl.opengl.ARBOcclusionQuery;
+import org.lwjgl.opengl.ARBOcclusionQuery2;
+import org.lwjgl.opengl.GL11;
+import org.lwjgl.opengl.GL15;
+import org.lwjgl.opengl.GL33;
+import org.lwjgl.opengl.GLCapabilities;
+import net.fantasticfantasy.oolwre.CapabilityProvider;
+import net.fantasticfantasy.oolwre.render.data.DataProvider;
+
+/**An {@link OcclusionBackend} using OpenGL occlusion queries. Every query
+ * draws the bounding volume of an object through a {@link BoundsRenderer},
+ * with color and depth writes disabled, after the occluders have been drawn
+ * in the depth buffer. The color and depth masks in effect before
+ * {@link #beginQueries()} are restored by {@link #endQueries()}.<br>
+ * <code>GL_ANY_SAMPLES_PASSED</code> is used when OpenGL 3.3 or
+ * <code>ARB_occlusion_query2</code> is supported, and
+ * <code>GL_SAMPLES_PASSED</code> otherwise. The query objects are generated by
+ * a {@link DataProvider}.
+ */
+public class GLOcclusionBackend implements OcclusionBackend {
+	
+	private final DataProvider data;
+	private final BoundsRenderer renderer;
+	private final boolean core;
+	private final int target;
+	private final ByteBuffer colorMask;
+	private boolean depthMask;
+	
+	/**Constructs a {@link GLOcclusionBackend} using the current {@link Thread}'s
+	 * {@link CapabilityProvider} and {@link DataProvider}.
+	 * 
+	 * @param renderer - The {@link BoundsRenderer} drawing the bounding volumes
+	 */
+	public GLOcclusionBackend(BoundsRenderer renderer) {
+		this(CapabilityProvider.get(), DataProvider.get(), renderer);
+	}
+	
+	/**Constructs a {@link GLOcclusionBackend}.
+	 * 
+	 * @param provider - The {@link CapabilityProvider}
+	 * @param data - The {@link DataProvider} generating the queries
+	 * @param renderer - The {@link BoundsRenderer} drawing the bounding volumes
+	 * 
+	 * @throws UnsupportedOperationException If occlusion queries are not supported
+	 */
+	public GLOcclusionBackend(CapabilityProvider provider, DataProvider data, BoundsRenderer renderer) {
+		if (provider == null) {
+			throw new NullPointerException("Capability provider is null!");
+		} else if (data == null) {
+			throw new NullPointerException("Data provider is null!");
+		} else if (renderer == null) {
+			throw new NullPointerException("Renderer is null!");
+		}
+		GLCapabilities caps = provider.getCapabilities();
+		if (!caps.OpenGL15 && !caps.GL_ARB_occlusion_query) {
+			throw new UnsupportedOperationException("There is no supported extension to use occlusion queries!");
+		}
+		this.data = data;
+		this.renderer = renderer;
+		this.core = caps.OpenGL15;
+		if (caps.OpenGL33) {
+			this.target = GL33.GL_ANY_SAMPLES_PASSED;
+		} else if (caps.GL_ARB_occlusion_query2) {
+			this.target = ARBOcclusionQuery2.GL_ANY_SAMPLES_PASSED;
+		} else {
+			this.target = GL15.GL_SAMPLES_PASSED;
+		}
+		this.colorMask = BufferUtils.createByteBuffer(4);
+	}
+	
+	public int createQuery() {
+		return this.data.genQueries();
+	}
+	
+	public void deleteQuery(int query) {
+		this.data.deleteQueries(query);
+	}
+	
+	public void beginQueries() {
+		GL11.glGetBooleanv(GL11.GL_COLOR_WRITEMASK, this.colorMask);
+		this.depthMask = GL11.glGetBoolean(GL11.GL_DEPTH_WRITEMASK);
+		GL11.glColorMask(false, false, false, false);
+		GL11.glDepthMask(false);
+		this.renderer.beginBounds();
+	}
+	
+	public void issueQuery(int query, int object) {
+		if (this.core) {
+			GL15.glBeginQuery(this.target, query);
+			this.renderer.renderBounds(object);
+			GL15.glEndQuery(this.target);
+		} else {
+			ARBOcclusionQuery.glBeginQueryARB(this.target, query);
+			this.renderer.renderBounds(object);
+			ARBOcclusionQuery.glEndQueryARB(this.target);
+		}
+	}
+	
+	public void endQueries() {
+		this.renderer.endBounds();
+		GL11.glDepthMask(this.depthMask);
+		GL11.glColorMask(this.colorMask.get(0) != GL11.GL_FALSE, this.colorMask.get(1) != GL11.GL_FALSE,
+				this.colorMask.get(2) != GL11.GL_FALSE, this.colorMask.get(3) != GL11.GL_FALSE);
+	}
+	
+	public boolean isResultAvailable(int query) {
+		if (this.core) {
+			return GL15.glGetQueryObjecti(query, GL15.GL_QUERY_RESULT_AVAILABLE) != GL11.GL_FALSE;
+		} else {
+			return ARBOcclusionQuery.glGetQueryObjectiARB(query, ARBOcclusionQuery.GL_QUERY_RESULT_AVAILABLE_ARB)
+					!= GL11.GL_FALSE;
+		}
+	}
+	
+	public boolean getResult(int query) {
+		if (this.core) {
+			return GL15.glGetQueryObjecti(query, GL15.GL_QUERY_RESULT) != 0;
+		} else {
+			return ARBOcclusionQuery.glGetQueryObjectiARB(query, ARBOcclusionQuery.GL_QUERY_RESULT_ARB) != 0;
+		}
+	}
+	
+	/**Draws the bounding volumes tested by a {@link GLOcclusionBackend}.
+	 */
+	public static interface BoundsRenderer {
+		
+		/**Binds the program and vertex data used to draw the bounding volumes.
+		 */
+		public void beginBounds();
+		
+		/**Draws the bounding volume of an object. The volume should be
+		 * slightly enlarged to avoid self-occlusion by the depth of the object.
+		 * 
+		 * @param object - The index of the object
+		 */
+		public void renderBounds(int object);
+		
+		/**Restores the state changed by {@link #beginBounds()}.
+		 */
+		public void endBounds();
+	}
+}
@@ -0,0 +1,80 @@
+/*Copyright (c) 2017 Fantastic Fantasy All rights reserved.
+ *
+ * Permission to use, copy, modify and/or redistribute in source or binary form
+ * is hereby granted, free of charge, subject to the following conditions:
+ *
+ * - Redistribution of source code shall include the above copyright notice,
+ *  this list of conditions and the following disclaimer.
+ *
+ * - Redistribution in binary form shall include the above copyright notice,
+ *  this list of conditions and the following disclaimer in the documentation
+ *  and/or other materials provided with the distribution.
+ *
+ * - Neither the name Object Oriented Lightweight Render Engine nor the names
+ *  of its contributors may be used to endorse or promote products derived
+ *  from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE
+ * OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package net.fantasticfantasy.oolwre.render.culling;
+
+/**An <code>OcclusionBackend</code> runs the visibility queries of an
+ * {@link OcclusionCuller}. The queries of a frame are issued between
+ * {@link #beginQueries()} and {@link #endQueries()}, and their results are
+ * read back during the following frames.
+ *
+ * @see GLOcclusionBackend
+ * @see CPUOcclusionBackend
+ */
+public interface OcclusionBackend {
+	
+	/**Creates a new query object.
+	 * 
+	 * @return The name of the query
+	 */
+	public int createQuery();
+	
+	/**Deletes a query object created by {@link #createQuery()}.
+	 * 
+	 * @param query - The name of the query
+	 */
+	public void deleteQuery(int query);
+	
+	/**Prepares the issue of the queries of a frame.
+	 */
+	public void beginQueries();
+	
+	/**Tests whether or not any part of an object is visible.
+	 * 
+	 * @param query - The query receiving the result
+	 * @param object - The index of the object
+	 */
+	public void issueQuery(int query, int object);
+	
+	/**Ends the issue of the queries of a frame.
+	 */
+	public void endQueries();
+	
+	/**Returns whether or not the result of a query can be read without
+	 * waiting.
+	 * 
+	 * @param query - The name of the query
+	 */
+	public boolean isResultAvailable(int query);
+	
+	/**Returns the result of a query, that is whether or not the object
+	 * was visible.
+	 * 
+	 * @param query - The name of the query
+	 */
+	public boolean getResult(int query);
+}
@@ -0,0 +1,345 @@
+/*Copyright (c) 2017 Fantastic Fantasy All rights reserved.
+ *
+ * Permission to use, copy, modify and/or redistribute in source or binary form
+ * is hereby granted, free of charge, subject to the following conditions:
+ *
+ * - Redistribution of source code shall include the above copyright notice,
+ *  this list of conditions and the following disclaimer.
+ *
+ * - Redistribution in binary form shall include the above copyright notice,
+ *  this list of conditions and the following disclaimer in the documentation
+ *  and/or other materials provided with the distribution.
+ *
+ * - Neither the name Object Oriented Lightweight Render Engine nor the names
+ *  of its contributors may be used to endorse or promote products derived
+ *  from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE
+ * OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package net.fantasticfantasy.oolwre.render.culling;
+
+import java.util.Arrays;
+
+/**An <code>OcclusionCuller</code> schedules visibility queries through an
+ * {@link OcclusionBackend} and keeps the visibility history of every object,
+ * so that the objects hidden behind others can be skipped.<br><br>
+ * Results are never waited for: a query issued during a frame is only read
+ * back once <code>latency</code> frames have passed and its result is
+ * available, and in the meantime the last known result of the object is
+ * used. Objects without any result are considered visible. A typical frame is:
+ * <ol>
+ * <li>{@link #beginFrame()} reads the results that arrived;</li>
+ * <li>{@link #filterVisible(int[], int, int[]) filterVisible(...)} removes
+ * the objects known to be hidden from the candidates, for instance the
+ * output of a {@link FrustumCuller}, and the remaining ones are drawn;</li>
+ * <li>{@link #issueQueries(int[], int) issueQueries(...)} tests the
+ * candidates that need a new result against the depth buffer.</li>
+ * </ol>
+ * Hidden objects are tested whenever they have no query in flight, so that
+ * they appear again quickly, whereas visible objects are only tested every
+ * {@link #setVisibleInterval(int) few frames}. This class is not thread safe.
+ */
+public final class OcclusionCuller {
+	
+	private static final int HISTORY_SIZE = 32;
+	
+	private final OcclusionBackend backend;
+	private final int latency;
+	private int visibleInterval;
+	private int hiddenThreshold;
+	
+	private int[] queries;
+	private int[] issueFrames;
+	private int[] history;
+	private int[] resultCounts;
+	private int objectCount;
+	
+	private int[] pending;
+	private int pendingCount;
+	private int[] pool;
+	private int poolCount;
+	private int frame;
+	
+	private int issuedQueries;
+	private int readResults;
+	private int culledObjects;
+	
+	/**Constructs an {@link OcclusionCuller}.
+	 * 
+	 * @param backend - The {@link OcclusionBackend} running the queries
+	 * @param latency - The number of frames before the result of a query is
+	 * read, usually 1 or 2
+	 */
+	public OcclusionCuller(OcclusionBackend backend, int latency) {
+		if (backend == null) {
+			throw new NullPointerException("Backend is null!");
+		} else if (latency < 1) {
+			throw new IllegalArgumentException("'latency' < 1 (" + latency + ")");
+		}
+		this.backend = backend;
+		this.latency = latency;
+		this.visibleInterval = 4;
+		this.hiddenThreshold = 1;
+		this.queries = new int[0];
+		this.issueFrames = new int[0];
+		this.history = new int[0];
+		this.resultCounts = new int[0];
+		this.pending = new int[16];
+		this.pool = new int[16];
+	}
+	
+	/**Sets the number of frames between two queries of a visible object.
+	 * 
+	 * @param visibleInterval - The interval in frames, 1 to test visible
+	 * objects every frame
+	 */
+	public void setVisibleInterval(int visibleInterval) {
+		if (visibleInterval < 1) {
+			throw new IllegalArgumentException("'visibleInterval' < 1 (" + visibleInterval + ")");
+		}
+		this.visibleInterval = visibleInterval;
+	}
+	
+	/**Sets the number of consecutive hidden results required to cull an
+	 * object, which prevents objects at the edge of an occluder from flickering.
+	 * 
+	 * @param hiddenThreshold - The number of results, from 1 to 32
+	 */
+	public void setHiddenThreshold(int hiddenThreshold) {
+		if (hiddenThreshold < 1 || hiddenThreshold > HISTORY_SIZE) {
+			throw new IllegalArgumentException("'hiddenThreshold' not in [1, " + HISTORY_SIZE + "] (" +
+					hiddenThreshold + ")");
+		}
+		this.hiddenThreshold = hiddenThreshold;
+	}
+	
+	/**Sets the number of objects. New objects have no history; the queries of
+	 * removed objects are dropped.
+	 * 
+	 * @param objectCount - The number of objects
+	 */
+	public void setObjectCount(int objectCount) {
+		if (objectCount < 0) {
+			throw new IllegalArgumentException("'objectCount' < 0 (" + objectCount + ")");
+		}
+		for (int object = objectCount; object < this.objectCount; object++) {
+			this.reset(object);
+		}
+		if (objectCount > this.queries.length) {
+			int capacity = Math.max(objectCount, this.queries.length * 2);
+			this.queries = Arrays.copyOf(this.queries, capacity);
+			this.issueFrames = Arrays.copyOf(this.issueFrames, capacity);
+			this.history = Arrays.copyOf(this.history, capacity);
+			this.resultCounts = Arrays.copyOf(this.resultCounts, capacity);
+		}
+		this.objectCount = objectCount;
+	}
+	
+	public int getObjectCount() {
+		return this.objectCount;
+	}
+	
+	/**Forgets the history of an object, for instance after it has teleported.
+	 * 
+	 * @param object - The index of the object
+	 */
+	public void reset(int object) {
+		this.check(object);
+		if (this.queries[object] != 0) {
+			this.release(this.queries[object]);
+			this.queries[object] = 0;
+			for (int i = 0; i < this.pendingCount; i++) {
+				if (this.pending[i] == object) {
+					this.pending[i] = this.pending[--this.pendingCount];
+					break;
+				}
+			}
+		}
+		this.history[object] = 0;
+		this.resultCounts[object] = 0;
+	}
+	
+	/**Starts a new frame and reads the results of the queries issued at least
+	 * <code>latency</code> frames ago, if they are available.
+	 */
+	public void beginFrame() {
+		this.frame++;
+		this.issuedQueries = 0;
+		this.readResults = 0;
+		this.culledObjects = 0;
+		int count = 0;
+		for (int i = 0; i < this.pendingCount; i++) {
+			int object = this.pending[i];
+			int query = this.queries[object];
+			if (this.frame - this.issueFrames[object] >= this.latency && this.backend.isResultAvailable(query)) {
+				boolean visible = this.backend.getResult(query);
+				this.history[object] = (this.history[object] << 1) | (visible ? 1 : 0);
+				this.resultCounts[object] = Math.min(this.resultCounts[object] + 1, HISTORY_SIZE);
+				this.queries[object] = 0;
+				this.release(query);
+				this.readResults++;
+			} else {
+				this.pending[count++] = object;
+			}
+		}
+		this.pendingCount = count;
+	}
+	
+	/**Returns whether or not an object must be drawn according to its history.
+	 * 
+	 * @param object - The index of the object
+	 */
+	public boolean isVisible(int object) {
+		this.check(object);
+		if (this.resultCounts[object] < this.hiddenThreshold) {
+			return true;
+		}
+		int mask = this.hiddenThreshold == HISTORY_SIZE ? -1 : (1 << this.hiddenThreshold) - 1;
+		return (this.history[object] & mask) != 0;
+	}
+	
+	/**Copies the objects that must be drawn from <code>objects</code> to
+	 * <code>dest</code>, which may be the same array.
+	 * 
+	 * @param objects - The candidate objects
+	 * @param count - The number of candidates
+	 * @param dest - The destination array
+	 * 
+	 * @return The number of objects copied
+	 */
+	public int filterVisible(int[] objects, int count, int[] dest) {
+		int visible = 0;
+		for (int i = 0; i < count; i++) {
+			int object = objects[i];
+			if (this.isVisible(object)) {
+				dest[visible++] = object;
+			}
+		}
+		this.culledObjects += count - visible;
+		return visible;
+	}
+	
+	/**Issues the queries of the candidates that need a new result. Must be
+	 * called once the occluders have been drawn in the depth buffer.
+	 * 
+	 * @param objects - The candidate objects
+	 * @param count - The number of candidates
+	 * 
+	 * @return The number of queries issued
+	 */
+	public int issueQueries(int[] objects, int count) {
+		int issued = 0;
+		for (int i = 0; i < count; i++) {
+			int object = objects[i];
+			this.check(object);
+			if (this.queries[object] != 0) {
+				continue;
+			}
+			boolean known = this.resultCounts[object] > 0;
+			boolean visible = (this.history[object] & 1) != 0;
+			if (known && visible && this.frame - this.issueFrames[object] < this.visibleInterval) {
+				continue;
+			}
+			if (issued == 0) {
+				this.backend.beginQueries();
+			}
+			int query = this.poolCount > 0 ? this.pool[--this.poolCount] : this.backend.createQuery();
+			this.backend.issueQuery(query, object);
+			this.queries[object] = query;
+			this.issueFrames[object] = this.frame;
+			if (this.pendingCount == this.pending.length) {
+				this.pending = Arrays.copyOf(this.pending, this.pendingCount * 2);
+			}
+			this.pending[this.pendingCount++] = object;
+			issued++;
+		}
+		if (issued > 0) {
+			this.backend.endQueries();
+		}
+		this.issuedQueries += issued;
+		return issued;
+	}
+	
+	/**Returns the last results of an object, the most recent one in the lowest
+	 * bit: 1 if the object was visible, 0 if it was hidden.
+	 * 
+	 * @param object - The index of the object
+	 * 
+	 * @see #getResultCount(int)
+	 */
+	public int getHistory(int object) {
+		this.check(object);
+		return this.history[object];
+	}
+	
+	/**Returns the number of valid bits of {@link #getHistory(int)}, at most 32.
+	 * 
+	 * @param object - The index of the object
+	 */
+	public int getResultCount(int object) {
+		this.check(object);
+		return this.resultCounts[object];
+	}
+	
+	/**Returns the number of queries issued during the current frame.
+	 */
+	public int getIssuedQueries() {
+		return this.issuedQueries;
+	}
+	
+	/**Returns the number of results read at the start of the current frame.
+	 */
+	public int getReadResults() {
+		return this.readResults;
+	}
+	
+	/**Returns the number of objects removed by
+	 * {@link #filterVisible(int[], int, int[])} during the current frame.
+	 */
+	public int getCulledObjects() {
+		return this.culledObjects;
+	}
+	
+	/**Returns the number of queries waiting for their result.
+	 */
+	public int getPendingQueries() {
+		return this.pendingCount;
+	}
+	
+	/**Deletes every query object. The history is kept.
+	 */
+	public void destroy() {
+		for (int i = 0; i < this.pendingCount; i++) {
+			int object = this.pending[i];
+			this.backend.deleteQuery(this.queries[object]);
+			this.queries[object] = 0;
+		}
+		this.pendingCount = 0;
+		for (int i = 0; i < this.poolCount; i++) {
+			this.backend.deleteQuery(this.pool[i]);
+		}
+		this.poolCount = 0;
+	}
+	
+	private void release(int query) {
+		if (this.poolCount == this.pool.length) {
+			this.pool = Arrays.copyOf(this.pool, this.poolCount * 2);
+		}
+		this.pool[this.poolCount++] = query;
+	}
+	
+	private void check(int object) {
+		if (object < 0 || object >= this.objectCount) {
+			throw new IndexOutOfBoundsException("Object: " + object + ", Count: " + this.objectCount);
+		}
+	}
+}
@@ -0,0 +1,484 @@
+/*Copyright (c) 2017 Fantastic Fantasy All rights reserved.
+ *
+ * Permission to use, copy, modify and/or redistribute in source or binary form
+ * is hereby granted, free of charge, subject to the following conditions:
+ *
+ * - Redistribution of source code shall include the above copyright notice,
+ *  this list of conditions and the following disclaimer.
+ *
+ * - Redistribution in binary form shall include the above copyright notice,
+ *  this list of conditions and the following disclaimer in the documentation
+ *  and/or other materials provided with the distribution.
+ *
+ * - Neither the name Object Oriented Lightweight Render Engine nor the names
+ *  of its contributors may be used to endorse or promote products derived
+ *  from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE
+ * OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package net.fantasticfantasy.oolwre.render.data;
+
+import java.util.Arrays;
+
+/**A <code>BufferAllocator</code> manages the ranges of a fixed-size block of
+ * memory, such as a {@link BufferObject}, using a two-level segregated fit
+ * (TLSF) allocator: allocation and release run in constant time, and adjacent
+ * free ranges are always merged.<br><br>
+ * This class does not touch any OpenGL state, it only computes offsets.
+ * Allocations are identified by an <code>int</code> handle, which stays valid
+ * until it is {@link #free(int) freed}, even when {@link #compact(Relocation)}
+ * moves it. This class is not thread safe.
+ */
+public final class BufferAllocator {
+	
+	private static final int SL_COUNT_LOG2 = 4;
+	private static final int SL_COUNT = 1 << SL_COUNT_LOG2;
+	private static final int FL_COUNT = 64 - SL_COUNT_LOG2;
+	private static final int NONE = -1;
+	private static final byte UNUSED = 0;
+	private static final byte FREE = 1;
+	private static final byte ALLOCATED = 2;
+	
+	private final long capacity;
+	private final int alignment;
+	private final int alignmentLog2;
+	
+	private long flBitmap;
+	private final int[] slBitmaps;
+	private final int[] heads;
+	
+	private long[] offsets;
+	private long[] sizes;
+	private int[] prevPhysical;
+	private int[] nextPhysical;
+	private int[] prevFree;
+	private int[] nextFree;
+	private byte[] states;
+	private int blockCount;
+	private int recycled;
+	
+	private int first;
+	private long used;
+	private int allocations;
+	private int freeBlocks;
+	
+	/**Constructs a {@link BufferAllocator} managing <code>capacity</code> bytes.
+	 * 
+	 * @param capacity - The number of bytes to manage
+	 * @param alignment - The alignment in bytes of every allocation, which must
+	 * be a power of two
+	 * 
+	 * @throws IllegalArgumentException If <code>capacity</code> is not positive
+	 * or <code>alignment</code> is not a power of two
+	 */
+	public BufferAllocator(long capacity, int alignment) {
+		if (capacity <= 0) {
+			throw new IllegalArgumentException("'capacity' <= 0 (" + capacity + ")");
+		} else if (alignment <= 0 || Integer.bitCount(alignment) != 1) {
+			throw new IllegalArgumentException("'alignment' is not a power of two (" + alignment + ")");
+		}
+		this.alignment = alignment;
+		this.alignmentLog2 = Integer.numberOfTrailingZeros(alignment);
+		this.capacity = capacity & -alignment;
+		if (this.capacity == 0) {
+			throw new IllegalArgumentException("'capacity' < 'alignment' (" + capacity + ")");
+		}
+		this.slBitmaps = new int[FL_COUNT];
+		this.heads = new int[FL_COUNT * SL_COUNT];
+		Arrays.fill(this.heads, NONE);
+		int initial = 16;
+		this.offsets = new long[initial];
+		this.sizes = new long[initial];
+		this.prevPhysical = new int[initial];
+		this.nextPhysical = new int[initial];
+		this.prevFree = new int[initial];
+		this.nextFree = new int[initial];
+		this.states = new byte[initial];
+		this.recycled = NONE;
+		this.first = this.newBlock(0, this.capacity);
+		this.prevPhysical[this.first] = NONE;
+		this.nextPhysical[this.first] = NONE;
+		this.insertFree(this.first);
+	}
+	
+	/**Allocates <code>size</code> bytes, rounded up to the alignment.
+	 * 
+	 * @param size - The number of bytes to allocate
+	 * 
+	 * @return The handle of the allocation, or -1 if there is no free range
+	 * large enough
+	 * 
+	 * @throws IllegalArgumentException If <code>size</code> is not positive
+	 */
+	public int allocate(long size) {
+		if (size <= 0) {
+			throw new IllegalArgumentException("'size' <= 0 (" + size + ")");
+		} else if (size > this.capacity) {
+			return NONE;
+		}
+		long units = (size + this.alignment - 1) >>> this.alignmentLog2;
+		//Round up so that any block of the list found is large enough
+		long search = units;
+		if (search >= SL_COUNT) {
+			search += (1L << (floorLog2(search) - SL_COUNT_LOG2)) - 1;
+		}
+		int list = this.findFreeList(mapping(search));
+		if (list == NONE) {
+			//The rounded request may skip the only block large enough
+			list = mapping(units);
+			int block = this.heads[list];
+			while (block != NONE && this.sizes[block] < units << this.alignmentLog2) {
+				block = this.nextFree[block];
+			}
+			if (block == NONE) {
+				return NONE;
+			}
+			this.removeFree(block);
+			return this.use(block, units << this.alignmentLog2);
+		}
+		int block = this.heads[list];
+		this.removeFree(block);
+		return this.use(block, units << this.alignmentLog2);
+	}
+	
+	/**Releases the allocation identified by <code>handle</code>, merging it
+	 * with its free neighbors.
+	 * 
+	 * @param handle - The handle returned by {@link #allocate(long)}
+	 * 
+	 * @throws IllegalArgumentException If <code>handle</code> is not a live
+	 * allocation
+	 */
+	public void free(int handle) {
+		this.checkHandle(handle);
+		this.used -= this.sizes[handle];
+		this.allocations--;
+		int block = handle;
+		int prev = this.prevPhysical[block];
+		if (prev != NONE && this.states[prev] == FREE) {
+			this.removeFree(prev);
+			this.sizes[prev] += this.sizes[block];
+			this.unlinkPhysical(block);
+			block = prev;
+		}
+		int next = this.nextPhysical[block];
+		if (next != NONE && this.states[next] == FREE) {
+			this.removeFree(next);
+			this.sizes[block] += this.sizes[next];
+			this.unlinkPhysical(next);
+		}
+		this.insertFree(block);
+	}
+	
+	/**Returns the offset in bytes of the allocation identified by <code>handle</code>.
+	 * 
+	 * @param handle - The handle returned by {@link #allocate(long)}
+	 */
+	public long getOffset(int handle) {
+		this.checkHandle(handle);
+		return this.offsets[handle];
+	}
+	
+	/**Returns the size in bytes of the allocation identified by <code>handle</code>,
+	 * rounded up to the alignment.
+	 * 
+	 * @param handle - The handle returned by {@link #allocate(long)}
+	 */
+	public long getSize(int handle) {
+		this.checkHandle(handle);
+		return this.sizes[handle];
+	}
+	
+	/**Moves every allocation towards the start of the managed memory so that
+	 * all the free space forms a single range at the end. The allocations keep
+	 * their relative order and handles.
+	 * 
+	 * @param relocation - Notified of every allocation that moves, in increasing
+	 * offset order, or <code>null</code>
+	 * 
+	 * @return The number of allocations moved
+	 */
+	public int compact(Relocation relocation) {
+		if (this.freeBlocks == 0 || (this.freeBlocks == 1 && this.states[this.last()] == FREE)) {
+			return 0;
+		}
+		int moved = 0;
+		long offset = 0;
+		int prev = NONE;
+		int block = this.first;
+		while (block != NONE) {
+			int next = this.nextPhysical[block];
+			if (this.states[block] == FREE) {
+				this.removeFree(block);
+				this.release(block);
+			} else {
+				if (this.offsets[block] != offset) {
+					if (relocation != null) {
+						relocation.relocate(block, this.offsets[block], offset, this.sizes[block]);
+					}
+					this.offsets[block] = offset;
+					moved++;
+				}
+				offset += this.sizes[block];
+				this.prevPhysical[block] = prev;
+				if (prev == NONE) {
+					this.first = block;
+				} else {
+					this.nextPhysical[prev] = block;
+				}
+				prev = block;
+			}
+			block = next;
+		}
+		if (offset < this.capacity) {
+			int free = this.newBlock(offset, this.capacity - offset);
+			this.prevPhysical[free] = prev;
+			if (prev == NONE) {
+				this.first = free;
+			} else {
+				this.nextPhysical[prev] = free;
+			}
+			prev = free;
+			this.insertFree(free);
+		}
+		this.nextPhysical[prev] = NONE;
+		return moved;
+	}
+	
+	/**Returns the number of bytes managed by this allocator.
+	 */
+	public long getCapacity() {
+		return this.capacity;
+	}
+	
+	public int getAlignment() {
+		return this.alignment;
+	}
+	
+	/**Returns the number of bytes currently allocated, alignment included.
+	 */
+	public long getUsedBytes() {
+		return this.used;
+	}
+	
+	public long getFreeBytes() {
+		return this.capacity - this.used;
+	}
+	
+	/**Returns the number of live allocations.
+	 */
+	public int getAllocationCount() {
+		return this.allocations;
+	}
+	
+	/**Returns the number of disjoint free ranges.
+	 */
+	public int getFreeRangeCount() {
+		return this.freeBlocks;
+	}
+	
+	/**Returns the size in bytes of the largest free range, that is the largest
+	 * allocation that can currently succeed.
+	 */
+	public long getLargestFreeRange() {
+		if (this.flBitmap == 0) {
+			return 0;
+		}
+		int fl = 63 - Long.numberOfLeadingZeros(this.flBitmap);
+		int sl = 31 - Integer.numberOfLeadingZeros(this.slBitmaps[fl]);
+		long largest = 0;
+		for (int block = this.heads[fl * SL_COUNT + sl]; block != NONE; block = this.nextFree[block]) {
+			largest = Math.max(largest, this.sizes[block]);
+		}
+		return largest;
+	}
+	
+	/**Returns the ratio of used bytes to the capacity, between 0 and 1.
+	 */
+	public float getOccupancy() {
+		return (float) ((double) this.used / this.capacity);
+	}
+	
+	/**Returns the fragmentation of the free space, between 0 when all the free
+	 * space is a single range and 1 when it is scattered in tiny ranges.
+	 */
+	public float getFragmentation() {
+		long free = this.getFreeBytes();
+		if (free == 0) {
+			return 0f;
+		}
+		return (float) (1.0 - (double) this.getLargestFreeRange() / free);
+	}
+	
+	public String toString() {
+		return this.getClass().getName() + "[capacity=" + this.capacity + ",used=" + this.used + ",allocations=" +
+				this.allocations + ",freeRanges=" + this.freeBlocks + "]";
+	}
+	
+	private int use(int block, long size) {
+		long remaining = this.sizes[block] - size;
+		if (remaining > 0) {
+			int split = this.newBlock(this.offsets[block] + size, remaining);
+			this.sizes[block] = size;
+			int next = this.nextPhysical[block];
+			this.prevPhysical[split] = block;
+			this.nextPhysical[split] = next;
+			if (next != NONE) {
+				this.prevPhysical[next] = split;
+			}
+			this.nextPhysical[block] = split;
+			this.insertFree(split);
+		}
+		this.states[block] = ALLOCATED;
+		this.used += size;
+		this.allocations++;
+		return block;
+	}
+	
+	private int findFreeList(int list) {
+		int fl = list / SL_COUNT;
+		int sl = list % SL_COUNT;
+		int slMap = this.slBitmaps[fl] & (-1 << sl);
+		if (slMap == 0) {
+			long flMap = fl + 1 < 64 ? this.flBitmap & (-1L << (fl + 1)) : 0;
+			if (flMap == 0) {
+				return NONE;
+			}
+			fl = Long.numberOfTrailingZeros(flMap);
+			slMap = this.slBitmaps[fl];
+		}
+		return fl * SL_COUNT + Integer.numberOfTrailingZeros(slMap);
+	}
+	
+	private void insertFree(int block) {
+		int list = mapping(this.sizes[block] >>> this.alignmentLog2);
+		int head = this.heads[list];
+		this.states[block] = FREE;
+		this.prevFree[block] = NONE;
+		this.nextFree[block] = head;
+		if (head != NONE) {
+			this.prevFree[head] = block;
+		}
+		this.heads[list] = block;
+		this.slBitmaps[list / SL_COUNT] |= 1 << (list % SL_COUNT);
+		this.flBitmap |= 1L << (list / SL_COUNT);
+		this.freeBlocks++;
+	}
+	
+	private void removeFree(int block) {
+		int prev = this.prevFree[block];
+		int next = this.nextFree[block];
+		if (prev != NONE) {
+			this.nextFree[prev] = next;
+		}
+		if (next != NONE) {
+			this.prevFree[next] = prev;
+		}
+		int list = mapping(this.sizes[block] >>> this.alignmentLog2);
+		if (this.heads[list] == block) {
+			this.heads[list] = next;
+			if (next == NONE) {
+				int fl = list / SL_COUNT;
+				this.slBitmaps[fl] &= ~(1 << (list % SL_COUNT));
+				if (this.slBitmaps[fl] == 0) {
+					this.flBitmap &= ~(1L << fl);
+				}
+			}
+		}
+		this.freeBlocks--;
+	}
+	
+	private void unlinkPhysical(int block) {
+		int prev = this.prevPhysical[block];
+		int next = this.nextPhysical[block];
+		if (prev != NONE) {
+			this.nextPhysical[prev] = next;
+		} else {
+			this.first = next;
+		}
+		if (next != NONE) {
+			this.prevPhysical[next] = prev;
+		}
+		this.release(block);
+	}
+	
+	private int last() {
+		int block = this.first;
+		while (this.nextPhysical[block] != NONE) {
+			block = this.nextPhysical[block];
+		}
+		return block;
+	}
+	
+	private int newBlock(long offset, long size) {
+		int block;
+		if (this.recycled != NONE) {
+			block = this.recycled;
+			this.recycled = this.nextFree[block];
+		} else {
+			if (this.blockCount == this.offsets.length) {
+				int length = this.blockCount * 2;
+				this.offsets = Arrays.copyOf(this.offsets, length);
+				this.sizes = Arrays.copyOf(this.sizes, length);
+				this.prevPhysical = Arrays.copyOf(this.prevPhysical, length);
+				this.nextPhysical = Arrays.copyOf(this.nextPhysical, length);
+				this.prevFree = Arrays.copyOf(this.prevFree, length);
+				this.nextFree = Arrays.copyOf(this.nextFree, length);
+				this.states = Arrays.copyOf(this.states, length);
+			}
+			block = this.blockCount++;
+		}
+		this.offsets[block] = offset;
+		this.sizes[block] = size;
+		return block;
+	}
+	
+	private void release(int block) {
+		this.states[block] = UNUSED;
+		this.nextFree[block] = this.recycled;
+		this.recycled = block;
+	}
+	
+	private void checkHandle(int handle) {
+		if (handle < 0 || handle >= this.blockCount || this.states[handle] != ALLOCATED) {
+			throw new IllegalArgumentException("Invalid allocation handle (" + handle + ")");
+		}
+	}
+	
+	private static int mapping(long units) {
+		if (units < SL_COUNT) {
+			return (int) units;
+		}
+		int log = floorLog2(units);
+		int fl = log - SL_COUNT_LOG2 + 1;
+		int sl = (int) ((units >>> (log - SL_COUNT_LOG2)) ^ SL_COUNT);
+		return fl * SL_COUNT + sl;
+	}
+	
+	private static int floorLog2(long value) {
+		return 63 - Long.numberOfLeadingZeros(value);
+	}
+	
+	/**Receives the moves performed by {@link BufferAllocator#compact(Relocation)}.
+	 */
+	public static interface Relocation {
+		
+		/**Called when an allocation is moved.
+		 * 
+		 * @param handle - The handle of the allocation
+		 * @param oldOffset - The offset in bytes before the move
+		 * @param newOffset - The offset in bytes after the move
+		 * @param size - The size in bytes of the allocation
+		 */
+		public void relocate(int handle, long oldOffset, long newOffset, long size);
+	}
+}
@@ -0,0 +1,395 @@
+/*Copyright (c) 2017 Fantastic Fantasy All rights reserved.
+ *
+ * Permission to use, copy, modify and/or redistribute in source or binary form
+ * is hereby granted, free of charge, subject to the following conditions:
+ *
+ * - Redistribution of source code shall include the above copyright notice,
+ *  this list of conditions and the following disclaimer.
+ *
+ * - Redistribution in binary form shall include the above copyright notice,
+ *  this list of conditions and the following disclaimer in the documentation
+ *  and/or other materials provided with the distribution.
+ *
+ * - Neither the name Object Oriented Lightweight Render Engine nor the names
+ *  of its contributors may be used to endorse or promote products derived
+ *  from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE
+ * OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package net.fantasticfantasy.oolwre.render.data;
+
+import java.nio.ByteBuffer;
+import org.lwjgl.system.MemoryUtil;
+import net.fantasticfantasy.oolwre.math.OOLWREMath;
+import net.fantasticfantasy.oolwre.render.data.BufferObject.BufferAccessFrequency;
+import net.fantasticfantasy.oolwre.render.data.BufferObject.BufferAccessNature;
+import net.fantasticfantasy.oolwre.render.data.BufferObject.Target;
+
+/**A <code>BufferBuilder</code> assembles vertex or index data in a growable
+ * region of native memory, in the native byte order, and uploads it to a
+ * {@link BufferObject} without any intermediate copy.<br><br>
+ * The relative put methods write at the {@link #position()} and advance it;
+ * the absolute ones write at a byte offset, which must be below the
+ * position. {@link #reset()} rewinds the builder so that the same memory is
+ * reused, for example every frame. The memory must be released with
+ * {@link #destroy()}. This class is not thread safe.
+ */
+public class BufferBuilder {
+	
+	private long address;
+	private int capacity;
+	private int position;
+	
+	/**Constructs a {@link BufferBuilder}.
+	 * 
+	 * @param capacity - The initial capacity, in bytes
+	 */
+	public BufferBuilder(int capacity) {
+		if (capacity <= 0) {
+			throw new IllegalArgumentException("'capacity' <= 0 (" + capacity + ")");
+		}
+		this.address = MemoryUtil.nmemAlloc(capacity);
+		if (this.address == MemoryUtil.NULL) {
+			throw new OutOfMemoryError("Unable to allocate " + capacity + " bytes!");
+		}
+		this.capacity = capacity;
+	}
+	
+	public BufferBuilder putByte(byte value) {
+		long dest = this.advance(1);
+		MemoryUtil.memPutByte(dest, value);
+		return this;
+	}
+	
+	public BufferBuilder putShort(short value) {
+		long dest = this.advance(2);
+		MemoryUtil.memPutShort(dest, value);
+		return this;
+	}
+	
+	public BufferBuilder putInt(int value) {
+		long dest = this.advance(4);
+		MemoryUtil.memPutInt(dest, value);
+		return this;
+	}
+	
+	public BufferBuilder putFloat(float value) {
+		long dest = this.advance(4);
+		MemoryUtil.memPutFloat(dest, value);
+		return this;
+	}
+	
+	public BufferBuilder putVec2(float x, float y) {
+		long dest = this.advance(8);
+		MemoryUtil.memPutFloat(dest, x);
+		MemoryUtil.memPutFloat(dest + 4, y);
+		return this;
+	}
+	
+	public BufferBuilder putVec3(float x, float y, float z) {
+		long dest = this.advance(12);
+		MemoryUtil.memPutFloat(dest, x);
+		MemoryUtil.memPutFloat(dest + 4, y);
+		MemoryUtil.memPutFloat(dest + 8, z);
+		return this;
+	}
+	
+	public BufferBuilder putVec4(float x, float y, float z, float w) {
+		long dest = this.advance(16);
+		MemoryUtil.memPutFloat(dest, x);
+		MemoryUtil.memPutFloat(dest + 4, y);
+		MemoryUtil.memPutFloat(dest + 8, z);
+		MemoryUtil.memPutFloat(dest + 12, w);
+		return this;
+	}
+	
+	/**Writes three <code>short</code> indices, such as a triangle.
+	 * 
+	 * @param a - The first index
+	 * @param b - The second index
+	 * @param c - The third index
+	 */
+	public BufferBuilder putShorts(int a, int b, int c) {
+		long dest = this.advance(6);
+		MemoryUtil.memPutShort(dest, (short) a);
+		MemoryUtil.memPutShort(dest + 2, (short) b);
+		MemoryUtil.memPutShort(dest + 4, (short) c);
+		return this;
+	}
+	
+	/**Writes three <code>int</code> indices, such as a triangle.
+	 * 
+	 * @param a - The first index
+	 * @param b - The second index
+	 * @param c - The third index
+	 */
+	public BufferBuilder putInts(int a, int b, int c) {
+		long dest = this.advance(12);
+		MemoryUtil.memPutInt(dest, a);
+		MemoryUtil.memPutInt(dest + 4, b);
+		MemoryUtil.memPutInt(dest + 8, c);
+		return this;
+	}
+	
+	/**Writes a normal packed in a {@link Type#INT_2_10_10_10_REV} word.
+	 * 
+	 * @param x - The <code>x</code> component, between -1 and 1
+	 * @param y - The <code>y</code> component, between -1 and 1
+	 * @param z - The <code>z</code> component, between -1 and 1
+	 */
+	public BufferBuilder putNormal(float x, float y, float z) {
+		return this.putInt(OOLWREMath.packSnorm2101010(x, y, z, 0f));
+	}
+	
+	/**Writes a color as four unsigned normalized bytes, in RGBA order.
+	 * 
+	 * @param r - The red component, between 0 and 1
+	 * @param g - The green component, between 0 and 1
+	 * @param b - The blue component, between 0 and 1
+	 * @param a - The alpha component, between 0 and 1
+	 */
+	public BufferBuilder putColor(float r, float g, float b, float a) {
+		long dest = this.advance(4);
+		MemoryUtil.memPutByte(dest, OOLWREMath.toUnorm8(r));
+		MemoryUtil.memPutByte(dest + 1, OOLWREMath.toUnorm8(g));
+		MemoryUtil.memPutByte(dest + 2, OOLWREMath.toUnorm8(b));
+		MemoryUtil.memPutByte(dest + 3, OOLWREMath.toUnorm8(a));
+		return this;
+	}
+	
+	/**Writes the remaining bytes of <code>src</code>, without changing its
+	 * position. Direct buffers are copied in bulk from their address, heap
+	 * buffers through a view of the destination.
+	 * 
+	 * @param src - The source buffer
+	 */
+	public BufferBuilder put(ByteBuffer src) {
+		int len = src.remaining();
+		long dest = this.advance(len);
+		if (src.isDirect()) {
+			MemoryUtil.memCopy(MemoryUtil.memAddress(src), dest, len);
+		} else {
+			MemoryUtil.memByteBuffer(dest, len).put(src.duplicate());
+		}
+		return this;
+	}
+	
+	public BufferBuilder put(float[] src, int off, int len) {
+		checkRange(src.length, off, len);
+		long dest = this.advance(len << 2);
+		for (int i = 0; i < len; i++) {
+			MemoryUtil.memPutFloat(dest + (i << 2), src[off + i]);
+		}
+		return this;
+	}
+	
+	public BufferBuilder put(int[] src, int off, int len) {
+		checkRange(src.length, off, len);
+		long dest = this.advance(len << 2);
+		for (int i = 0; i < len; i++) {
+			MemoryUtil.memPutInt(dest + (i << 2), src[off + i]);
+		}
+		return this;
+	}
+	
+	public BufferBuilder putShort(int offset, short value) {
+		MemoryUtil.memPutShort(this.at(offset, 2), value);
+		return this;
+	}
+	
+	public BufferBuilder putInt(int offset, int value) {
+		MemoryUtil.memPutInt(this.at(offset, 4), value);
+		return this;
+	}
+	
+	public BufferBuilder putFloat(int offset, float value) {
+		MemoryUtil.memPutFloat(this.at(offset, 4), value);
+		return this;
+	}
+	
+	public short getShort(int offset) {
+		return MemoryUtil.memGetShort(this.at(offset, 2));
+	}
+	
+	public int getInt(int offset) {
+		return MemoryUtil.memGetInt(this.at(offset, 4));
+	}
+	
+	public float getFloat(int offset) {
+		return MemoryUtil.memGetFloat(this.at(offset, 4));
+	}
+	
+	/**Advances the position by <code>bytes</code>, leaving the skipped
+	 * bytes undefined.
+	 * 
+	 * @param bytes - The number of bytes
+	 */
+	public BufferBuilder skip(int bytes) {
+		if (bytes < 0) {
+			throw new IllegalArgumentException("'bytes' < 0 (" + bytes + ")");
+		}
+		this.advance(bytes);
+		return this;
+	}
+	
+	/**Advances the position to the next multiple of <code>alignment</code>.
+	 * 
+	 * @param alignment - The alignment, in bytes
+	 */
+	public BufferBuilder align(int alignment) {
+		if (alignment <= 0) {
+			throw new IllegalArgumentException("'alignment' <= 0 (" + alignment + ")");
+		}
+		int padding = (alignment - this.position % alignment) % alignment;
+		this.advance(padding);
+		return this;
+	}
+	
+	/**Makes sure <code>bytes</code> more bytes can be written without
+	 * growing the region.
+	 * 
+	 * @param bytes - The number of bytes
+	 */
+	public void reserve(int bytes) {
+		if (bytes > this.capacity - this.position) {
+			this.grow(this.position + bytes);
+		}
+	}
+	
+	/**Rewinds the position to 0, keeping the memory.
+	 */
+	public void reset() {
+		this.position = 0;
+	}
+	
+	/**Returns the number of bytes written.
+	 */
+	public int position() {
+		return this.position;
+	}
+	
+	/**Sets the position, which must not exceed the capacity.
+	 * 
+	 * @param position - The new position
+	 */
+	public void position(int position) {
+		if (position < 0 || position > this.capacity) {
+			throw new IllegalArgumentException("'position' not in [0, " + this.capacity + "] (" + position + ")");
+		}
+		this.position = position;
+	}
+	
+	public int capacity() {
+		return this.capacity;
+	}
+	
+	/**Returns the address of the region, valid until it grows.
+	 */
+	public long address() {
+		this.checkAlive();
+		return this.address;
+	}
+	
+	/**Returns a view of the bytes written, valid until the region grows.
+	 */
+	public ByteBuffer getBuffer() {
+		this.checkAlive();
+		return MemoryUtil.memByteBuffer(this.address, this.position);
+	}
+	
+	/**Creates and initializes the data store of <code>buffer</code>, bound
+	 * to <code>target</code>, with the bytes written.
+	 * 
+	 * @param buffer - The {@link BufferObject}
+	 * @param target - The bound target
+	 * @param accessFrequency - The access frequency
+	 * @param accessNature - The access nature
+	 */
+	public void bufferData(BufferObject buffer, Target target, BufferAccessFrequency accessFrequency,
+			BufferAccessNature accessNature) {
+		buffer.bufferData(target, this.getBuffer(), accessFrequency, accessNature);
+	}
+	
+	/**Updates the data store of <code>buffer</code>, bound to
+	 * <code>target</code>, with the bytes written.
+	 * 
+	 * @param buffer - The {@link BufferObject}
+	 * @param target - The bound target
+	 * @param offset - The offset in the data store, in bytes
+	 */
+	public void bufferSubData(BufferObject buffer, Target target, long offset) {
+		buffer.bufferSubData(target, offset, this.getBuffer());
+	}
+	
+	/**Releases the memory of this {@link BufferBuilder}, which must no longer
+	 * be used.
+	 */
+	public void destroy() {
+		if (this.address != MemoryUtil.NULL) {
+			MemoryUtil.nmemFree(this.address);
+			this.address = MemoryUtil.NULL;
+			this.capacity = 0;
+			this.position = 0;
+		}
+	}
+	
+	private long advance(int bytes) {
+		if (bytes > this.capacity - this.position) {
+			this.grow(this.position + bytes);
+		}
+		long dest = this.address + this.position;
+		this.position += bytes;
+		return dest;
+	}
+	
+	/**Checks that <code>[off, off + len)</code> is within an array of
+	 * <code>length</code> elements, as <code>Objects.checkFromIndexSize</code>
+	 * does from Java 9 on.
+	 */
+	private static void checkRange(int length, int off, int len) {
+		if (off < 0 || len < 0 || off > length - len) {
+			throw new IndexOutOfBoundsException("Range [" + off + ", " + off + " + " + len + ") out of bounds for " +
+					"length " + length);
+		}
+	}
+	
+	private long at(int offset, int bytes) {
+		if (offset < 0 || offset > this.position - bytes) {
+			throw new IndexOutOfBoundsException("'offset' not in [0, " + (this.position - bytes) + "] (" +
+					offset + ")");
+		}
+		return this.address + offset;
+	}
+	
+	private void grow(int minCapacity) {
+		this.checkAlive();
+		if (minCapacity < 0) {
+			throw new OutOfMemoryError("Buffer too large!");
+		}
+		int capacity = this.capacity + (this.capacity >> 1);
+		if (capacity < minCapacity || capacity < 0) {
+			capacity = minCapacity;
+		}
+		long address = MemoryUtil.nmemRealloc(this.address, capacity);
+		if (address == MemoryUtil.NULL) {
+			throw new OutOfMemoryError("Unable to allocate " + capacity + " bytes!");
+		}
+		this.address = address;
+		this.capacity = capacity;
+	}
+	
+	private void checkAlive() {
+		if (this.address == MemoryUtil.NULL) {
+			throw new IllegalStateException("Buffer builder is destroyed!");
+		}
+	}
+}
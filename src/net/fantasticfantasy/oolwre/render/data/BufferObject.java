@@ -40,6 +40,7 @@ import org.lwjgl.opengl.ARBComputeShader;
 import org.lwjgl.opengl.ARBCopyBuffer;
 import org.lwjgl.opengl.ARBDrawIndirect;
 import org.lwjgl.opengl.ARBIndirectParameters;
+import org.lwjgl.opengl.ARBMapBufferRange;
 import org.lwjgl.opengl.ARBPixelBufferObject;
 import org.lwjgl.opengl.ARBShaderAtomicCounters;
 import org.lwjgl.opengl.ARBShaderStorageBufferObject;
@@ -51,6 +52,8 @@ import org.lwjgl.opengl.GL15;
 import org.lwjgl.opengl.GL30;
 import org.lwjgl.opengl.GLCapabilities;
 import net.fantasticfantasy.oolwre.CapabilityProvider;
+import net.fantasticfantasy.oolwre.util.EnumLookup;
+import net.fantasticfantasy.oolwre.util.GlConstant;
 
 /**The <code>BufferObject</code> class represents an OpenGL buffer object.
  */
@@ -59,6 +62,13 @@ public abstract class BufferObject {
 	private static final int BUFFER_USAGE_BASE = 0x88e0;
 	protected static final int GET_POINTER_PNAME_VAL = ARBVertexBufferObject.GL_BUFFER_MAP_POINTER_ARB;
 	
+	public static final int MAP_READ_BIT = ARBMapBufferRange.GL_MAP_READ_BIT;
+	public static final int MAP_WRITE_BIT = ARBMapBufferRange.GL_MAP_WRITE_BIT;
+	public static final int MAP_INVALIDATE_RANGE_BIT = ARBMapBufferRange.GL_MAP_INVALIDATE_RANGE_BIT;
+	public static final int MAP_INVALIDATE_BUFFER_BIT = ARBMapBufferRange.GL_MAP_INVALIDATE_BUFFER_BIT;
+	public static final int MAP_FLUSH_EXPLICIT_BIT = ARBMapBufferRange.GL_MAP_FLUSH_EXPLICIT_BIT;
+	public static final int MAP_UNSYNCHRONIZED_BIT = ARBMapBufferRange.GL_MAP_UNSYNCHRONIZED_BIT;
+	
 	private static Map<Integer, BufferObject> buffers;
 	
 	static {
@@ -109,6 +119,17 @@ public abstract class BufferObject {
 	public abstract void bufferData(Target target, double[] data, BufferAccessFrequency accessFrequency,
 			BufferAccessNature accessNature);
 	
+	/**Allocates <code>size</code> bytes of uninitialized storage for the buffer
+	 * bound to <code>target</code>.
+	 * 
+	 * @param target - The {@link Target} the buffer is bound to
+	 * @param size - The size of the storage in bytes
+	 * @param accessFrequency - The {@link BufferAccessFrequency}
+	 * @param accessNature - The {@link BufferAccessNature}
+	 */
+	public abstract void bufferData(Target target, long size, BufferAccessFrequency accessFrequency,
+			BufferAccessNature accessNature);
+	
 	public abstract void bufferSubData(Target target, long offset, ByteBuffer data);
 	
 	public abstract void bufferSubData(Target target, long offset, ShortBuffer data);
@@ -152,16 +173,86 @@ public abstract class BufferObject {
 	public abstract ByteBuffer mapBuffer(Target target, BufferMappingAccess access, long length,
 			ByteBuffer oldBuffer);
 	
+	/**Maps <code>length</code> bytes of the buffer bound to
+	 * <code>target</code>, from <code>offset</code>. Unlike
+	 * {@link #mapBuffer(Target, BufferMappingAccess)}, the range can be
+	 * invalidated or mapped without waiting for the pending commands using
+	 * {@link #MAP_UNSYNCHRONIZED_BIT}, as needed to stream data. This requires
+	 * OpenGL 3.0 or <code>ARB_map_buffer_range</code>.
+	 * 
+	 * @param target - The {@link Target} the buffer is bound to
+	 * @param offset - The offset of the range in bytes
+	 * @param length - The length of the range in bytes
+	 * @param access - The <code>MAP_*_BIT</code>s, combined
+	 * @param oldBuffer - A previously returned buffer, reused if it maps the
+	 * same address, or <code>null</code>
+	 */
+	public abstract ByteBuffer mapBufferRange(Target target, long offset, long length, int access,
+			ByteBuffer oldBuffer);
+	
+	/**Flushes <code>length</code> bytes of the range mapped with
+	 * {@link #MAP_FLUSH_EXPLICIT_BIT}, from <code>offset</code> relative to the
+	 * start of the range.
+	 * 
+	 * @param target - The {@link Target} the buffer is bound to
+	 * @param offset - The offset in the mapped range, in bytes
+	 * @param length - The number of bytes
+	 */
+	public abstract void flushMappedBufferRange(Target target, long offset, long length);
+	
 	public abstract boolean unmapBuffer(Target target);
 	
 	public abstract long getMapPointer(Target target);
 	
 	public abstract void getMapPointerv(Target target, PointerBuffer buffer);
 	
+	/**Copies <code>size</code> bytes from this buffer to <code>destination</code>,
+	 * which may be this buffer if the two ranges do not overlap. Both buffers are
+	 * bound to {@link Target#COPY_READ} and {@link Target#COPY_WRITE}; this requires
+	 * OpenGL 3.1 or <code>ARB_copy_buffer</code>.
+	 * 
+	 * @param destination - The {@link BufferObject} to copy to
+	 * @param readOffset - The offset in bytes to read from in this buffer
+	 * @param writeOffset - The offset in bytes to write to in <code>destination</code>
+	 * @param size - The number of bytes to copy
+	 */
+	public abstract void copySubData(BufferObject destination, long readOffset, long writeOffset, long size);
+	
 	public abstract void bind(Target target);
 	
 	public abstract void unbind(Target target);
 	
+	/**Binds this buffer to the binding point <code>index</code> of the
+	 * {@link Target#isIndexed() indexed} <code>target</code>, such as a shader
+	 * storage or uniform block binding. This requires OpenGL 3.0 or
+	 * <code>ARB_uniform_buffer_object</code>, and OpenGL 4.3 or
+	 * <code>ARB_shader_storage_buffer_object</code> for
+	 * {@link Target#SHADER_STORAGE}.
+	 * 
+	 * @param target - The indexed {@link Target}
+	 * @param index - The binding point
+	 * 
+	 * @throws UnsupportedOperationException If no extension is supported to
+	 * bind <code>target</code> by index
+	 */
+	public abstract void bindBase(Target target, int index);
+	
+	/**Binds <code>size</code> bytes of this buffer, from <code>offset</code>,
+	 * to the binding point <code>index</code> of the {@link Target#isIndexed()
+	 * indexed} <code>target</code>. This has the same requirements as
+	 * {@link #bindBase(Target, int) bindBase(...)}.
+	 * 
+	 * @param target - The indexed {@link Target}
+	 * @param index - The binding point
+	 * @param offset - The offset of the range in bytes, aligned as required by
+	 * the target
+	 * @param size - The size of the range in bytes
+	 * 
+	 * @throws UnsupportedOperationException If no extension is supported to
+	 * bind <code>target</code> by index
+	 */
+	public abstract void bindRange(Target target, int index, long offset, long size);
+	
 	protected abstract void delete();
 	
 	public final void destroy() {
@@ -175,24 +266,64 @@ public abstract class BufferObject {
 		return BUFFER_USAGE_BASE + accessFrequency.off + accessNature.off;
 	}
 	
+	private static void checkIndexed(GLCapabilities caps, Target target) {
+		if (!target.isIndexed()) {
+			throw new IllegalArgumentException("Target " + target + " has no binding points!");
+		}
+		boolean supported;
+		if (target == Target.SHADER_STORAGE) {
+			supported = caps.OpenGL43 || caps.GL_ARB_shader_storage_buffer_object;
+		} else if (target == Target.ATOMIC_COUNTER) {
+			supported = caps.OpenGL42 || caps.GL_ARB_shader_atomic_counters;
+		} else {
+			supported = caps.OpenGL30 || caps.GL_ARB_uniform_buffer_object;
+		}
+		if (!supported) {
+			throw new UnsupportedOperationException("There is no supported extension to bind " + target +
+					" buffers by index!");
+		}
+	}
+	
+	private static void bindBase(GLCapabilities caps, Target target, int index, int name) {
+		checkIndexed(caps, target);
+		if (caps.OpenGL30) {
+			GL30.glBindBufferBase(target.value, index, name);
+		} else {
+			ARBUniformBufferObject.glBindBufferBase(target.value, index, name);
+		}
+	}
+	
+	private static void bindRange(GLCapabilities caps, Target target, int index, int name, long offset,
+			long size) {
+		checkIndexed(caps, target);
+		if (caps.OpenGL30) {
+			GL30.glBindBufferRange(target.value, index, name, offset, size);
+		} else {
+			ARBUniformBufferObject.glBindBufferRange(target.value, index, name, offset, size);
+		}
+	}
+	
 	public static BufferObject create(CapabilityProvider provider) {
 		if (provider == null) {
 			throw new NullPointerException("Capability provider is null!");
 		}
 		GLCapabilities caps = provider.getCapabilities();
 		if (caps.OpenGL20) {
-			return new GL20Buffer();
+			return new GL20Buffer(caps);
 		} else if (caps.GL_ARB_vertex_buffer_object) {
-			return new ARBBuffer();
+			return new ARBBuffer(caps);
 		} else {
 			throw new UnsupportedOperationException("There is no supported extension to create a BufferObject!");
 		}
 	}
 	
 	private static class GL20Buffer extends BufferObject {
+		
+		private final GLCapabilities caps;
 
-		public GL20Buffer() {
+		public GL20Buffer(GLCapabilities caps) {
 			super(GL15.glGenBuffers());
+			this.caps = caps;
 		}
 
 		public int getParameteri(Target target, Parameter param) {
@@ -261,6 +392,12 @@ public abstract class BufferObject {
 			GL15.glBufferData(target.value, data, usage);
 		}
 
+		public void bufferData(Target target, long size, BufferAccessFrequency accessFrequency,
+				BufferAccessNature accessNature) {
+			int usage = glBufferUsageValueForParams(accessFrequency, accessNature);
+			GL15.glBufferData(target.value, size, usage);
+		}
+
 		public void bufferSubData(Target target, long offset, ByteBuffer data) {
 			GL15.glBufferSubData(target.value, offset, data);
 		}
@@ -345,6 +482,15 @@ public abstract class BufferObject {
 			return GL15.glMapBuffer(target.value, access.value, length, oldBuffer);
 		}
 
+		public ByteBuffer mapBufferRange(Target target, long offset, long length, int access,
+				ByteBuffer oldBuffer) {
+			return ARBMapBufferRange.glMapBufferRange(target.value, offset, length, access, oldBuffer);
+		}
+
+		public void flushMappedBufferRange(Target target, long offset, long length) {
+			ARBMapBufferRange.glFlushMappedBufferRange(target.value, offset, length);
+		}
+
 		public boolean unmapBuffer(Target target) {
 			return GL15.glUnmapBuffer(target.value);
 		}
@@ -357,6 +503,13 @@ public abstract class BufferObject {
 			GL15.glGetBufferPointerv(target.value, BufferObject.GET_POINTER_PNAME_VAL, buffer);
 		}
 
+		public void copySubData(BufferObject destination, long readOffset, long writeOffset, long size) {
+			this.bind(Target.COPY_READ);
+			destination.bind(Target.COPY_WRITE);
+			ARBCopyBuffer.glCopyBufferSubData(Target.COPY_READ.value, Target.COPY_WRITE.value, readOffset,
+					writeOffset, size);
+		}
+
 		public void bind(Target target) {
 			GL15.glBindBuffer(target.value, this.getName());
 		}
@@ -364,6 +517,14 @@ public abstract class BufferObject {
 		public void unbind(Target target) {
 			GL15.glBindBuffer(target.value, 0);
 		}
+		
+		public void bindBase(Target target, int index) {
+			BufferObject.bindBase(this.caps, target, index, this.getName());
+		}
+		
+		public void bindRange(Target target, int index, long offset, long size) {
+			BufferObject.bindRange(this.caps, target, index, this.getName(), offset, size);
+		}
 
 		protected void delete() {
 			GL15.glDeleteBuffers(this.getName());
@@ -372,8 +533,11 @@ public abstract class BufferObject {
 	
 	private static class ARBBuffer extends BufferObject {
 		
-		public ARBBuffer() {
+		private final GLCapabilities caps;
+		
+		public ARBBuffer(GLCapabilities caps) {
 			super(ARBVertexBufferObject.glGenBuffersARB());
+			this.caps = caps;
 		}
 
 		public int getParameteri(Target target, Parameter param) {
@@ -442,6 +606,12 @@ public abstract class BufferObject {
 			ARBVertexBufferObject.glBufferDataARB(target.value, data, usage);
 		}
 
+		public void bufferData(Target target, long size, BufferAccessFrequency accessFrequency,
+				BufferAccessNature accessNature) {
+			int usage = glBufferUsageValueForParams(accessFrequency, accessNature);
+			ARBVertexBufferObject.glBufferDataARB(target.value, size, usage);
+		}
+
 		public void bufferSubData(Target target, long offset, ByteBuffer data) {
 			ARBVertexBufferObject.glBufferSubDataARB(target.value, offset, data);
 		}
@@ -526,6 +696,15 @@ public abstract class BufferObject {
 			return ARBVertexBufferObject.glMapBufferARB(target.value, access.value, length, oldBuffer);
 		}
 
+		public ByteBuffer mapBufferRange(Target target, long offset, long length, int access,
+				ByteBuffer oldBuffer) {
+			return ARBMapBufferRange.glMapBufferRange(target.value, offset, length, access, oldBuffer);
+		}
+
+		public void flushMappedBufferRange(Target target, long offset, long length) {
+			ARBMapBufferRange.glFlushMappedBufferRange(target.value, offset, length);
+		}
+
 		public boolean unmapBuffer(Target target) {
 			return ARBVertexBufferObject.glUnmapBufferARB(target.value);
 		}
@@ -538,6 +717,13 @@ public abstract class BufferObject {
 			ARBVertexBufferObject.glGetBufferPointervARB(target.value, GET_POINTER_PNAME_VAL, buffer);
 		}
 
+		public void copySubData(BufferObject destination, long readOffset, long writeOffset, long size) {
+			this.bind(Target.COPY_READ);
+			destination.bind(Target.COPY_WRITE);
+			ARBCopyBuffer.glCopyBufferSubData(Target.COPY_READ.value, Target.COPY_WRITE.value, readOffset,
+					writeOffset, size);
+		}
+
 		public void bind(Target target) {
 			ARBVertexBufferObject.glBindBufferARB(target.value, this.getName());
 		}
@@ -545,6 +731,14 @@ public abstract class BufferObject {
 		public void unbind(Target target) {
 			ARBVertexBufferObject.glBindBufferARB(target.value, 0);
 		}
+		
+		public void bindBase(Target target, int index) {
+			BufferObject.bindBase(this.caps, target, index, this.getName());
+		}
+		
+		public void bindRange(Target target, int index, long offset, long size) {
+			BufferObject.bindRange(this.caps, target, index, this.getName(), offset, size);
+		}
 
 		protected void delete() {
 			ARBVertexBufferObject.glDeleteBuffersARB(this.getName());
@@ -567,7 +761,7 @@ public abstract class BufferObject {
 	 * {@link #SHADER_STORAGE}<br>
 	 * {@link #PARAMETER}
 	 */
-	public static enum Target {
+	public static enum Target implements GlConstant {
 		
 		ARRAY(ARBVertexBufferObject.GL_ARRAY_BUFFER_ARB),
 		ELEMENT_ARRAY(ARBVertexBufferObject.GL_ELEMENT_ARRAY_BUFFER_ARB),
@@ -586,6 +780,8 @@ public abstract class BufferObject {
 		
 		private int value;
 		
+		private static final EnumLookup<Target> LOOKUP = EnumLookup.of(values());
+		
 		Target(int value) {
 			this.value = value;
 		}
@@ -594,13 +790,17 @@ public abstract class BufferObject {
 			return this.value;
 		}
 		
+		/**Returns whether or not this {@link Target} has indexed binding points,
+		 * used by {@link BufferObject#bindBase(Target, int) bindBase(...)} and
+		 * {@link BufferObject#bindRange(Target, int, long, long) bindRange(...)}.
+		 */
+		public boolean isIndexed() {
+			return this == TRANSFORM_FEEDBACK || this == UNIFORM || this == ATOMIC_COUNTER ||
+					this == SHADER_STORAGE;
+		}
+		
 		public static Target forGlValue(int val) {
-			for (Target target : values()) {
-				if (target.value == val) {
-					return target;
-				}
-			}
-			return null;
+			return LOOKUP.get(val);
 		}
 	}
 	
@@ -615,7 +815,7 @@ public abstract class BufferObject {
 	 * {@link #IMMUTABLE_STORAGE}<br>
 	 * {@link #STORAGE_FLAGS}
 	 */
-	public static enum Parameter {
+	public static enum Parameter implements GlConstant {
 		
 		SIZE(ARBVertexBufferObject.GL_BUFFER_SIZE_ARB),
 		USAGE(ARBVertexBufferObject.GL_BUFFER_USAGE_ARB),
@@ -629,6 +829,8 @@ public abstract class BufferObject {
 		
 		private int value;
 		
+		private static final EnumLookup<Parameter> LOOKUP = EnumLookup.of(values());
+		
 		Parameter(int value) {
 			this.value = value;
 		}
@@ -638,12 +840,7 @@ public abstract class BufferObject {
 		}
 		
 		public static Parameter forGlValue(int val) {
-			for (Parameter param : values()) {
-				if (param.value == val) {
-					return param;
-				}
-			}
-			return null;
+			return LOOKUP.get(val);
 		}
 	}
 	
@@ -659,26 +856,22 @@ public abstract class BufferObject {
 		
 		STREAM(0),
 		STATIC(4),
-		DYNAMIC(7);
+		DYNAMIC(8);
 		
 		private int off;
 		
+		private static final BufferAccessFrequency[] VALUES = values();
+		
 		BufferAccessFrequency(int off) {
 			this.off = off;
 		}
 		
 		public static BufferAccessFrequency forGlValue(int val) {
 			val -= BUFFER_USAGE_BASE;
-			if (val < 0) {
+			if (val < 0 || val > 10 || (val & 3) == 3) {
 				return null;
-			} else if (val < 4) {
-				return STREAM;
-			} else if (val < 7) {
-				return STATIC;
-			} else if (val < 10) {
-				return DYNAMIC;
 			}
-			return null;
+			return VALUES[val >> 2];
 		}
 	}
 	
@@ -698,25 +891,18 @@ public abstract class BufferObject {
 		
 		private int off;
 		
+		private static final BufferAccessNature[] VALUES = values();
+		
 		BufferAccessNature(int off) {
 			this.off = off;
 		}
 		
 		public static BufferAccessNature forGlValue(int val) {
-			BufferAccessFrequency baf = BufferAccessFrequency.forGlValue(val);
-			if (baf == null) {
-				return null;
-			}
-			val -= BUFFER_USAGE_BASE - baf.off;
-			if (val < 0) {
+			val -= BUFFER_USAGE_BASE;
+			if (val < 0 || val > 10 || (val & 3) == 3) {
 				return null;
 			}
-			for (BufferAccessNature ban : values()) {
-				if (ban.off == val) {
-					return ban;
-				}
-			}
-			return null;
+			return VALUES[val & 3];
 		}
 	}
 	
@@ -725,7 +911,7 @@ public abstract class BufferObject {
 	 * {@link #WRITE_ONLY}<br>
 	 * {@link #READ_WRITE}
 	 */
-	public static enum BufferMappingAccess {
+	public static enum BufferMappingAccess implements GlConstant {
 		
 		READ_ONLY(ARBVertexBufferObject.GL_READ_ONLY_ARB),
 		WRITE_ONLY(ARBVertexBufferObject.GL_WRITE_ONLY_ARB),
@@ -733,6 +919,8 @@ public abstract class BufferObject {
 		
 		private int value;
 		
+		private static final EnumLookup<BufferMappingAccess> LOOKUP = EnumLookup.of(values());
+		
 		BufferMappingAccess(int value) {
 			this.value = value;
 		}
@@ -742,12 +930,7 @@ public abstract class BufferObject {
 		}
 		
 		public static BufferMappingAccess forGlValue(int val) {
-			for (BufferMappingAccess bma : values()) {
-				if (bma.value == val) {
-					return bma;
-				}
-			}
-			return null;
+			return LOOKUP.get(val);
 		}
 	}
 }
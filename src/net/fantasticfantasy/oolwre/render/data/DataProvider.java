@@ -29,9 +29,9 @@ package net.fantasticfantasy.oolwre.render.data;
 
 import java.nio.IntBuffer;
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import org.lwjgl.opengl.ARBFramebufferObject;
 import org.lwjgl.opengl.ARBOcclusionQuery;
 import org.lwjgl.opengl.ARBSamplerObjects;
@@ -62,7 +62,7 @@ public class DataProvider {
 	
 	static {
 		OPENGL_11 = new UnsupportedOperationException("OpenGL 1.1 must be supported in order to invoke this method!");
-		threads = new HashMap<>();
+		threads = new ConcurrentHashMap<>();
 	}
 	
 	private CapabilityProvider provider;
@@ -115,6 +115,15 @@ public class DataProvider {
 		this(CapabilityProvider.get());
 	}
 	
+	/**Retrieves the {@link CapabilityProvider} this {@link DataProvider} checks
+	 * the capabilities with.
+	 * 
+	 * @return The {@link CapabilityProvider}
+	 */
+	public CapabilityProvider getCapabilityProvider() {
+		return this.provider;
+	}
+	
 	/**Links this {@link DataProvider} to the current {@link Thread} so
 	 * that it can be used globally.
 	 */
@@ -122,6 +131,13 @@ public class DataProvider {
 		threads.put(Thread.currentThread(), this);
 	}
 	
+	/**Unlinks this {@link DataProvider} from the current {@link Thread}, if
+	 * it was linked to it.
+	 */
+	public void unlink() {
+		threads.remove(Thread.currentThread(), this);
+	}
+	
 	/**Deletes all the resources created using this {@link DataProvider}.
 	 * The objects generated by methods starting by <code>s</code>, such as
 	 * {@link #sgenTextures()}, are not included and must be deleted manually.
@@ -487,7 +503,7 @@ public class DataProvider {
 	public void deleteRenderbuffers(int renderbuffers) {
 		if (this.renderbuffers.contains(renderbuffers)) {
 			this.sdeleteRenderbuffers(renderbuffers);
-			this.framebuffers.remove((Object) renderbuffers);
+			this.renderbuffers.remove((Object) renderbuffers);
 		}
 	}
 	
@@ -528,7 +544,7 @@ public class DataProvider {
 	 * {@link #deleteSamplers(int) deleteSamplers(n)}.
 	 */
 	public int genSamplers() {
-		int sampler = this.genSamplers();
+		int sampler = this.sgenSamplers();
 		this.samplers.add(sampler);
 		return sampler;
 	}
@@ -549,7 +565,7 @@ public class DataProvider {
 	 * @param samplers - <code>n</code>
 	 */
 	public void deleteSamplers(int samplers) {
-		if (this.samplers.add(samplers)) {
+		if (this.samplers.contains(samplers)) {
 			this.sdeleteSamplers(samplers);
 			this.samplers.remove((Object) samplers);
 		}
@@ -580,7 +596,7 @@ public class DataProvider {
 	 * @param feedbacks - <code>n</code>
 	 */
 	public void deleteTransformFeedbacks(int feedbacks) {
-		if (this.feedbacks.add(feedbacks)) {
+		if (this.feedbacks.contains(feedbacks)) {
 			this.sdeleteTransformFeedbacks(feedbacks);
 			this.feedbacks.remove((Object) feedbacks);
 		}
@@ -0,0 +1,294 @@
+/*Copyright (c) 2017 Fantastic Fantasy All rights reserved.
+ *
+ * Permission to use, copy, modify and/or redistribute in source or binary form
+ * is hereby granted, free of charge, subject to the following conditions:
+ *
+ * - Redistribution of source code shall include the above copyright notice,
+ *  this list of conditions and the following disclaimer.
+ *
+ * - Redistribution in binary form shall include the above copyright notice,
+ *  this list of conditions and the following disclaimer in the documentation
+ *  and/or other materials provided with the distribution.
+ *
+ * - Neither the name Object Oriented Lightweight Render Engine nor the names
+ *  of its contributors may be used to endorse or promote products derived
+ *  from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE
+ * OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package net.fantasticfantasy.oolwre.render.data;
+
+import org.lwjgl.opengl.ARBFramebufferObject;
+import org.lwjgl.opengl.GL11;
+import org.lwjgl.opengl.GL20;
+import org.lwjgl.opengl.GLCapabilities;
+
+/**A <code>Framebuffer</code> is an OpenGL framebuffer object, to which
+ * {@link Texture}s and {@link Renderbuffer}s are attached as color, depth and
+ * stencil images. Its name is generated by a {@link DataProvider}, which
+ * deletes it with the other objects it tracks. This requires OpenGL 3.0 or
+ * <code>ARB_framebuffer_object</code>.<br>
+ * <br>
+ * The attachment methods bind the <code>Framebuffer</code> to
+ * <code>GL_FRAMEBUFFER</code> and leave it bound.
+ */
+public class Framebuffer {
+	
+	public static final int COLOR_BUFFER_BIT = GL11.GL_COLOR_BUFFER_BIT;
+	public static final int DEPTH_BUFFER_BIT = GL11.GL_DEPTH_BUFFER_BIT;
+	public static final int STENCIL_BUFFER_BIT = GL11.GL_STENCIL_BUFFER_BIT;
+	
+	private static final int MAX_DRAW_BUFFERS = 16;
+	private static final int[][] DRAW_BUFFERS = new int[MAX_DRAW_BUFFERS + 1][];
+	
+	static {
+		for (int i = 0; i < DRAW_BUFFERS.length; i++) {
+			DRAW_BUFFERS[i] = new int[i];
+			for (int j = 0; j < i; j++) {
+				DRAW_BUFFERS[i][j] = ARBFramebufferObject.GL_COLOR_ATTACHMENT0 + j;
+			}
+		}
+	}
+	
+	private final DataProvider data;
+	private int name;
+	
+	/**Constructs a {@link Framebuffer} using the current {@link Thread}'s
+	 * {@link DataProvider}.
+	 */
+	public Framebuffer() {
+		this(DataProvider.get());
+	}
+	
+	/**Constructs a {@link Framebuffer}.
+	 * 
+	 * @param data - The {@link DataProvider} generating the name
+	 * 
+	 * @throws UnsupportedOperationException If neither OpenGL 3.0 nor
+	 * <code>ARB_framebuffer_object</code> is supported
+	 */
+	public Framebuffer(DataProvider data) {
+		if (data == null) {
+			throw new NullPointerException("Data provider is null!");
+		}
+		GLCapabilities caps = data.getCapabilityProvider().getCapabilities();
+		if (!caps.OpenGL30 && !caps.GL_ARB_framebuffer_object) {
+			throw new UnsupportedOperationException("There is no supported extension to create a Framebuffer!");
+		}
+		this.data = data;
+		this.name = data.genFramebuffers();
+	}
+	
+	public final int getName() {
+		return this.name;
+	}
+	
+	/**Attaches the level <code>level</code> of a 2D texture to the color
+	 * attachment <code>index</code>.
+	 * 
+	 * @param index - The color attachment index
+	 * @param texture - The {@link Texture}, or <code>null</code> to detach
+	 * @param level - The mipmap level
+	 */
+	public void attachColor(int index, Texture texture, int level) {
+		this.checkColorIndex(index);
+		this.bind();
+		ARBFramebufferObject.glFramebufferTexture2D(ARBFramebufferObject.GL_FRAMEBUFFER,
+				ARBFramebufferObject.GL_COLOR_ATTACHMENT0 + index, GL11.GL_TEXTURE_2D,
+				texture == null ? 0 : texture.getName(), level);
+	}
+	
+	/**Attaches a {@link Renderbuffer} to the color attachment
+	 * <code>index</code>.
+	 * 
+	 * @param index - The color attachment index
+	 * @param renderbuffer - The {@link Renderbuffer}, or <code>null</code> to
+	 * detach
+	 */
+	public void attachColor(int index, Renderbuffer renderbuffer) {
+		this.checkColorIndex(index);
+		this.bind();
+		ARBFramebufferObject.glFramebufferRenderbuffer(ARBFramebufferObject.GL_FRAMEBUFFER,
+				ARBFramebufferObject.GL_COLOR_ATTACHMENT0 + index, ARBFramebufferObject.GL_RENDERBUFFER,
+				renderbuffer == null ? 0 : renderbuffer.getName());
+	}
+	
+	/**Attaches the level 0 of a 2D depth texture to the depth attachment, or
+	 * to the depth-stencil attachment if <code>format</code> has stencil.
+	 * 
+	 * @param texture - The {@link Texture}
+	 * @param format - The internal {@link Texture.Format} of <code>texture</code>
+	 */
+	public void attachDepth(Texture texture, Texture.Format format) {
+		if (!format.isDepth()) {
+			throw new IllegalArgumentException("Format is not a depth format (" + format + ")");
+		}
+		this.bind();
+		ARBFramebufferObject.glFramebufferTexture2D(ARBFramebufferObject.GL_FRAMEBUFFER, depthAttachment(format),
+				GL11.GL_TEXTURE_2D, texture.getName(), 0);
+	}
+	
+	/**Attaches a {@link Renderbuffer} to the depth attachment, or to the
+	 * depth-stencil attachment if its format has stencil.
+	 * 
+	 * @param renderbuffer - The {@link Renderbuffer}, whose storage is allocated
+	 */
+	public void attachDepth(Renderbuffer renderbuffer) {
+		Texture.Format format = renderbuffer.getFormat();
+		if (format == null || !format.isDepth()) {
+			throw new IllegalArgumentException("Renderbuffer has no depth storage (" + format + ")");
+		}
+		this.bind();
+		ARBFramebufferObject.glFramebufferRenderbuffer(ARBFramebufferObject.GL_FRAMEBUFFER, depthAttachment(format),
+				ARBFramebufferObject.GL_RENDERBUFFER, renderbuffer.getName());
+	}
+	
+	/**Selects the first <code>count</code> color attachments as the draw
+	 * buffers, <code>GL_NONE</code> if <code>count</code> is 0.
+	 * 
+	 * @param count - The number of color attachments written
+	 */
+	public void drawBuffers(int count) {
+		if (count < 0 || count > MAX_DRAW_BUFFERS) {
+			throw new IllegalArgumentException("'count' not in [0, " + MAX_DRAW_BUFFERS + "] (" + count + ")");
+		}
+		this.bind();
+		if (count == 0) {
+			GL11.glDrawBuffer(GL11.GL_NONE);
+		} else {
+			GL20.glDrawBuffers(DRAW_BUFFERS[count]);
+		}
+	}
+	
+	/**Selects the color attachment <code>index</code> as the only draw
+	 * buffer.
+	 * 
+	 * @param index - The color attachment index
+	 */
+	public void drawBuffer(int index) {
+		this.checkColorIndex(index);
+		this.bind();
+		GL11.glDrawBuffer(ARBFramebufferObject.GL_COLOR_ATTACHMENT0 + index);
+	}
+	
+	/**Selects the color attachment <code>index</code> as the read buffer, or
+	 * <code>GL_NONE</code> if <code>index</code> is negative.
+	 * 
+	 * @param index - The color attachment index
+	 */
+	public void readBuffer(int index) {
+		this.bind();
+		GL11.glReadBuffer(index < 0 ? GL11.GL_NONE : ARBFramebufferObject.GL_COLOR_ATTACHMENT0 + index);
+	}
+	
+	/**Returns the completeness status of this {@link Framebuffer}, which is
+	 * left bound.
+	 */
+	public int getStatus() {
+		this.bind();
+		return ARBFramebufferObject.glCheckFramebufferStatus(ARBFramebufferObject.GL_FRAMEBUFFER);
+	}
+	
+	public boolean isComplete() {
+		return this.getStatus() == ARBFramebufferObject.GL_FRAMEBUFFER_COMPLETE;
+	}
+	
+	/**Throws an exception if this {@link Framebuffer} is not complete.
+	 * 
+	 * @throws IllegalStateException If the framebuffer is incomplete
+	 */
+	public void checkStatus() {
+		int status = this.getStatus();
+		if (status != ARBFramebufferObject.GL_FRAMEBUFFER_COMPLETE) {
+			throw new IllegalStateException("Framebuffer " + this.name + " is incomplete (0x" +
+					Integer.toHexString(status) + ")");
+		}
+	}
+	
+	/**Binds this {@link Framebuffer} for drawing and reading.
+	 */
+	public void bind() {
+		ARBFramebufferObject.glBindFramebuffer(ARBFramebufferObject.GL_FRAMEBUFFER, this.name);
+	}
+	
+	public void bindDraw() {
+		ARBFramebufferObject.glBindFramebuffer(ARBFramebufferObject.GL_DRAW_FRAMEBUFFER, this.name);
+	}
+	
+	public void bindRead() {
+		ARBFramebufferObject.glBindFramebuffer(ARBFramebufferObject.GL_READ_FRAMEBUFFER, this.name);
+	}
+	
+	/**Binds the default framebuffer for drawing and reading.
+	 */
+	public static void unbind() {
+		ARBFramebufferObject.glBindFramebuffer(ARBFramebufferObject.GL_FRAMEBUFFER, 0);
+	}
+	
+	/**Copies a rectangle of pixels from <code>src</code> to <code>dst</code>,
+	 * resolving multisampled images. The read buffer of <code>src</code> and
+	 * the draw buffers of <code>dst</code> are used for the colors. The read
+	 * and draw bindings are left to <code>src</code> and <code>dst</code>.
+	 * 
+	 * @param src - The source {@link Framebuffer}, <code>null</code> for the
+	 * default framebuffer
+	 * @param dst - The destination {@link Framebuffer}, <code>null</code> for
+	 * the default framebuffer
+	 * @param srcX0 - The source left bound
+	 * @param srcY0 - The source bottom bound
+	 * @param srcX1 - The source right bound
+	 * @param srcY1 - The source top bound
+	 * @param dstX0 - The destination left bound
+	 * @param dstY0 - The destination bottom bound
+	 * @param dstX1 - The destination right bound
+	 * @param dstY1 - The destination top bound
+	 * @param mask - The buffers copied, combined {@link #COLOR_BUFFER_BIT},
+	 * {@link #DEPTH_BUFFER_BIT} and {@link #STENCIL_BUFFER_BIT}
+	 * @param linear - Whether or not scaled colors are filtered linearly,
+	 * depth and stencil always being copied with nearest filtering, in a
+	 * second blit when they are copied along with linearly filtered colors
+	 */
+	public static void blit(Framebuffer src, Framebuffer dst, int srcX0, int srcY0, int srcX1, int srcY1,
+			int dstX0, int dstY0, int dstX1, int dstY1, int mask, boolean linear) {
+		ARBFramebufferObject.glBindFramebuffer(ARBFramebufferObject.GL_READ_FRAMEBUFFER,
+				src == null ? 0 : src.name);
+		ARBFramebufferObject.glBindFramebuffer(ARBFramebufferObject.GL_DRAW_FRAMEBUFFER,
+				dst == null ? 0 : dst.name);
+		int nearestMask = mask;
+		if (linear && (mask & COLOR_BUFFER_BIT) != 0) {
+			//Linear filtering is invalid for depth and stencil, which get a separate nearest pass
+			ARBFramebufferObject.glBlitFramebuffer(srcX0, srcY0, srcX1, srcY1, dstX0, dstY0, dstX1, dstY1,
+					COLOR_BUFFER_BIT, GL11.GL_LINEAR);
+			nearestMask &= ~COLOR_BUFFER_BIT;
+		}
+		if (nearestMask != 0) {
+			ARBFramebufferObject.glBlitFramebuffer(srcX0, srcY0, srcX1, srcY1, dstX0, dstY0, dstX1, dstY1,
+					nearestMask, GL11.GL_NEAREST);
+		}
+	}
+	
+	public void destroy() {
+		this.data.deleteFramebuffers(this.name);
+		this.name = 0;
+	}
+	
+	private void checkColorIndex(int index) {
+		if (index < 0 || index >= MAX_DRAW_BUFFERS) {
+			throw new IllegalArgumentException("'index' not in [0, " + MAX_DRAW_BUFFERS + ") (" + index + ")");
+		}
+	}
+	
+	private static int depthAttachment(Texture.Format format) {
+		return format.hasStencil() ? ARBFramebufferObject.GL_DEPTH_STENCIL_ATTACHMENT :
+				ARBFramebufferObject.GL_DEPTH_ATTACHMENT;
+	}
+}
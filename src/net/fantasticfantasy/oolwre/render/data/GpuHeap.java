@@ -0,0 +1,367 @@
+/*Copyright (c) 2017 Fantastic Fantasy All rights reserved.
+ *
+ * Permission to use, copy, modify and/or redistribute in source or binary form
+ * is hereby granted, free of charge, subject to the following conditions:
+ *
+ * - Redistribution of source code shall include the above copyright notice,
+ *  this list of conditions and the following disclaimer.
+ *
+ * - Redistribution in binary form shall include the above copyright notice,
+ *  this list of conditions and the following disclaimer in the documentation
+ *  and/or other materials provided with the distribution.
+ *
+ * - Neither the name Object Oriented Lightweight Render Engine nor the names
+ *  of its contributors may be used to endorse or promote products derived
+ *  from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE
+ * OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package net.fantasticfantasy.oolwre.render.data;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import net.fantasticfantasy.oolwre.CapabilityProvider;
+import net.fantasticfantasy.oolwre.render.data.BufferObject.BufferAccessFrequency;
+import net.fantasticfantasy.oolwre.render.data.BufferObject.BufferAccessNature;
+import net.fantasticfantasy.oolwre.render.data.BufferObject.Target;
+
+/**A <code>GpuHeap</code> sub-allocates {@link Slice}s of a few large
+ * {@link BufferObject}s, called pages, instead of creating one buffer per mesh.
+ * Draw calls reading from the same page share the same buffer bindings, and
+ * only differ by their offsets.<br><br>
+ * The ranges of every page are managed by a {@link BufferAllocator}. Pages are
+ * created on demand, and {@link #defragment()} compacts them on the GPU using
+ * {@link BufferObject#copySubData(BufferObject, long, long, long)
+ * copySubData(...)}. This class is not thread safe and must be used on the
+ * thread owning the OpenGL context.
+ */
+public final class GpuHeap {
+	
+	private final CapabilityProvider provider;
+	private final long pageSize;
+	private final int alignment;
+	private final BufferAccessFrequency accessFrequency;
+	private final BufferAccessNature accessNature;
+	private final List<Page> pages;
+	
+	/**Constructs a {@link GpuHeap} for static vertex and index data, using the
+	 * {@link CapabilityProvider} of the current thread.
+	 * 
+	 * @param pageSize - The size in bytes of the pages
+	 */
+	public GpuHeap(long pageSize) {
+		this(CapabilityProvider.get(), pageSize, 16, BufferAccessFrequency.STATIC, BufferAccessNature.DRAW);
+	}
+	
+	/**Constructs a {@link GpuHeap}.
+	 * 
+	 * @param provider - The {@link CapabilityProvider} used to create the pages
+	 * @param pageSize - The size in bytes of the pages. Allocations larger than
+	 * a page get a dedicated page.
+	 * @param alignment - The alignment in bytes of every {@link Slice}, which
+	 * must be a power of two
+	 * @param accessFrequency - The {@link BufferAccessFrequency} of the pages
+	 * @param accessNature - The {@link BufferAccessNature} of the pages
+	 */
+	public GpuHeap(CapabilityProvider provider, long pageSize, int alignment,
+			BufferAccessFrequency accessFrequency, BufferAccessNature accessNature) {
+		if (provider == null) {
+			throw new NullPointerException("Capability provider is null!");
+		} else if (accessFrequency == null || accessNature == null) {
+			throw new NullPointerException("Buffer usage is null!");
+		} else if (pageSize <= 0) {
+			throw new IllegalArgumentException("'pageSize' <= 0 (" + pageSize + ")");
+		} else if (alignment <= 0 || Integer.bitCount(alignment) != 1) {
+			throw new IllegalArgumentException("'alignment' is not a power of two (" + alignment + ")");
+		}
+		this.provider = provider;
+		this.pageSize = (pageSize + alignment - 1) & -alignment;
+		this.alignment = alignment;
+		this.accessFrequency = accessFrequency;
+		this.accessNature = accessNature;
+		this.pages = new ArrayList<>();
+	}
+	
+	/**Allocates a {@link Slice} of <code>size</code> bytes, creating a new page
+	 * if no page has a large enough free range.
+	 * 
+	 * @param size - The size in bytes
+	 * 
+	 * @return The {@link Slice}
+	 */
+	public Slice allocate(long size) {
+		if (size <= 0) {
+			throw new IllegalArgumentException("'size' <= 0 (" + size + ")");
+		}
+		for (Page page : this.pages) {
+			int handle = page.allocator.allocate(size);
+			if (handle != -1) {
+				return new Slice(page, handle, size);
+			}
+		}
+		Page page = this.createPage(Math.max(this.pageSize, (size + this.alignment - 1) & -this.alignment));
+		return new Slice(page, page.allocator.allocate(size), size);
+	}
+	
+	/**Allocates a {@link Slice} large enough for <code>data</code> and uploads
+	 * the remaining bytes of <code>data</code> to it.
+	 * 
+	 * @param data - The data to upload
+	 * 
+	 * @return The {@link Slice}
+	 */
+	public Slice allocate(ByteBuffer data) {
+		if (data == null) {
+			throw new NullPointerException("Data is null!");
+		}
+		Slice slice = this.allocate(data.remaining());
+		slice.upload(0, data);
+		return slice;
+	}
+	
+	/**Releases <code>slice</code>. The slice must not be used anymore.
+	 * 
+	 * @param slice - The {@link Slice} to release
+	 */
+	public void free(Slice slice) {
+		if (slice == null) {
+			throw new NullPointerException("Slice is null!");
+		} else if (slice.page == null || slice.page.heap != this) {
+			throw new IllegalArgumentException("Slice is not allocated from this heap");
+		}
+		slice.page.allocator.free(slice.handle);
+		slice.page = null;
+	}
+	
+	/**Compacts every fragmented page by copying its live slices to a new buffer,
+	 * and destroys the pages that are empty, except the first one. The
+	 * {@link Slice}s keep their identity but may change of offset: the offsets
+	 * and buffers must be queried again after this call.
+	 * 
+	 * @return The number of slices moved
+	 */
+	public int defragment() {
+		int moved = 0;
+		for (int i = this.pages.size() - 1; i >= 0; i--) {
+			Page page = this.pages.get(i);
+			if (page.allocator.getAllocationCount() == 0 && i > 0) {
+				page.buffer.destroy();
+				this.pages.remove(i);
+			} else if (page.allocator.getFragmentation() > 0f) {
+				BufferObject destination = BufferObject.create(this.provider);
+				destination.bind(Target.COPY_WRITE);
+				destination.bufferData(Target.COPY_WRITE, page.allocator.getCapacity(), this.accessFrequency,
+						this.accessNature);
+				Copier copier = new Copier(page.buffer, destination);
+				moved += page.allocator.compact(copier);
+				copier.flush();
+				page.buffer.destroy();
+				page.buffer = destination;
+			}
+		}
+		return moved;
+	}
+	
+	/**Destroys every page of this heap. All the {@link Slice}s become invalid.
+	 */
+	public void destroy() {
+		for (Page page : this.pages) {
+			page.buffer.destroy();
+		}
+		this.pages.clear();
+	}
+	
+	public int getPageCount() {
+		return this.pages.size();
+	}
+	
+	/**Returns the total size in bytes of the pages.
+	 */
+	public long getCapacity() {
+		long capacity = 0;
+		for (Page page : this.pages) {
+			capacity += page.allocator.getCapacity();
+		}
+		return capacity;
+	}
+	
+	/**Returns the number of bytes used by live slices, alignment included.
+	 */
+	public long getUsedBytes() {
+		long used = 0;
+		for (Page page : this.pages) {
+			used += page.allocator.getUsedBytes();
+		}
+		return used;
+	}
+	
+	public int getAllocationCount() {
+		int count = 0;
+		for (Page page : this.pages) {
+			count += page.allocator.getAllocationCount();
+		}
+		return count;
+	}
+	
+	/**Returns the ratio of used bytes to the capacity, between 0 and 1.
+	 */
+	public float getOccupancy() {
+		long capacity = this.getCapacity();
+		return capacity == 0 ? 0f : (float) ((double) this.getUsedBytes() / capacity);
+	}
+	
+	/**Returns the fragmentation of the free space of all the pages, between 0
+	 * when every page has a single free range and 1 when the free space is
+	 * scattered in tiny ranges.
+	 */
+	public float getFragmentation() {
+		long free = 0, largest = 0;
+		for (Page page : this.pages) {
+			free += page.allocator.getFreeBytes();
+			largest += page.allocator.getLargestFreeRange();
+		}
+		return free == 0 ? 0f : (float) (1.0 - (double) largest / free);
+	}
+	
+	public String toString() {
+		return this.getClass().getName() + "[pages=" + this.pages.size() + ",capacity=" + this.getCapacity() +
+				",used=" + this.getUsedBytes() + ",allocations=" + this.getAllocationCount() + "]";
+	}
+	
+	private Page createPage(long size) {
+		BufferObject buffer = BufferObject.create(this.provider);
+		buffer.bind(Target.COPY_WRITE);
+		buffer.bufferData(Target.COPY_WRITE, size, this.accessFrequency, this.accessNature);
+		Page page = new Page(this, buffer, new BufferAllocator(size, this.alignment));
+		this.pages.add(page);
+		return page;
+	}
+	
+	/**Copies the slices moved by a compaction to a new buffer, merging the
+	 * ranges that stay contiguous. The slices before the first gap are not
+	 * reported by the allocator, but still have to be copied.
+	 */
+	private static final class Copier implements BufferAllocator.Relocation {
+		
+		private final BufferObject source;
+		private final BufferObject destination;
+		private long readOffset;
+		private long writeOffset;
+		private long size;
+		private boolean started;
+		
+		private Copier(BufferObject source, BufferObject destination) {
+			this.source = source;
+			this.destination = destination;
+		}
+		
+		public void relocate(int handle, long oldOffset, long newOffset, long size) {
+			if (!this.started) {
+				//Everything before the first moved slice is left in place
+				this.size = newOffset;
+				this.started = true;
+			}
+			if (this.readOffset + this.size != oldOffset || this.writeOffset + this.size != newOffset) {
+				this.flush();
+				this.readOffset = oldOffset;
+				this.writeOffset = newOffset;
+			}
+			this.size += size;
+		}
+		
+		private void flush() {
+			if (this.size > 0) {
+				this.source.copySubData(this.destination, this.readOffset, this.writeOffset, this.size);
+			}
+			this.size = 0;
+		}
+	}
+	
+	private static final class Page {
+		
+		private final GpuHeap heap;
+		private final BufferAllocator allocator;
+		private BufferObject buffer;
+		
+		private Page(GpuHeap heap, BufferObject buffer, BufferAllocator allocator) {
+			this.heap = heap;
+			this.buffer = buffer;
+			this.allocator = allocator;
+		}
+	}
+	
+	/**A range of a page of a {@link GpuHeap}.
+	 */
+	public static final class Slice {
+		
+		private Page page;
+		private final int handle;
+		private final long size;
+		
+		private Slice(Page page, int handle, long size) {
+			this.page = page;
+			this.handle = handle;
+			this.size = size;
+		}
+		
+		/**Returns the {@link BufferObject} this slice is stored in.
+		 */
+		public BufferObject getBuffer() {
+			this.check();
+			return this.page.buffer;
+		}
+		
+		/**Returns the offset in bytes of this slice in its {@link BufferObject}.
+		 */
+		public long getOffset() {
+			this.check();
+			return this.page.allocator.getOffset(this.handle);
+		}
+		
+		/**Returns the requested size in bytes of this slice.
+		 */
+		public long getSize() {
+			return this.size;
+		}
+		
+		/**Returns whether or not this slice has been released.
+		 */
+		public boolean isFreed() {
+			return this.page == null;
+		}
+		
+		/**Uploads the remaining bytes of <code>data</code> to this slice.
+		 * 
+		 * @param offset - The offset in bytes relative to the start of the slice
+		 * @param data - The data to upload
+		 * 
+		 * @throws IndexOutOfBoundsException If the data does not fit in the slice
+		 */
+		public void upload(long offset, ByteBuffer data) {
+			this.check();
+			if (offset < 0 || offset + data.remaining() > this.size) {
+				throw new IndexOutOfBoundsException("Data does not fit in the slice (" + offset + ", " +
+						data.remaining() + ")");
+			}
+			BufferObject buffer = this.page.buffer;
+			buffer.bind(Target.COPY_WRITE);
+			buffer.bufferSubData(Target.COPY_WRITE, this.getOffset() + offset, data);
+		}
+		
+		private void check() {
+			if (this.page == null) {
+				throw new IllegalStateException("Slice has been freed");
+			}
+		}
+	}
+}
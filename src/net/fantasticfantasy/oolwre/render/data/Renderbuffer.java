@@ -0,0 +1,130 @@
+/*Copyright (c) 2017 Fantastic Fantasy All rights reserved.
+ *
+ * Permission to use, copy, modify and/or redistribute in source or binary form
+ * is hereby granted, free of charge, subject to the following conditions:
+ *
+ * - Redistribution of source code shall include the above copyright notice,
+ *  this list of conditions and the following disclaimer.
+ *
+ * - Redistribution in binary form shall include the above copyright notice,
+ *  this list of conditions and the following disclaimer in the documentation
+ *  and/or other materials provided with the distribution.
+ *
+ * - Neither the name Object Oriented Lightweight Render Engine nor the names
+ *  of its contributors may be used to endorse or promote products derived
+ *  from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE
+ * OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package net.fantasticfantasy.oolwre.render.data;
+
+import org.lwjgl.opengl.ARBFramebufferObject;
+import org.lwjgl.opengl.GLCapabilities;
+
+/**A <code>Renderbuffer</code> is an OpenGL renderbuffer object: an image,
+ * possibly multisampled, which can be rendered to through a
+ * {@link Framebuffer} but not sampled. Its name is generated by a
+ * {@link DataProvider}, which deletes it with the other objects it tracks.
+ * This requires OpenGL 3.0 or <code>ARB_framebuffer_object</code>.
+ */
+public class Renderbuffer {
+	
+	private final DataProvider data;
+	private int name;
+	private Texture.Format format;
+	private int width;
+	private int height;
+	private int samples;
+	
+	/**Constructs a {@link Renderbuffer} using the current {@link Thread}'s
+	 * {@link DataProvider}.
+	 */
+	public Renderbuffer() {
+		this(DataProvider.get());
+	}
+	
+	/**Constructs a {@link Renderbuffer}.
+	 * 
+	 * @param data - The {@link DataProvider} generating the name
+	 * 
+	 * @throws UnsupportedOperationException If neither OpenGL 3.0 nor
+	 * <code>ARB_framebuffer_object</code> is supported
+	 */
+	public Renderbuffer(DataProvider data) {
+		if (data == null) {
+			throw new NullPointerException("Data provider is null!");
+		}
+		GLCapabilities caps = data.getCapabilityProvider().getCapabilities();
+		if (!caps.OpenGL30 && !caps.GL_ARB_framebuffer_object) {
+			throw new UnsupportedOperationException("There is no supported extension to create a Renderbuffer!");
+		}
+		this.data = data;
+		this.name = data.genRenderbuffers();
+	}
+	
+	public final int getName() {
+		return this.name;
+	}
+	
+	/**Allocates the storage of this {@link Renderbuffer}, which is left bound.
+	 * 
+	 * @param format - The internal {@link Texture.Format}
+	 * @param width - The width in pixels
+	 * @param height - The height in pixels
+	 * @param samples - The number of samples, 0 if not multisampled
+	 */
+	public void storage(Texture.Format format, int width, int height, int samples) {
+		if (format == null) {
+			throw new NullPointerException("Format is null!");
+		} else if (width <= 0 || height <= 0) {
+			throw new IllegalArgumentException("Size is not positive (" + width + "x" + height + ")");
+		} else if (samples < 0) {
+			throw new IllegalArgumentException("'samples' < 0 (" + samples + ")");
+		}
+		this.bind();
+		ARBFramebufferObject.glRenderbufferStorageMultisample(ARBFramebufferObject.GL_RENDERBUFFER, samples,
+				format.glValue(), width, height);
+		this.format = format;
+		this.width = width;
+		this.height = height;
+		this.samples = samples;
+	}
+	
+	public Texture.Format getFormat() {
+		return this.format;
+	}
+	
+	public int getWidth() {
+		return this.width;
+	}
+	
+	public int getHeight() {
+		return this.height;
+	}
+	
+	public int getSamples() {
+		return this.samples;
+	}
+	
+	public void bind() {
+		ARBFramebufferObject.glBindRenderbuffer(ARBFramebufferObject.GL_RENDERBUFFER, this.name);
+	}
+	
+	public static void unbind() {
+		ARBFramebufferObject.glBindRenderbuffer(ARBFramebufferObject.GL_RENDERBUFFER, 0);
+	}
+	
+	public void destroy() {
+		this.data.deleteRenderbuffers(this.name);
+		this.name = 0;
+	}
+}
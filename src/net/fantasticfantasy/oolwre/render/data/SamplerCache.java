@@ -0,0 +1,211 @@
+/*Copyright (c) 2017 Fantastic Fantasy All rights reserved.
+ *
+ * Permission to use, copy, modify and/or redistribute in source or binary form
+ * is hereby granted, free of charge, subject to the following conditions:
+ *
+ * - Redistribution of source code shall include the above copyright notice,
+ *  this list of conditions and the following disclaimer.
+ *
+ * - Redistribution in binary form shall include the above copyright notice,
+ *  this list of conditions and the following disclaimer in the documentation
+ *  and/or other materials provided with the distribution.
+ *
+ * - Neither the name Object Oriented Lightweight Render Engine nor the names
+ *  of its contributors may be used to endorse or promote products derived
+ *  from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE
+ * OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package net.fantasticfantasy.oolwre.render.data;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import org.lwjgl.opengl.ARBSamplerObjects;
+import org.lwjgl.opengl.EXTTextureFilterAnisotropic;
+import org.lwjgl.opengl.GL11;
+import org.lwjgl.opengl.GL12;
+import org.lwjgl.opengl.GL14;
+import org.lwjgl.opengl.GL20;
+import org.lwjgl.opengl.GLCapabilities;
+import net.fantasticfantasy.oolwre.CapabilityProvider;
+
+/**A <code>SamplerCache</code> interns the sampler objects of a context: one
+ * sampler is created per distinct {@link SamplerState}, with names generated
+ * by a {@link DataProvider}, and shared by every texture sampled that way.
+ * It also remembers the sampler bound to each texture unit, so that binding
+ * the same state again issues no call. This requires OpenGL 3.3 or
+ * <code>ARB_sampler_objects</code>.<br>
+ * <br>
+ * A sampler bound to a unit overrides the parameters of the texture bound to
+ * it. Sampler bindings changed without this cache must be followed by
+ * {@link #invalidate()}.
+ */
+public class SamplerCache {
+	
+	private final DataProvider data;
+	private final Map<SamplerState, Integer> samplers;
+	private final int[] bound;
+	private final float maxAnisotropy;
+	private long binds;
+	
+	/**Constructs a {@link SamplerCache} using the current {@link Thread}'s
+	 * {@link CapabilityProvider} and {@link DataProvider}.
+	 */
+	public SamplerCache() {
+		this(CapabilityProvider.get(), DataProvider.get());
+	}
+	
+	/**Constructs a {@link SamplerCache}.
+	 * 
+	 * @param provider - The {@link CapabilityProvider}
+	 * @param data - The {@link DataProvider} generating the names
+	 * 
+	 * @throws UnsupportedOperationException If sampler objects are not
+	 * supported
+	 */
+	public SamplerCache(CapabilityProvider provider, DataProvider data) {
+		if (provider == null) {
+			throw new NullPointerException("Capability provider is null!");
+		} else if (data == null) {
+			throw new NullPointerException("Data provider is null!");
+		}
+		GLCapabilities caps = provider.getCapabilities();
+		if (!caps.OpenGL33 && !caps.GL_ARB_sampler_objects) {
+			throw new UnsupportedOperationException("There is no supported extension to create sampler objects!");
+		}
+		this.data = data;
+		this.samplers = new HashMap<>();
+		this.bound = new int[GL11.glGetInteger(GL20.GL_MAX_COMBINED_TEXTURE_IMAGE_UNITS)];
+		if (caps.GL_EXT_texture_filter_anisotropic || caps.GL_ARB_texture_filter_anisotropic) {
+			this.maxAnisotropy = GL11.glGetFloat(EXTTextureFilterAnisotropic.GL_MAX_TEXTURE_MAX_ANISOTROPY_EXT);
+		} else {
+			this.maxAnisotropy = 1.0F;
+		}
+	}
+	
+	/**Returns the name of the sampler of <code>state</code>, created if
+	 * needed.
+	 * 
+	 * @param state - The {@link SamplerState}
+	 */
+	public int get(SamplerState state) {
+		Integer sampler = this.samplers.get(state);
+		if (sampler == null) {
+			sampler = this.create(state);
+			this.samplers.put(state, sampler);
+		}
+		return sampler;
+	}
+	
+	/**Binds the sampler of <code>state</code> to the texture unit
+	 * <code>unit</code>, unless it is already bound.
+	 * 
+	 * @param unit - The texture unit index, not the <code>GL_TEXTUREi</code>
+	 * constant
+	 * @param state - The {@link SamplerState}
+	 */
+	public void bind(int unit, SamplerState state) {
+		this.checkUnit(unit);
+		int sampler = this.get(state);
+		if (this.bound[unit] != sampler) {
+			ARBSamplerObjects.glBindSampler(unit, sampler);
+			this.bound[unit] = sampler;
+			this.binds++;
+		}
+	}
+	
+	/**Unbinds the sampler of the texture unit <code>unit</code>, whose texture
+	 * parameters apply again.
+	 * 
+	 * @param unit - The texture unit index
+	 */
+	public void unbind(int unit) {
+		this.checkUnit(unit);
+		if (this.bound[unit] != 0) {
+			ARBSamplerObjects.glBindSampler(unit, 0);
+			this.bound[unit] = 0;
+		}
+	}
+	
+	/**Forgets the samplers bound to the texture units, so that the next binds
+	 * are issued.
+	 */
+	public void invalidate() {
+		Arrays.fill(this.bound, -1);
+	}
+	
+	/**Returns the number of distinct samplers created.
+	 */
+	public int size() {
+		return this.samplers.size();
+	}
+	
+	/**Returns the number of binds actually issued.
+	 */
+	public long getBindCount() {
+		return this.binds;
+	}
+	
+	/**Returns the maximum anisotropy supported by the context, 1 if
+	 * anisotropic filtering is not supported.
+	 */
+	public float getMaxAnisotropy() {
+		return this.maxAnisotropy;
+	}
+	
+	/**Unbinds and deletes every sampler.
+	 */
+	public void destroy() {
+		for (int unit = 0; unit < this.bound.length; unit++) {
+			if (this.bound[unit] != 0) {
+				ARBSamplerObjects.glBindSampler(unit, 0);
+				this.bound[unit] = 0;
+			}
+		}
+		for (int sampler : this.samplers.values()) {
+			this.data.deleteSamplers(sampler);
+		}
+		this.samplers.clear();
+	}
+	
+	private int create(SamplerState state) {
+		int sampler = this.data.genSamplers();
+		ARBSamplerObjects.glSamplerParameteri(sampler, GL11.GL_TEXTURE_MIN_FILTER, state.getMinFilter().glValue());
+		ARBSamplerObjects.glSamplerParameteri(sampler, GL11.GL_TEXTURE_MAG_FILTER, state.getMagFilter().glValue());
+		ARBSamplerObjects.glSamplerParameteri(sampler, GL11.GL_TEXTURE_WRAP_S, state.getWrapS().glValue());
+		ARBSamplerObjects.glSamplerParameteri(sampler, GL11.GL_TEXTURE_WRAP_T, state.getWrapT().glValue());
+		ARBSamplerObjects.glSamplerParameteri(sampler, GL12.GL_TEXTURE_WRAP_R, state.getWrapR().glValue());
+		ARBSamplerObjects.glSamplerParameterf(sampler, GL14.GL_TEXTURE_LOD_BIAS, state.getLodBias());
+		ARBSamplerObjects.glSamplerParameterf(sampler, GL12.GL_TEXTURE_MIN_LOD, state.getMinLod());
+		ARBSamplerObjects.glSamplerParameterf(sampler, GL12.GL_TEXTURE_MAX_LOD, state.getMaxLod());
+		if (state.getCompare() == SamplerState.Compare.NONE) {
+			ARBSamplerObjects.glSamplerParameteri(sampler, GL14.GL_TEXTURE_COMPARE_MODE, GL11.GL_NONE);
+		} else {
+			ARBSamplerObjects.glSamplerParameteri(sampler, GL14.GL_TEXTURE_COMPARE_MODE,
+					GL14.GL_COMPARE_R_TO_TEXTURE);
+			ARBSamplerObjects.glSamplerParameteri(sampler, GL14.GL_TEXTURE_COMPARE_FUNC,
+					state.getCompare().glValue());
+		}
+		if (this.maxAnisotropy > 1.0F) {
+			ARBSamplerObjects.glSamplerParameterf(sampler, EXTTextureFilterAnisotropic.GL_TEXTURE_MAX_ANISOTROPY_EXT,
+					Math.min(state.getMaxAnisotropy(), this.maxAnisotropy));
+		}
+		return sampler;
+	}
+	
+	private void checkUnit(int unit) {
+		if (unit < 0 || unit >= this.bound.length) {
+			throw new IllegalArgumentException("'unit' not in [0, " + this.bound.length + ") (" + unit + ")");
+		}
+	}
+}
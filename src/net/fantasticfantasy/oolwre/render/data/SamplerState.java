@@ -0,0 +1,302 @@
+/*Copyright (c) 2017 Fantastic Fantasy All rights reserved.
+ *
+ * Permission to use, copy, modify and/or redistribute in source or binary form
+ * is hereby granted, free of charge, subject to the following conditions:
+ *
+ * - Redistribution of source code shall include the above copyright notice,
+ *  this list of conditions and the following disclaimer.
+ *
+ * - Redistribution in binary form shall include the above copyright notice,
+ *  this list of conditions and the following disclaimer in the documentation
+ *  and/or other materials provided with the distribution.
+ *
+ * - Neither the name Object Oriented Lightweight Render Engine nor the names
+ *  of its contributors may be used to endorse or promote products derived
+ *  from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE
+ * OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package net.fantasticfantasy.oolwre.render.data;
+
+import org.lwjgl.opengl.ARBTextureMirroredRepeat;
+import org.lwjgl.opengl.GL11;
+import org.lwjgl.opengl.GL12;
+import org.lwjgl.opengl.GL13;
+import net.fantasticfantasy.oolwre.util.EnumLookup;
+import net.fantasticfantasy.oolwre.util.GlConstant;
+
+/**A <code>SamplerState</code> is an immutable set of sampling parameters:
+ * filters, wrap modes, anisotropy, level of detail and depth comparison.
+ * States are compared by value, so that a {@link SamplerCache} creates a
+ * single sampler object for all the textures sampled the same way.<br>
+ * <br>
+ * States are derived from the predefined ones with the <code>with...</code>
+ * methods, each returning a new state.
+ */
+public final class SamplerState {
+	
+	public static final SamplerState NEAREST_CLAMP = new SamplerState(Filter.NEAREST, Filter.NEAREST,
+			Wrap.CLAMP_TO_EDGE, Wrap.CLAMP_TO_EDGE, Wrap.CLAMP_TO_EDGE, 1.0F, 0.0F, -1000.0F, 1000.0F, Compare.NONE);
+	public static final SamplerState NEAREST_REPEAT = NEAREST_CLAMP.withWrap(Wrap.REPEAT);
+	public static final SamplerState LINEAR_CLAMP = NEAREST_CLAMP.withFilter(Filter.LINEAR, Filter.LINEAR);
+	public static final SamplerState LINEAR_REPEAT = LINEAR_CLAMP.withWrap(Wrap.REPEAT);
+	public static final SamplerState TRILINEAR_REPEAT = LINEAR_REPEAT.withFilter(Filter.LINEAR_MIPMAP_LINEAR,
+			Filter.LINEAR);
+	public static final SamplerState SHADOW = LINEAR_CLAMP.withCompare(Compare.LEQUAL);
+	
+	private final Filter minFilter;
+	private final Filter magFilter;
+	private final Wrap wrapS;
+	private final Wrap wrapT;
+	private final Wrap wrapR;
+	private final float maxAnisotropy;
+	private final float lodBias;
+	private final float minLod;
+	private final float maxLod;
+	private final Compare compare;
+	private final int hash;
+	
+	private SamplerState(Filter minFilter, Filter magFilter, Wrap wrapS, Wrap wrapT, Wrap wrapR,
+			float maxAnisotropy, float lodBias, float minLod, float maxLod, Compare compare) {
+		if (minFilter == null || magFilter == null) {
+			throw new NullPointerException("Filter is null!");
+		} else if (wrapS == null || wrapT == null || wrapR == null) {
+			throw new NullPointerException("Wrap is null!");
+		} else if (compare == null) {
+			throw new NullPointerException("Compare is null!");
+		} else if (magFilter != Filter.NEAREST && magFilter != Filter.LINEAR) {
+			throw new IllegalArgumentException("Magnification filter can not use mipmaps (" + magFilter + ")");
+		} else if (!(maxAnisotropy >= 1.0F)) {
+			throw new IllegalArgumentException("'maxAnisotropy' < 1 (" + maxAnisotropy + ")");
+		}
+		this.minFilter = minFilter;
+		this.magFilter = magFilter;
+		this.wrapS = wrapS;
+		this.wrapT = wrapT;
+		this.wrapR = wrapR;
+		this.maxAnisotropy = maxAnisotropy;
+		this.lodBias = lodBias;
+		this.minLod = minLod;
+		this.maxLod = maxLod;
+		this.compare = compare;
+		int hash = minFilter.ordinal();
+		hash = 31 * hash + magFilter.ordinal();
+		hash = 31 * hash + wrapS.ordinal();
+		hash = 31 * hash + wrapT.ordinal();
+		hash = 31 * hash + wrapR.ordinal();
+		hash = 31 * hash + Float.floatToIntBits(maxAnisotropy);
+		hash = 31 * hash + Float.floatToIntBits(lodBias);
+		hash = 31 * hash + Float.floatToIntBits(minLod);
+		hash = 31 * hash + Float.floatToIntBits(maxLod);
+		this.hash = 31 * hash + compare.ordinal();
+	}
+	
+	public SamplerState withFilter(Filter minFilter, Filter magFilter) {
+		return new SamplerState(minFilter, magFilter, this.wrapS, this.wrapT, this.wrapR, this.maxAnisotropy,
+				this.lodBias, this.minLod, this.maxLod, this.compare);
+	}
+	
+	/**Returns this state with <code>wrap</code> along every axis.
+	 * 
+	 * @param wrap - The {@link Wrap} mode
+	 */
+	public SamplerState withWrap(Wrap wrap) {
+		return this.withWrap(wrap, wrap, wrap);
+	}
+	
+	public SamplerState withWrap(Wrap wrapS, Wrap wrapT, Wrap wrapR) {
+		return new SamplerState(this.minFilter, this.magFilter, wrapS, wrapT, wrapR, this.maxAnisotropy,
+				this.lodBias, this.minLod, this.maxLod, this.compare);
+	}
+	
+	/**Returns this state with the given maximum anisotropy, 1 disabling
+	 * anisotropic filtering. The value is clamped to the limit of the context
+	 * when the sampler is created.
+	 * 
+	 * @param maxAnisotropy - The maximum anisotropy, at least 1
+	 */
+	public SamplerState withAnisotropy(float maxAnisotropy) {
+		return new SamplerState(this.minFilter, this.magFilter, this.wrapS, this.wrapT, this.wrapR, maxAnisotropy,
+				this.lodBias, this.minLod, this.maxLod, this.compare);
+	}
+	
+	public SamplerState withLod(float lodBias, float minLod, float maxLod) {
+		return new SamplerState(this.minFilter, this.magFilter, this.wrapS, this.wrapT, this.wrapR,
+				this.maxAnisotropy, lodBias, minLod, maxLod, this.compare);
+	}
+	
+	/**Returns this state with the given depth comparison, {@link Compare#NONE}
+	 * sampling depth textures as values.
+	 * 
+	 * @param compare - The {@link Compare} function
+	 */
+	public SamplerState withCompare(Compare compare) {
+		return new SamplerState(this.minFilter, this.magFilter, this.wrapS, this.wrapT, this.wrapR,
+				this.maxAnisotropy, this.lodBias, this.minLod, this.maxLod, compare);
+	}
+	
+	public Filter getMinFilter() {
+		return this.minFilter;
+	}
+	
+	public Filter getMagFilter() {
+		return this.magFilter;
+	}
+	
+	public Wrap getWrapS() {
+		return this.wrapS;
+	}
+	
+	public Wrap getWrapT() {
+		return this.wrapT;
+	}
+	
+	public Wrap getWrapR() {
+		return this.wrapR;
+	}
+	
+	public float getMaxAnisotropy() {
+		return this.maxAnisotropy;
+	}
+	
+	public float getLodBias() {
+		return this.lodBias;
+	}
+	
+	public float getMinLod() {
+		return this.minLod;
+	}
+	
+	public float getMaxLod() {
+		return this.maxLod;
+	}
+	
+	public Compare getCompare() {
+		return this.compare;
+	}
+	
+	@Override
+	public int hashCode() {
+		return this.hash;
+	}
+	
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj) {
+			return true;
+		}
+		if (!(obj instanceof SamplerState)) {
+			return false;
+		}
+		SamplerState other = (SamplerState) obj;
+		return other.hash == this.hash && other.minFilter == this.minFilter && other.magFilter == this.magFilter &&
+				other.wrapS == this.wrapS && other.wrapT == this.wrapT && other.wrapR == this.wrapR &&
+				Float.floatToIntBits(other.maxAnisotropy) == Float.floatToIntBits(this.maxAnisotropy) &&
+				Float.floatToIntBits(other.lodBias) == Float.floatToIntBits(this.lodBias) &&
+				Float.floatToIntBits(other.minLod) == Float.floatToIntBits(this.minLod) &&
+				Float.floatToIntBits(other.maxLod) == Float.floatToIntBits(this.maxLod) &&
+				other.compare == this.compare;
+	}
+	
+	@Override
+	public String toString() {
+		return "SamplerState[" + this.minFilter + "/" + this.magFilter + ", " + this.wrapS + "/" + this.wrapT + "/" +
+				this.wrapR + ", aniso=" + this.maxAnisotropy + ", lod=" + this.lodBias + " [" + this.minLod + ", " +
+				this.maxLod + "], compare=" + this.compare + "]";
+	}
+	
+	/**Texture filters. Only {@link #NEAREST} and {@link #LINEAR} apply to
+	 * magnification.
+	 */
+	public static enum Filter implements GlConstant {
+		
+		NEAREST(GL11.GL_NEAREST),
+		LINEAR(GL11.GL_LINEAR),
+		NEAREST_MIPMAP_NEAREST(GL11.GL_NEAREST_MIPMAP_NEAREST),
+		LINEAR_MIPMAP_NEAREST(GL11.GL_LINEAR_MIPMAP_NEAREST),
+		NEAREST_MIPMAP_LINEAR(GL11.GL_NEAREST_MIPMAP_LINEAR),
+		LINEAR_MIPMAP_LINEAR(GL11.GL_LINEAR_MIPMAP_LINEAR);
+		
+		private int value;
+		
+		private static final EnumLookup<Filter> LOOKUP = EnumLookup.of(values());
+		
+		Filter(int value) {
+			this.value = value;
+		}
+		
+		public int glValue() {
+			return this.value;
+		}
+		
+		public static Filter forGlValue(int val) {
+			return LOOKUP.get(val);
+		}
+	}
+	
+	/**Texture coordinate wrap modes.
+	 */
+	public static enum Wrap implements GlConstant {
+		
+		REPEAT(GL11.GL_REPEAT),
+		MIRRORED_REPEAT(ARBTextureMirroredRepeat.GL_MIRRORED_REPEAT_ARB),
+		CLAMP_TO_EDGE(GL12.GL_CLAMP_TO_EDGE),
+		CLAMP_TO_BORDER(GL13.GL_CLAMP_TO_BORDER);
+		
+		private int value;
+		
+		private static final EnumLookup<Wrap> LOOKUP = EnumLookup.of(values());
+		
+		Wrap(int value) {
+			this.value = value;
+		}
+		
+		public int glValue() {
+			return this.value;
+		}
+		
+		public static Wrap forGlValue(int val) {
+			return LOOKUP.get(val);
+		}
+	}
+	
+	/**Depth comparison functions. {@link #NONE} disables the comparison.
+	 */
+	public static enum Compare implements GlConstant {
+		
+		NONE(GL11.GL_NONE),
+		LEQUAL(GL11.GL_LEQUAL),
+		GEQUAL(GL11.GL_GEQUAL),
+		LESS(GL11.GL_LESS),
+		GREATER(GL11.GL_GREATER),
+		EQUAL(GL11.GL_EQUAL),
+		NOTEQUAL(GL11.GL_NOTEQUAL),
+		ALWAYS(GL11.GL_ALWAYS),
+		NEVER(GL11.GL_NEVER);
+		
+		private int value;
+		
+		private static final EnumLookup<Compare> LOOKUP = EnumLookup.of(values());
+		
+		Compare(int value) {
+			this.value = value;
+		}
+		
+		public int glValue() {
+			return this.value;
+		}
+		
+		public static Compare forGlValue(int val) {
+			return LOOKUP.get(val);
+		}
+	}
+}
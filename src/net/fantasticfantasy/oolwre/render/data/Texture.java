@@ -42,9 +42,14 @@ import org.lwjgl.opengl.ARBTextureRectangle;
 import org.lwjgl.opengl.EXTTextureArray;
 import org.lwjgl.opengl.GL11;
 import org.lwjgl.opengl.GL12;
+import org.lwjgl.opengl.GL14;
+import org.lwjgl.opengl.GL21;
+import org.lwjgl.opengl.GL30;
 import org.lwjgl.opengl.GLCapabilities;
 import net.fantasticfantasy.oolwre.CapabilityProvider;
 import net.fantasticfantasy.oolwre.image.Image;
+import net.fantasticfantasy.oolwre.util.EnumLookup;
+import net.fantasticfantasy.oolwre.util.GlConstant;
 
 public abstract class Texture {
 	
@@ -112,6 +117,36 @@ public abstract class Texture {
 	public abstract void texImage2D(Target target, int level, Format format, int width, int height,
 			int border, Image.Format imgFormat, Type type, DoubleBuffer pixels);
 	
+	public abstract void texImage3D(Target target, int level, Format format, int width, int height,
+			int depth, int border, Image.Format imgFormat, Type type, ByteBuffer pixels);
+	
+	public abstract void texImage3D(Target target, int level, Format format, int width, int height,
+			int depth, int border, Image.Format imgFormat, Type type, ShortBuffer pixels);
+	
+	public abstract void texImage3D(Target target, int level, Format format, int width, int height,
+			int depth, int border, Image.Format imgFormat, Type type, IntBuffer pixels);
+	
+	public abstract void texImage3D(Target target, int level, Format format, int width, int height,
+			int depth, int border, Image.Format imgFormat, Type type, FloatBuffer pixels);
+	
+	public abstract void texImage3D(Target target, int level, Format format, int width, int height,
+			int depth, int border, Image.Format imgFormat, Type type, DoubleBuffer pixels);
+	
+	public abstract void texSubImage3D(Target target, int level, int xoffset, int yoffset, int zoffset,
+			int width, int height, int depth, Image.Format imgFormat, Type type, ByteBuffer pixels);
+	
+	public abstract void texSubImage3D(Target target, int level, int xoffset, int yoffset, int zoffset,
+			int width, int height, int depth, Image.Format imgFormat, Type type, ShortBuffer pixels);
+	
+	public abstract void texSubImage3D(Target target, int level, int xoffset, int yoffset, int zoffset,
+			int width, int height, int depth, Image.Format imgFormat, Type type, IntBuffer pixels);
+	
+	public abstract void texSubImage3D(Target target, int level, int xoffset, int yoffset, int zoffset,
+			int width, int height, int depth, Image.Format imgFormat, Type type, FloatBuffer pixels);
+	
+	public abstract void texSubImage3D(Target target, int level, int xoffset, int yoffset, int zoffset,
+			int width, int height, int depth, Image.Format imgFormat, Type type, DoubleBuffer pixels);
+	
 	public abstract void bind(Target target);
 	
 	public abstract void unbind(Target target);
@@ -131,7 +166,26 @@ public abstract class Texture {
 		GLCapabilities caps = provider.getCapabilities();
 		if (caps.OpenGL11) {
 			int name = GL11Texture.genName();
-			return new GL11Texture(name);
+			return new GL11Texture(name, null);
+		} else {
+			throw new UnsupportedOperationException("There is no extension supported to create a texture!");
+		}
+	}
+	
+	/**Creates a {@link Texture} whose name is generated by a {@link DataProvider},
+	 * which deletes it with the other objects it tracks.
+	 * 
+	 * @param data - The {@link DataProvider} generating the name
+	 * 
+	 * @return The created {@link Texture}
+	 */
+	public static Texture create(DataProvider data) {
+		if (data == null) {
+			throw new NullPointerException("Data provider is null!");
+		}
+		GLCapabilities caps = data.getCapabilityProvider().getCapabilities();
+		if (caps.OpenGL11) {
+			return new GL11Texture(data.genTextures(), data);
 		} else {
 			throw new UnsupportedOperationException("There is no extension supported to create a texture!");
 		}
@@ -147,8 +201,11 @@ public abstract class Texture {
 			return GL11.glGenTextures();
 		}
 		
-		public GL11Texture(int name) {
+		private final DataProvider data;
+		
+		public GL11Texture(int name, DataProvider data) {
 			super(name);
+			this.data = data;
 		}
 		
 		public void parameteri(Target target, Parameter param, int value) {
@@ -235,6 +292,66 @@ public abstract class Texture {
 					imgFormat.glValue(), type.glValue(), pixels);
 		}
 
+		public void texImage3D(Target target, int level, Format format, int width, int height, int depth,
+				int border, Image.Format imgFormat, Type type, ByteBuffer pixels) {
+			GL12.glTexImage3D(target.value, level, format.value, width, height, depth, border,
+					imgFormat.glValue(), type.glValue(), pixels);
+		}
+
+		public void texImage3D(Target target, int level, Format format, int width, int height, int depth,
+				int border, Image.Format imgFormat, Type type, ShortBuffer pixels) {
+			GL12.glTexImage3D(target.value, level, format.value, width, height, depth, border,
+					imgFormat.glValue(), type.glValue(), pixels);
+		}
+
+		public void texImage3D(Target target, int level, Format format, int width, int height, int depth,
+				int border, Image.Format imgFormat, Type type, IntBuffer pixels) {
+			GL12.glTexImage3D(target.value, level, format.value, width, height, depth, border,
+					imgFormat.glValue(), type.glValue(), pixels);
+		}
+
+		public void texImage3D(Target target, int level, Format format, int width, int height, int depth,
+				int border, Image.Format imgFormat, Type type, FloatBuffer pixels) {
+			GL12.glTexImage3D(target.value, level, format.value, width, height, depth, border,
+					imgFormat.glValue(), type.glValue(), pixels);
+		}
+
+		public void texImage3D(Target target, int level, Format format, int width, int height, int depth,
+				int border, Image.Format imgFormat, Type type, DoubleBuffer pixels) {
+			GL12.glTexImage3D(target.value, level, format.value, width, height, depth, border,
+					imgFormat.glValue(), type.glValue(), pixels);
+		}
+
+		public void texSubImage3D(Target target, int level, int xoffset, int yoffset, int zoffset, int width,
+				int height, int depth, Image.Format imgFormat, Type type, ByteBuffer pixels) {
+			GL12.glTexSubImage3D(target.value, level, xoffset, yoffset, zoffset, width, height, depth,
+					imgFormat.glValue(), type.glValue(), pixels);
+		}
+
+		public void texSubImage3D(Target target, int level, int xoffset, int yoffset, int zoffset, int width,
+				int height, int depth, Image.Format imgFormat, Type type, ShortBuffer pixels) {
+			GL12.glTexSubImage3D(target.value, level, xoffset, yoffset, zoffset, width, height, depth,
+					imgFormat.glValue(), type.glValue(), pixels);
+		}
+
+		public void texSubImage3D(Target target, int level, int xoffset, int yoffset, int zoffset, int width,
+				int height, int depth, Image.Format imgFormat, Type type, IntBuffer pixels) {
+			GL12.glTexSubImage3D(target.value, level, xoffset, yoffset, zoffset, width, height, depth,
+					imgFormat.glValue(), type.glValue(), pixels);
+		}
+
+		public void texSubImage3D(Target target, int level, int xoffset, int yoffset, int zoffset, int width,
+				int height, int depth, Image.Format imgFormat, Type type, FloatBuffer pixels) {
+			GL12.glTexSubImage3D(target.value, level, xoffset, yoffset, zoffset, width, height, depth,
+					imgFormat.glValue(), type.glValue(), pixels);
+		}
+
+		public void texSubImage3D(Target target, int level, int xoffset, int yoffset, int zoffset, int width,
+				int height, int depth, Image.Format imgFormat, Type type, DoubleBuffer pixels) {
+			GL12.glTexSubImage3D(target.value, level, xoffset, yoffset, zoffset, width, height, depth,
+					imgFormat.glValue(), type.glValue(), pixels);
+		}
+
 		public void bind(Target target) {
 			GL11.glBindTexture(target.value, this.getName());
 		}
@@ -244,11 +361,15 @@ public abstract class Texture {
 		}
 
 		protected void delete() {
-			GL11.glDeleteTextures(this.getName());
+			if (this.data != null) {
+				this.data.deleteTextures(this.getName());
+			} else {
+				GL11.glDeleteTextures(this.getName());
+			}
 		}
 	}
 	
-	public static enum Target {
+	public static enum Target implements GlConstant {
 		
 		TEXTURE_1D(GL11.GL_TEXTURE_1D),
 		TEXTURE_1D_ARRAY(EXTTextureArray.GL_TEXTURE_1D_ARRAY_EXT),
@@ -264,6 +385,8 @@ public abstract class Texture {
 		
 		private int value;
 		
+		private static final EnumLookup<Target> LOOKUP = EnumLookup.of(values());
+		
 		Target(int value) {
 			this.value = value;
 		}
@@ -273,16 +396,11 @@ public abstract class Texture {
 		}
 		
 		public static Target forGlValue(int val) {
-			for (Target target : values()) {
-				if (target.value == val) {
-					return target;
-				}
-			}
-			return null;
+			return LOOKUP.get(val);
 		}
 	}
 	
-	public static enum Parameter {
+	public static enum Parameter implements GlConstant {
 		
 		MIN_FILTER(GL11.GL_TEXTURE_MIN_FILTER),
 		MAG_FILTER(GL11.GL_TEXTURE_MAG_FILTER),
@@ -293,6 +411,8 @@ public abstract class Texture {
 		
 		private int value;
 		
+		private static final EnumLookup<Parameter> LOOKUP = EnumLookup.of(values());
+		
 		Parameter(int value) {
 			this.value = value;
 		}
@@ -302,37 +422,80 @@ public abstract class Texture {
 		}
 		
 		public static Parameter forGlValue(int val) {
-			for (Parameter param : values()) {
-				if (param.value == val) {
-					return param;
-				}
-			}
-			return null;
+			return LOOKUP.get(val);
 		}
 	}
 	
-	public static enum Format {
-		RGB(GL11.GL_RGB),
-		RGBA(GL11.GL_RGBA),
-		DEPTH_COMPONENT(GL11.GL_DEPTH_COMPONENT);
+	/**Texture internal formats, also used for renderbuffer storage. Each
+	 * format knows the {@link Image.Format} and {@link Type} used to upload
+	 * or allocate its pixels.
+	 */
+	public static enum Format implements GlConstant {
+		RGB(GL11.GL_RGB, Image.Format.RGB, Type.UNSIGNED_BYTE),
+		RGBA(GL11.GL_RGBA, Image.Format.RGBA, Type.UNSIGNED_BYTE),
+		DEPTH_COMPONENT(GL11.GL_DEPTH_COMPONENT, Image.Format.DEPTH_COMPONENT, Type.FLOAT),
+		R8(GL30.GL_R8, Image.Format.RED, Type.UNSIGNED_BYTE),
+		RG8(GL30.GL_RG8, Image.Format.RG, Type.UNSIGNED_BYTE),
+		RGBA8(GL11.GL_RGBA8, Image.Format.RGBA, Type.UNSIGNED_BYTE),
+		SRGB8_ALPHA8(GL21.GL_SRGB8_ALPHA8, Image.Format.RGBA, Type.UNSIGNED_BYTE),
+		RGB10_A2(GL11.GL_RGB10_A2, Image.Format.RGBA, Type.UNSIGNED_INT_2_10_10_10_REV),
+		R16F(GL30.GL_R16F, Image.Format.RED, Type.HALF_FLOAT),
+		RG16F(GL30.GL_RG16F, Image.Format.RG, Type.HALF_FLOAT),
+		RGBA16F(GL30.GL_RGBA16F, Image.Format.RGBA, Type.HALF_FLOAT),
+		R32F(GL30.GL_R32F, Image.Format.RED, Type.FLOAT),
+		RG32F(GL30.GL_RG32F, Image.Format.RG, Type.FLOAT),
+		RGBA32F(GL30.GL_RGBA32F, Image.Format.RGBA, Type.FLOAT),
+		R11F_G11F_B10F(GL30.GL_R11F_G11F_B10F, Image.Format.RGB, Type.UNSIGNED_INT_10F_11F_11F_REV),
+		R32UI(GL30.GL_R32UI, Image.Format.RED_INT, Type.UNSIGNED_INT),
+		DEPTH_COMPONENT16(GL14.GL_DEPTH_COMPONENT16, Image.Format.DEPTH_COMPONENT, Type.UNSIGNED_SHORT),
+		DEPTH_COMPONENT24(GL14.GL_DEPTH_COMPONENT24, Image.Format.DEPTH_COMPONENT, Type.UNSIGNED_INT),
+		DEPTH_COMPONENT32F(GL30.GL_DEPTH_COMPONENT32F, Image.Format.DEPTH_COMPONENT, Type.FLOAT),
+		DEPTH24_STENCIL8(GL30.GL_DEPTH24_STENCIL8, Image.Format.DEPTH_STENCIL, Type.UNSIGNED_INT_24_8),
+		DEPTH32F_STENCIL8(GL30.GL_DEPTH32F_STENCIL8, Image.Format.DEPTH_STENCIL,
+				Type.FLOAT_32_UNSIGNED_INT_24_8_REV);
 		
 		private int value;
+		private Image.Format pixelFormat;
+		private Type pixelType;
+		
+		private static final EnumLookup<Format> LOOKUP = EnumLookup.of(values());
 		
-		Format(int value) {
+		Format(int value, Image.Format pixelFormat, Type pixelType) {
 			this.value = value;
+			this.pixelFormat = pixelFormat;
+			this.pixelType = pixelType;
 		}
 		
 		public int glValue() {
 			return this.value;
 		}
 		
+		/**Returns the {@link Image.Format} of the pixels of this {@link Format}.
+		 */
+		public Image.Format getPixelFormat() {
+			return this.pixelFormat;
+		}
+		
+		/**Returns the {@link Type} of the pixels of this {@link Format}.
+		 */
+		public Type getPixelType() {
+			return this.pixelType;
+		}
+		
+		/**Returns whether or not this {@link Format} holds depth values.
+		 */
+		public boolean isDepth() {
+			return this.pixelFormat == Image.Format.DEPTH_COMPONENT || this.pixelFormat == Image.Format.DEPTH_STENCIL;
+		}
+		
+		/**Returns whether or not this {@link Format} holds stencil values.
+		 */
+		public boolean hasStencil() {
+			return this.pixelFormat == Image.Format.DEPTH_STENCIL;
+		}
+		
 		public static Format forGlValue(int val) {
-			for (Format format : values()) {
-				if (format.value == val) {
-					return format;
-				}
-			}
-			return null;
+			return LOOKUP.get(val);
 		}
 	}
 }
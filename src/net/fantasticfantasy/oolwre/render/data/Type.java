@@ -28,34 +28,93 @@
 package net.fantasticfantasy.oolwre.render.data;
 
 import org.lwjgl.opengl.GL11;
+import org.lwjgl.opengl.GL12;
+import org.lwjgl.opengl.GL30;
+import org.lwjgl.opengl.GL33;
+import net.fantasticfantasy.oolwre.util.EnumLookup;
+import net.fantasticfantasy.oolwre.util.GlConstant;
 
-public enum Type {
+/**OpenGL data types.<br><br>
+ * {@link #BYTE}<br>
+ * {@link #UNSIGNED_BYTE}<br>
+ * {@link #SHORT}<br>
+ * {@link #UNSIGNED_SHORT}<br>
+ * {@link #INT}<br>
+ * {@link #UNSIGNED_INT}<br>
+ * {@link #FLOAT}<br>
+ * {@link #DOUBLE}<br>
+ * {@link #HALF_FLOAT}<br>
+ * {@link #INT_2_10_10_10_REV}<br>
+ * {@link #UNSIGNED_INT_2_10_10_10_REV}<br>
+ * {@link #UNSIGNED_INT_10F_11F_11F_REV}<br>
+ * {@link #UNSIGNED_INT_24_8}<br>
+ * {@link #FLOAT_32_UNSIGNED_INT_24_8_REV}
+ */
+public enum Type implements GlConstant {
+	
+	BYTE(GL11.GL_BYTE, 1, false),
+	UNSIGNED_BYTE(GL11.GL_UNSIGNED_BYTE, 1, false),
+	SHORT(GL11.GL_SHORT, 2, false),
+	UNSIGNED_SHORT(GL11.GL_UNSIGNED_SHORT, 2, false),
+	INT(GL11.GL_INT, 4, false),
+	UNSIGNED_INT(GL11.GL_UNSIGNED_INT, 4, false),
+	FLOAT(GL11.GL_FLOAT, 4, false),
+	DOUBLE(GL11.GL_DOUBLE, 8, false),
+	HALF_FLOAT(GL30.GL_HALF_FLOAT, 2, false),
+	
+	/**Packed signed 10-10-10-2 vector, four components in a single 32 bits word.*/
+	INT_2_10_10_10_REV(GL33.GL_INT_2_10_10_10_REV, 4, true),
+	
+	/**Packed unsigned 10-10-10-2 vector, four components in a single 32 bits word.*/
+	UNSIGNED_INT_2_10_10_10_REV(GL12.GL_UNSIGNED_INT_2_10_10_10_REV, 4, true),
 	
-	BYTE(GL11.GL_BYTE),
-	UNSIGNED_BYTE(GL11.GL_UNSIGNED_BYTE),
-	SHORT(GL11.GL_SHORT),
-	UNSIGNED_SHORT(GL11.GL_UNSIGNED_SHORT),
-	INT(GL11.GL_INT),
-	UNSIGNED_INT(GL11.GL_UNSIGNED_INT),
-	FLOAT(GL11.GL_FLOAT),
-	DOUBLE(GL11.GL_DOUBLE);
+	/**Packed unsigned 11-11-10 floats, three components in a single 32 bits word.*/
+	UNSIGNED_INT_10F_11F_11F_REV(GL30.GL_UNSIGNED_INT_10F_11F_11F_REV, 4, true),
+	
+	/**Packed 24 bits depth and 8 bits stencil, in a single 32 bits word.*/
+	UNSIGNED_INT_24_8(GL30.GL_UNSIGNED_INT_24_8, 4, true),
+	
+	/**Packed 32 bits float depth and 8 bits stencil, in two 32 bits words.*/
+	FLOAT_32_UNSIGNED_INT_24_8_REV(GL30.GL_FLOAT_32_UNSIGNED_INT_24_8_REV, 8, true);
 	
 	private int value;
+	private int size;
+	private boolean packed;
+	
+	private static final EnumLookup<Type> LOOKUP = EnumLookup.of(values());
 	
-	Type(int value) {
+	Type(int value, int size, boolean packed) {
 		this.value = value;
+		this.size = size;
+		this.packed = packed;
 	}
 	
 	public int glValue() {
 		return this.value;
 	}
 	
+	/**Returns the size in bytes of a single component of this {@link Type},
+	 * or of the whole vector if this {@link Type} is {@link #isPacked() packed}.
+	 */
+	public int getSize() {
+		return this.size;
+	}
+	
+	/**Returns whether or not all the components of a vector are packed into
+	 * a single word of this {@link Type}.
+	 */
+	public boolean isPacked() {
+		return this.packed;
+	}
+	
+	/**Returns whether or not this {@link Type} holds integer values.
+	 */
+	public boolean isInteger() {
+		return this != FLOAT && this != DOUBLE && this != HALF_FLOAT && this != UNSIGNED_INT_10F_11F_11F_REV &&
+				this != FLOAT_32_UNSIGNED_INT_24_8_REV;
+	}
+	
 	public static Type forGlValue(int val) {
-		for (Type type : values()) {
-			if (type.value == val) {
-				return type;
-			}
-		}
-		return null;
+		return LOOKUP.get(val);
 	}
 }
@@ -29,24 +29,44 @@ package net.fantasticfantasy.oolwre.render.data;
 
 import java.util.HashMap;
 import java.util.Map;
+import org.lwjgl.opengl.ARBInstancedArrays;
 import org.lwjgl.opengl.ARBVertexArrayObject;
+import org.lwjgl.opengl.ARBVertexProgram;
+import org.lwjgl.opengl.EXTGPUShader4;
+import org.lwjgl.opengl.GL20;
 import org.lwjgl.opengl.GL30;
+import org.lwjgl.opengl.GL33;
+import org.lwjgl.opengl.GL43;
 import org.lwjgl.opengl.GLCapabilities;
 import net.fantasticfantasy.oolwre.CapabilityProvider;
 
 /**The <code>VertexArray</code> class represents an OpenGL vertex array
  * object. An instance of this class can be obtained by using static
- * method {@link #create()}.
+ * method {@link #create()}.<br><br>
+ * The attributes of a {@link VertexArray} are configured in one call from a
+ * {@link VertexLayout} using {@link #setup(VertexLayout, BufferObject...)}.
+ * When OpenGL 4.3 is supported, the attribute formats are separated from the
+ * {@link BufferObject}s so that {@link #bindVertexBuffers(BufferObject...)}
+ * only rebinds the buffers, which allows meshes sharing the same layout to
+ * share the same {@link VertexArray} (see {@link #forLayout(VertexLayout)}).
+ * As vertex array objects are never shared between contexts, there is one
+ * shared {@link VertexArray} per layout and per {@link CapabilityProvider}.
  */
 public abstract class VertexArray {
 	
 	private static Map<Integer, VertexArray> arrays;
+	private static Map<CapabilityProvider, Map<VertexLayout, VertexArray>> shared;
 	
 	static {
 		arrays = new HashMap<>();
+		shared = new HashMap<>();
 	}
 	
 	private int name;
+	protected VertexLayout layout;
+	/**The context and the layout this array is shared for, if it is shared*/
+	private CapabilityProvider sharedProvider;
+	private VertexLayout sharedLayout;
 	
 	/**Constructs a {@link VertexArray} with the specified name.
 	 * 
@@ -71,6 +91,108 @@ public abstract class VertexArray {
 	 */
 	public abstract void unbind();
 	
+	/**Returns the {@link VertexLayout} this {@link VertexArray} was set up
+	 * with, or <code>null</code> if it was not set up yet.
+	 */
+	public final VertexLayout getLayout() {
+		return this.layout;
+	}
+	
+	/**Configures every attribute of this {@link VertexArray} from <code>layout</code>,
+	 * reading the binding <code>i</code> from <code>buffers[i]</code>.<br>
+	 * This binds this {@link VertexArray}, and leaves it bound.
+	 * 
+	 * @param layout - The {@link VertexLayout}
+	 * @param buffers - The {@link BufferObject}s, one per binding of <code>layout</code>
+	 * 
+	 * @throws IllegalArgumentException If the number of buffers does not match
+	 * {@link VertexLayout#getBindingCount()}
+	 */
+	public final void setup(VertexLayout layout, BufferObject... buffers) {
+		this.setup(layout, buffers, null);
+	}
+	
+	/**Configures every attribute of this {@link VertexArray} from <code>layout</code>,
+	 * reading the binding <code>i</code> from <code>buffers[i]</code>, and attaches
+	 * <code>elements</code> as the element array buffer.<br>
+	 * This binds this {@link VertexArray}, and leaves it bound.
+	 * 
+	 * @param layout - The {@link VertexLayout}
+	 * @param buffers - The {@link BufferObject}s, one per binding of <code>layout</code>
+	 * @param elements - The element array {@link BufferObject}, or <code>null</code>
+	 * 
+	 * @throws IllegalArgumentException If the number of buffers does not match
+	 * {@link VertexLayout#getBindingCount()}
+	 */
+	public final void setup(VertexLayout layout, BufferObject[] buffers, BufferObject elements) {
+		this.setup(layout, buffers, null, elements);
+	}
+	
+	/**Configures every attribute of this {@link VertexArray} from <code>layout</code>,
+	 * reading the binding <code>i</code> from <code>buffers[i]</code> at
+	 * <code>offsets[i]</code>, and attaches <code>elements</code> as the element
+	 * array buffer.<br>
+	 * This binds this {@link VertexArray}, and leaves it bound.
+	 * 
+	 * @param layout - The {@link VertexLayout}
+	 * @param buffers - The {@link BufferObject}s, one per binding of <code>layout</code>
+	 * @param offsets - The offsets in bytes of the bindings in their buffers, or
+	 * <code>null</code> to read them from the start
+	 * @param elements - The element array {@link BufferObject}, or <code>null</code>
+	 * 
+	 * @throws IllegalArgumentException If the number of buffers or offsets does
+	 * not match {@link VertexLayout#getBindingCount()}
+	 */
+	public final void setup(VertexLayout layout, BufferObject[] buffers, long[] offsets, BufferObject elements) {
+		if (layout == null) {
+			throw new NullPointerException("Layout is null!");
+		}
+		checkBuffers(layout, buffers, offsets);
+		this.bind();
+		this.setupAttributes(layout, buffers, offsets);
+		if (elements != null) {
+			elements.bind(BufferObject.Target.ELEMENT_ARRAY);
+		}
+		this.layout = layout;
+	}
+	
+	/**Rebinds the {@link BufferObject}s read by this {@link VertexArray},
+	 * keeping its current {@link VertexLayout}. When OpenGL 4.3 is supported,
+	 * only the buffer bindings are changed; the attribute pointers are
+	 * specified again otherwise.<br>
+	 * This binds this {@link VertexArray}, and leaves it bound.
+	 * 
+	 * @param buffers - The {@link BufferObject}s, one per binding of the layout
+	 * 
+	 * @throws IllegalStateException If this {@link VertexArray} was not set up
+	 */
+	public void bindVertexBuffers(BufferObject... buffers) {
+		this.bindVertexBuffers(buffers, null);
+	}
+	
+	/**Rebinds the {@link BufferObject}s read by this {@link VertexArray},
+	 * reading the binding <code>i</code> at <code>offsets[i]</code>, so that
+	 * meshes sub-allocated in a shared buffer can be bound.<br>
+	 * This binds this {@link VertexArray}, and leaves it bound.
+	 * 
+	 * @param buffers - The {@link BufferObject}s, one per binding of the layout
+	 * @param offsets - The offsets in bytes of the bindings in their buffers, or
+	 * <code>null</code> to read them from the start
+	 * 
+	 * @throws IllegalStateException If this {@link VertexArray} was not set up
+	 */
+	public void bindVertexBuffers(BufferObject[] buffers, long[] offsets) {
+		if (this.layout == null) {
+			throw new IllegalStateException("Vertex array has no layout!");
+		}
+		checkBuffers(this.layout, buffers, offsets);
+		this.bind();
+		this.setupAttributes(this.layout, buffers, offsets);
+	}
+	
+	/**Specifies the attributes of the bound {@link VertexArray}.*/
+	protected abstract void setupAttributes(VertexLayout layout, BufferObject[] buffers, long[] offsets);
+	
 	protected abstract void delete();
 	
 	/**Destroys this {@link VertexArray}.
@@ -78,6 +200,19 @@ public abstract class VertexArray {
 	public final void destroy() {
 		this.delete();
 		arrays.remove(this.name);
+		if (this.sharedProvider != null) {
+			synchronized (shared) {
+				Map<VertexLayout, VertexArray> arrays = shared.get(this.sharedProvider);
+				if (arrays != null && arrays.get(this.sharedLayout) == this) {
+					arrays.remove(this.sharedLayout);
+					if (arrays.isEmpty()) {
+						shared.remove(this.sharedProvider);
+					}
+				}
+			}
+			this.sharedProvider = null;
+			this.sharedLayout = null;
+		}
 		this.name = 0;
 	}
 	
@@ -97,10 +232,12 @@ public abstract class VertexArray {
 			throw new NullPointerException("Capability provider is null!");
 		}
 		GLCapabilities caps = provider.getCapabilities();
-		if (caps.OpenGL30) {
-			return new GL30VertexArray();
+		if (caps.OpenGL43) {
+			return new GL43VertexArray();
+		} else if (caps.OpenGL30) {
+			return new GL30VertexArray(caps.OpenGL33, caps.GL_ARB_instanced_arrays);
 		} else if (caps.GL_ARB_vertex_array_object) {
-			return new ARBVertexArray();
+			return new ARBVertexArray(caps.GL_ARB_instanced_arrays, caps.GL_EXT_gpu_shader4);
 		} else {
 			throw new UnsupportedOperationException("There is no supported extension to create a vertex array!");
 		}
@@ -124,14 +261,144 @@ public abstract class VertexArray {
 		return create(CapabilityProvider.get());
 	}
 	
+	/**Returns the {@link VertexArray} shared by every mesh using <code>layout</code>
+	 * in the context of <code>provider</code>, creating it using the supported
+	 * extensions provided by <code>provider</code> if it does not exist yet.
+	 * The <code>layout</code> is {@link VertexLayout#intern() interned} first, so
+	 * equal layouts always share the same {@link VertexArray}.<br>
+	 * The returned {@link VertexArray} has no {@link BufferObject} attached; they
+	 * must be bound with {@link #bindVertexBuffers(BufferObject...)} before drawing.
+	 * 
+	 * @param provider The {@link CapabilityProvider}
+	 * @param layout The {@link VertexLayout}
+	 * 
+	 * @throws UnsupportedOperationException If no extension is supported to create
+	 * a {@link VertexArray}
+	 * 
+	 * @return The shared {@link VertexArray}
+	 */
+	public static VertexArray forLayout(CapabilityProvider provider, VertexLayout layout) {
+		if (provider == null) {
+			throw new NullPointerException("Capability provider is null!");
+		} else if (layout == null) {
+			throw new NullPointerException("Layout is null!");
+		}
+		layout = layout.intern();
+		synchronized (shared) {
+			Map<VertexLayout, VertexArray> arrays = shared.get(provider);
+			if (arrays == null) {
+				arrays = new HashMap<>();
+				shared.put(provider, arrays);
+			}
+			VertexArray array = arrays.get(layout);
+			if (array == null) {
+				array = create(provider);
+				array.layout = layout;
+				array.sharedProvider = provider;
+				array.sharedLayout = layout;
+				arrays.put(layout, array);
+			}
+			return array;
+		}
+	}
+	
+	/**Returns the {@link VertexArray} shared by every mesh using <code>layout</code>,
+	 * using the current {@link Thread}'s {@link CapabilityProvider}.
+	 * 
+	 * @param layout The {@link VertexLayout}
+	 * 
+	 * @return The shared {@link VertexArray}
+	 * 
+	 * @see #forLayout(CapabilityProvider, VertexLayout)
+	 */
+	public static VertexArray forLayout(VertexLayout layout) {
+		return forLayout(CapabilityProvider.get(), layout);
+	}
+	
+	private static void checkBuffers(VertexLayout layout, BufferObject[] buffers, long[] offsets) {
+		if (buffers == null) {
+			throw new NullPointerException("Buffers are null!");
+		} else if (buffers.length != layout.getBindingCount()) {
+			throw new IllegalArgumentException("'buffers' length (" + buffers.length + ") != binding count (" +
+					layout.getBindingCount() + ")");
+		}
+		if (offsets != null) {
+			if (offsets.length != layout.getBindingCount()) {
+				throw new IllegalArgumentException("'offsets' length (" + offsets.length + ") != binding count (" +
+						layout.getBindingCount() + ")");
+			}
+			for (int i = 0; i < offsets.length; i++) {
+				if (offsets[i] < 0) {
+					throw new IllegalArgumentException("'offsets[" + i + "]' < 0 (" + offsets[i] + ")");
+				}
+			}
+		}
+	}
+	
+	private static class GL43VertexArray extends VertexArray {
+		
+		private static int genName() {
+			return GL30.glGenVertexArrays();
+		}
+		
+		/**The layout whose formats are currently specified*/
+		private VertexLayout formats;
+		
+		public GL43VertexArray() {
+			super(genName());
+		}
+		
+		public void bind() {
+			GL30.glBindVertexArray(this.getName());
+		}
+		
+		public void unbind() {
+			GL30.glBindVertexArray(0);
+		}
+		
+		protected void setupAttributes(VertexLayout layout, BufferObject[] buffers, long[] offsets) {
+			if (this.formats != layout) {
+				for (int i = 0; i < layout.getAttributeCount(); i++) {
+					VertexLayout.Attribute attrib = layout.getAttribute(i);
+					GL20.glEnableVertexAttribArray(attrib.getIndex());
+					if (attrib.isInteger()) {
+						GL43.glVertexAttribIFormat(attrib.getIndex(), attrib.getComponents(),
+								attrib.getType().glValue(), layout.getOffset(i));
+					} else {
+						GL43.glVertexAttribFormat(attrib.getIndex(), attrib.getComponents(),
+								attrib.getType().glValue(), attrib.isNormalized(), layout.getOffset(i));
+					}
+					GL43.glVertexAttribBinding(attrib.getIndex(), attrib.getBinding());
+				}
+				for (int i = 0; i < layout.getBindingCount(); i++) {
+					GL43.glVertexBindingDivisor(i, layout.getDivisor(i));
+				}
+				this.formats = layout;
+			}
+			for (int i = 0; i < buffers.length; i++) {
+				GL43.glBindVertexBuffer(i, buffers[i].getName(), offsets != null ? offsets[i] : 0,
+						layout.getStride(i));
+			}
+		}
+		
+		protected void delete() {
+			GL30.glDeleteVertexArrays(this.getName());
+		}
+	}
+	
 	private static class GL30VertexArray extends VertexArray {
 		
 		private static int genName() {
 			return GL30.glGenVertexArrays();
 		}
 		
-		public GL30VertexArray() {
+		private final boolean gl33;
+		private final boolean instancedArrays;
+		
+		public GL30VertexArray(boolean gl33, boolean instancedArrays) {
 			super(genName());
+			this.gl33 = gl33;
+			this.instancedArrays = instancedArrays;
 		}
 		
 		public void bind() {
@@ -142,6 +409,36 @@ public abstract class VertexArray {
 			GL30.glBindVertexArray(0);
 		}
 		
+		protected void setupAttributes(VertexLayout layout, BufferObject[] buffers, long[] offsets) {
+			for (int i = 0; i < layout.getAttributeCount(); i++) {
+				VertexLayout.Attribute attrib = layout.getAttribute(i);
+				int binding = attrib.getBinding();
+				long offset = layout.getOffset(i) + (offsets != null ? offsets[binding] : 0);
+				buffers[binding].bind(BufferObject.Target.ARRAY);
+				GL20.glEnableVertexAttribArray(attrib.getIndex());
+				if (attrib.isInteger()) {
+					GL30.glVertexAttribIPointer(attrib.getIndex(), attrib.getComponents(), attrib.getType().glValue(),
+							layout.getStride(binding), offset);
+				} else {
+					GL20.glVertexAttribPointer(attrib.getIndex(), attrib.getComponents(), attrib.getType().glValue(),
+							attrib.isNormalized(), layout.getStride(binding), offset);
+				}
+				if (attrib.getDivisor() != 0) {
+					if (this.gl33) {
+						GL33.glVertexAttribDivisor(attrib.getIndex(), attrib.getDivisor());
+					} else if (this.instancedArrays) {
+						ARBInstancedArrays.glVertexAttribDivisorARB(attrib.getIndex(), attrib.getDivisor());
+					} else {
+						throw new UnsupportedOperationException(
+								"There is no supported extension to set an attribute divisor!");
+					}
+				}
+			}
+			if (buffers.length > 0) {
+				buffers[0].unbind(BufferObject.Target.ARRAY);
+			}
+		}
+		
 		protected void delete() {
 			GL30.glDeleteVertexArrays(this.getName());
 		}
@@ -153,8 +450,13 @@ public abstract class VertexArray {
 			return ARBVertexArrayObject.glGenVertexArrays();
 		}
 		
-		public ARBVertexArray() {
+		private final boolean instancedArrays;
+		private final boolean integers;
+		
+		public ARBVertexArray(boolean instancedArrays, boolean integers) {
 			super(genName());
+			this.instancedArrays = instancedArrays;
+			this.integers = integers;
 		}
 		
 		public void bind() {
@@ -165,6 +467,37 @@ public abstract class VertexArray {
 			ARBVertexArrayObject.glBindVertexArray(0);
 		}
 		
+		protected void setupAttributes(VertexLayout layout, BufferObject[] buffers, long[] offsets) {
+			for (int i = 0; i < layout.getAttributeCount(); i++) {
+				VertexLayout.Attribute attrib = layout.getAttribute(i);
+				int binding = attrib.getBinding();
+				long offset = layout.getOffset(i) + (offsets != null ? offsets[binding] : 0);
+				buffers[binding].bind(BufferObject.Target.ARRAY);
+				ARBVertexProgram.glEnableVertexAttribArrayARB(attrib.getIndex());
+				if (attrib.isInteger()) {
+					if (!this.integers) {
+						throw new UnsupportedOperationException(
+								"There is no supported extension to read integer attributes!");
+					}
+					EXTGPUShader4.glVertexAttribIPointerEXT(attrib.getIndex(), attrib.getComponents(),
+							attrib.getType().glValue(), layout.getStride(binding), offset);
+				} else {
+					ARBVertexProgram.glVertexAttribPointerARB(attrib.getIndex(), attrib.getComponents(),
+							attrib.getType().glValue(), attrib.isNormalized(), layout.getStride(binding), offset);
+				}
+				if (attrib.getDivisor() != 0) {
+					if (!this.instancedArrays) {
+						throw new UnsupportedOperationException(
+								"There is no supported extension to set an attribute divisor!");
+					}
+					ARBInstancedArrays.glVertexAttribDivisorARB(attrib.getIndex(), attrib.getDivisor());
+				}
+			}
+			if (buffers.length > 0) {
+				buffers[0].unbind(BufferObject.Target.ARRAY);
+			}
+		}
+		
 		protected void delete() {
 			ARBVertexArrayObject.glDeleteVertexArrays(this.getName());
 		}
@@ -0,0 +1,350 @@
+/*Copyright (c) 2017 Fantastic Fantasy All rights reserved.
+ *
+ * Permission to use, copy, modify and/or redistribute in source or binary form
+ * is hereby granted, free of charge, subject to the following conditions:
+ *
+ * - Redistribution of source code shall include the above copyright notice,
+ *  this list of conditions and the following disclaimer.
+ *
+ * - Redistribution in binary form shall include the above copyright notice,
+ *  this list of conditions and the following disclaimer in the documentation
+ *  and/or other materials provided with the distribution.
+ *
+ * - Neither the name Object Oriented Lightweight Render Engine nor the names
+ *  of its contributors may be used to endorse or promote products derived
+ *  from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE
+ * OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package net.fantasticfantasy.oolwre.render.data;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**A <code>VertexLayout</code> describes how the vertex attributes of a
+ * {@link VertexArray} are fetched from one or more {@link BufferObject}s.<br>
+ * Every {@link Attribute} reads from a <i>binding</i>, which is the index of
+ * the {@link BufferObject} passed to {@link VertexArray#setup(VertexLayout,
+ * BufferObject...) setup(...)}. The offsets and strides are computed from
+ * the declaration order of the attributes; every attribute is aligned on
+ * 4 bytes.<br><br>
+ * Layouts are immutable and can be interned using {@link #intern()} so that
+ * identical layouts share the same instance, and therefore the same
+ * {@link VertexArray} when using {@link VertexArray#forLayout(VertexLayout)}.
+ */
+public final class VertexLayout {
+	
+	private static Map<VertexLayout, VertexLayout> layouts;
+	
+	static {
+		layouts = new HashMap<>();
+	}
+	
+	private final Attribute[] attributes;
+	private final int[] offsets;
+	private final int[] strides;
+	private final int[] divisors;
+	private final int hash;
+	
+	/**Constructs a {@link VertexLayout} with the specified {@link Attribute}s.
+	 * 
+	 * @param attributes - The {@link Attribute}s, in the order they are
+	 * stored in their binding
+	 * 
+	 * @throws IllegalArgumentException If two attributes share the same index,
+	 * or if two attributes of the same binding have different divisors
+	 */
+	public VertexLayout(Attribute... attributes) {
+		if (attributes == null) {
+			throw new NullPointerException("Attributes are null!");
+		}
+		this.attributes = attributes.clone();
+		this.offsets = new int[attributes.length];
+		int bindings = 0;
+		for (Attribute attrib : this.attributes) {
+			if (attrib == null) {
+				throw new NullPointerException("Attribute is null!");
+			}
+			bindings = Math.max(bindings, attrib.binding + 1);
+		}
+		this.strides = new int[bindings];
+		this.divisors = new int[bindings];
+		Arrays.fill(this.divisors, -1);
+		for (int i = 0; i < this.attributes.length; i++) {
+			Attribute attrib = this.attributes[i];
+			for (int j = 0; j < i; j++) {
+				if (this.attributes[j].index == attrib.index) {
+					throw new IllegalArgumentException("Attribute index " + attrib.index + " is declared twice");
+				}
+			}
+			if (this.divisors[attrib.binding] == -1) {
+				this.divisors[attrib.binding] = attrib.divisor;
+			} else if (this.divisors[attrib.binding] != attrib.divisor) {
+				throw new IllegalArgumentException("Binding " + attrib.binding + " has different divisors ("
+						+ this.divisors[attrib.binding] + " and " + attrib.divisor + ")");
+			}
+			this.offsets[i] = this.strides[attrib.binding];
+			this.strides[attrib.binding] += align(attrib.getSize());
+		}
+		for (int i = 0; i < bindings; i++) {
+			if (this.divisors[i] == -1) {
+				this.divisors[i] = 0;
+			}
+		}
+		this.hash = Arrays.hashCode(this.attributes);
+	}
+	
+	/**Returns the number of {@link Attribute}s of this {@link VertexLayout}.
+	 */
+	public int getAttributeCount() {
+		return this.attributes.length;
+	}
+	
+	/**Returns the {@link Attribute} at the specified position.
+	 * 
+	 * @param i - The position of the attribute in the declaration order
+	 */
+	public Attribute getAttribute(int i) {
+		return this.attributes[i];
+	}
+	
+	/**Returns the offset in bytes, relative to the start of a vertex in its
+	 * binding, of the {@link Attribute} at the specified position.
+	 * 
+	 * @param i - The position of the attribute in the declaration order
+	 */
+	public int getOffset(int i) {
+		return this.offsets[i];
+	}
+	
+	/**Returns the number of bindings, that is the number of {@link BufferObject}s
+	 * a {@link VertexArray} set up with this {@link VertexLayout} reads from.
+	 */
+	public int getBindingCount() {
+		return this.strides.length;
+	}
+	
+	/**Returns the size in bytes of a single vertex in the specified binding.
+	 * 
+	 * @param binding - The binding
+	 */
+	public int getStride(int binding) {
+		return this.strides[binding];
+	}
+	
+	/**Returns the instance divisor of the specified binding.
+	 * 
+	 * @param binding - The binding
+	 */
+	public int getDivisor(int binding) {
+		return this.divisors[binding];
+	}
+	
+	/**Returns the canonical instance of this {@link VertexLayout}. Two layouts
+	 * that are {@link #equals(Object) equal} always return the same instance.
+	 * 
+	 * @return The interned {@link VertexLayout}
+	 */
+	public VertexLayout intern() {
+		synchronized (layouts) {
+			VertexLayout layout = layouts.get(this);
+			if (layout == null) {
+				layouts.put(this, this);
+				layout = this;
+			}
+			return layout;
+		}
+	}
+	
+	public int hashCode() {
+		return this.hash;
+	}
+	
+	public boolean equals(Object obj) {
+		if (obj == this) {
+			return true;
+		} else if (!(obj instanceof VertexLayout)) {
+			return false;
+		}
+		VertexLayout layout = (VertexLayout) obj;
+		return this.hash == layout.hash && Arrays.equals(this.attributes, layout.attributes);
+	}
+	
+	public String toString() {
+		return this.getClass().getName() + Arrays.toString(this.attributes);
+	}
+	
+	private static int align(int size) {
+		return (size + 3) & ~3;
+	}
+	
+	/**A single vertex attribute of a {@link VertexLayout}.
+	 */
+	public static final class Attribute {
+		
+		private final int index;
+		private final Type type;
+		private final int components;
+		private final boolean normalized;
+		private final boolean integer;
+		private final int divisor;
+		private final int binding;
+		
+		/**Constructs a per-vertex {@link Attribute} read from the binding 0.
+		 * 
+		 * @param index - The shader attribute index
+		 * @param type - The {@link Type} of the components
+		 * @param components - The number of components, from 1 to 4
+		 * @param normalized - Whether or not integer values are normalized
+		 * to [-1, 1] or [0, 1] when converted to floats
+		 */
+		public Attribute(int index, Type type, int components, boolean normalized) {
+			this(index, type, components, normalized, 0, 0);
+		}
+		
+		/**Constructs an {@link Attribute} converted to floats by the shader.
+		 * 
+		 * @param index - The shader attribute index
+		 * @param type - The {@link Type} of the components
+		 * @param components - The number of components, from 1 to 4
+		 * @param normalized - Whether or not integer values are normalized
+		 * to [-1, 1] or [0, 1] when converted to floats
+		 * @param divisor - The instance divisor, or 0 for a per-vertex attribute
+		 * @param binding - The index of the {@link BufferObject} to read from
+		 * 
+		 * @throws IllegalArgumentException If any parameter is out of range,
+		 * or if <code>type</code> is packed and <code>components</code> does
+		 * not match the packed format
+		 */
+		public Attribute(int index, Type type, int components, boolean normalized, int divisor, int binding) {
+			this(index, type, components, normalized, false, divisor, binding);
+		}
+		
+		/**Constructs an {@link Attribute}.
+		 * 
+		 * @param index - The shader attribute index
+		 * @param type - The {@link Type} of the components
+		 * @param components - The number of components, from 1 to 4
+		 * @param normalized - Whether or not integer values are normalized
+		 * to [-1, 1] or [0, 1] when converted to floats
+		 * @param integer - Whether or not the shader reads the values as
+		 * integers (<code>int</code>, <code>ivec</code> or <code>uvec</code>
+		 * inputs) instead of converting them to floats
+		 * @param divisor - The instance divisor, or 0 for a per-vertex attribute
+		 * @param binding - The index of the {@link BufferObject} to read from
+		 * 
+		 * @throws IllegalArgumentException If any parameter is out of range,
+		 * if <code>type</code> is packed and <code>components</code> does
+		 * not match the packed format, or if <code>integer</code> is set with
+		 * a normalized attribute or a type which is not a plain integer type
+		 */
+		public Attribute(int index, Type type, int components, boolean normalized, boolean integer, int divisor,
+				int binding) {
+			if (type == null) {
+				throw new NullPointerException("Type is null!");
+			} else if (index < 0) {
+				throw new IllegalArgumentException("'index' < 0 (" + index + ")");
+			} else if (components < 1 || components > 4) {
+				throw new IllegalArgumentException("'components' not in [1, 4] (" + components + ")");
+			} else if (divisor < 0) {
+				throw new IllegalArgumentException("'divisor' < 0 (" + divisor + ")");
+			} else if (binding < 0) {
+				throw new IllegalArgumentException("'binding' < 0 (" + binding + ")");
+			} else if (type.isPacked()) {
+				int expected = type == Type.UNSIGNED_INT_10F_11F_11F_REV ? 3 : 4;
+				if (components != expected) {
+					throw new IllegalArgumentException(type + " requires " + expected + " components (" +
+							components + ")");
+				}
+			}
+			if (integer && (normalized || !type.isInteger() || type.isPacked())) {
+				throw new IllegalArgumentException("Integer attributes require a non-normalized integer type (" +
+						type + (normalized ? ", normalized)" : ")"));
+			}
+			this.index = index;
+			this.type = type;
+			this.components = components;
+			this.normalized = normalized;
+			this.integer = integer;
+			this.divisor = divisor;
+			this.binding = binding;
+		}
+		
+		public int getIndex() {
+			return this.index;
+		}
+		
+		public Type getType() {
+			return this.type;
+		}
+		
+		public int getComponents() {
+			return this.components;
+		}
+		
+		public boolean isNormalized() {
+			return this.normalized;
+		}
+		
+		public int getDivisor() {
+			return this.divisor;
+		}
+		
+		public int getBinding() {
+			return this.binding;
+		}
+		
+		/**Returns whether or not this {@link Attribute} is read as integers by
+		 * the shader, rather than converted to floats.
+		 */
+		public boolean isInteger() {
+			return this.integer;
+		}
+		
+		/**Returns the size in bytes of this {@link Attribute}, without padding.
+		 */
+		public int getSize() {
+			return this.type.isPacked() ? this.type.getSize() : this.type.getSize() * this.components;
+		}
+		
+		public int hashCode() {
+			int hash = this.index;
+			hash = 31 * hash + this.type.ordinal();
+			hash = 31 * hash + this.components;
+			hash = 31 * hash + (this.normalized ? 1 : 0);
+			hash = 31 * hash + (this.integer ? 1 : 0);
+			hash = 31 * hash + this.divisor;
+			hash = 31 * hash + this.binding;
+			return hash;
+		}
+		
+		public boolean equals(Object obj) {
+			if (obj == this) {
+				return true;
+			} else if (!(obj instanceof Attribute)) {
+				return false;
+			}
+			Attribute attrib = (Attribute) obj;
+			return this.index == attrib.index && this.type == attrib.type && this.components == attrib.components
+					&& this.normalized == attrib.normalized && this.integer == attrib.integer
+					&& this.divisor == attrib.divisor
+					&& this.binding == attrib.binding;
+		}
+		
+		public String toString() {
+			return "{index=" + this.index + ",type=" + this.type + ",components=" + this.components +
+					",normalized=" + this.normalized + ",integer=" + this.integer + ",divisor=" + this.divisor +
+					",binding=" + this.binding + "}";
+		}
+	}
+}
@@ -0,0 +1,254 @@
+/*Copyright (c) 2017 Fantastic Fantasy All rights reserved.
+ *
+ * Permission to use, copy, modify and/or redistribute in source or binary form
+ * is hereby granted, free of charge, subject to the following conditions:
+ *
+ * - Redistribution of source code shall include the above copyright notice,
+ *  this list of conditions and the following disclaimer.
+ *
+ * - Redistribution in binary form shall include the above copyright notice,
+ *  this list of conditions and the following disclaimer in the documentation
+ *  and/or other materials provided with the distribution.
+ *
+ * - Neither the name Object Oriented Lightweight Render Engine nor the names
+ *  of its contributors may be used to endorse or promote products derived
+ *  from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE
+ * OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package net.fantasticfantasy.oolwre.render.data.shader;
+
+import org.lwjgl.opengl.ARBComputeShader;
+import org.lwjgl.opengl.ARBShaderImageLoadStore;
+import org.lwjgl.opengl.ARBShaderStorageBufferObject;
+import org.lwjgl.opengl.GL11;
+import org.lwjgl.opengl.GL30;
+import org.lwjgl.opengl.GLCapabilities;
+import net.fantasticfantasy.oolwre.CapabilityProvider;
+import net.fantasticfantasy.oolwre.render.data.BufferObject;
+import net.fantasticfantasy.oolwre.render.data.BufferObject.Target;
+import net.fantasticfantasy.oolwre.util.GlConstant;
+
+/**A <code>ComputeDispatch</code> runs compute {@link Program}s, those with a
+ * {@link Shader.Type#COMPUTE} shader, and orders their memory accesses with
+ * barriers. This requires OpenGL 4.3 or <code>ARB_compute_shader</code>.<br>
+ * <br>
+ * The work group limits of the context are queried once, when the
+ * <code>ComputeDispatch</code> is created, and every dispatch is checked
+ * against them.
+ */
+public class ComputeDispatch {
+	
+	private final int[] maxCount;
+	private final int[] maxSize;
+	private final int maxInvocations;
+	private long dispatches;
+	
+	/**Constructs a {@link ComputeDispatch} for the current {@link Thread}'s
+	 * {@link CapabilityProvider}.
+	 * 
+	 * @throws UnsupportedOperationException If compute shaders are not supported
+	 */
+	public ComputeDispatch() {
+		this(CapabilityProvider.get());
+	}
+	
+	/**Constructs a {@link ComputeDispatch}.
+	 * 
+	 * @param provider - The {@link CapabilityProvider}, whose context must be
+	 * current
+	 * 
+	 * @throws UnsupportedOperationException If compute shaders are not supported
+	 */
+	public ComputeDispatch(CapabilityProvider provider) {
+		if (provider == null) {
+			throw new NullPointerException("Capability provider is null!");
+		} else if (!isSupported(provider)) {
+			throw new UnsupportedOperationException("There is no supported extension to dispatch compute shaders!");
+		}
+		this.maxCount = new int[3];
+		this.maxSize = new int[3];
+		for (int i = 0; i < 3; i++) {
+			this.maxCount[i] = GL30.glGetIntegeri(ARBComputeShader.GL_MAX_COMPUTE_WORK_GROUP_COUNT, i);
+			this.maxSize[i] = GL30.glGetIntegeri(ARBComputeShader.GL_MAX_COMPUTE_WORK_GROUP_SIZE, i);
+		}
+		this.maxInvocations = GL11.glGetInteger(ARBComputeShader.GL_MAX_COMPUTE_WORK_GROUP_INVOCATIONS);
+	}
+	
+	/**Makes <code>program</code> the current program.
+	 * 
+	 * @param program - The compute {@link Program}
+	 */
+	public void use(Program program) {
+		if (program == null) {
+			throw new NullPointerException("Program is null!");
+		}
+		program.enable();
+	}
+	
+	/**Launches <code>x * y * z</code> work groups of the current program.
+	 * 
+	 * @param x - The number of work groups along <code>x</code>
+	 * @param y - The number of work groups along <code>y</code>
+	 * @param z - The number of work groups along <code>z</code>
+	 */
+	public void dispatch(int x, int y, int z) {
+		this.checkCount(x, 0);
+		this.checkCount(y, 1);
+		this.checkCount(z, 2);
+		ARBComputeShader.glDispatchCompute(x, y, z);
+		this.dispatches++;
+	}
+	
+	/**Launches enough work groups of the current program to cover
+	 * <code>x * y * z</code> invocations, given its local work group size.
+	 * The shader must ignore the invocations beyond the requested ones.
+	 * 
+	 * @param x - The number of invocations along <code>x</code>
+	 * @param y - The number of invocations along <code>y</code>
+	 * @param z - The number of invocations along <code>z</code>
+	 * @param localSize - The local work group size, as returned by
+	 * {@link Program#getComputeWorkGroupSize()}
+	 */
+	public void dispatchInvocations(int x, int y, int z, int[] localSize) {
+		this.dispatch(groupCount(x, localSize[0]), groupCount(y, localSize[1]), groupCount(z, localSize[2]));
+	}
+	
+	/**Launches the work groups given by the three <code>uint</code>s stored
+	 * at <code>offset</code> in <code>buffer</code>, which is bound to
+	 * {@link Target#DISPATCH_INDIRECT}. The counts are not checked.
+	 * 
+	 * @param buffer - The {@link BufferObject} holding the counts
+	 * @param offset - The offset in bytes, a multiple of 4
+	 */
+	public void dispatchIndirect(BufferObject buffer, long offset) {
+		if (offset < 0 || (offset & 3) != 0) {
+			throw new IllegalArgumentException("'offset' is not a non negative multiple of 4 (" + offset + ")");
+		}
+		buffer.bind(Target.DISPATCH_INDIRECT);
+		ARBComputeShader.glDispatchComputeIndirect(offset);
+		this.dispatches++;
+	}
+	
+	/**Orders the memory accesses of the previous dispatches before the
+	 * accesses of the given kinds issued after this call.
+	 * 
+	 * @param barriers - The kinds of accesses to wait for
+	 */
+	public void memoryBarrier(Barrier... barriers) {
+		int bits = 0;
+		for (Barrier barrier : barriers) {
+			bits |= barrier.value;
+		}
+		memoryBarrier(bits);
+	}
+	
+	/**Orders the memory accesses of the previous dispatches before the
+	 * accesses issued after this call.
+	 * 
+	 * @param bits - The {@link Barrier} bits, combined
+	 */
+	public static void memoryBarrier(int bits) {
+		ARBShaderImageLoadStore.glMemoryBarrier(bits);
+	}
+	
+	/**Returns the number of work groups needed to cover <code>invocations</code>
+	 * invocations.
+	 * 
+	 * @param invocations - The number of invocations
+	 * @param localSize - The local work group size
+	 */
+	public static int groupCount(int invocations, int localSize) {
+		if (invocations < 0) {
+			throw new IllegalArgumentException("'invocations' < 0 (" + invocations + ")");
+		} else if (localSize <= 0) {
+			throw new IllegalArgumentException("'localSize' <= 0 (" + localSize + ")");
+		}
+		return (int) (((long) invocations + localSize - 1) / localSize);
+	}
+	
+	/**Returns whether or not compute shaders are supported.
+	 * 
+	 * @param provider - The {@link CapabilityProvider}
+	 */
+	public static boolean isSupported(CapabilityProvider provider) {
+		GLCapabilities caps = provider.getCapabilities();
+		return caps.OpenGL43 || caps.GL_ARB_compute_shader;
+	}
+	
+	/**Returns the maximum number of work groups along <code>axis</code>.
+	 * 
+	 * @param axis - 0, 1 or 2 for <code>x</code>, <code>y</code> or <code>z</code>
+	 */
+	public int getMaxWorkGroupCount(int axis) {
+		return this.maxCount[axis];
+	}
+	
+	/**Returns the maximum local work group size along <code>axis</code>.
+	 * 
+	 * @param axis - 0, 1 or 2 for <code>x</code>, <code>y</code> or <code>z</code>
+	 */
+	public int getMaxWorkGroupSize(int axis) {
+		return this.maxSize[axis];
+	}
+	
+	/**Returns the maximum number of invocations in a local work group.
+	 */
+	public int getMaxWorkGroupInvocations() {
+		return this.maxInvocations;
+	}
+	
+	/**Returns the number of dispatches issued.
+	 */
+	public long getDispatchCount() {
+		return this.dispatches;
+	}
+	
+	private void checkCount(int count, int axis) {
+		if (count < 0 || count > this.maxCount[axis]) {
+			throw new IllegalArgumentException("Work group count not in [0, " + this.maxCount[axis] + "] (" +
+					count + ")");
+		}
+	}
+	
+	/**The kinds of memory accesses ordered by {@link
+	 * ComputeDispatch#memoryBarrier(Barrier...) memoryBarrier(...)}, named
+	 * after the way the written data is read next.
+	 */
+	public static enum Barrier implements GlConstant {
+		
+		VERTEX_ATTRIB_ARRAY(ARBShaderImageLoadStore.GL_VERTEX_ATTRIB_ARRAY_BARRIER_BIT),
+		ELEMENT_ARRAY(ARBShaderImageLoadStore.GL_ELEMENT_ARRAY_BARRIER_BIT),
+		UNIFORM(ARBShaderImageLoadStore.GL_UNIFORM_BARRIER_BIT),
+		TEXTURE_FETCH(ARBShaderImageLoadStore.GL_TEXTURE_FETCH_BARRIER_BIT),
+		SHADER_IMAGE_ACCESS(ARBShaderImageLoadStore.GL_SHADER_IMAGE_ACCESS_BARRIER_BIT),
+		COMMAND(ARBShaderImageLoadStore.GL_COMMAND_BARRIER_BIT),
+		PIXEL_BUFFER(ARBShaderImageLoadStore.GL_PIXEL_BUFFER_BARRIER_BIT),
+		TEXTURE_UPDATE(ARBShaderImageLoadStore.GL_TEXTURE_UPDATE_BARRIER_BIT),
+		BUFFER_UPDATE(ARBShaderImageLoadStore.GL_BUFFER_UPDATE_BARRIER_BIT),
+		FRAMEBUFFER(ARBShaderImageLoadStore.GL_FRAMEBUFFER_BARRIER_BIT),
+		TRANSFORM_FEEDBACK(ARBShaderImageLoadStore.GL_TRANSFORM_FEEDBACK_BARRIER_BIT),
+		ATOMIC_COUNTER(ARBShaderImageLoadStore.GL_ATOMIC_COUNTER_BARRIER_BIT),
+		SHADER_STORAGE(ARBShaderStorageBufferObject.GL_SHADER_STORAGE_BARRIER_BIT),
+		ALL(ARBShaderImageLoadStore.GL_ALL_BARRIER_BITS);
+		
+		private int value;
+		
+		Barrier(int value) {
+			this.value = value;
+		}
+		
+		public int glValue() {
+			return this.value;
+		}
+	}
+}
@@ -33,7 +33,9 @@ import java.nio.IntBuffer;
 import java.util.HashMap;
 import java.util.Map;
 import org.lwjgl.opengl.ARBInstancedArrays;
+import org.lwjgl.opengl.ARBProgramInterfaceQuery;
 import org.lwjgl.opengl.ARBShaderObjects;
+import org.lwjgl.opengl.ARBShaderStorageBufferObject;
 import org.lwjgl.opengl.ARBVertexBufferObject;
 import org.lwjgl.opengl.ARBVertexProgram;
 import org.lwjgl.opengl.ARBVertexShader;
@@ -50,6 +52,8 @@ import org.lwjgl.opengl.GL43;
 import org.lwjgl.opengl.GLCapabilities;
 import org.lwjgl.system.MemoryUtil;
 import net.fantasticfantasy.oolwre.CapabilityProvider;
+import net.fantasticfantasy.oolwre.util.EnumLookup;
+import net.fantasticfantasy.oolwre.util.GlConstant;
 
 public abstract class Program {
 	
@@ -136,6 +140,41 @@ public abstract class Program {
 	
 	public abstract void getAttachedShaderNames(IntBuffer count, IntBuffer shaders);
 	
+	/**Returns the local work group size of the linked compute shader of this
+	 * {@link Program}.
+	 * 
+	 * @return The <code>x</code>, <code>y</code> and <code>z</code> sizes
+	 */
+	public final int[] getComputeWorkGroupSize() {
+		int[] size = new int[3];
+		this.getiv(Parameter.COMPUTE_WORK_GROUP_SIZE, size);
+		return size;
+	}
+	
+	/**Returns the index of the shader storage block named <code>name</code>,
+	 * or {@link GL31#GL_INVALID_INDEX GL_INVALID_INDEX}. This requires OpenGL
+	 * 4.3 or <code>ARB_program_interface_query</code>.
+	 * 
+	 * @param name - The name of the block
+	 */
+	public final int getShaderStorageBlockIndex(CharSequence name) {
+		return ARBProgramInterfaceQuery.glGetProgramResourceIndex(this.getName(),
+				ARBProgramInterfaceQuery.GL_SHADER_STORAGE_BLOCK, name);
+	}
+	
+	/**Assigns the shader storage block at <code>blockIndex</code> to the
+	 * binding point <code>binding</code>, where a buffer is bound with
+	 * {@link net.fantasticfantasy.oolwre.render.data.BufferObject#bindBase
+	 * BufferObject.bindBase(...)}. This requires OpenGL 4.3 or
+	 * <code>ARB_shader_storage_buffer_object</code>.
+	 * 
+	 * @param blockIndex - The index of the block
+	 * @param binding - The binding point
+	 */
+	public final void shaderStorageBlockBinding(int blockIndex, int binding) {
+		ARBShaderStorageBufferObject.glShaderStorageBlockBinding(this.getName(), blockIndex, binding);
+	}
+	
 	public final Shader[] getAttachedShaders(int maxCount) {
 		IntBuffer count = MemoryUtil.memAllocInt(1);
 		IntBuffer shaders = MemoryUtil.memAllocInt(maxCount);
@@ -519,7 +558,7 @@ public abstract class Program {
 	 * {@link #ACTIVE_ATOMIC_COUNTER_BUFFERS}<br>
 	 * {@link #COMPUTE_WORK_GROUP_SIZE}
 	 */
-	public static enum Parameter {
+	public static enum Parameter implements GlConstant {
 		
 		DELETE_STATUS(GL20.GL_DELETE_STATUS),
 		LINK_STATUS(GL20.GL_LINK_STATUS),
@@ -544,6 +583,8 @@ public abstract class Program {
 		
 		private int value;
 		
+		private static final EnumLookup<Parameter> LOOKUP = EnumLookup.of(values());
+		
 		Parameter(int value) {
 			this.value = value;
 		}
@@ -553,12 +594,7 @@ public abstract class Program {
 		}
 		
 		public static Parameter forGlValue(int val) {
-			for (Parameter param : values()) {
-				if (param.value == val) {
-					return param;
-				}
-			}
-			return null;
+			return LOOKUP.get(val);
 		}
 	}
 	
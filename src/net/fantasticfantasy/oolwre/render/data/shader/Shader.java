@@ -32,6 +32,7 @@ import java.nio.IntBuffer;
 import java.util.HashMap;
 import java.util.Map;
 import org.lwjgl.PointerBuffer;
+import org.lwjgl.opengl.ARBComputeShader;
 import org.lwjgl.opengl.ARBFragmentShader;
 import org.lwjgl.opengl.ARBGeometryShader4;
 import org.lwjgl.opengl.ARBShaderObjects;
@@ -40,8 +41,11 @@ import org.lwjgl.opengl.ARBVertexShader;
 import org.lwjgl.opengl.GL20;
 import org.lwjgl.opengl.GL32;
 import org.lwjgl.opengl.GL40;
+import org.lwjgl.opengl.GL43;
 import org.lwjgl.opengl.GLCapabilities;
 import net.fantasticfantasy.oolwre.CapabilityProvider;
+import net.fantasticfantasy.oolwre.util.EnumLookup;
+import net.fantasticfantasy.oolwre.util.GlConstant;
 
 public abstract class Shader {
 	
@@ -121,7 +125,7 @@ public abstract class Shader {
 	 * @param type - The {@link Shader} {@link Type}
 	 * 
 	 * @throws UnsupportedOperationException If there is no supported extension
-	 * to create a {@link Shader}
+	 * to create a {@link Shader}, or a {@link Type#COMPUTE} one
 	 * 
 	 * @return A newly created {@link Shader} instance
 	 */
@@ -130,6 +134,9 @@ public abstract class Shader {
 			throw new NullPointerException("Capability provider is null!");
 		}
 		GLCapabilities caps = provider.getCapabilities();
+		if (type == Type.COMPUTE && !caps.OpenGL43 && !caps.GL_ARB_compute_shader) {
+			throw new UnsupportedOperationException("There is no supported extension to create a compute Shader!");
+		}
 		if (caps.OpenGL20) {
 			int name = GL20Shader.genName(type);
 			return new GL20Shader(name, type);
@@ -322,9 +329,10 @@ public abstract class Shader {
 	 * {@link #FRAGMENT}<br>
 	 * {@link #GEOMETRY}<br>
 	 * {@link #TESS_CONTROL}<br>
-	 * {@link #TESS_EVALUATION}
+	 * {@link #TESS_EVALUATION}<br>
+	 * {@link #COMPUTE}
 	 */
-	public static enum Type {
+	public static enum Type implements GlConstant {
 		
 		/**{@link ARBVertexShader ARB_vertex_shader} {@link ARBVertexShader
 		 * #GL_VERTEX_SHADER_ARB GL_VERTEX_SHADER_ARB} and<br>{@link GL20
@@ -356,10 +364,18 @@ public abstract class Shader {
 		 * and<br>{@link GL40 OpenGL 4.0} {@link GL40#GL_TESS_EVALUATION_SHADER
 		 * GL_TESS_EVALUATION_SHADER}
 		 */
-		TESS_EVALUATION(ARBTessellationShader.GL_TESS_EVALUATION_SHADER);
+		TESS_EVALUATION(ARBTessellationShader.GL_TESS_EVALUATION_SHADER),
+		
+		/**{@link ARBComputeShader ARB_compute_shader} {@link ARBComputeShader
+		 * #GL_COMPUTE_SHADER GL_COMPUTE_SHADER} and<br>{@link GL43 OpenGL 4.3}
+		 * {@link GL43#GL_COMPUTE_SHADER GL_COMPUTE_SHADER}
+		 */
+		COMPUTE(ARBComputeShader.GL_COMPUTE_SHADER);
 		
 		private int value;
 		
+		private static final EnumLookup<Type> LOOKUP = EnumLookup.of(values());
+		
 		Type(int value) {
 			this.value = value;
 		}
@@ -371,12 +387,7 @@ public abstract class Shader {
 		
 		/** Returns the {@link Type} represented by the GLEnum value */
 		public static Type forGlValue(int glValue) {
-			for (Type type : values()) {
-				if (type.value == glValue) {
-					return type;
-				}
-			}
-			return null;
+			return LOOKUP.get(glValue);
 		}
 	}
 	
@@ -387,7 +398,7 @@ public abstract class Shader {
 	 * {@link #INFO_LOG_LENGTH}<br>
 	 * {@link #SHADER_SOURCE_LENGTH}
 	 */
-	public static enum Parameter {
+	public static enum Parameter implements GlConstant {
 		
 		/**{@link ARBShaderObjects ARB_shader_objects} {@link ARBShaderObjects
 		 * #GL_OBJECT_SUBTYPE_ARB GL_OBJECT_SUBTYPE_ARB} and<br>{@link GL20
@@ -423,6 +434,8 @@ public abstract class Shader {
 		
 		private int value;
 		
+		private static final EnumLookup<Parameter> LOOKUP = EnumLookup.of(values());
+		
 		Parameter(int value) {
 			this.value = value;
 		}
@@ -438,12 +451,7 @@ public abstract class Shader {
 		 * @param val - The GL value
 		 */
 		public static Parameter forGlValue(int val) {
-			for (Parameter param : values()) {
-				if (param.value == val) {
-					return param;
-				}
-			}
-			return null;
+			return LOOKUP.get(val);
 		}
 	}
 }
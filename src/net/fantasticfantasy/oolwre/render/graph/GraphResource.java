@@ -0,0 +1,105 @@
+/*Copyright (c) 2017 Fantastic Fantasy All rights reserved.
+ *
+ * Permission to use, copy, modify and/or redistribute in source or binary form
+ * is hereby granted, free of charge, subject to the following conditions:
+ *
+ * - Redistribution of source code shall include the above copyright notice,
+ *  this list of conditions and the following disclaimer.
+ *
+ * - Redistribution in binary form shall include the above copyright notice,
+ *  this list of conditions and the following disclaimer in the documentation
+ *  and/or other materials provided with the distribution.
+ *
+ * - Neither the name Object Oriented Lightweight Render Engine nor the names
+ *  of its contributors may be used to endorse or promote products derived
+ *  from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE
+ * OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package net.fantasticfantasy.oolwre.render.graph;
+
+import net.fantasticfantasy.oolwre.render.data.BufferObject;
+import net.fantasticfantasy.oolwre.render.target.RenderTarget;
+import net.fantasticfantasy.oolwre.render.target.RenderTarget.Desc;
+
+/**A <code>GraphResource</code> is a virtual texture or buffer of a
+ * {@link RenderGraph}, through which passes declare their dependencies.<br>
+ * <br>
+ * A <i>transient</i> resource is created by a pass from a {@link Desc}, and
+ * is only backed by a {@link RenderTarget} between its first and last use
+ * during the execution of the graph. Transient resources whose lifetimes do
+ * not overlap share the same target. An <i>imported</i> resource wraps a
+ * target or buffer living outside of the graph, and the passes writing it are
+ * never culled.
+ */
+public final class GraphResource {
+	
+	final int id;
+	private final String name;
+	private final Desc desc;
+	private final BufferObject buffer;
+	RenderTarget target;
+	
+	GraphResource(int id, String name, Desc desc, RenderTarget target, BufferObject buffer) {
+		this.id = id;
+		this.name = name;
+		this.desc = desc;
+		this.target = target;
+		this.buffer = buffer;
+	}
+	
+	public String getName() {
+		return this.name;
+	}
+	
+	/**Returns the {@link Desc} of this resource, or <code>null</code> if it is
+	 * imported.
+	 */
+	public Desc getDesc() {
+		return this.desc;
+	}
+	
+	public boolean isTransient() {
+		return this.desc != null;
+	}
+	
+	public boolean isImported() {
+		return this.desc == null;
+	}
+	
+	public boolean isBuffer() {
+		return this.buffer != null;
+	}
+	
+	/**Returns the {@link RenderTarget} backing this resource. A transient
+	 * resource is only backed while the passes using it are executed.
+	 * 
+	 * @throws IllegalStateException If this resource is not backed by a target
+	 */
+	public RenderTarget getTarget() {
+		if (this.target == null) {
+			throw new IllegalStateException("Resource '" + this.name + "' is not allocated!");
+		}
+		return this.target;
+	}
+	
+	/**Returns the imported {@link BufferObject}, or <code>null</code>.
+	 */
+	public BufferObject getBuffer() {
+		return this.buffer;
+	}
+	
+	@Override
+	public String toString() {
+		return "GraphResource[" + this.name + (this.desc == null ? ", imported" : ", " + this.desc) + "]";
+	}
+}
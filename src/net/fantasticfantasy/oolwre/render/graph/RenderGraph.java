@@ -0,0 +1,566 @@
+/*Copyright (c) 2017 Fantastic Fantasy All rights reserved.
+ *
+ * Permission to use, copy, modify and/or redistribute in source or binary form
+ * is hereby granted, free of charge, subject to the following conditions:
+ *
+ * - Redistribution of source code shall include the above copyright notice,
+ *  this list of conditions and the following disclaimer.
+ *
+ * - Redistribution in binary form shall include the above copyright notice,
+ *  this list of conditions and the following disclaimer in the documentation
+ *  and/or other materials provided with the distribution.
+ *
+ * - Neither the name Object Oriented Lightweight Render Engine nor the names
+ *  of its contributors may be used to endorse or promote products derived
+ *  from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE
+ * OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package net.fantasticfantasy.oolwre.render.graph;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import net.fantasticfantasy.oolwre.render.data.BufferObject;
+import net.fantasticfantasy.oolwre.render.data.Framebuffer;
+import net.fantasticfantasy.oolwre.render.data.shader.ComputeDispatch;
+import net.fantasticfantasy.oolwre.render.data.shader.ComputeDispatch.Barrier;
+import net.fantasticfantasy.oolwre.render.target.RenderTarget;
+import net.fantasticfantasy.oolwre.render.target.RenderTarget.Desc;
+import net.fantasticfantasy.oolwre.render.target.RenderTargetPool;
+import net.fantasticfantasy.oolwre.util.primitive.IntArrayList;
+
+/**A <code>RenderGraph</code> orders the passes of a frame from the resources
+ * they read and write. It is rebuilt every frame: after {@link #reset()},
+ * passes are added with {@link #addPass(String, RenderPass)} and declare
+ * their {@link GraphResource}s through the returned {@link PassBuilder}, then
+ * {@link #execute()} compiles and runs the graph.<br>
+ * <br>
+ * Compiling the graph:
+ * <ul>
+ * <li>culls the passes whose results reach neither an imported resource nor a
+ * pass {@link PassBuilder#sideEffect() with side effects};</li>
+ * <li>assigns the transient resources to physical {@link RenderTarget}s,
+ * those with equal {@link Desc}s and disjoint lifetimes sharing the same
+ * target, acquired from a {@link RenderTargetPool} at the first use and
+ * released after the last;</li>
+ * <li>computes the memory barriers needed after storage writes, each barrier
+ * bit being issued once per write.</li>
+ * </ul>
+ * The compilation is reused as long as the shape of the graph, its passes,
+ * accesses and descs, is unchanged. The content of a transient resource is
+ * undefined at its first use.<br>
+ * <br>
+ * The render target of a pass, the first resource it writes as an
+ * attachment, is bound before its execution, unless it is already bound. A
+ * pass binding another framebuffer must call {@link #invalidateBindings()}.
+ */
+public class RenderGraph {
+	
+	private static final int STORAGE = 1;
+	private static final int TEXTURE_READ_BITS = Barrier.TEXTURE_FETCH.glValue();
+	private static final int BUFFER_READ_BITS = Barrier.VERTEX_ATTRIB_ARRAY.glValue() |
+			Barrier.ELEMENT_ARRAY.glValue() | Barrier.UNIFORM.glValue() | Barrier.COMMAND.glValue();
+	private static final int STORAGE_BITS = Barrier.SHADER_IMAGE_ACCESS.glValue() |
+			Barrier.SHADER_STORAGE.glValue();
+	private static final int ATTACHMENT_BITS = Barrier.FRAMEBUFFER.glValue();
+	
+	private final RenderTargetPool pool;
+	private final List<GraphResource> resources;
+	private final List<Node> nodes;
+	private final IntArrayList signature;
+	private final List<Desc> signatureDescs;
+	private final IntArrayList compiledSignature;
+	private final List<Desc> compiledDescs;
+	private boolean compiled;
+	private long compileCount;
+	
+	private boolean[] alive;
+	private int[] barriers;
+	private IntArrayList[] acquires;
+	private IntArrayList[] releases;
+	private IntArrayList[] binds;
+	private IntArrayList[] unbinds;
+	private int[] slots;
+	private Desc[] slotDescs;
+	private RenderTarget[] slotTargets;
+	private int culledCount;
+	private RenderTarget bound;
+	
+	/**Constructs an empty {@link RenderGraph}.
+	 * 
+	 * @param pool - The {@link RenderTargetPool} providing the transient
+	 * targets, whose frames are started by the caller
+	 */
+	public RenderGraph(RenderTargetPool pool) {
+		if (pool == null) {
+			throw new NullPointerException("Pool is null!");
+		}
+		this.pool = pool;
+		this.resources = new ArrayList<>();
+		this.nodes = new ArrayList<>();
+		this.signature = new IntArrayList();
+		this.signatureDescs = new ArrayList<>();
+		this.compiledSignature = new IntArrayList();
+		this.compiledDescs = new ArrayList<>();
+		this.slotTargets = new RenderTarget[0];
+	}
+	
+	/**Removes every pass and resource, to build the graph of a new frame. The
+	 * last compilation is kept and reused if the new graph has the same shape.
+	 */
+	public void reset() {
+		this.nodes.clear();
+		this.resources.clear();
+	}
+	
+	/**Imports a {@link RenderTarget} living outside of the graph.
+	 * 
+	 * @param name - The name of the resource
+	 * @param target - The {@link RenderTarget}
+	 */
+	public GraphResource importTarget(String name, RenderTarget target) {
+		if (target == null) {
+			throw new NullPointerException("Target is null!");
+		}
+		return this.newResource(name, null, target, null);
+	}
+	
+	/**Imports a {@link BufferObject} living outside of the graph, to order
+	 * the passes accessing it.
+	 * 
+	 * @param name - The name of the resource
+	 * @param buffer - The {@link BufferObject}
+	 */
+	public GraphResource importBuffer(String name, BufferObject buffer) {
+		if (buffer == null) {
+			throw new NullPointerException("Buffer is null!");
+		}
+		return this.newResource(name, null, null, buffer);
+	}
+	
+	/**Adds a pass, executed after the passes already added.
+	 * 
+	 * @param name - The name of the pass
+	 * @param pass - The {@link RenderPass}
+	 * 
+	 * @return The {@link PassBuilder} declaring the resources of the pass
+	 */
+	public PassBuilder addPass(String name, RenderPass pass) {
+		if (pass == null) {
+			throw new NullPointerException("Pass is null!");
+		}
+		Node node = new Node(name, pass);
+		this.nodes.add(node);
+		return new PassBuilder(this, node);
+	}
+	
+	/**Compiles the graph, unless its shape is the one of the last
+	 * compilation.
+	 */
+	public void compile() {
+		this.buildSignature();
+		if (this.compiled && this.signature.equals(this.compiledSignature) &&
+				this.signatureDescs.equals(this.compiledDescs)) {
+			return;
+		}
+		this.compiledSignature.clear();
+		this.compiledSignature.addAll(this.signature);
+		this.compiledDescs.clear();
+		this.compiledDescs.addAll(this.signatureDescs);
+		int passCount = this.nodes.size();
+		int resourceCount = this.resources.size();
+		this.cull(passCount, resourceCount);
+		this.assignSlots(passCount, resourceCount);
+		this.computeBarriers(passCount, resourceCount);
+		this.compiled = true;
+		this.compileCount++;
+	}
+	
+	/**Compiles and executes the graph.
+	 */
+	public void execute() {
+		this.compile();
+		if (this.slotTargets.length < this.slotDescs.length) {
+			this.slotTargets = new RenderTarget[this.slotDescs.length];
+		}
+		this.bound = null;
+		try {
+			for (int p = 0; p < this.nodes.size(); p++) {
+				if (!this.alive[p]) {
+					continue;
+				}
+				Node node = this.nodes.get(p);
+				IntArrayList list = this.acquires[p];
+				for (int i = 0; i < list.size(); i++) {
+					int slot = list.get(i);
+					this.slotTargets[slot] = this.pool.acquire(this.slotDescs[slot]);
+				}
+				list = this.binds[p];
+				for (int i = 0; i < list.size(); i++) {
+					int id = list.get(i);
+					this.resources.get(id).target = this.slotTargets[this.slots[id]];
+				}
+				if (this.barriers[p] != 0) {
+					ComputeDispatch.memoryBarrier(this.barriers[p]);
+				}
+				if (node.attachment >= 0) {
+					RenderTarget target = this.resources.get(node.attachment).getTarget();
+					if (target != this.bound) {
+						target.bind();
+						this.bound = target;
+					}
+				}
+				node.pass.execute(this);
+				list = this.unbinds[p];
+				for (int i = 0; i < list.size(); i++) {
+					this.resources.get(list.get(i)).target = null;
+				}
+				list = this.releases[p];
+				for (int i = 0; i < list.size(); i++) {
+					int slot = list.get(i);
+					this.pool.release(this.slotTargets[slot]);
+					this.slotTargets[slot] = null;
+				}
+			}
+		} finally {
+			for (int i = 0; i < this.slotTargets.length; i++) {
+				if (this.slotTargets[i] != null) {
+					this.pool.release(this.slotTargets[i]);
+					this.slotTargets[i] = null;
+				}
+			}
+			if (this.bound != null) {
+				Framebuffer.unbind();
+				this.bound = null;
+			}
+		}
+	}
+	
+	/**Forgets the bound render target, so that the next pass binds its own.
+	 * To be called by passes binding another framebuffer.
+	 */
+	public void invalidateBindings() {
+		this.bound = null;
+	}
+	
+	public int getPassCount() {
+		return this.nodes.size();
+	}
+	
+	/**Returns the number of passes culled by the last compilation.
+	 */
+	public int getCulledPassCount() {
+		return this.culledCount;
+	}
+	
+	/**Returns whether or not the pass <code>index</code> was culled by the
+	 * last compilation.
+	 * 
+	 * @param index - The index of the pass, in the order of addition
+	 */
+	public boolean isCulled(int index) {
+		return !this.alive[index];
+	}
+	
+	/**Returns the number of physical targets backing the transient
+	 * resources, as computed by the last compilation.
+	 */
+	public int getPhysicalTargetCount() {
+		return this.slotDescs == null ? 0 : this.slotDescs.length;
+	}
+	
+	/**Returns the number of compilations which were not reused.
+	 */
+	public long getCompileCount() {
+		return this.compileCount;
+	}
+	
+	GraphResource newResource(String name, Desc desc, RenderTarget target, BufferObject buffer) {
+		GraphResource resource = new GraphResource(this.resources.size(), name, desc, target, buffer);
+		this.resources.add(resource);
+		return resource;
+	}
+	
+	private void buildSignature() {
+		this.signature.clear();
+		this.signatureDescs.clear();
+		this.signature.add(this.resources.size(), this.nodes.size());
+		for (GraphResource resource : this.resources) {
+			this.signature.add(resource.isBuffer() ? 1 : 0);
+			this.signatureDescs.add(resource.getDesc());
+		}
+		for (Node node : this.nodes) {
+			this.signature.add(node.sideEffect ? 1 : 0, node.attachment, node.reads.size(), node.writes.size());
+			this.signature.addAll(node.reads);
+			this.signature.addAll(node.writes);
+		}
+	}
+	
+	/**Walks the passes backwards, keeping those writing a needed resource,
+	 * whose reads become needed in turn.
+	 */
+	private void cull(int passCount, int resourceCount) {
+		this.alive = new boolean[passCount];
+		this.culledCount = 0;
+		boolean[] needed = new boolean[resourceCount];
+		for (int r = 0; r < resourceCount; r++) {
+			needed[r] = this.resources.get(r).isImported();
+		}
+		for (int p = passCount - 1; p >= 0; p--) {
+			Node node = this.nodes.get(p);
+			boolean live = node.sideEffect;
+			for (int i = 0; i < node.writes.size() && !live; i++) {
+				live = needed[node.writes.get(i) >>> 1];
+			}
+			if (live) {
+				for (int i = 0; i < node.reads.size(); i++) {
+					needed[node.reads.get(i) >>> 1] = true;
+				}
+			} else {
+				this.culledCount++;
+			}
+			this.alive[p] = live;
+		}
+	}
+	
+	/**Assigns the transient resources to physical targets, in the order of
+	 * their first use, reusing the first target with an equal desc whose
+	 * previous resources are no longer used.
+	 */
+	private void assignSlots(int passCount, int resourceCount) {
+		int[] first = new int[resourceCount];
+		int[] last = new int[resourceCount];
+		Arrays.fill(first, -1);
+		for (int p = 0; p < passCount; p++) {
+			if (this.alive[p]) {
+				Node node = this.nodes.get(p);
+				this.markUses(node.reads, p, first, last);
+				this.markUses(node.writes, p, first, last);
+			}
+		}
+		this.acquires = newLists(passCount);
+		this.releases = newLists(passCount);
+		this.binds = newLists(passCount);
+		this.unbinds = newLists(passCount);
+		this.slots = new int[resourceCount];
+		Arrays.fill(this.slots, -1);
+		List<Desc> descs = new ArrayList<>();
+		IntArrayList ends = new IntArrayList();
+		for (int p = 0; p < passCount; p++) {
+			if (!this.alive[p]) {
+				continue;
+			}
+			Node node = this.nodes.get(p);
+			for (int i = 0; i < node.writes.size() + node.reads.size(); i++) {
+				int id = (i < node.writes.size() ? node.writes.get(i) : node.reads.get(i - node.writes.size())) >>> 1;
+				Desc desc = this.resources.get(id).getDesc();
+				if (desc == null || first[id] != p || this.slots[id] >= 0) {
+					continue;
+				}
+				int slot = -1;
+				for (int s = 0; s < descs.size(); s++) {
+					if (ends.get(s) < p && descs.get(s).equals(desc)) {
+						slot = s;
+						break;
+					}
+				}
+				if (slot < 0) {
+					slot = descs.size();
+					descs.add(desc);
+					ends.add(last[id]);
+					this.acquires[p].add(slot);
+				} else {
+					ends.set(slot, last[id]);
+				}
+				this.slots[id] = slot;
+				this.binds[p].add(id);
+				this.unbinds[last[id]].add(id);
+			}
+		}
+		for (int s = 0; s < descs.size(); s++) {
+			this.releases[ends.get(s)].add(s);
+		}
+		this.slotDescs = descs.toArray(new Desc[descs.size()]);
+	}
+	
+	private void markUses(IntArrayList accesses, int pass, int[] first, int[] last) {
+		for (int i = 0; i < accesses.size(); i++) {
+			int id = accesses.get(i) >>> 1;
+			if (first[id] < 0) {
+				first[id] = pass;
+			}
+			last[id] = pass;
+		}
+	}
+	
+	/**Computes the barrier bits issued before each pass, for the accesses
+	 * following a storage write not yet covered by a barrier.
+	 */
+	private void computeBarriers(int passCount, int resourceCount) {
+		this.barriers = new int[passCount];
+		boolean[] storageWritten = new boolean[resourceCount];
+		int[] issued = new int[resourceCount];
+		for (int p = 0; p < passCount; p++) {
+			if (!this.alive[p]) {
+				continue;
+			}
+			Node node = this.nodes.get(p);
+			int bits = 0;
+			for (int i = 0; i < node.reads.size(); i++) {
+				int access = node.reads.get(i);
+				int id = access >>> 1;
+				if (storageWritten[id]) {
+					int need = (access & STORAGE) != 0 ? STORAGE_BITS :
+							this.resources.get(id).isBuffer() ? BUFFER_READ_BITS : TEXTURE_READ_BITS;
+					need &= ~issued[id];
+					bits |= need;
+					issued[id] |= need;
+				}
+			}
+			for (int i = 0; i < node.writes.size(); i++) {
+				int access = node.writes.get(i);
+				int id = access >>> 1;
+				if (storageWritten[id]) {
+					int need = ((access & STORAGE) != 0 ? STORAGE_BITS : ATTACHMENT_BITS) & ~issued[id];
+					bits |= need;
+				}
+			}
+			for (int i = 0; i < node.writes.size(); i++) {
+				int access = node.writes.get(i);
+				storageWritten[access >>> 1] = (access & STORAGE) != 0;
+				issued[access >>> 1] = 0;
+			}
+			this.barriers[p] = bits;
+		}
+	}
+	
+	private static IntArrayList[] newLists(int count) {
+		IntArrayList[] lists = new IntArrayList[count];
+		for (int i = 0; i < count; i++) {
+			lists[i] = new IntArrayList(2);
+		}
+		return lists;
+	}
+	
+	/**A <code>PassBuilder</code> declares the resources accessed by a pass of
+	 * a {@link RenderGraph}.
+	 */
+	public static final class PassBuilder {
+		
+		private final RenderGraph graph;
+		private final Node node;
+		
+		private PassBuilder(RenderGraph graph, Node node) {
+			this.graph = graph;
+			this.node = node;
+		}
+		
+		/**Creates a transient resource written by this pass as an attachment.
+		 * 
+		 * @param name - The name of the resource
+		 * @param desc - The {@link Desc} of the resource
+		 */
+		public GraphResource create(String name, Desc desc) {
+			if (desc == null) {
+				throw new NullPointerException("Desc is null!");
+			}
+			GraphResource resource = this.graph.newResource(name, desc, null, null);
+			this.write(resource);
+			return resource;
+		}
+		
+		/**Declares that this pass samples or reads <code>resource</code>.
+		 * 
+		 * @param resource - The {@link GraphResource}
+		 */
+		public PassBuilder read(GraphResource resource) {
+			this.node.reads.add(this.check(resource).id << 1);
+			return this;
+		}
+		
+		/**Declares that this pass reads <code>resource</code> as an image or a
+		 * shader storage buffer.
+		 * 
+		 * @param resource - The {@link GraphResource}
+		 */
+		public PassBuilder readStorage(GraphResource resource) {
+			this.node.reads.add(this.check(resource).id << 1 | STORAGE);
+			return this;
+		}
+		
+		/**Declares that this pass renders to <code>resource</code>. The first
+		 * resource written this way is the render target of the pass.
+		 * 
+		 * @param resource - The {@link GraphResource}, not a buffer
+		 */
+		public PassBuilder write(GraphResource resource) {
+			if (this.check(resource).isBuffer()) {
+				throw new IllegalArgumentException("A buffer can only be written as storage!");
+			}
+			this.node.writes.add(resource.id << 1);
+			if (this.node.attachment < 0) {
+				this.node.attachment = resource.id;
+			}
+			return this;
+		}
+		
+		/**Declares that this pass writes <code>resource</code> as an image or a
+		 * shader storage buffer.
+		 * 
+		 * @param resource - The {@link GraphResource}
+		 */
+		public PassBuilder writeStorage(GraphResource resource) {
+			this.node.writes.add(this.check(resource).id << 1 | STORAGE);
+			return this;
+		}
+		
+		/**Prevents this pass from being culled.
+		 */
+		public PassBuilder sideEffect() {
+			this.node.sideEffect = true;
+			return this;
+		}
+		
+		private GraphResource check(GraphResource resource) {
+			if (resource == null) {
+				throw new NullPointerException("Resource is null!");
+			} else if (resource.id >= this.graph.resources.size() || this.graph.resources.get(resource.id) != resource) {
+				throw new IllegalArgumentException("Resource not part of the current graph (" + resource + ")");
+			}
+			return resource;
+		}
+	}
+	
+	private static final class Node {
+		
+		private final String name;
+		private final RenderPass pass;
+		private final IntArrayList reads;
+		private final IntArrayList writes;
+		private int attachment;
+		private boolean sideEffect;
+		
+		private Node(String name, RenderPass pass) {
+			this.name = name;
+			this.pass = pass;
+			this.reads = new IntArrayList(4);
+			this.writes = new IntArrayList(4);
+			this.attachment = -1;
+		}
+		
+		@Override
+		public String toString() {
+			return this.name;
+		}
+	}
+}
@@ -0,0 +1,657 @@
+/*Copyright (c) 2017 Fantastic Fantasy All rights reserved.
+ *
+ * Permission to use, copy, modify and/or redistribute in source or binary form
+ * is hereby granted, free of charge, subject to the following conditions:
+ *
+ * - Redistribution of source code shall include the above copyright notice,
+ *  this list of conditions and the following disclaimer.
+ *
+ * - Redistribution in binary form shall include the above copyright notice,
+ *  this list of conditions and the following disclaimer in the documentation
+ *  and/or other materials provided with the distribution.
+ *
+ * - Neither the name Object Oriented Lightweight Render Engine nor the names
+ *  of its contributors may be used to endorse or promote products derived
+ *  from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE
+ * OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package net.fantasticfantasy.oolwre.render.mesh;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+import net.fantasticfantasy.oolwre.math.OOLWREMath;
+import net.fantasticfantasy.oolwre.render.data.BufferObject;
+import net.fantasticfantasy.oolwre.render.data.BufferObject.BufferAccessFrequency;
+import net.fantasticfantasy.oolwre.render.data.BufferObject.BufferAccessNature;
+import net.fantasticfantasy.oolwre.render.data.BufferObject.Target;
+import net.fantasticfantasy.oolwre.render.data.Type;
+import net.fantasticfantasy.oolwre.render.data.VertexLayout;
+import net.fantasticfantasy.oolwre.render.data.VertexLayout.Attribute;
+
+/**CPU-side optimizations of indexed triangle meshes, meant to be run once when
+ * a mesh is imported or loaded, before it is uploaded with
+ * {@link BufferObject#bufferData(Target, ByteBuffer, BufferAccessFrequency,
+ * BufferAccessNature) bufferData(...)}.<br><br>
+ * Meshes are described by an interleaved <code>float</code> array, where each
+ * vertex spans <code>stride</code> floats, and a triangle list of indices. The
+ * usual pipeline is:
+ * <ol>
+ * <li>{@link #weldVertices(float[], int, int, int[], int) weldVertices(...)}
+ * to merge duplicated vertices;</li>
+ * <li>{@link #optimizeVertexCache(int[], int, int) optimizeVertexCache(...)}
+ * to reorder the triangles for the post-transform cache;</li>
+ * <li>{@link #optimizeOverdraw(int[], int, float[], int, int, int)
+ * optimizeOverdraw(...)} to draw the outer clusters of triangles first;</li>
+ * <li>{@link #optimizeVertexFetch(float[], int, int, int[], int)
+ * optimizeVertexFetch(...)} to store the vertices in the order they are used;</li>
+ * <li>{@link #quantize(float[], int, int, int, int, int) quantize(...)} to
+ * compress the vertices.</li>
+ * </ol>
+ * The efficiency of the triangle order can be measured with
+ * {@link #computeACMR(int[], int, int, int) computeACMR(...)}.
+ */
+public final class MeshOptimizer {
+	
+	/**The size of the FIFO post-transform cache the triangles are ordered for.
+	 */
+	public static final int CACHE_SIZE = 32;
+	
+	/**The default ratio of the ACMR of the whole mesh below which the running
+	 * ACMR of a cluster ends it in
+	 * {@link #optimizeOverdraw(int[], int, float[], int, int, int) optimizeOverdraw(...)}.
+	 */
+	public static final float OVERDRAW_THRESHOLD = 1.05f;
+	
+	private static final float CACHE_DECAY_POWER = 1.5f;
+	private static final float LAST_TRIANGLE_SCORE = 0.75f;
+	private static final float VALENCE_BOOST_SCALE = 2f;
+	private static final float VALENCE_BOOST_POWER = 0.5f;
+	private static final int MAX_VALENCE = 32;
+	
+	private static final float[] cacheScores;
+	private static final float[] valenceScores;
+	
+	static {
+		cacheScores = new float[CACHE_SIZE];
+		for (int i = 0; i < CACHE_SIZE; i++) {
+			if (i < 3) {
+				cacheScores[i] = LAST_TRIANGLE_SCORE;
+			} else {
+				float scaler = 1f / (CACHE_SIZE - 3);
+				cacheScores[i] = (float) Math.pow(1f - (i - 3) * scaler, CACHE_DECAY_POWER);
+			}
+		}
+		valenceScores = new float[MAX_VALENCE + 1];
+		for (int i = 1; i <= MAX_VALENCE; i++) {
+			valenceScores[i] = VALENCE_BOOST_SCALE * (float) Math.pow(i, -VALENCE_BOOST_POWER);
+		}
+	}
+	
+	/**@STATIC_MODULE_CLASS*/
+	private MeshOptimizer() {}
+	
+	/**Merges the vertices that are bitwise identical. The unique vertices are
+	 * compacted at the beginning of <code>vertices</code>, in the order they are
+	 * first found, and <code>indices</code> are rewritten to reference them.<br>
+	 * Positive and negative zeros are considered equal.
+	 * 
+	 * @param vertices - The interleaved vertices
+	 * @param stride - The number of floats per vertex
+	 * @param vertexCount - The number of vertices
+	 * @param indices - The triangle list
+	 * @param indexCount - The number of indices
+	 * 
+	 * @return The number of unique vertices
+	 */
+	public static int weldVertices(float[] vertices, int stride, int vertexCount, int[] indices, int indexCount) {
+		checkMesh(vertices, stride, vertexCount, indices, indexCount);
+		int[] remap = new int[vertexCount];
+		int mask = Integer.highestOneBit(Math.max(vertexCount, 1) * 2 - 1) * 2 - 1;
+		int[] table = new int[mask + 1];
+		Arrays.fill(table, -1);
+		int unique = 0;
+		for (int v = 0; v < vertexCount; v++) {
+			int slot = hashVertex(vertices, v * stride, stride) & mask;
+			while (true) {
+				int entry = table[slot];
+				if (entry == -1) {
+					if (unique != v) {
+						System.arraycopy(vertices, v * stride, vertices, unique * stride, stride);
+					}
+					table[slot] = unique;
+					remap[v] = unique++;
+					break;
+				} else if (equalVertices(vertices, entry * stride, v * stride, stride)) {
+					remap[v] = entry;
+					break;
+				}
+				slot = (slot + 1) & mask;
+			}
+		}
+		for (int i = 0; i < indexCount; i++) {
+			indices[i] = remap[indices[i]];
+		}
+		return unique;
+	}
+	
+	/**Reorders the triangles of <code>indices</code> to maximize the hits in the
+	 * post-transform vertex cache, using Tom Forsyth's linear-speed algorithm.
+	 * 
+	 * @param indices - The triangle list, reordered in place
+	 * @param indexCount - The number of indices
+	 * @param vertexCount - The number of vertices referenced by the indices
+	 */
+	public static void optimizeVertexCache(int[] indices, int indexCount, int vertexCount) {
+		checkIndices(indices, indexCount, vertexCount);
+		int triangleCount = indexCount / 3;
+		if (triangleCount == 0) {
+			return;
+		}
+		int[] remaining = new int[vertexCount];
+		for (int i = 0; i < indexCount; i++) {
+			remaining[indices[i]]++;
+		}
+		int[] offsets = new int[vertexCount + 1];
+		for (int v = 0; v < vertexCount; v++) {
+			offsets[v + 1] = offsets[v] + remaining[v];
+		}
+		int[] adjacency = new int[triangleCount * 3];
+		int[] fill = Arrays.copyOf(offsets, vertexCount);
+		for (int i = 0; i < triangleCount * 3; i++) {
+			adjacency[fill[indices[i]]++] = i / 3;
+		}
+		int[] cachePositions = new int[vertexCount];
+		Arrays.fill(cachePositions, -1);
+		float[] vertexScores = new float[vertexCount];
+		for (int v = 0; v < vertexCount; v++) {
+			vertexScores[v] = vertexScore(-1, remaining[v]);
+		}
+		float[] triangleScores = new float[triangleCount];
+		int best = 0;
+		for (int t = 0; t < triangleCount; t++) {
+			triangleScores[t] = vertexScores[indices[t * 3]] + vertexScores[indices[t * 3 + 1]] +
+					vertexScores[indices[t * 3 + 2]];
+			if (triangleScores[t] > triangleScores[best]) {
+				best = t;
+			}
+		}
+		boolean[] emitted = new boolean[triangleCount];
+		int[] cache = new int[CACHE_SIZE + 3];
+		int[] newCache = new int[CACHE_SIZE + 3];
+		int cacheCount = 0;
+		int[] output = new int[triangleCount * 3];
+		int outputCount = 0;
+		int cursor = 0;
+		while (best != -1) {
+			emitted[best] = true;
+			int a = indices[best * 3], b = indices[best * 3 + 1], c = indices[best * 3 + 2];
+			output[outputCount++] = a;
+			output[outputCount++] = b;
+			output[outputCount++] = c;
+			for (int k = 0; k < 3; k++) {
+				int v = indices[best * 3 + k];
+				int start = offsets[v], end = start + remaining[v];
+				for (int i = start; i < end; i++) {
+					if (adjacency[i] == best) {
+						adjacency[i] = adjacency[end - 1];
+						remaining[v]--;
+						break;
+					}
+				}
+			}
+			int newCount = 0;
+			newCache[newCount++] = a;
+			newCache[newCount++] = b;
+			newCache[newCount++] = c;
+			for (int i = 0; i < cacheCount; i++) {
+				int v = cache[i];
+				if (v != a && v != b && v != c) {
+					newCache[newCount++] = v;
+				}
+			}
+			int[] swap = cache;
+			cache = newCache;
+			newCache = swap;
+			for (int i = 0; i < newCount; i++) {
+				int v = cache[i];
+				cachePositions[v] = i < CACHE_SIZE ? i : -1;
+				vertexScores[v] = vertexScore(cachePositions[v], remaining[v]);
+			}
+			cacheCount = Math.min(newCount, CACHE_SIZE);
+			best = -1;
+			float bestScore = -1f;
+			for (int i = 0; i < cacheCount; i++) {
+				int v = cache[i];
+				for (int j = offsets[v], end = offsets[v] + remaining[v]; j < end; j++) {
+					int t = adjacency[j];
+					float score = vertexScores[indices[t * 3]] + vertexScores[indices[t * 3 + 1]] +
+							vertexScores[indices[t * 3 + 2]];
+					triangleScores[t] = score;
+					if (score > bestScore) {
+						bestScore = score;
+						best = t;
+					}
+				}
+			}
+			if (best == -1) {
+				while (cursor < triangleCount && emitted[cursor]) {
+					cursor++;
+				}
+				best = cursor < triangleCount ? cursor : -1;
+			}
+		}
+		System.arraycopy(output, 0, indices, 0, outputCount);
+	}
+	
+	/**Reorders clusters of triangles with the {@link #OVERDRAW_THRESHOLD
+	 * default threshold}.
+	 * 
+	 * @param indices - The triangle list, reordered in place
+	 * @param indexCount - The number of indices
+	 * @param vertices - The interleaved vertices
+	 * @param stride - The number of floats per vertex
+	 * @param positionOffset - The offset in floats of the position in a vertex
+	 * @param vertexCount - The number of vertices
+	 * 
+	 * @see #optimizeOverdraw(int[], int, float[], int, int, int, float)
+	 */
+	public static void optimizeOverdraw(int[] indices, int indexCount, float[] vertices, int stride,
+			int positionOffset, int vertexCount) {
+		optimizeOverdraw(indices, indexCount, vertices, stride, positionOffset, vertexCount, OVERDRAW_THRESHOLD);
+	}
+	
+	/**Reorders clusters of triangles so that the ones facing away from the
+	 * center of the mesh are drawn first, which reduces the overdraw of convex
+	 * parts of the mesh.<br>
+	 * As in Tipsify, a cluster ends as soon as its running ACMR, simulated
+	 * from an empty cache, drops to <code>threshold</code> times the ACMR of
+	 * the whole mesh, so that the
+	 * cache efficiency of an order produced by
+	 * {@link #optimizeVertexCache(int[], int, int) optimizeVertexCache(...)} is
+	 * mostly preserved. Higher thresholds give smaller clusters, less
+	 * overdraw and more cache misses.
+	 * 
+	 * @param indices - The triangle list, reordered in place
+	 * @param indexCount - The number of indices
+	 * @param vertices - The interleaved vertices
+	 * @param stride - The number of floats per vertex
+	 * @param positionOffset - The offset in floats of the position in a vertex
+	 * @param vertexCount - The number of vertices
+	 * @param threshold - The ratio of the ACMR of the mesh ending a cluster
+	 */
+	public static void optimizeOverdraw(int[] indices, int indexCount, float[] vertices, int stride,
+			int positionOffset, int vertexCount, float threshold) {
+		checkMesh(vertices, stride, vertexCount, indices, indexCount);
+		checkOffset(positionOffset, 3, stride);
+		if (!(threshold > 0f)) {
+			throw new IllegalArgumentException("'threshold' <= 0 (" + threshold + ")");
+		}
+		int triangleCount = indexCount / 3;
+		if (triangleCount < 2) {
+			return;
+		}
+		float limit = threshold * computeACMR(indices, indexCount, vertexCount, CACHE_SIZE);
+		int[] clusterStarts = new int[triangleCount + 1];
+		int clusterCount = 0;
+		int clusterMisses = 0;
+		int[] timestamps = new int[vertexCount];
+		int time = CACHE_SIZE + 1;
+		boolean split = true;
+		for (int t = 0; t < triangleCount; t++) {
+			if (split) {
+				//Clusters may be drawn in any order, so each one starts with a cold cache
+				time += CACHE_SIZE + 1;
+				clusterStarts[clusterCount++] = t;
+				clusterMisses = 0;
+			}
+			for (int k = 0; k < 3; k++) {
+				int v = indices[t * 3 + k];
+				if (time - timestamps[v] > CACHE_SIZE) {
+					timestamps[v] = time++;
+					clusterMisses++;
+				}
+			}
+			split = clusterMisses <= limit * (t - clusterStarts[clusterCount - 1] + 1);
+		}
+		clusterStarts[clusterCount] = triangleCount;
+		if (clusterCount < 2) {
+			return;
+		}
+		float meshX = 0f, meshY = 0f, meshZ = 0f, meshArea = 0f;
+		float[] centroids = new float[clusterCount * 3];
+		float[] normals = new float[clusterCount * 3];
+		for (int c = 0; c < clusterCount; c++) {
+			float cx = 0f, cy = 0f, cz = 0f, area = 0f;
+			float nx = 0f, ny = 0f, nz = 0f;
+			for (int t = clusterStarts[c]; t < clusterStarts[c + 1]; t++) {
+				int p0 = indices[t * 3] * stride + positionOffset;
+				int p1 = indices[t * 3 + 1] * stride + positionOffset;
+				int p2 = indices[t * 3 + 2] * stride + positionOffset;
+				float e1x = vertices[p1] - vertices[p0], e1y = vertices[p1 + 1] - vertices[p0 + 1],
+						e1z = vertices[p1 + 2] - vertices[p0 + 2];
+				float e2x = vertices[p2] - vertices[p0], e2y = vertices[p2 + 1] - vertices[p0 + 1],
+						e2z = vertices[p2 + 2] - vertices[p0 + 2];
+				float tx = e1y * e2z - e1z * e2y;
+				float ty = e1z * e2x - e1x * e2z;
+				float tz = e1x * e2y - e1y * e2x;
+				float triangleArea = (float) Math.sqrt(tx * tx + ty * ty + tz * tz);
+				cx += (vertices[p0] + vertices[p1] + vertices[p2]) / 3f * triangleArea;
+				cy += (vertices[p0 + 1] + vertices[p1 + 1] + vertices[p2 + 1]) / 3f * triangleArea;
+				cz += (vertices[p0 + 2] + vertices[p1 + 2] + vertices[p2 + 2]) / 3f * triangleArea;
+				nx += tx;
+				ny += ty;
+				nz += tz;
+				area += triangleArea;
+			}
+			meshX += cx;
+			meshY += cy;
+			meshZ += cz;
+			meshArea += area;
+			float inverseArea = area == 0f ? 0f : 1f / area;
+			centroids[c * 3] = cx * inverseArea;
+			centroids[c * 3 + 1] = cy * inverseArea;
+			centroids[c * 3 + 2] = cz * inverseArea;
+			float length = (float) Math.sqrt(nx * nx + ny * ny + nz * nz);
+			float inverseLength = length == 0f ? 0f : 1f / length;
+			normals[c * 3] = nx * inverseLength;
+			normals[c * 3 + 1] = ny * inverseLength;
+			normals[c * 3 + 2] = nz * inverseLength;
+		}
+		float inverseMeshArea = meshArea == 0f ? 0f : 1f / meshArea;
+		meshX *= inverseMeshArea;
+		meshY *= inverseMeshArea;
+		meshZ *= inverseMeshArea;
+		long[] keys = new long[clusterCount];
+		for (int c = 0; c < clusterCount; c++) {
+			float dot = (centroids[c * 3] - meshX) * normals[c * 3] + (centroids[c * 3 + 1] - meshY) *
+					normals[c * 3 + 1] + (centroids[c * 3 + 2] - meshZ) * normals[c * 3 + 2];
+			//Sort by decreasing dot product, then by original position
+			int bits = Float.floatToIntBits(-dot);
+			bits ^= (bits >> 31) & 0x7fffffff;
+			keys[c] = ((long) bits << 32) | c;
+		}
+		Arrays.sort(keys);
+		int[] output = new int[triangleCount * 3];
+		int outputCount = 0;
+		for (int i = 0; i < clusterCount; i++) {
+			int c = (int) keys[i];
+			int start = clusterStarts[c] * 3, length = (clusterStarts[c + 1] - clusterStarts[c]) * 3;
+			System.arraycopy(indices, start, output, outputCount, length);
+			outputCount += length;
+		}
+		System.arraycopy(output, 0, indices, 0, outputCount);
+	}
+	
+	/**Reorders the vertices in the order they are first referenced by
+	 * <code>indices</code>, which improves the memory locality of the vertex
+	 * fetches. Vertices that are not referenced are discarded.
+	 * 
+	 * @param vertices - The interleaved vertices, reordered in place
+	 * @param stride - The number of floats per vertex
+	 * @param vertexCount - The number of vertices
+	 * @param indices - The triangle list, rewritten in place
+	 * @param indexCount - The number of indices
+	 * 
+	 * @return The number of vertices that are referenced
+	 */
+	public static int optimizeVertexFetch(float[] vertices, int stride, int vertexCount, int[] indices,
+			int indexCount) {
+		checkMesh(vertices, stride, vertexCount, indices, indexCount);
+		int[] remap = new int[vertexCount];
+		Arrays.fill(remap, -1);
+		float[] copy = Arrays.copyOf(vertices, vertexCount * stride);
+		int next = 0;
+		for (int i = 0; i < indexCount; i++) {
+			int v = indices[i];
+			if (remap[v] == -1) {
+				System.arraycopy(copy, v * stride, vertices, next * stride, stride);
+				remap[v] = next++;
+			}
+			indices[i] = remap[v];
+		}
+		return next;
+	}
+	
+	/**Computes the average cache miss ratio of <code>indices</code>, that is the
+	 * number of vertices transformed per triangle, by simulating a FIFO cache.
+	 * The result is between 0.5 for an ideal grid mesh and 3 when the cache is
+	 * never hit.
+	 * 
+	 * @param indices - The triangle list
+	 * @param indexCount - The number of indices
+	 * @param vertexCount - The number of vertices referenced by the indices
+	 * @param cacheSize - The size of the simulated cache
+	 * 
+	 * @return The average cache miss ratio, or 0 if there are no triangles
+	 */
+	public static float computeACMR(int[] indices, int indexCount, int vertexCount, int cacheSize) {
+		checkIndices(indices, indexCount, vertexCount);
+		if (cacheSize < 1) {
+			throw new IllegalArgumentException("'cacheSize' < 1 (" + cacheSize + ")");
+		}
+		int triangleCount = indexCount / 3;
+		if (triangleCount == 0) {
+			return 0f;
+		}
+		int[] timestamps = new int[vertexCount];
+		int time = cacheSize + 1;
+		int misses = 0;
+		for (int i = 0; i < triangleCount * 3; i++) {
+			int v = indices[i];
+			if (time - timestamps[v] > cacheSize) {
+				timestamps[v] = time++;
+				misses++;
+			}
+		}
+		return (float) misses / triangleCount;
+	}
+	
+	/**Quantizes the vertices to a compact interleaved format:
+	 * <ul>
+	 * <li>positions are stored as 3 normalized {@link Type#SHORT}s relative to
+	 * the bounding box of the mesh, which must be restored in the shader using
+	 * {@link QuantizedMesh#getPositionScale()} and
+	 * {@link QuantizedMesh#getPositionOffset()};</li>
+	 * <li>normals are stored as a normalized {@link Type#INT_2_10_10_10_REV};</li>
+	 * <li>texture coordinates are stored as 2 {@link Type#HALF_FLOAT}s.</li>
+	 * </ul>
+	 * The attributes use the indices {@link QuantizedMesh#POSITION_ATTRIBUTE},
+	 * {@link QuantizedMesh#NORMAL_ATTRIBUTE} and {@link QuantizedMesh#UV_ATTRIBUTE}.
+	 * 
+	 * @param vertices - The interleaved vertices
+	 * @param stride - The number of floats per vertex
+	 * @param vertexCount - The number of vertices
+	 * @param positionOffset - The offset in floats of the position in a vertex
+	 * @param normalOffset - The offset in floats of the normal in a vertex,
+	 * or -1 if the vertices have no normal
+	 * @param uvOffset - The offset in floats of the texture coordinates in a
+	 * vertex, or -1 if the vertices have no texture coordinates
+	 * 
+	 * @return The {@link QuantizedMesh}
+	 */
+	public static QuantizedMesh quantize(float[] vertices, int stride, int vertexCount, int positionOffset,
+			int normalOffset, int uvOffset) {
+		checkMesh(vertices, stride, vertexCount, null, 0);
+		checkOffset(positionOffset, 3, stride);
+		if (normalOffset != -1) {
+			checkOffset(normalOffset, 3, stride);
+		}
+		if (uvOffset != -1) {
+			checkOffset(uvOffset, 2, stride);
+		}
+		int attributeCount = 1 + (normalOffset != -1 ? 1 : 0) + (uvOffset != -1 ? 1 : 0);
+		Attribute[] attributes = new Attribute[attributeCount];
+		int i = 0;
+		attributes[i++] = new Attribute(QuantizedMesh.POSITION_ATTRIBUTE, Type.SHORT, 3, true);
+		if (normalOffset != -1) {
+			attributes[i++] = new Attribute(QuantizedMesh.NORMAL_ATTRIBUTE, Type.INT_2_10_10_10_REV, 4, true);
+		}
+		if (uvOffset != -1) {
+			attributes[i++] = new Attribute(QuantizedMesh.UV_ATTRIBUTE, Type.HALF_FLOAT, 2, false);
+		}
+		VertexLayout layout = new VertexLayout(attributes).intern();
+		float[] min = {Float.POSITIVE_INFINITY, Float.POSITIVE_INFINITY, Float.POSITIVE_INFINITY};
+		float[] max = {Float.NEGATIVE_INFINITY, Float.NEGATIVE_INFINITY, Float.NEGATIVE_INFINITY};
+		for (int v = 0; v < vertexCount; v++) {
+			for (int k = 0; k < 3; k++) {
+				float value = vertices[v * stride + positionOffset + k];
+				min[k] = Math.min(min[k], value);
+				max[k] = Math.max(max[k], value);
+			}
+		}
+		float[] offset = new float[3];
+		float[] scale = new float[3];
+		float[] inverseScale = new float[3];
+		for (int k = 0; k < 3; k++) {
+			if (vertexCount == 0) {
+				min[k] = max[k] = 0f;
+			}
+			offset[k] = (min[k] + max[k]) * 0.5f;
+			scale[k] = (max[k] - min[k]) * 0.5f;
+			inverseScale[k] = scale[k] == 0f ? 0f : 1f / scale[k];
+		}
+		QuantizedMesh mesh = new QuantizedMesh(layout, vertexCount, stride * 4, offset, scale);
+		ByteBuffer data = mesh.getVertices();
+		int vertexStride = layout.getStride(0);
+		for (int v = 0; v < vertexCount; v++) {
+			int base = v * vertexStride;
+			int src = v * stride;
+			int a = 0;
+			int p = base + layout.getOffset(a++);
+			for (int k = 0; k < 3; k++) {
+				float value = (vertices[src + positionOffset + k] - offset[k]) * inverseScale[k];
+				data.putShort(p + k * 2, OOLWREMath.toSnorm16(value));
+			}
+			if (normalOffset != -1) {
+				int n = src + normalOffset;
+				data.putInt(base + layout.getOffset(a++), OOLWREMath.packSnorm2101010(vertices[n], vertices[n + 1],
+						vertices[n + 2], 0f));
+			}
+			if (uvOffset != -1) {
+				int t = base + layout.getOffset(a++);
+				data.putShort(t, OOLWREMath.toHalfFloat(vertices[src + uvOffset]));
+				data.putShort(t + 2, OOLWREMath.toHalfFloat(vertices[src + uvOffset + 1]));
+			}
+		}
+		return mesh;
+	}
+	
+	/**Returns the smallest index {@link Type} able to reference
+	 * <code>vertexCount</code> vertices, that is either
+	 * {@link Type#UNSIGNED_SHORT} or {@link Type#UNSIGNED_INT}.
+	 * 
+	 * @param vertexCount - The number of vertices
+	 */
+	public static Type getIndexType(int vertexCount) {
+		return vertexCount <= 0x10000 ? Type.UNSIGNED_SHORT : Type.UNSIGNED_INT;
+	}
+	
+	/**Uploads <code>indices</code> to <code>buffer</code>, bound to
+	 * {@link Target#ELEMENT_ARRAY}, using 16 bits indices whenever
+	 * <code>vertexCount</code> allows it.
+	 * 
+	 * @param buffer - The {@link BufferObject} to upload to
+	 * @param indices - The triangle list
+	 * @param indexCount - The number of indices
+	 * @param vertexCount - The number of vertices referenced by the indices
+	 * @param accessFrequency - The {@link BufferAccessFrequency}
+	 * @param accessNature - The {@link BufferAccessNature}
+	 * 
+	 * @return The {@link Type} of the uploaded indices, as returned by
+	 * {@link #getIndexType(int)}
+	 */
+	public static Type uploadIndices(BufferObject buffer, int[] indices, int indexCount, int vertexCount,
+			BufferAccessFrequency accessFrequency, BufferAccessNature accessNature) {
+		if (buffer == null) {
+			throw new NullPointerException("Buffer is null!");
+		}
+		checkIndices(indices, indexCount, vertexCount);
+		Type type = getIndexType(vertexCount);
+		buffer.bind(Target.ELEMENT_ARRAY);
+		if (type == Type.UNSIGNED_SHORT) {
+			short[] data = new short[indexCount];
+			for (int i = 0; i < indexCount; i++) {
+				data[i] = (short) indices[i];
+			}
+			buffer.bufferData(Target.ELEMENT_ARRAY, data, accessFrequency, accessNature);
+		} else {
+			buffer.bufferData(Target.ELEMENT_ARRAY, indexCount == indices.length ? indices :
+				Arrays.copyOf(indices, indexCount), accessFrequency, accessNature);
+		}
+		return type;
+	}
+	
+	private static float vertexScore(int cachePosition, int remaining) {
+		if (remaining == 0) {
+			return -1f;
+		}
+		float score = cachePosition < 0 ? 0f : cacheScores[cachePosition];
+		return score + valenceScores[Math.min(remaining, MAX_VALENCE)];
+	}
+	
+	private static int hashVertex(float[] vertices, int start, int stride) {
+		int hash = 0;
+		for (int i = start; i < start + stride; i++) {
+			float value = vertices[i];
+			hash = hash * 31 + Float.floatToIntBits(value == 0f ? 0f : value);
+		}
+		hash ^= hash >>> 16;
+		hash *= 0x45d9f3b;
+		return hash ^ (hash >>> 16);
+	}
+	
+	private static boolean equalVertices(float[] vertices, int a, int b, int stride) {
+		for (int i = 0; i < stride; i++) {
+			float va = vertices[a + i], vb = vertices[b + i];
+			if (va != vb && Float.floatToIntBits(va) != Float.floatToIntBits(vb)) {
+				return false;
+			}
+		}
+		return true;
+	}
+	
+	private static void checkMesh(float[] vertices, int stride, int vertexCount, int[] indices, int indexCount) {
+		if (vertices == null) {
+			throw new NullPointerException("Vertices are null!");
+		} else if (stride < 1) {
+			throw new IllegalArgumentException("'stride' < 1 (" + stride + ")");
+		} else if (vertexCount < 0 || (long) vertexCount * stride > vertices.length) {
+			throw new IllegalArgumentException("'vertexCount' out of range (" + vertexCount + ")");
+		}
+		if (indices != null) {
+			checkIndices(indices, indexCount, vertexCount);
+		}
+	}
+	
+	private static void checkIndices(int[] indices, int indexCount, int vertexCount) {
+		if (indices == null) {
+			throw new NullPointerException("Indices are null!");
+		} else if (indexCount < 0 || indexCount > indices.length) {
+			throw new IllegalArgumentException("'indexCount' out of range (" + indexCount + ")");
+		} else if (indexCount % 3 != 0) {
+			throw new IllegalArgumentException("'indexCount' is not a multiple of 3 (" + indexCount + ")");
+		}
+		for (int i = 0; i < indexCount; i++) {
+			if (indices[i] < 0 || indices[i] >= vertexCount) {
+				throw new IllegalArgumentException("Index " + indices[i] + " out of range at " + i);
+			}
+		}
+	}
+	
+	private static void checkOffset(int offset, int components, int stride) {
+		if (offset < 0 || offset + components > stride) {
+			throw new IllegalArgumentException("Offset out of range (" + offset + ")");
+		}
+	}
+}
@@ -0,0 +1,131 @@
+/*Copyright (c) 2017 Fantastic Fantasy All rights reserved.
+ *
+ * Permission to use, copy, modify and/or redistribute in source or binary form
+ * is hereby granted, free of charge, subject to the following conditions:
+ *
+ * - Redistribution of source code shall include the above copyright notice,
+ *  this list of conditions and the following disclaimer.
+ *
+ * - Redistribution in binary form shall include the above copyright notice,
+ *  this list of conditions and the following disclaimer in the documentation
+ *  and/or other materials provided with the distribution.
+ *
+ * - Neither the name Object Oriented Lightweight Render Engine nor the names
+ *  of its contributors may be used to endorse or promote products derived
+ *  from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE
+ * OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package net.fantasticfantasy.oolwre.render.mesh;
+
+import java.nio.ByteBuffer;
+
+import org.lwjgl.BufferUtils;
+
+import net.fantasticfantasy.oolwre.math.Vector3f;
+import net.fantasticfantasy.oolwre.render.data.BufferObject;
+import net.fantasticfantasy.oolwre.render.data.BufferObject.BufferAccessFrequency;
+import net.fantasticfantasy.oolwre.render.data.BufferObject.BufferAccessNature;
+import net.fantasticfantasy.oolwre.render.data.BufferObject.Target;
+import net.fantasticfantasy.oolwre.render.data.VertexLayout;
+
+/**The interleaved vertices produced by
+ * {@link MeshOptimizer#quantize(float[], int, int, int, int, int)}, along with
+ * the {@link VertexLayout} to read them.<br>
+ * The positions are normalized to the bounding box of the mesh: the original
+ * position is <code>position * scale + offset</code>.
+ */
+public final class QuantizedMesh {
+	
+	/**The attribute index of the positions.
+	 */
+	public static final int POSITION_ATTRIBUTE = 0;
+	/**The attribute index of the normals.
+	 */
+	public static final int NORMAL_ATTRIBUTE = 1;
+	/**The attribute index of the texture coordinates.
+	 */
+	public static final int UV_ATTRIBUTE = 2;
+	
+	private final VertexLayout layout;
+	private final ByteBuffer vertices;
+	private final int vertexCount;
+	private final int originalVertexSize;
+	private final Vector3f positionOffset;
+	private final Vector3f positionScale;
+	
+	QuantizedMesh(VertexLayout layout, int vertexCount, int originalVertexSize, float[] offset, float[] scale) {
+		this.layout = layout;
+		this.vertexCount = vertexCount;
+		this.originalVertexSize = originalVertexSize;
+		this.vertices = BufferUtils.createByteBuffer(layout.getStride(0) * vertexCount);
+		this.positionOffset = new Vector3f(offset[0], offset[1], offset[2]);
+		this.positionScale = new Vector3f(scale[0], scale[1], scale[2]);
+	}
+	
+	/**Returns the {@link VertexLayout} of the vertices. The layout is interned.
+	 */
+	public VertexLayout getLayout() {
+		return this.layout;
+	}
+	
+	/**Returns the vertices. The returned buffer is shared; its position and
+	 * limit are not used by this class.
+	 */
+	public ByteBuffer getVertices() {
+		return this.vertices;
+	}
+	
+	public int getVertexCount() {
+		return this.vertexCount;
+	}
+	
+	/**Returns the offset to add to the scaled positions to restore them.
+	 */
+	public Vector3f getPositionOffset() {
+		return new Vector3f(this.positionOffset.x, this.positionOffset.y, this.positionOffset.z);
+	}
+	
+	/**Returns the scale to apply to the normalized positions to restore them.
+	 */
+	public Vector3f getPositionScale() {
+		return new Vector3f(this.positionScale.x, this.positionScale.y, this.positionScale.z);
+	}
+	
+	/**Returns the size in bytes of the quantized vertices.
+	 */
+	public int getByteSize() {
+		return this.vertices.capacity();
+	}
+	
+	/**Returns the size in bytes of the vertices before quantization.
+	 */
+	public int getOriginalByteSize() {
+		return this.originalVertexSize * this.vertexCount;
+	}
+	
+	/**Uploads the vertices to <code>buffer</code>, bound to {@link Target#ARRAY}.
+	 * 
+	 * @param buffer - The {@link BufferObject} to upload to
+	 * @param accessFrequency - The {@link BufferAccessFrequency}
+	 * @param accessNature - The {@link BufferAccessNature}
+	 */
+	public void upload(BufferObject buffer, BufferAccessFrequency accessFrequency, BufferAccessNature accessNature) {
+		if (buffer == null) {
+			throw new NullPointerException("Buffer is null!");
+		}
+		ByteBuffer data = this.vertices.duplicate();
+		data.clear();
+		buffer.bind(Target.ARRAY);
+		buffer.bufferData(Target.ARRAY, data, accessFrequency, accessNature);
+	}
+}
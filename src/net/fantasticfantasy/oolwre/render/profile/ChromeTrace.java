@@ -0,0 +1,121 @@
+/*Copyright (c) 2017 Fantastic Fantasy All rights reserved.
+ *
+ * Permission to use, copy, modify and/or redistribute in source or binary form
+ * is hereby granted, free of charge, subject to the following conditions:
+ *
+ * - Redistribution of source code shall include the above copyright notice,
+ *  this list of conditions and the following disclaimer.
+ *
+ * - Redistribution in binary form shall include the above copyright notice,
+ *  this list of conditions and the following disclaimer in the documentation
+ *  and/or other materials provided with the distribution.
+ *
+ * - Neither the name Object Oriented Lightweight Render Engine nor the names
+ *  of its contributors may be used to endorse or promote products derived
+ *  from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE
+ * OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package net.fantasticfantasy.oolwre.render.profile;
+
+import java.io.IOException;
+import java.io.Writer;
+
+/**The <code>ChromeTrace</code> class writes {@link ProfileFrame}s in the JSON
+ * trace event format read by <code>chrome://tracing</code> and Perfetto.<br>
+ * Every scope becomes a complete event: CPU scopes on the thread 1 and GPU
+ * scopes on the thread 2 of the process 1. As the GPU clock differs from the
+ * CPU one, GPU scopes are placed relative to the start of their frame.
+ */
+public class ChromeTrace {
+	
+	private static final int CPU_THREAD = 1,
+							GPU_THREAD = 2;
+	
+	/**@STATIC_MODULE_CLASS*/
+	private ChromeTrace() {}
+	
+	/**Writes a trace holding the given frames.
+	 * 
+	 * @param writer - The destination {@link Writer}
+	 * @param frames - The frames, in any order
+	 * 
+	 * @throws IOException If any I/O error occurs
+	 */
+	public static void write(Writer writer, Iterable<ProfileFrame> frames) throws IOException {
+		writer.write("{\"displayTimeUnit\":\"ms\",\"traceEvents\":[\n");
+		writeThreadName(writer, CPU_THREAD, "CPU");
+		writer.write(",\n");
+		writeThreadName(writer, GPU_THREAD, "GPU");
+		for (ProfileFrame frame : frames) {
+			ProfileNode root = frame.getRoot();
+			writeNode(writer, root, root.getCpuStart(), root.getGpuStart(), frame.getIndex());
+		}
+		writer.write("\n]}\n");
+		writer.flush();
+	}
+	
+	private static void writeNode(Writer writer, ProfileNode node, long cpuOrigin, long gpuOrigin, long frame)
+			throws IOException {
+		writeEvent(writer, node.getName(), CPU_THREAD, node.getCpuStart(), node.getCpuTime(), frame);
+		if (node.hasGpuTime() && gpuOrigin >= 0) {
+			writeEvent(writer, node.getName(), GPU_THREAD, cpuOrigin + node.getGpuStart() - gpuOrigin,
+					node.getGpuTime(), frame);
+		}
+		for (ProfileNode child : node.getChildren()) {
+			writeNode(writer, child, cpuOrigin, gpuOrigin, frame);
+		}
+	}
+	
+	private static void writeEvent(Writer writer, String name, int thread, long start, long duration, long frame)
+			throws IOException {
+		writer.write(",\n{\"name\":");
+		writeString(writer, name);
+		writer.write(",\"ph\":\"X\",\"pid\":1,\"tid\":" + thread + ",\"ts\":" + toMicros(start) + ",\"dur\":" +
+				toMicros(duration) + ",\"args\":{\"frame\":" + frame + "}}");
+	}
+	
+	private static void writeThreadName(Writer writer, int thread, String name) throws IOException {
+		writer.write("{\"name\":\"thread_name\",\"ph\":\"M\",\"pid\":1,\"tid\":" + thread +
+				",\"args\":{\"name\":\"" + name + "\"}}");
+	}
+	
+	private static String toMicros(long nanos) {
+		long micros = nanos / 1000;
+		long rest = Math.abs(nanos % 1000);
+		if (nanos < 0 && micros == 0) {
+			return "-0." + pad(rest);
+		}
+		return micros + "." + pad(rest);
+	}
+	
+	private static String pad(long value) {
+		return value < 10 ? "00" + value : value < 100 ? "0" + value : Long.toString(value);
+	}
+	
+	private static void writeString(Writer writer, String value) throws IOException {
+		writer.write('"');
+		for (int i = 0; i < value.length(); i++) {
+			char c = value.charAt(i);
+			if (c == '"' || c == '\\') {
+				writer.write('\\');
+				writer.write(c);
+			} else if (c < 0x20) {
+				String hex = Integer.toHexString(c);
+				writer.write("\\u00" + (hex.length() == 1 ? "0" + hex : hex));
+			} else {
+				writer.write(c);
+			}
+		}
+		writer.write('"');
+	}
+}
@@ -0,0 +1,115 @@
+/*Copyright (c) 2017 Fantastic Fantasy All rights reserved.
+ *
+ * Permission to use, copy, modify and/or redistribute in source or binary form
+ * is hereby granted, free of charge, subject to the following conditions:
+ *
+ * - Redistribution of source code shall include the above copyright notice,
+ *  this list of conditions and the following disclaimer.
+ *
+ * - Redistribution in binary form shall include the above copyright notice,
+ *  this list of conditions and the following disclaimer in the documentation
+ *  and/or other materials provided with the distribution.
+ *
+ * - Neither the name Object Oriented Lightweight Render Engine nor the names
+ *  of its contributors may be used to endorse or promote products derived
+ *  from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE
+ * OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package net.fantasticfantasy.oolwre.render.profile;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**A <code>ProfileFrame</code> holds the scopes measured by a {@link Profiler}
+ * during one frame, as a tree whose root spans the whole frame.
+ */
+public final class ProfileFrame {
+	
+	private final long index;
+	private final ProfileNode root;
+	
+	ProfileFrame(long index, ProfileNode root) {
+		this.index = index;
+		this.root = root;
+	}
+	
+	/**Returns the number of frames begun by the {@link Profiler} before this one.
+	 */
+	public long getIndex() {
+		return this.index;
+	}
+	
+	/**Returns the scope spanning the whole frame.
+	 */
+	public ProfileNode getRoot() {
+		return this.root;
+	}
+	
+	public long getCpuTime() {
+		return this.root.getCpuTime();
+	}
+	
+	/**Returns the GPU time of the frame in nanoseconds, or -1 if it was not
+	 * measured.
+	 */
+	public long getGpuTime() {
+		return this.root.getGpuTime();
+	}
+	
+	/**Returns the scope found by following the names of <code>path</code>
+	 * from the root, or <code>null</code>.
+	 * 
+	 * @param path - The names of the scopes, excluding the root
+	 */
+	public ProfileNode find(String... path) {
+		ProfileNode node = this.root;
+		for (int i = 0; i < path.length && node != null; i++) {
+			node = node.getChild(path[i]);
+		}
+		return node;
+	}
+	
+	/**Sums the CPU and GPU times of the scopes of this frame by name, so that
+	 * passes run several times or at different depths are reported once.
+	 * 
+	 * @return A {@link Map} from the name of the scopes to an array holding the
+	 * total CPU time, the total GPU time (-1 if unmeasured) and the number of
+	 * scopes, in this order
+	 */
+	public Map<String, long[]> getTotals() {
+		Map<String, long[]> totals = new LinkedHashMap<>();
+		this.sum(this.root, totals);
+		return totals;
+	}
+	
+	private void sum(ProfileNode node, Map<String, long[]> totals) {
+		long[] total = totals.get(node.getName());
+		if (total == null) {
+			total = new long[] {0, -1, 0};
+			totals.put(node.getName(), total);
+		}
+		total[0] += node.getCpuTime();
+		if (node.hasGpuTime()) {
+			total[1] = Math.max(total[1], 0) + node.getGpuTime();
+		}
+		total[2]++;
+		for (ProfileNode child : node.getChildren()) {
+			this.sum(child, totals);
+		}
+	}
+	
+	@Override
+	public String toString() {
+		return "Frame " + this.index + ":\n" + this.root;
+	}
+}
@@ -0,0 +1,179 @@
+/*Copyright (c) 2017 Fantastic Fantasy All rights reserved.
+ *
+ * Permission to use, copy, modify and/or redistribute in source or binary form
+ * is hereby granted, free of charge, subject to the following conditions:
+ *
+ * - Redistribution of source code shall include the above copyright notice,
+ *  this list of conditions and the following disclaimer.
+ *
+ * - Redistribution in binary form shall include the above copyright notice,
+ *  this list of conditions and the following disclaimer in the documentation
+ *  and/or other materials provided with the distribution.
+ *
+ * - Neither the name Object Oriented Lightweight Render Engine nor the names
+ *  of its contributors may be used to endorse or promote products derived
+ *  from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE
+ * OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package net.fantasticfantasy.oolwre.render.profile;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**A <code>ProfileNode</code> is a scope measured by a {@link Profiler}
+ * during a frame. Scopes begun while another one is running become its
+ * children.<br>
+ * CPU times come from {@link System#nanoTime()}; GPU times come from OpenGL
+ * timestamp queries and are expressed in the clock of the GPU, so only
+ * differences between them are meaningful.
+ */
+public final class ProfileNode {
+	
+	private final String name;
+	private final ProfileNode parent;
+	private final int depth;
+	private final List<ProfileNode> children;
+	long cpuStart;
+	long cpuEnd;
+	long gpuStart;
+	long gpuEnd;
+	
+	ProfileNode(String name, ProfileNode parent) {
+		this.name = name;
+		this.parent = parent;
+		this.depth = parent == null ? 0 : parent.depth + 1;
+		this.children = new ArrayList<>();
+		this.gpuStart = -1;
+		this.gpuEnd = -1;
+		if (parent != null) {
+			parent.children.add(this);
+		}
+	}
+	
+	public String getName() {
+		return this.name;
+	}
+	
+	/**Returns the scope running when this one was begun, or <code>null</code>
+	 * if this node is the root of a frame.
+	 */
+	public ProfileNode getParent() {
+		return this.parent;
+	}
+	
+	/**Returns the number of parents of this node.
+	 */
+	public int getDepth() {
+		return this.depth;
+	}
+	
+	/**Returns the scopes begun while this one was running, in order.
+	 */
+	public List<ProfileNode> getChildren() {
+		return Collections.unmodifiableList(this.children);
+	}
+	
+	/**Returns the first child named <code>name</code>, or <code>null</code>.
+	 * 
+	 * @param name - The name of the child
+	 */
+	public ProfileNode getChild(String name) {
+		for (ProfileNode child : this.children) {
+			if (child.name.equals(name)) {
+				return child;
+			}
+		}
+		return null;
+	}
+	
+	/**Returns the {@link System#nanoTime()} value when this scope began.
+	 */
+	public long getCpuStart() {
+		return this.cpuStart;
+	}
+	
+	/**Returns the time spent by the CPU in this scope, in nanoseconds.
+	 */
+	public long getCpuTime() {
+		return this.cpuEnd - this.cpuStart;
+	}
+	
+	/**Returns the time spent by the CPU in this scope but not in its
+	 * children, in nanoseconds.
+	 */
+	public long getSelfCpuTime() {
+		long time = this.getCpuTime();
+		for (ProfileNode child : this.children) {
+			time -= child.getCpuTime();
+		}
+		return time;
+	}
+	
+	/**Returns whether or not the GPU time of this scope was measured. It is not
+	 * when timer queries are unsupported or when their results were dropped.
+	 */
+	public boolean hasGpuTime() {
+		return this.gpuStart >= 0 && this.gpuEnd >= 0;
+	}
+	
+	/**Returns the GPU timestamp when this scope began, or -1.
+	 */
+	public long getGpuStart() {
+		return this.gpuStart;
+	}
+	
+	/**Returns the time spent by the GPU executing the commands of this
+	 * scope, in nanoseconds, or -1 if it was not measured.
+	 */
+	public long getGpuTime() {
+		return this.hasGpuTime() ? this.gpuEnd - this.gpuStart : -1;
+	}
+	
+	/**Returns the time spent by the GPU in this scope but not in its
+	 * children, in nanoseconds, or -1 if it was not measured.
+	 */
+	public long getSelfGpuTime() {
+		if (!this.hasGpuTime()) {
+			return -1;
+		}
+		long time = this.getGpuTime();
+		for (ProfileNode child : this.children) {
+			if (child.hasGpuTime()) {
+				time -= child.getGpuTime();
+			}
+		}
+		return time;
+	}
+	
+	@Override
+	public String toString() {
+		StringBuilder builder = new StringBuilder();
+		this.append(builder);
+		return builder.toString();
+	}
+	
+	private void append(StringBuilder builder) {
+		for (int i = 0; i < this.depth; i++) {
+			builder.append("  ");
+		}
+		builder.append(this.name).append(": CPU ").append(this.getCpuTime() / 1000).append("us");
+		if (this.hasGpuTime()) {
+			builder.append(", GPU ").append(this.getGpuTime() / 1000).append("us");
+		}
+		builder.append('\n');
+		for (ProfileNode child : this.children) {
+			child.append(builder);
+		}
+	}
+}
@@ -0,0 +1,408 @@
+/*Copyright (c) 2017 Fantastic Fantasy All rights reserved.
+ *
+ * Permission to use, copy, modify and/or redistribute in source or binary form
+ * is hereby granted, free of charge, subject to the following conditions:
+ *
+ * - Redistribution of source code shall include the above copyright notice,
+ *  this list of conditions and the following disclaimer.
+ *
+ * - Redistribution in binary form shall include the above copyright notice,
+ *  this list of conditions and the following disclaimer in the documentation
+ *  and/or other materials provided with the distribution.
+ *
+ * - Neither the name Object Oriented Lightweight Render Engine nor the names
+ *  of its contributors may be used to endorse or promote products derived
+ *  from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE
+ * OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package net.fantasticfantasy.oolwre.render.profile;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.lwjgl.opengl.ARBOcclusionQuery;
+import org.lwjgl.opengl.ARBTimerQuery;
+import org.lwjgl.opengl.GL11;
+import org.lwjgl.opengl.GL15;
+import org.lwjgl.opengl.GL33;
+import org.lwjgl.opengl.GLCapabilities;
+import net.fantasticfantasy.oolwre.CapabilityProvider;
+import net.fantasticfantasy.oolwre.render.data.DataProvider;
+
+/**A <code>Profiler</code> measures the time spent by the CPU and the GPU in
+ * named scopes, nested into a tree for every frame:
+ * <pre>
+ * profiler.beginFrame();
+ * profiler.begin("Shadows");
+ * ...
+ * profiler.end();
+ * profiler.begin("Lighting");
+ * ...
+ * profiler.end();
+ * profiler.endFrame();
+ * ProfileFrame frame = profiler.getLatestFrame();</pre>
+ * CPU times come from {@link System#nanoTime()}. GPU times come from
+ * <code>GL_TIMESTAMP</code> queries issued at the start and the end of every
+ * scope; timestamps are used rather than <code>GL_TIME_ELAPSED</code>
+ * queries because the latter cannot be nested.<br>
+ * The queries of a frame are recorded in a ring of <code>latency</code> query
+ * sets and are only read once their results are available, so the profiler
+ * never stalls the pipeline: the frames are reported a few frames late. When
+ * the ring is full, the oldest frame is reported without GPU times.<br>
+ * A <code>Profiler</code> must be used by the thread owning its context.
+ */
+public class Profiler {
+	
+	/**The default number of frames kept by {@link #getHistory()}. */
+	public static final int DEFAULT_HISTORY_SIZE = 120;
+	
+	private final DataProvider data;
+	private final boolean core;
+	private final boolean coreQueries;
+	private final Record[] ring;
+	private int next;
+	private Record current;
+	private int[] stack;
+	private int depth;
+	private long frameCount;
+	private long droppedFrames;
+	private ProfileFrame latest;
+	private final ArrayDeque<ProfileFrame> history;
+	private int historySize;
+	
+	/**Constructs a {@link Profiler} measuring CPU times only. It needs no
+	 * OpenGL context.
+	 */
+	public Profiler() {
+		this.data = null;
+		this.core = false;
+		this.coreQueries = false;
+		this.ring = new Record[] {new Record()};
+		this.stack = new int[16];
+		this.history = new ArrayDeque<>();
+		this.historySize = DEFAULT_HISTORY_SIZE;
+	}
+	
+	/**Constructs a {@link Profiler} measuring CPU and GPU times, using the
+	 * current {@link Thread}'s {@link CapabilityProvider} and {@link DataProvider}.
+	 * 
+	 * @param latency - The number of frames whose queries can be in flight
+	 */
+	public Profiler(int latency) {
+		this(CapabilityProvider.get(), DataProvider.get(), latency);
+	}
+	
+	/**Constructs a {@link Profiler} measuring CPU and GPU times.
+	 * 
+	 * @param provider - The {@link CapabilityProvider}
+	 * @param data - The {@link DataProvider} generating the queries
+	 * @param latency - The number of frames whose queries can be in flight,
+	 * usually 3 or 4
+	 * 
+	 * @throws UnsupportedOperationException If timer queries are not supported
+	 */
+	public Profiler(CapabilityProvider provider, DataProvider data, int latency) {
+		if (provider == null) {
+			throw new NullPointerException("Capability provider is null!");
+		} else if (data == null) {
+			throw new NullPointerException("Data provider is null!");
+		} else if (latency < 1) {
+			throw new IllegalArgumentException("'latency' < 1 (" + latency + ")");
+		} else if (!isGpuTimingSupported(provider)) {
+			throw new UnsupportedOperationException("There is no supported extension to use timer queries!");
+		}
+		GLCapabilities caps = provider.getCapabilities();
+		this.data = data;
+		this.core = caps.OpenGL33;
+		this.coreQueries = caps.OpenGL15;
+		this.ring = new Record[latency];
+		for (int i = 0; i < latency; i++) {
+			this.ring[i] = new Record();
+		}
+		this.stack = new int[16];
+		this.history = new ArrayDeque<>();
+		this.historySize = DEFAULT_HISTORY_SIZE;
+	}
+	
+	/**Returns whether or not timestamp queries are supported, that is whether
+	 * or not a {@link Profiler} can measure GPU times.
+	 * 
+	 * @param provider - The {@link CapabilityProvider}
+	 */
+	public static boolean isGpuTimingSupported(CapabilityProvider provider) {
+		GLCapabilities caps = provider.getCapabilities();
+		return caps.OpenGL33 || (caps.GL_ARB_timer_query && (caps.OpenGL15 || caps.GL_ARB_occlusion_query));
+	}
+	
+	/**Returns whether or not this {@link Profiler} measures GPU times.
+	 */
+	public boolean isGpuTiming() {
+		return this.data != null;
+	}
+	
+	/**Sets the number of frames kept by {@link #getHistory()}.
+	 * 
+	 * @param historySize - The number of frames, 0 to keep only the latest one
+	 */
+	public void setHistorySize(int historySize) {
+		if (historySize < 0) {
+			throw new IllegalArgumentException("'historySize' < 0 (" + historySize + ")");
+		}
+		this.historySize = historySize;
+		while (this.history.size() > historySize) {
+			this.history.removeFirst();
+		}
+	}
+	
+	/**Begins a frame and reports the previous frames whose GPU times are
+	 * available.
+	 * 
+	 * @throws IllegalStateException If a frame is already running
+	 */
+	public void beginFrame() {
+		if (this.current != null) {
+			throw new IllegalStateException("Frame " + this.frameCount + " has not been ended!");
+		}
+		for (int i = 0; i < this.ring.length; i++) {
+			Record record = this.ring[(this.next + i) % this.ring.length];
+			if (record.pending) {
+				if (!this.isAvailable(record)) {
+					break;
+				}
+				this.resolve(record, true);
+			}
+		}
+		Record record = this.ring[this.next];
+		if (record.pending) {
+			this.resolve(record, false);
+			this.droppedFrames++;
+		}
+		this.next = (this.next + 1) % this.ring.length;
+		record.index = this.frameCount++;
+		record.count = 0;
+		this.current = record;
+		this.depth = 0;
+		this.push("Frame");
+	}
+	
+	/**Ends the current frame.
+	 * 
+	 * @throws IllegalStateException If no frame is running or if a scope has
+	 * not been ended
+	 */
+	public void endFrame() {
+		if (this.current == null) {
+			throw new IllegalStateException("No frame is running!");
+		} else if (this.depth > 1) {
+			throw new IllegalStateException("Scope " + this.current.names[this.stack[this.depth - 1]] +
+					" has not been ended!");
+		}
+		this.pop();
+		Record record = this.current;
+		this.current = null;
+		if (this.data == null) {
+			this.resolve(record, false);
+		} else {
+			record.pending = true;
+		}
+	}
+	
+	/**Begins a scope, nested in the running one. Scopes begun outside of a frame
+	 * are ignored.
+	 * 
+	 * @param name - The name of the scope, usually the name of a render pass
+	 */
+	public void begin(String name) {
+		if (name == null) {
+			throw new NullPointerException("Name is null!");
+		}
+		if (this.current != null) {
+			this.push(name);
+		}
+	}
+	
+	/**Ends the last scope begun.
+	 * 
+	 * @throws IllegalStateException If no scope is running
+	 */
+	public void end() {
+		if (this.current != null) {
+			if (this.depth <= 1) {
+				throw new IllegalStateException("No scope is running!");
+			}
+			this.pop();
+		}
+	}
+	
+	/**Returns the last frame reported, or <code>null</code>.
+	 */
+	public ProfileFrame getLatestFrame() {
+		return this.latest;
+	}
+	
+	/**Returns the last frames reported, the oldest first.
+	 * 
+	 * @see #setHistorySize(int)
+	 */
+	public List<ProfileFrame> getHistory() {
+		return new ArrayList<>(this.history);
+	}
+	
+	/**Returns the number of frames reported without GPU times because their
+	 * queries were not available in time.
+	 */
+	public long getDroppedFrames() {
+		return this.droppedFrames;
+	}
+	
+	/**Writes the frames of {@link #getHistory()} in the Chrome trace format.
+	 * 
+	 * @param writer - The destination {@link Writer}
+	 * 
+	 * @throws IOException If any I/O error occurs
+	 * 
+	 * @see ChromeTrace
+	 */
+	public void writeChromeTrace(Writer writer) throws IOException {
+		ChromeTrace.write(writer, this.history);
+	}
+	
+	/**Deletes the query objects. The frames still in flight are lost.
+	 */
+	public void destroy() {
+		for (Record record : this.ring) {
+			if (this.data != null) {
+				for (int query : record.queries) {
+					if (query != 0) {
+						this.data.deleteQueries(query);
+					}
+				}
+			}
+			record.queries = new int[0];
+			record.pending = false;
+		}
+		this.current = null;
+	}
+	
+	private void push(String name) {
+		Record record = this.current;
+		int scope = record.add(name, this.depth == 0 ? -1 : this.stack[this.depth - 1]);
+		if (this.depth == this.stack.length) {
+			this.stack = Arrays.copyOf(this.stack, this.depth * 2);
+		}
+		this.stack[this.depth++] = scope;
+		if (this.data != null) {
+			this.timestamp(record.query(scope * 2, this.data));
+		}
+		record.cpuStart[scope] = System.nanoTime();
+	}
+	
+	private void pop() {
+		Record record = this.current;
+		int scope = this.stack[--this.depth];
+		record.cpuEnd[scope] = System.nanoTime();
+		if (this.data != null) {
+			this.timestamp(record.query(scope * 2 + 1, this.data));
+		}
+	}
+	
+	private void timestamp(int query) {
+		if (this.core) {
+			GL33.glQueryCounter(query, GL33.GL_TIMESTAMP);
+		} else {
+			ARBTimerQuery.glQueryCounter(query, ARBTimerQuery.GL_TIMESTAMP);
+		}
+	}
+	
+	private boolean isAvailable(Record record) {
+		int query = record.queries[1];
+		if (this.coreQueries) {
+			return GL15.glGetQueryObjecti(query, GL15.GL_QUERY_RESULT_AVAILABLE) != GL11.GL_FALSE;
+		} else {
+			return ARBOcclusionQuery.glGetQueryObjectiARB(query, ARBOcclusionQuery.GL_QUERY_RESULT_AVAILABLE_ARB)
+					!= GL11.GL_FALSE;
+		}
+	}
+	
+	private long getTimestamp(int query) {
+		if (this.core) {
+			return GL33.glGetQueryObjecti64(query, GL15.GL_QUERY_RESULT);
+		} else {
+			return ARBTimerQuery.glGetQueryObjecti64(query, GL15.GL_QUERY_RESULT);
+		}
+	}
+	
+	private void resolve(Record record, boolean gpu) {
+		ProfileNode[] nodes = new ProfileNode[record.count];
+		for (int i = 0; i < record.count; i++) {
+			int parent = record.parents[i];
+			ProfileNode node = new ProfileNode(record.names[i], parent < 0 ? null : nodes[parent]);
+			node.cpuStart = record.cpuStart[i];
+			node.cpuEnd = record.cpuEnd[i];
+			if (gpu) {
+				node.gpuStart = this.getTimestamp(record.queries[i * 2]);
+				node.gpuEnd = this.getTimestamp(record.queries[i * 2 + 1]);
+			}
+			nodes[i] = node;
+		}
+		record.pending = false;
+		this.latest = new ProfileFrame(record.index, nodes[0]);
+		if (this.historySize > 0) {
+			if (this.history.size() == this.historySize) {
+				this.history.removeFirst();
+			}
+			this.history.addLast(this.latest);
+		}
+	}
+	
+	/**The scopes and queries of a frame, stored in parallel arrays and reused
+	 * from a frame to another.
+	 */
+	private static final class Record {
+		
+		private String[] names = new String[16];
+		private int[] parents = new int[16];
+		private long[] cpuStart = new long[16];
+		private long[] cpuEnd = new long[16];
+		private int[] queries = new int[0];
+		private int count;
+		private long index;
+		private boolean pending;
+		
+		private int add(String name, int parent) {
+			if (this.count == this.names.length) {
+				int capacity = this.count * 2;
+				this.names = Arrays.copyOf(this.names, capacity);
+				this.parents = Arrays.copyOf(this.parents, capacity);
+				this.cpuStart = Arrays.copyOf(this.cpuStart, capacity);
+				this.cpuEnd = Arrays.copyOf(this.cpuEnd, capacity);
+			}
+			this.names[this.count] = name;
+			this.parents[this.count] = parent;
+			return this.count++;
+		}
+		
+		private int query(int index, DataProvider data) {
+			if (index >= this.queries.length) {
+				this.queries = Arrays.copyOf(this.queries, Math.max(index + 1, this.queries.length * 2));
+			}
+			if (this.queries[index] == 0) {
+				this.queries[index] = data.genQueries();
+			}
+			return this.queries[index];
+		}
+	}
+}
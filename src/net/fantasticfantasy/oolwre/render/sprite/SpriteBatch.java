@@ -0,0 +1,591 @@
+/*Copyright (c) 2017 Fantastic Fantasy All rights reserved.
+ *
+ * Permission to use, copy, modify and/or redistribute in source or binary form
+ * is hereby granted, free of charge, subject to the following conditions:
+ *
+ * - Redistribution of source code shall include the above copyright notice,
+ *  this list of conditions and the following disclaimer.
+ *
+ * - Redistribution in binary form shall include the above copyright notice,
+ *  this list of conditions and the following disclaimer in the documentation
+ *  and/or other materials provided with the distribution.
+ *
+ * - Neither the name Object Oriented Lightweight Render Engine nor the names
+ *  of its contributors may be used to endorse or promote products derived
+ *  from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE
+ * OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package net.fantasticfantasy.oolwre.render.sprite;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.ShortBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.lwjgl.opengl.ARBDrawElementsBaseVertex;
+import org.lwjgl.opengl.GL11;
+import org.lwjgl.opengl.GLCapabilities;
+import org.lwjgl.system.MemoryUtil;
+import net.fantasticfantasy.oolwre.CapabilityProvider;
+import net.fantasticfantasy.oolwre.render.data.BufferObject;
+import net.fantasticfantasy.oolwre.render.data.BufferObject.BufferAccessFrequency;
+import net.fantasticfantasy.oolwre.render.data.BufferObject.BufferAccessNature;
+import net.fantasticfantasy.oolwre.render.data.Texture;
+import net.fantasticfantasy.oolwre.render.data.Type;
+import net.fantasticfantasy.oolwre.render.data.VertexArray;
+import net.fantasticfantasy.oolwre.render.data.VertexLayout;
+import net.fantasticfantasy.oolwre.render.data.VertexLayout.Attribute;
+import net.fantasticfantasy.oolwre.util.primitive.IntIntHashMap;
+
+/**A <code>SpriteBatch</code> draws textured quads with as few draw calls as
+ * possible. Between {@link #begin(Texture.Target, SortMode) begin(...)} and
+ * {@link #end()}, sprites are written straight into a mapped range of a
+ * streaming vertex buffer, indexed by a static quad index buffer, and drawn
+ * when the {@link Texture} changes, when the batch is full, or on
+ * {@link #flush()}. Sprites of different images share a batch when they are
+ * regions of the same atlas or layers of the same texture array.<br>
+ * <br>
+ * The vertex buffer is used as a ring: each batch maps the range following
+ * the previous one without synchronization, and the buffer is orphaned once
+ * a full batch no longer fits before its end. Without <code>ARB_draw_elements_base_vertex</code>, it
+ * is orphaned for every batch instead.<br>
+ * <br>
+ * The vertices follow {@link #LAYOUT}: the position at attribute 0, the
+ * texture coordinates and array layer at attribute 1 and the normalized
+ * color at attribute 2. The program, its projection and the blending state
+ * are left to the caller, and the texture is bound to the active unit. This
+ * requires OpenGL 3.0 or <code>ARB_map_buffer_range</code> and vertex array
+ * objects.
+ */
+public class SpriteBatch {
+	
+	/**The {@link VertexLayout} of the sprite vertices*/
+	public static final VertexLayout LAYOUT = new VertexLayout(
+			new Attribute(0, Type.FLOAT, 2, false),
+			new Attribute(1, Type.FLOAT, 3, false),
+			new Attribute(2, Type.UNSIGNED_BYTE, 4, true)).intern();
+	
+	/**The size of a vertex, in bytes*/
+	public static final int VERTEX_SIZE = 24;
+	
+	/**The color white, packed*/
+	public static final int WHITE = 0xFFFFFFFF;
+	
+	private static final int QUAD_SIZE = VERTEX_SIZE * 4;
+	private static final int RING_BATCHES = 4;
+	private static final int PARAMS = 12;
+	private static final boolean LITTLE_ENDIAN = ByteOrder.nativeOrder() == ByteOrder.LITTLE_ENDIAN;
+	
+	private final int maxSprites;
+	private final boolean baseVertex;
+	private final long windowSize;
+	private final long ringSize;
+	private final Type indexType;
+	private final BufferObject vertices;
+	private final BufferObject indices;
+	private final VertexArray vertexArray;
+	private Texture.Target target;
+	private SortMode sortMode;
+	private boolean drawing;
+	private Texture texture;
+	private Texture boundTexture;
+	private long cursor;
+	private long address;
+	private int count;
+	private float[] queue;
+	private int[] queueColors;
+	private int[] queueSlots;
+	private int queued;
+	private final List<Texture> slotTextures;
+	private final IntIntHashMap slots;
+	private long spriteCount;
+	private long flushCount;
+	
+	/**Constructs a {@link SpriteBatch} using the current {@link Thread}'s
+	 * {@link CapabilityProvider}.
+	 * 
+	 * @param maxSprites - The number of sprites of a batch
+	 */
+	public SpriteBatch(int maxSprites) {
+		this(CapabilityProvider.get(), maxSprites);
+	}
+	
+	/**Constructs a {@link SpriteBatch}.
+	 * 
+	 * @param provider - The {@link CapabilityProvider}, whose context must be
+	 * current
+	 * @param maxSprites - The number of sprites of a batch
+	 */
+	public SpriteBatch(CapabilityProvider provider, int maxSprites) {
+		if (provider == null) {
+			throw new NullPointerException("Capability provider is null!");
+		} else if (maxSprites <= 0 || maxSprites > (Integer.MAX_VALUE / 6)) {
+			throw new IllegalArgumentException("'maxSprites' not in [1, " + (Integer.MAX_VALUE / 6) + "] (" +
+					maxSprites + ")");
+		}
+		GLCapabilities caps = provider.getCapabilities();
+		if (!(caps.OpenGL30 || caps.GL_ARB_map_buffer_range)) {
+			throw new UnsupportedOperationException("There is no supported extension to map buffer ranges!");
+		}
+		this.maxSprites = maxSprites;
+		this.baseVertex = caps.OpenGL32 || caps.GL_ARB_draw_elements_base_vertex;
+		this.windowSize = (long) maxSprites * QUAD_SIZE;
+		this.ringSize = this.baseVertex ? this.windowSize * RING_BATCHES : this.windowSize;
+		this.indexType = maxSprites * 4 <= 0x10000 ? Type.UNSIGNED_SHORT : Type.UNSIGNED_INT;
+		this.vertices = BufferObject.create(provider);
+		this.indices = BufferObject.create(provider);
+		this.vertexArray = VertexArray.create(provider);
+		this.vertexArray.setup(LAYOUT, new BufferObject[] {this.vertices}, this.indices);
+		this.uploadIndices();
+		this.vertices.bind(BufferObject.Target.ARRAY);
+		this.vertices.bufferData(BufferObject.Target.ARRAY, this.ringSize, BufferAccessFrequency.STREAM,
+				BufferAccessNature.DRAW);
+		this.vertices.unbind(BufferObject.Target.ARRAY);
+		this.vertexArray.unbind();
+		this.cursor = this.ringSize;
+		this.queue = new float[PARAMS * 64];
+		this.queueColors = new int[64];
+		this.queueSlots = new int[64];
+		this.slotTextures = new ArrayList<>();
+		this.slots = new IntIntHashMap();
+	}
+	
+	/**Begins drawing 2D textures in submission order.
+	 */
+	public void begin() {
+		this.begin(Texture.Target.TEXTURE_2D, SortMode.NONE);
+	}
+	
+	/**Begins drawing.
+	 * 
+	 * @param target - The {@link Texture.Target} the textures are bound to,
+	 * {@link Texture.Target#TEXTURE_2D_ARRAY} for texture arrays
+	 * @param sortMode - The {@link SortMode}
+	 */
+	public void begin(Texture.Target target, SortMode sortMode) {
+		if (target == null) {
+			throw new NullPointerException("Target is null!");
+		} else if (sortMode == null) {
+			throw new NullPointerException("Sort mode is null!");
+		} else if (this.drawing) {
+			throw new IllegalStateException("SpriteBatch is already drawing!");
+		}
+		this.target = target;
+		this.sortMode = sortMode;
+		this.boundTexture = null;
+		this.drawing = true;
+	}
+	
+	/**Draws <code>region</code> in the rectangle at <code>(x, y)</code>.
+	 * 
+	 * @param region - The {@link TextureRegion}
+	 * @param x - The left of the sprite
+	 * @param y - The top of the sprite
+	 * @param width - The width of the sprite
+	 * @param height - The height of the sprite
+	 * @param color - The packed color, see {@link #packColor(float, float, float, float)}
+	 */
+	public void draw(TextureRegion region, float x, float y, float width, float height, int color) {
+		this.draw(region.getTexture(), x, y, width, height, 0.0F, 0.0F, 0.0F, region.getU0(), region.getV0(),
+				region.getU1(), region.getV1(), region.getLayer(), color);
+	}
+	
+	/**Draws <code>region</code> in the rectangle at <code>(x, y)</code>,
+	 * rotated around <code>(x + originX, y + originY)</code>.
+	 * 
+	 * @param region - The {@link TextureRegion}
+	 * @param x - The left of the sprite
+	 * @param y - The top of the sprite
+	 * @param width - The width of the sprite
+	 * @param height - The height of the sprite
+	 * @param originX - The rotation origin, relative to <code>x</code>
+	 * @param originY - The rotation origin, relative to <code>y</code>
+	 * @param rotation - The rotation, in radians
+	 * @param color - The packed color
+	 */
+	public void draw(TextureRegion region, float x, float y, float width, float height, float originX,
+			float originY, float rotation, int color) {
+		this.draw(region.getTexture(), x, y, width, height, originX, originY, rotation, region.getU0(),
+				region.getV0(), region.getU1(), region.getV1(), region.getLayer(), color);
+	}
+	
+	/**Draws a sprite.
+	 * 
+	 * @param texture - The {@link Texture}
+	 * @param x - The left of the sprite
+	 * @param y - The top of the sprite
+	 * @param width - The width of the sprite
+	 * @param height - The height of the sprite
+	 * @param originX - The rotation origin, relative to <code>x</code>
+	 * @param originY - The rotation origin, relative to <code>y</code>
+	 * @param rotation - The rotation, in radians
+	 * @param u0 - The left texture coordinate
+	 * @param v0 - The top texture coordinate
+	 * @param u1 - The right texture coordinate
+	 * @param v1 - The bottom texture coordinate
+	 * @param layer - The array layer, or 0
+	 * @param color - The packed color
+	 */
+	public void draw(Texture texture, float x, float y, float width, float height, float originX, float originY,
+			float rotation, float u0, float v0, float u1, float v1, int layer, int color) {
+		if (!this.drawing) {
+			throw new IllegalStateException("SpriteBatch is not drawing!");
+		} else if (texture == null) {
+			throw new NullPointerException("Texture is null!");
+		}
+		if (this.sortMode == SortMode.TEXTURE) {
+			this.enqueue(texture, x, y, width, height, originX, originY, rotation, u0, v0, u1, v1, layer, color);
+		} else {
+			this.put(texture, x, y, width, height, originX, originY, rotation, u0, v0, u1, v1, layer, color);
+		}
+	}
+	
+	/**Draws the pending sprites. In {@link SortMode#TEXTURE}, the sprites
+	 * queued so far are sorted first.
+	 */
+	public void flush() {
+		if (this.queued > 0) {
+			this.drainQueue();
+		}
+		this.submit();
+	}
+	
+	/**Draws the pending sprites and ends drawing.
+	 */
+	public void end() {
+		if (!this.drawing) {
+			throw new IllegalStateException("SpriteBatch is not drawing!");
+		}
+		this.flush();
+		this.texture = null;
+		this.drawing = false;
+	}
+	
+	public boolean isDrawing() {
+		return this.drawing;
+	}
+	
+	public int getMaxSprites() {
+		return this.maxSprites;
+	}
+	
+	/**Returns the number of sprites drawn since the last
+	 * {@link #resetStats()}.
+	 */
+	public long getSpriteCount() {
+		return this.spriteCount;
+	}
+	
+	/**Returns the number of vertices generated since the last
+	 * {@link #resetStats()}.
+	 */
+	public long getVertexCount() {
+		return this.spriteCount * 4;
+	}
+	
+	/**Returns the number of batches drawn, one draw call each, since the last
+	 * {@link #resetStats()}.
+	 */
+	public long getFlushCount() {
+		return this.flushCount;
+	}
+	
+	public void resetStats() {
+		this.spriteCount = 0;
+		this.flushCount = 0;
+	}
+	
+	/**Destroys the buffers and the vertex array of this {@link SpriteBatch}.
+	 */
+	public void destroy() {
+		if (this.address != MemoryUtil.NULL) {
+			this.vertices.bind(BufferObject.Target.ARRAY);
+			this.vertices.unmapBuffer(BufferObject.Target.ARRAY);
+			this.address = MemoryUtil.NULL;
+		}
+		this.vertexArray.destroy();
+		this.vertices.destroy();
+		this.indices.destroy();
+	}
+	
+	/**Packs a color in the byte order of the vertices.
+	 * 
+	 * @param r - The red component, in [0, 1]
+	 * @param g - The green component, in [0, 1]
+	 * @param b - The blue component, in [0, 1]
+	 * @param a - The alpha component, in [0, 1]
+	 */
+	public static int packColor(float r, float g, float b, float a) {
+		return packColor((int) (r * 255.0F + 0.5F), (int) (g * 255.0F + 0.5F), (int) (b * 255.0F + 0.5F),
+				(int) (a * 255.0F + 0.5F));
+	}
+	
+	/**Packs a color in the byte order of the vertices.
+	 * 
+	 * @param r - The red component, in [0, 255]
+	 * @param g - The green component, in [0, 255]
+	 * @param b - The blue component, in [0, 255]
+	 * @param a - The alpha component, in [0, 255]
+	 */
+	public static int packColor(int r, int g, int b, int a) {
+		int rgba = (r & 0xFF) << 24 | (g & 0xFF) << 16 | (b & 0xFF) << 8 | (a & 0xFF);
+		return LITTLE_ENDIAN ? Integer.reverseBytes(rgba) : rgba;
+	}
+	
+	/**Writes a sprite into the mapped range, drawing the batch first if the
+	 * texture changes or the batch is full.
+	 */
+	private void put(Texture texture, float x, float y, float width, float height, float originX, float originY,
+			float rotation, float u0, float v0, float u1, float v1, int layer, int color) {
+		if (texture != this.texture) {
+			this.submit();
+			this.texture = texture;
+		} else if (this.count == this.maxSprites) {
+			this.submit();
+		}
+		if (this.address == MemoryUtil.NULL) {
+			this.map();
+		}
+		putQuad(this.address + (long) this.count * QUAD_SIZE, x, y, width, height, originX, originY, rotation, u0,
+				v0, u1, v1, layer, color);
+		this.count++;
+		this.spriteCount++;
+	}
+	
+	/**Writes the 4 vertices of a sprite at <code>dest</code>, in the layout
+	 * of the vertices of a {@link SpriteBatch}, that is {@link #VERTEX_SIZE}
+	 * bytes per vertex. This is the vertex generation done by every draw,
+	 * without the batching.
+	 * 
+	 * @param dest - The address of the first vertex
+	 * @param x - The left of the sprite
+	 * @param y - The top of the sprite
+	 * @param width - The width of the sprite
+	 * @param height - The height of the sprite
+	 * @param originX - The rotation origin, relative to <code>x</code>
+	 * @param originY - The rotation origin, relative to <code>y</code>
+	 * @param rotation - The rotation, in radians
+	 * @param u0 - The left texture coordinate
+	 * @param v0 - The top texture coordinate
+	 * @param u1 - The right texture coordinate
+	 * @param v1 - The bottom texture coordinate
+	 * @param layer - The array layer, or 0
+	 * @param color - The packed color
+	 */
+	public static void putQuad(long dest, float x, float y, float width, float height, float originX,
+			float originY, float rotation, float u0, float v0, float u1, float v1, int layer, int color) {
+		float lx0 = -originX;
+		float ly0 = -originY;
+		float lx1 = width - originX;
+		float ly1 = height - originY;
+		float cx = x + originX;
+		float cy = y + originY;
+		float x0, y0, x1, y1, x2, y2, x3, y3;
+		if (rotation == 0.0F) {
+			x0 = cx + lx0;
+			y0 = cy + ly0;
+			x1 = cx + lx1;
+			y1 = y0;
+			x2 = x1;
+			y2 = cy + ly1;
+			x3 = x0;
+			y3 = y2;
+		} else {
+			float cos = (float) Math.cos(rotation);
+			float sin = (float) Math.sin(rotation);
+			x0 = cx + lx0 * cos - ly0 * sin;
+			y0 = cy + lx0 * sin + ly0 * cos;
+			x1 = cx + lx1 * cos - ly0 * sin;
+			y1 = cy + lx1 * sin + ly0 * cos;
+			x2 = cx + lx1 * cos - ly1 * sin;
+			y2 = cy + lx1 * sin + ly1 * cos;
+			x3 = cx + lx0 * cos - ly1 * sin;
+			y3 = cy + lx0 * sin + ly1 * cos;
+		}
+		float l = layer;
+		putVertex(dest, x0, y0, u0, v0, l, color);
+		putVertex(dest + VERTEX_SIZE, x1, y1, u1, v0, l, color);
+		putVertex(dest + VERTEX_SIZE * 2, x2, y2, u1, v1, l, color);
+		putVertex(dest + VERTEX_SIZE * 3, x3, y3, u0, v1, l, color);
+	}
+	
+	private static void putVertex(long dest, float x, float y, float u, float v, float layer, int color) {
+		MemoryUtil.memPutFloat(dest, x);
+		MemoryUtil.memPutFloat(dest + 4, y);
+		MemoryUtil.memPutFloat(dest + 8, u);
+		MemoryUtil.memPutFloat(dest + 12, v);
+		MemoryUtil.memPutFloat(dest + 16, layer);
+		MemoryUtil.memPutInt(dest + 20, color);
+	}
+	
+	/**Maps the range of the next batch, orphaning the buffer when the ring
+	 * wraps.
+	 */
+	private void map() {
+		int access = BufferObject.MAP_WRITE_BIT | BufferObject.MAP_FLUSH_EXPLICIT_BIT;
+		if (this.cursor + this.windowSize > this.ringSize) {
+			this.cursor = 0;
+			access |= BufferObject.MAP_INVALIDATE_BUFFER_BIT;
+		} else {
+			access |= BufferObject.MAP_INVALIDATE_RANGE_BIT | BufferObject.MAP_UNSYNCHRONIZED_BIT;
+		}
+		this.vertices.bind(BufferObject.Target.ARRAY);
+		ByteBuffer range = this.vertices.mapBufferRange(BufferObject.Target.ARRAY, this.cursor, this.windowSize,
+				access, null);
+		if (range == null) {
+			throw new IllegalStateException("Could not map the vertex buffer!");
+		}
+		this.address = MemoryUtil.memAddress(range);
+	}
+	
+	/**Unmaps the written range and draws it.
+	 */
+	private void submit() {
+		if (this.count == 0) {
+			return;
+		}
+		this.vertices.bind(BufferObject.Target.ARRAY);
+		this.vertices.flushMappedBufferRange(BufferObject.Target.ARRAY, 0, (long) this.count * QUAD_SIZE);
+		this.vertices.unmapBuffer(BufferObject.Target.ARRAY);
+		this.address = MemoryUtil.NULL;
+		if (this.texture != this.boundTexture) {
+			this.texture.bind(this.target);
+			this.boundTexture = this.texture;
+		}
+		this.vertexArray.bind();
+		if (this.baseVertex) {
+			ARBDrawElementsBaseVertex.glDrawElementsBaseVertex(GL11.GL_TRIANGLES, this.count * 6,
+					this.indexType.glValue(), 0L, (int) (this.cursor / VERTEX_SIZE));
+			this.cursor += (long) this.count * QUAD_SIZE;
+		} else {
+			GL11.glDrawElements(GL11.GL_TRIANGLES, this.count * 6, this.indexType.glValue(), 0L);
+			this.cursor = this.ringSize;
+		}
+		this.vertexArray.unbind();
+		this.count = 0;
+		this.flushCount++;
+	}
+	
+	private void enqueue(Texture texture, float x, float y, float width, float height, float originX,
+			float originY, float rotation, float u0, float v0, float u1, float v1, int layer, int color) {
+		int slot = this.slots.get(texture.getName()) - 1;
+		if (slot < 0) {
+			slot = this.slotTextures.size();
+			this.slotTextures.add(texture);
+			this.slots.put(texture.getName(), slot + 1);
+		}
+		if (this.queued == this.queueColors.length) {
+			int capacity = this.queued << 1;
+			this.queue = Arrays.copyOf(this.queue, capacity * PARAMS);
+			this.queueColors = Arrays.copyOf(this.queueColors, capacity);
+			this.queueSlots = Arrays.copyOf(this.queueSlots, capacity);
+		}
+		float[] q = this.queue;
+		int i = this.queued * PARAMS;
+		q[i] = x;
+		q[i + 1] = y;
+		q[i + 2] = width;
+		q[i + 3] = height;
+		q[i + 4] = originX;
+		q[i + 5] = originY;
+		q[i + 6] = rotation;
+		q[i + 7] = u0;
+		q[i + 8] = v0;
+		q[i + 9] = u1;
+		q[i + 10] = v1;
+		q[i + 11] = layer;
+		this.queueColors[this.queued] = color;
+		this.queueSlots[this.queued] = slot;
+		this.queued++;
+	}
+	
+	/**Writes the queued sprites grouped by texture, with a counting sort
+	 * which keeps the submission order of each texture.
+	 */
+	private void drainQueue() {
+		int textures = this.slotTextures.size();
+		int[] starts = new int[textures + 1];
+		for (int i = 0; i < this.queued; i++) {
+			starts[this.queueSlots[i] + 1]++;
+		}
+		for (int s = 0; s < textures; s++) {
+			starts[s + 1] += starts[s];
+		}
+		int[] order = new int[this.queued];
+		for (int i = 0; i < this.queued; i++) {
+			order[starts[this.queueSlots[i]]++] = i;
+		}
+		float[] q = this.queue;
+		for (int n = 0; n < this.queued; n++) {
+			int s = order[n];
+			int i = s * PARAMS;
+			this.put(this.slotTextures.get(this.queueSlots[s]), q[i], q[i + 1], q[i + 2], q[i + 3], q[i + 4],
+					q[i + 5], q[i + 6], q[i + 7], q[i + 8], q[i + 9], q[i + 10], (int) q[i + 11],
+					this.queueColors[s]);
+		}
+		this.queued = 0;
+		this.slotTextures.clear();
+		this.slots.clear();
+	}
+	
+	/**Fills the bound element array buffer with the indices of a full
+	 * batch.
+	 */
+	private void uploadIndices() {
+		int quads = this.maxSprites;
+		if (this.indexType == Type.UNSIGNED_SHORT) {
+			ShortBuffer data = MemoryUtil.memAllocShort(quads * 6);
+			try {
+				for (int v = 0; v < quads * 4; v += 4) {
+					data.put((short) v).put((short) (v + 1)).put((short) (v + 2));
+					data.put((short) (v + 2)).put((short) (v + 3)).put((short) v);
+				}
+				data.flip();
+				this.indices.bufferData(BufferObject.Target.ELEMENT_ARRAY, data, BufferAccessFrequency.STATIC,
+						BufferAccessNature.DRAW);
+			} finally {
+				MemoryUtil.memFree(data);
+			}
+		} else {
+			IntBuffer data = MemoryUtil.memAllocInt(quads * 6);
+			try {
+				for (int v = 0; v < quads * 4; v += 4) {
+					data.put(v).put(v + 1).put(v + 2);
+					data.put(v + 2).put(v + 3).put(v);
+				}
+				data.flip();
+				this.indices.bufferData(BufferObject.Target.ELEMENT_ARRAY, data, BufferAccessFrequency.STATIC,
+						BufferAccessNature.DRAW);
+			} finally {
+				MemoryUtil.memFree(data);
+			}
+		}
+	}
+	
+	/**The order in which a {@link SpriteBatch} draws its sprites.
+	 */
+	public static enum SortMode {
+		
+		/**Sprites are drawn in submission order, a batch being drawn whenever
+		 * the texture changes*/
+		NONE,
+		
+		/**Sprites are queued until {@link SpriteBatch#flush()} or
+		 * {@link SpriteBatch#end()}, then drawn grouped by texture, keeping the
+		 * submission order within each texture. Overlapping sprites of
+		 * different textures may be drawn out of order*/
+		TEXTURE;
+	}
+}
@@ -0,0 +1,134 @@
+/*Copyright (c) 2017 Fantastic Fantasy All rights reserved.
+ *
+ * Permission to use, copy, modify and/or redistribute in source or binary form
+ * is hereby granted, free of charge, subject to the following conditions:
+ *
+ * - Redistribution of source code shall include the above copyright notice,
+ *  this list of conditions and the following disclaimer.
+ *
+ * - Redistribution in binary form shall include the above copyright notice,
+ *  this list of conditions and the following disclaimer in the documentation
+ *  and/or other materials provided with the distribution.
+ *
+ * - Neither the name Object Oriented Lightweight Render Engine nor the names
+ *  of its contributors may be used to endorse or promote products derived
+ *  from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE
+ * OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package net.fantasticfantasy.oolwre.render.sprite;
+
+import net.fantasticfantasy.oolwre.render.data.Texture;
+import net.fantasticfantasy.oolwre.render.texture.TextureArrayPool;
+
+/**A <code>TextureRegion</code> is the rectangle of a {@link Texture}, such as
+ * an atlas entry, drawn by a {@link SpriteBatch}. For texture arrays, it also
+ * holds the layer sampled, so that sprites of different images sharing an
+ * array are drawn in the same batch.
+ */
+public final class TextureRegion {
+	
+	private final Texture texture;
+	private final float u0;
+	private final float v0;
+	private final float u1;
+	private final float v1;
+	private final int layer;
+	
+	/**Constructs a {@link TextureRegion} covering the whole of
+	 * <code>texture</code>.
+	 * 
+	 * @param texture - The {@link Texture}
+	 */
+	public TextureRegion(Texture texture) {
+		this(texture, 0.0F, 0.0F, 1.0F, 1.0F, 0);
+	}
+	
+	/**Constructs a {@link TextureRegion}.
+	 * 
+	 * @param texture - The {@link Texture}
+	 * @param u0 - The left texture coordinate
+	 * @param v0 - The top texture coordinate
+	 * @param u1 - The right texture coordinate
+	 * @param v1 - The bottom texture coordinate
+	 * @param layer - The array layer, or 0
+	 */
+	public TextureRegion(Texture texture, float u0, float v0, float u1, float v1, int layer) {
+		if (texture == null) {
+			throw new NullPointerException("Texture is null!");
+		} else if (layer < 0) {
+			throw new IllegalArgumentException("'layer' < 0 (" + layer + ")");
+		}
+		this.texture = texture;
+		this.u0 = u0;
+		this.v0 = v0;
+		this.u1 = u1;
+		this.v1 = v1;
+		this.layer = layer;
+	}
+	
+	/**Returns the {@link TextureRegion} of the <code>width * height</code>
+	 * pixels at <code>(x, y)</code> of an atlas.
+	 * 
+	 * @param atlas - The atlas {@link Texture}
+	 * @param atlasWidth - The width of the atlas
+	 * @param atlasHeight - The height of the atlas
+	 * @param x - The left of the region, in pixels
+	 * @param y - The top of the region, in pixels
+	 * @param width - The width of the region, in pixels
+	 * @param height - The height of the region, in pixels
+	 */
+	public static TextureRegion ofPixels(Texture atlas, int atlasWidth, int atlasHeight, int x, int y, int width,
+			int height) {
+		if (atlasWidth <= 0) {
+			throw new IllegalArgumentException("'atlasWidth' <= 0 (" + atlasWidth + ")");
+		} else if (atlasHeight <= 0) {
+			throw new IllegalArgumentException("'atlasHeight' <= 0 (" + atlasHeight + ")");
+		}
+		float sx = 1.0F / atlasWidth;
+		float sy = 1.0F / atlasHeight;
+		return new TextureRegion(atlas, x * sx, y * sy, (x + width) * sx, (y + height) * sy, 0);
+	}
+	
+	/**Returns the {@link TextureRegion} covering a layer allocated by a
+	 * {@link TextureArrayPool}.
+	 * 
+	 * @param layer - The {@link TextureArrayPool.Layer}
+	 */
+	public static TextureRegion ofLayer(TextureArrayPool.Layer layer) {
+		return new TextureRegion(layer.getTexture(), 0.0F, 0.0F, 1.0F, 1.0F, layer.getIndex());
+	}
+	
+	public Texture getTexture() {
+		return this.texture;
+	}
+	
+	public float getU0() {
+		return this.u0;
+	}
+	
+	public float getV0() {
+		return this.v0;
+	}
+	
+	public float getU1() {
+		return this.u1;
+	}
+	
+	public float getV1() {
+		return this.v1;
+	}
+	
+	public int getLayer() {
+		return this.layer;
+	}
+}
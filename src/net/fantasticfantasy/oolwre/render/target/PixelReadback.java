@@ -0,0 +1,284 @@
+/*Copyright (c) 2017 Fantastic Fantasy All rights reserved.
+ *
+ * Permission to use, copy, modify and/or redistribute in source or binary form
+ * is hereby granted, free of charge, subject to the following conditions:
+ *
+ * - Redistribution of source code shall include the above copyright notice,
+ *  this list of conditions and the following disclaimer.
+ *
+ * - Redistribution in binary form shall include the above copyright notice,
+ *  this list of conditions and the following disclaimer in the documentation
+ *  and/or other materials provided with the distribution.
+ *
+ * - Neither the name Object Oriented Lightweight Render Engine nor the names
+ *  of its contributors may be used to endorse or promote products derived
+ *  from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE
+ * OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package net.fantasticfantasy.oolwre.render.target;
+
+import java.nio.ByteBuffer;
+import org.lwjgl.opengl.ARBSync;
+import org.lwjgl.opengl.GL11;
+import org.lwjgl.opengl.GLCapabilities;
+import net.fantasticfantasy.oolwre.CapabilityProvider;
+import net.fantasticfantasy.oolwre.image.Image;
+import net.fantasticfantasy.oolwre.render.data.BufferObject;
+import net.fantasticfantasy.oolwre.render.data.BufferObject.BufferAccessFrequency;
+import net.fantasticfantasy.oolwre.render.data.BufferObject.BufferAccessNature;
+import net.fantasticfantasy.oolwre.render.data.BufferObject.BufferMappingAccess;
+import net.fantasticfantasy.oolwre.render.data.BufferObject.Target;
+import net.fantasticfantasy.oolwre.render.data.Framebuffer;
+import net.fantasticfantasy.oolwre.render.data.Type;
+
+/**A <code>PixelReadback</code> reads framebuffer pixels back asynchronously,
+ * through a ring of pixel buffer objects. {@link #read(Framebuffer, int, int,
+ * int, int, int, Image.Format, Type, Listener) read(...)} only queues the
+ * transfer into a {@link Target#PIXEL_PACK} buffer; the pixels are handed to
+ * a {@link Listener} by a later {@link #poll()} once the transfer is done, so
+ * the CPU never waits for the GPU unless the ring is full.<br>
+ * <br>
+ * Completion is detected with fences when OpenGL 3.2 or
+ * <code>ARB_sync</code> is supported. Otherwise a transfer is considered done
+ * after two calls to {@link #poll()}, typically two frames.
+ */
+public class PixelReadback {
+	
+	private final BufferObject[] buffers;
+	private final long[] capacities;
+	private final long[] fences;
+	private final long[] sizes;
+	private final int[] widths;
+	private final int[] heights;
+	private final long[] issuedPolls;
+	private final Listener[] listeners;
+	private final boolean sync;
+	private int head;
+	private int pending;
+	private long polls;
+	
+	/**Constructs a {@link PixelReadback} using the current {@link Thread}'s
+	 * {@link CapabilityProvider}.
+	 * 
+	 * @param depth - The number of transfers in flight
+	 */
+	public PixelReadback(int depth) {
+		this(CapabilityProvider.get(), depth);
+	}
+	
+	/**Constructs a {@link PixelReadback}.
+	 * 
+	 * @param provider - The {@link CapabilityProvider}
+	 * @param depth - The number of transfers in flight
+	 */
+	public PixelReadback(CapabilityProvider provider, int depth) {
+		if (provider == null) {
+			throw new NullPointerException("Capability provider is null!");
+		} else if (depth <= 0) {
+			throw new IllegalArgumentException("'depth' <= 0 (" + depth + ")");
+		}
+		GLCapabilities caps = provider.getCapabilities();
+		if (!caps.OpenGL21 && !caps.GL_ARB_pixel_buffer_object) {
+			throw new UnsupportedOperationException("There is no supported extension to read pixels asynchronously!");
+		}
+		this.sync = caps.OpenGL32 || caps.GL_ARB_sync;
+		this.buffers = new BufferObject[depth];
+		this.capacities = new long[depth];
+		this.fences = new long[depth];
+		this.sizes = new long[depth];
+		this.widths = new int[depth];
+		this.heights = new int[depth];
+		this.issuedPolls = new long[depth];
+		this.listeners = new Listener[depth];
+		for (int i = 0; i < depth; i++) {
+			this.buffers[i] = BufferObject.create(provider);
+		}
+	}
+	
+	/**Queues the transfer of a rectangle of pixels of a color attachment of
+	 * <code>framebuffer</code>. If every buffer of the ring is in flight, the
+	 * oldest transfer is completed first, waiting for it if needed.<br>
+	 * The pixels are packed without row padding, and the previous
+	 * <code>GL_PACK_ALIGNMENT</code> is restored afterwards.
+	 * 
+	 * @param framebuffer - The {@link Framebuffer}, <code>null</code> for the
+	 * default framebuffer
+	 * @param attachment - The color attachment index, ignored for the default
+	 * framebuffer
+	 * @param x - The left bound
+	 * @param y - The bottom bound
+	 * @param width - The width
+	 * @param height - The height
+	 * @param format - The {@link Image.Format} of the pixels
+	 * @param type - The {@link Type} of the pixels
+	 * @param listener - The {@link Listener} receiving the pixels
+	 * 
+	 * @throws IllegalStateException If waiting for a fence failed, in which
+	 * case the transfer is dropped
+	 */
+	public void read(Framebuffer framebuffer, int attachment, int x, int y, int width, int height,
+			Image.Format format, Type type, Listener listener) {
+		if (listener == null) {
+			throw new NullPointerException("Listener is null!");
+		} else if (width <= 0 || height <= 0) {
+			throw new IllegalArgumentException("Size is not positive (" + width + "x" + height + ")");
+		}
+		if (this.pending == this.buffers.length) {
+			this.complete(this.tail(), true);
+		}
+		int slot = this.head;
+		long size = (long) width * height * pixelSize(format, type);
+		BufferObject buffer = this.buffers[slot];
+		buffer.bind(Target.PIXEL_PACK);
+		if (this.capacities[slot] < size) {
+			buffer.bufferData(Target.PIXEL_PACK, size, BufferAccessFrequency.STREAM, BufferAccessNature.READ);
+			this.capacities[slot] = size;
+		}
+		if (framebuffer == null) {
+			Framebuffer.unbind();
+		} else {
+			framebuffer.readBuffer(attachment);
+		}
+		int alignment = GL11.glGetInteger(GL11.GL_PACK_ALIGNMENT);
+		GL11.glPixelStorei(GL11.GL_PACK_ALIGNMENT, 1);
+		GL11.glReadPixels(x, y, width, height, format.glValue(), type.glValue(), 0L);
+		GL11.glPixelStorei(GL11.GL_PACK_ALIGNMENT, alignment);
+		buffer.unbind(Target.PIXEL_PACK);
+		if (this.sync) {
+			this.fences[slot] = ARBSync.glFenceSync(ARBSync.GL_SYNC_GPU_COMMANDS_COMPLETE, 0);
+		}
+		this.sizes[slot] = size;
+		this.widths[slot] = width;
+		this.heights[slot] = height;
+		this.issuedPolls[slot] = this.polls;
+		this.listeners[slot] = listener;
+		this.head = (slot + 1) % this.buffers.length;
+		this.pending++;
+	}
+	
+	/**Hands the pixels of the completed transfers to their listeners, in the
+	 * order of the requests, without waiting.
+	 * 
+	 * @return The number of transfers handed
+	 * 
+	 * @throws IllegalStateException If waiting for a fence failed, in which
+	 * case the transfer is dropped
+	 */
+	public int poll() {
+		this.polls++;
+		int count = 0;
+		while (this.pending > 0 && this.complete(this.tail(), false)) {
+			count++;
+		}
+		return count;
+	}
+	
+	/**Waits for every pending transfer and hands the pixels to their
+	 * listeners.
+	 * 
+	 * @throws IllegalStateException If waiting for a fence failed, in which
+	 * case the transfer is dropped
+	 */
+	public void finish() {
+		while (this.pending > 0) {
+			this.complete(this.tail(), true);
+		}
+	}
+	
+	/**Returns the number of transfers in flight.
+	 */
+	public int getPendingCount() {
+		return this.pending;
+	}
+	
+	/**Returns whether or not completion is detected with fences.
+	 */
+	public boolean isSynchronized() {
+		return this.sync;
+	}
+	
+	/**Deletes the buffers and fences, dropping the pending transfers.
+	 */
+	public void destroy() {
+		for (int i = 0; i < this.buffers.length; i++) {
+			if (this.fences[i] != 0) {
+				ARBSync.glDeleteSync(this.fences[i]);
+				this.fences[i] = 0;
+			}
+			this.listeners[i] = null;
+			this.buffers[i].destroy();
+		}
+		this.pending = 0;
+	}
+	
+	/**Returns the size in bytes of a pixel of the given format and type.
+	 * 
+	 * @param format - The {@link Image.Format}
+	 * @param type - The {@link Type}
+	 */
+	public static int pixelSize(Image.Format format, Type type) {
+		return type.isPacked() ? type.getSize() : format.getComponentCount() * type.getSize();
+	}
+	
+	private int tail() {
+		int tail = this.head - this.pending;
+		return tail < 0 ? tail + this.buffers.length : tail;
+	}
+	
+	private boolean complete(int slot, boolean wait) {
+		if (this.sync) {
+			int status = ARBSync.glClientWaitSync(this.fences[slot], ARBSync.GL_SYNC_FLUSH_COMMANDS_BIT,
+					wait ? ARBSync.GL_TIMEOUT_IGNORED : 0L);
+			if (status == ARBSync.GL_TIMEOUT_EXPIRED) {
+				return false;
+			}
+			ARBSync.glDeleteSync(this.fences[slot]);
+			this.fences[slot] = 0;
+			if (status == ARBSync.GL_WAIT_FAILED) {
+				this.listeners[slot] = null;
+				this.pending--;
+				throw new IllegalStateException("Could not wait for the transfer of slot " + slot + "!");
+			}
+		} else if (!wait && this.polls - this.issuedPolls[slot] < 2) {
+			return false;
+		}
+		Listener listener = this.listeners[slot];
+		this.listeners[slot] = null;
+		this.pending--;
+		BufferObject buffer = this.buffers[slot];
+		buffer.bind(Target.PIXEL_PACK);
+		ByteBuffer pixels = buffer.mapBuffer(Target.PIXEL_PACK, BufferMappingAccess.READ_ONLY, this.sizes[slot],
+				null);
+		try {
+			listener.onReadback(pixels, this.widths[slot], this.heights[slot]);
+		} finally {
+			buffer.unmapBuffer(Target.PIXEL_PACK);
+			buffer.unbind(Target.PIXEL_PACK);
+		}
+		return true;
+	}
+	
+	/**Receives the pixels read back by a {@link PixelReadback}.
+	 */
+	public static interface Listener {
+		
+		/**Called with the pixels of a completed transfer, tightly packed,
+		 * bottom row first. <code>pixels</code> is only valid during the call.
+		 * 
+		 * @param pixels - The pixels
+		 * @param width - The width of the rectangle
+		 * @param height - The height of the rectangle
+		 */
+		public void onReadback(ByteBuffer pixels, int width, int height);
+	}
+}
@@ -0,0 +1,178 @@
+/*Copyright (c) 2017 Fantastic Fantasy All rights reserved.
+ *
+ * Permission to use, copy, modify and/or redistribute in source or binary form
+ * is hereby granted, free of charge, subject to the following conditions:
+ *
+ * - Redistribution of source code shall include the above copyright notice,
+ *  this list of conditions and the following disclaimer.
+ *
+ * - Redistribution in binary form shall include the above copyright notice,
+ *  this list of conditions and the following disclaimer in the documentation
+ *  and/or other materials provided with the distribution.
+ *
+ * - Neither the name Object Oriented Lightweight Render Engine nor the names
+ *  of its contributors may be used to endorse or promote products derived
+ *  from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE
+ * OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package net.fantasticfantasy.oolwre.render.target;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import org.lwjgl.opengl.GL11;
+import net.fantasticfantasy.oolwre.render.data.DataProvider;
+import net.fantasticfantasy.oolwre.render.data.Framebuffer;
+import net.fantasticfantasy.oolwre.render.data.Texture;
+import net.fantasticfantasy.oolwre.render.target.RenderTarget.Desc;
+
+/**A <code>ReadbackAtlas</code> batches many small offscreen renders, such as
+ * thumbnails, into the tiles of one {@link RenderTarget}, read back with a
+ * single {@link PixelReadback} transfer once every tile is used or on
+ * {@link #flush()}. Each tile is then handed to the {@link TileListener}
+ * given when it was started.
+ */
+public class ReadbackAtlas {
+	
+	private final RenderTarget target;
+	private final PixelReadback readback;
+	private final Texture.Format color;
+	private final int tileWidth;
+	private final int tileHeight;
+	private final int columns;
+	private final TileListener[] listeners;
+	private int count;
+	
+	/**Constructs a {@link ReadbackAtlas} and allocates its target.
+	 * 
+	 * @param data - The {@link DataProvider} generating the names
+	 * @param readback - The {@link PixelReadback} reading the atlas back
+	 * @param tileWidth - The width of a tile
+	 * @param tileHeight - The height of a tile
+	 * @param columns - The number of tiles per row
+	 * @param rows - The number of rows
+	 * @param color - The color format
+	 * @param depth - The depth format, or <code>null</code>
+	 */
+	public ReadbackAtlas(DataProvider data, PixelReadback readback, int tileWidth, int tileHeight, int columns,
+			int rows, Texture.Format color, Texture.Format depth) {
+		if (readback == null) {
+			throw new NullPointerException("Readback is null!");
+		} else if (columns <= 0 || rows <= 0) {
+			throw new IllegalArgumentException("Tile grid is not positive (" + columns + "x" + rows + ")");
+		}
+		this.target = new RenderTarget(data, new Desc(tileWidth * columns, tileHeight * rows, 0, depth, color));
+		this.readback = readback;
+		this.color = color;
+		this.tileWidth = tileWidth;
+		this.tileHeight = tileHeight;
+		this.columns = columns;
+		this.listeners = new TileListener[columns * rows];
+	}
+	
+	/**Starts rendering the next tile: the atlas is bound, the viewport and
+	 * scissor box are set to the tile, which is cleared. If every tile is
+	 * used, the atlas is flushed first.
+	 * 
+	 * @param listener - The {@link TileListener} receiving the tile
+	 * 
+	 * @return The index of the tile
+	 */
+	public int beginTile(TileListener listener) {
+		if (listener == null) {
+			throw new NullPointerException("Listener is null!");
+		}
+		if (this.count == this.listeners.length) {
+			this.flush();
+		}
+		int tile = this.count++;
+		this.listeners[tile] = listener;
+		int x = (tile % this.columns) * this.tileWidth;
+		int y = (tile / this.columns) * this.tileHeight;
+		this.target.getFramebuffer().bind();
+		GL11.glViewport(x, y, this.tileWidth, this.tileHeight);
+		GL11.glScissor(x, y, this.tileWidth, this.tileHeight);
+		GL11.glEnable(GL11.GL_SCISSOR_TEST);
+		GL11.glClear(GL11.GL_COLOR_BUFFER_BIT | (this.target.getDesc().getDepth() == null ? 0 :
+				GL11.GL_DEPTH_BUFFER_BIT));
+		return tile;
+	}
+	
+	/**Queues the readback of the used rows of tiles, if any, and restores the
+	 * default framebuffer with the scissor test disabled.
+	 */
+	public void flush() {
+		GL11.glDisable(GL11.GL_SCISSOR_TEST);
+		if (this.count > 0) {
+			int rows = (this.count + this.columns - 1) / this.columns;
+			final TileListener[] tiles = Arrays.copyOf(this.listeners, this.count);
+			final int pixelSize = PixelReadback.pixelSize(this.color.getPixelFormat(), this.color.getPixelType());
+			this.readback.read(this.target.getFramebuffer(), 0, 0, 0, this.target.getWidth(), rows * this.tileHeight,
+					this.color.getPixelFormat(), this.color.getPixelType(), new PixelReadback.Listener() {
+				@Override
+				public void onReadback(ByteBuffer pixels, int width, int height) {
+					ReadbackAtlas.this.split(tiles, pixels, width, pixelSize);
+				}
+			});
+			Arrays.fill(this.listeners, null);
+			this.count = 0;
+		}
+		Framebuffer.unbind();
+	}
+	
+	public int getTileCount() {
+		return this.listeners.length;
+	}
+	
+	/**Returns the number of tiles started since the last flush.
+	 */
+	public int getUsedTileCount() {
+		return this.count;
+	}
+	
+	public RenderTarget getTarget() {
+		return this.target;
+	}
+	
+	/**Deletes the atlas target. Queued readbacks are still delivered.
+	 */
+	public void destroy() {
+		this.target.destroy();
+	}
+	
+	private void split(TileListener[] tiles, ByteBuffer pixels, int width, int pixelSize) {
+		int rowStride = width * pixelSize;
+		for (int i = 0; i < tiles.length; i++) {
+			int x = (i % this.columns) * this.tileWidth;
+			int y = (i / this.columns) * this.tileHeight;
+			tiles[i].onTile(i, pixels, y * rowStride + x * pixelSize, rowStride, this.tileWidth, this.tileHeight);
+		}
+	}
+	
+	/**Receives the tiles read back by a {@link ReadbackAtlas}.
+	 */
+	public static interface TileListener {
+		
+		/**Called with the pixels of a tile, bottom row first. Rows are
+		 * <code>rowStride</code> bytes apart in <code>atlas</code>, which is
+		 * only valid during the call.
+		 * 
+		 * @param tile - The index of the tile
+		 * @param atlas - The pixels of the atlas
+		 * @param offset - The offset of the first pixel of the tile
+		 * @param rowStride - The distance between two rows, in bytes
+		 * @param width - The width of the tile
+		 * @param height - The height of the tile
+		 */
+		public void onTile(int tile, ByteBuffer atlas, int offset, int rowStride, int width, int height);
+	}
+}
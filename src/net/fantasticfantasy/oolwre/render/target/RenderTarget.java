@@ -0,0 +1,394 @@
+/*Copyright (c) 2017 Fantastic Fantasy All rights reserved.
+ *
+ * Permission to use, copy, modify and/or redistribute in source or binary form
+ * is hereby granted, free of charge, subject to the following conditions:
+ *
+ * - Redistribution of source code shall include the above copyright notice,
+ *  this list of conditions and the following disclaimer.
+ *
+ * - Redistribution in binary form shall include the above copyright notice,
+ *  this list of conditions and the following disclaimer in the documentation
+ *  and/or other materials provided with the distribution.
+ *
+ * - Neither the name Object Oriented Lightweight Render Engine nor the names
+ *  of its contributors may be used to endorse or promote products derived
+ *  from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE
+ * OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package net.fantasticfantasy.oolwre.render.target;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import org.lwjgl.opengl.GL11;
+import org.lwjgl.opengl.GL12;
+import net.fantasticfantasy.oolwre.image.Image;
+import net.fantasticfantasy.oolwre.render.data.DataProvider;
+import net.fantasticfantasy.oolwre.render.data.Framebuffer;
+import net.fantasticfantasy.oolwre.render.data.Renderbuffer;
+import net.fantasticfantasy.oolwre.render.data.Texture;
+import net.fantasticfantasy.oolwre.render.data.Texture.Parameter;
+import net.fantasticfantasy.oolwre.render.data.Texture.Target;
+
+/**A <code>RenderTarget</code> is a complete {@link Framebuffer} together with
+ * the images attached to it, as described by a {@link Desc}. Single-sampled
+ * targets attach 2D {@link Texture}s, which can be sampled afterwards;
+ * multisampled targets attach {@link Renderbuffer}s, which are
+ * {@link #resolve(RenderTarget) resolved} into a single-sampled target.<br>
+ * <br>
+ * Render targets are usually obtained from a {@link RenderTargetPool} rather
+ * than constructed.
+ */
+public class RenderTarget {
+	
+	private final Desc desc;
+	private final Framebuffer framebuffer;
+	private final Texture[] colorTextures;
+	private final Renderbuffer[] colorBuffers;
+	private Texture depthTexture;
+	private Renderbuffer depthBuffer;
+	Desc source;
+	int generation;
+	long lastUsedFrame;
+	
+	/**Constructs a {@link RenderTarget} and allocates its images.
+	 * 
+	 * @param data - The {@link DataProvider} generating the names
+	 * @param desc - The {@link Desc}, which must not be window-relative
+	 * 
+	 * @throws IllegalStateException If the framebuffer is incomplete
+	 */
+	public RenderTarget(DataProvider data, Desc desc) {
+		if (desc == null) {
+			throw new NullPointerException("Desc is null!");
+		} else if (desc.isRelative()) {
+			throw new IllegalArgumentException("Desc is window-relative!");
+		}
+		this.desc = desc;
+		this.framebuffer = new Framebuffer(data);
+		int count = desc.colors.length;
+		if (desc.samples > 0) {
+			this.colorTextures = null;
+			this.colorBuffers = new Renderbuffer[count];
+			for (int i = 0; i < count; i++) {
+				this.colorBuffers[i] = new Renderbuffer(data);
+				this.colorBuffers[i].storage(desc.colors[i], desc.width, desc.height, desc.samples);
+				this.framebuffer.attachColor(i, this.colorBuffers[i]);
+			}
+			if (desc.depth != null) {
+				this.depthBuffer = new Renderbuffer(data);
+				this.depthBuffer.storage(desc.depth, desc.width, desc.height, desc.samples);
+				this.framebuffer.attachDepth(this.depthBuffer);
+			}
+			Renderbuffer.unbind();
+		} else {
+			this.colorTextures = new Texture[count];
+			this.colorBuffers = null;
+			for (int i = 0; i < count; i++) {
+				this.colorTextures[i] = allocate(data, desc.colors[i], desc.width, desc.height);
+				this.framebuffer.attachColor(i, this.colorTextures[i], 0);
+			}
+			if (desc.depth != null) {
+				this.depthTexture = allocate(data, desc.depth, desc.width, desc.height);
+				this.framebuffer.attachDepth(this.depthTexture, desc.depth);
+			}
+		}
+		this.framebuffer.drawBuffers(count);
+		this.framebuffer.readBuffer(count > 0 ? 0 : -1);
+		try {
+			this.framebuffer.checkStatus();
+		} catch (IllegalStateException e) {
+			this.destroy();
+			throw e;
+		} finally {
+			Framebuffer.unbind();
+		}
+	}
+	
+	/**Binds the framebuffer of this {@link RenderTarget} and sets the
+	 * viewport to cover it.
+	 */
+	public void bind() {
+		this.framebuffer.bind();
+		GL11.glViewport(0, 0, this.desc.width, this.desc.height);
+	}
+	
+	/**Copies every color attachment, and the depth attachment if both targets
+	 * have one, to <code>dst</code>, resolving the samples. Both targets must
+	 * have the same size and number of color attachments.
+	 * 
+	 * @param dst - The single-sampled destination {@link RenderTarget}
+	 */
+	public void resolve(RenderTarget dst) {
+		if (dst.desc.samples > 0) {
+			throw new IllegalArgumentException("Destination is multisampled!");
+		} else if (dst.desc.width != this.desc.width || dst.desc.height != this.desc.height) {
+			throw new IllegalArgumentException("Sizes differ (" + this.desc.width + "x" + this.desc.height +
+					", " + dst.desc.width + "x" + dst.desc.height + ")");
+		} else if (dst.desc.colors.length != this.desc.colors.length) {
+			throw new IllegalArgumentException("Color attachment counts differ (" + this.desc.colors.length +
+					", " + dst.desc.colors.length + ")");
+		}
+		int w = this.desc.width;
+		int h = this.desc.height;
+		int count = this.desc.colors.length;
+		for (int i = 0; i < count; i++) {
+			this.framebuffer.readBuffer(i);
+			dst.framebuffer.drawBuffer(i);
+			Framebuffer.blit(this.framebuffer, dst.framebuffer, 0, 0, w, h, 0, 0, w, h,
+					Framebuffer.COLOR_BUFFER_BIT, false);
+		}
+		if (this.desc.depth != null && dst.desc.depth != null) {
+			Framebuffer.blit(this.framebuffer, dst.framebuffer, 0, 0, w, h, 0, 0, w, h,
+					Framebuffer.DEPTH_BUFFER_BIT, false);
+		}
+		if (count > 1) {
+			this.framebuffer.readBuffer(0);
+			dst.framebuffer.drawBuffers(count);
+		}
+		Framebuffer.unbind();
+	}
+	
+	/**Copies the first color attachment to the default framebuffer, scaled to
+	 * <code>width x height</code> with linear filtering.
+	 * 
+	 * @param width - The width of the default framebuffer
+	 * @param height - The height of the default framebuffer
+	 */
+	public void blitToScreen(int width, int height) {
+		this.framebuffer.readBuffer(0);
+		Framebuffer.blit(this.framebuffer, null, 0, 0, this.desc.width, this.desc.height, 0, 0, width, height,
+				Framebuffer.COLOR_BUFFER_BIT, true);
+		Framebuffer.unbind();
+	}
+	
+	public Desc getDesc() {
+		return this.desc;
+	}
+	
+	public int getWidth() {
+		return this.desc.width;
+	}
+	
+	public int getHeight() {
+		return this.desc.height;
+	}
+	
+	public Framebuffer getFramebuffer() {
+		return this.framebuffer;
+	}
+	
+	/**Returns the texture of the color attachment <code>index</code>, or
+	 * <code>null</code> if this {@link RenderTarget} is multisampled.
+	 * 
+	 * @param index - The color attachment index
+	 */
+	public Texture getColorTexture(int index) {
+		return this.colorTextures == null ? null : this.colorTextures[index];
+	}
+	
+	/**Returns the texture of the depth attachment, or <code>null</code> if
+	 * there is none or this {@link RenderTarget} is multisampled.
+	 */
+	public Texture getDepthTexture() {
+		return this.depthTexture;
+	}
+	
+	/**Deletes the framebuffer and every attached image.
+	 */
+	public void destroy() {
+		this.framebuffer.destroy();
+		if (this.colorTextures != null) {
+			for (Texture texture : this.colorTextures) {
+				if (texture != null) {
+					texture.destroy();
+				}
+			}
+		}
+		if (this.colorBuffers != null) {
+			for (Renderbuffer buffer : this.colorBuffers) {
+				if (buffer != null) {
+					buffer.destroy();
+				}
+			}
+		}
+		if (this.depthTexture != null) {
+			this.depthTexture.destroy();
+			this.depthTexture = null;
+		}
+		if (this.depthBuffer != null) {
+			this.depthBuffer.destroy();
+			this.depthBuffer = null;
+		}
+	}
+	
+	private static Texture allocate(DataProvider data, Texture.Format format, int width, int height) {
+		Texture texture = Texture.create(data);
+		texture.bind(Target.TEXTURE_2D);
+		int filter = format.getPixelFormat() == Image.Format.RED_INT ? GL11.GL_NEAREST : GL11.GL_LINEAR;
+		texture.parameteri(Target.TEXTURE_2D, Parameter.MIN_FILTER, filter);
+		texture.parameteri(Target.TEXTURE_2D, Parameter.MAG_FILTER, filter);
+		texture.parameteri(Target.TEXTURE_2D, Parameter.WRAP_S, GL12.GL_CLAMP_TO_EDGE);
+		texture.parameteri(Target.TEXTURE_2D, Parameter.WRAP_T, GL12.GL_CLAMP_TO_EDGE);
+		texture.texImage2D(Target.TEXTURE_2D, 0, format, width, height, 0, format.getPixelFormat(),
+				format.getPixelType(), (ByteBuffer) null);
+		texture.unbind(Target.TEXTURE_2D);
+		return texture;
+	}
+	
+	/**A <code>Desc</code> describes the attachments of a {@link RenderTarget}.
+	 * Its size is either absolute, or relative to the window, in which case
+	 * it is {@link #resolve(int, int) resolved} against the window size when
+	 * a target is acquired. Descs are compared by value, so that equal descs
+	 * share the targets of a {@link RenderTargetPool}.
+	 */
+	public static final class Desc {
+		
+		private final int width;
+		private final int height;
+		private final float scale;
+		private final int samples;
+		private final Texture.Format depth;
+		private final Texture.Format[] colors;
+		private final int hash;
+		
+		/**Constructs an absolute {@link Desc}.
+		 * 
+		 * @param width - The width in pixels
+		 * @param height - The height in pixels
+		 * @param samples - The number of samples, 0 if not multisampled
+		 * @param depth - The depth format, or <code>null</code>
+		 * @param colors - The color formats, one per attachment
+		 */
+		public Desc(int width, int height, int samples, Texture.Format depth, Texture.Format... colors) {
+			this(width, height, 0.0F, samples, depth, colors);
+			if (width <= 0 || height <= 0) {
+				throw new IllegalArgumentException("Size is not positive (" + width + "x" + height + ")");
+			}
+		}
+		
+		/**Constructs a window-relative {@link Desc}.
+		 * 
+		 * @param scale - The scale applied to the window size
+		 * @param samples - The number of samples, 0 if not multisampled
+		 * @param depth - The depth format, or <code>null</code>
+		 * @param colors - The color formats, one per attachment
+		 */
+		public Desc(float scale, int samples, Texture.Format depth, Texture.Format... colors) {
+			this(0, 0, scale, samples, depth, colors);
+			if (!(scale > 0.0F)) {
+				throw new IllegalArgumentException("Scale is not positive (" + scale + ")");
+			}
+		}
+		
+		private Desc(int width, int height, float scale, int samples, Texture.Format depth,
+				Texture.Format[] colors) {
+			if (samples < 0) {
+				throw new IllegalArgumentException("'samples' < 0 (" + samples + ")");
+			} else if (depth != null && !depth.isDepth()) {
+				throw new IllegalArgumentException("Depth format is not a depth format (" + depth + ")");
+			}
+			for (Texture.Format color : colors) {
+				if (color == null) {
+					throw new NullPointerException("Color format is null!");
+				} else if (color.isDepth()) {
+					throw new IllegalArgumentException("Color format is a depth format (" + color + ")");
+				}
+			}
+			this.width = width;
+			this.height = height;
+			this.scale = scale;
+			this.samples = samples;
+			this.depth = depth;
+			this.colors = colors.clone();
+			int hash = 31 * width + height;
+			hash = 31 * hash + Float.floatToIntBits(scale);
+			hash = 31 * hash + samples;
+			hash = 31 * hash + (depth == null ? 0 : depth.hashCode());
+			this.hash = 31 * hash + Arrays.hashCode(this.colors);
+		}
+		
+		/**Returns the absolute {@link Desc} of this one for a window of
+		 * <code>windowWidth x windowHeight</code> pixels, this one if it is
+		 * absolute.
+		 * 
+		 * @param windowWidth - The window width
+		 * @param windowHeight - The window height
+		 */
+		public Desc resolve(int windowWidth, int windowHeight) {
+			if (!this.isRelative()) {
+				return this;
+			}
+			int w = Math.max(1, Math.round(windowWidth * this.scale));
+			int h = Math.max(1, Math.round(windowHeight * this.scale));
+			return new Desc(w, h, 0.0F, this.samples, this.depth, this.colors);
+		}
+		
+		public boolean isRelative() {
+			return this.scale != 0.0F;
+		}
+		
+		public int getWidth() {
+			return this.width;
+		}
+		
+		public int getHeight() {
+			return this.height;
+		}
+		
+		public float getScale() {
+			return this.scale;
+		}
+		
+		public int getSamples() {
+			return this.samples;
+		}
+		
+		public Texture.Format getDepth() {
+			return this.depth;
+		}
+		
+		public int getColorCount() {
+			return this.colors.length;
+		}
+		
+		public Texture.Format getColor(int index) {
+			return this.colors[index];
+		}
+		
+		@Override
+		public int hashCode() {
+			return this.hash;
+		}
+		
+		@Override
+		public boolean equals(Object obj) {
+			if (this == obj) {
+				return true;
+			}
+			if (!(obj instanceof Desc)) {
+				return false;
+			}
+			Desc other = (Desc) obj;
+			return other.hash == this.hash && other.width == this.width && other.height == this.height &&
+					other.scale == this.scale && other.samples == this.samples && other.depth == this.depth &&
+					Arrays.equals(other.colors, this.colors);
+		}
+		
+		@Override
+		public String toString() {
+			String size = this.isRelative() ? "x" + this.scale : this.width + "x" + this.height;
+			return "Desc[" + size + ", samples=" + this.samples + ", depth=" + this.depth + ", colors=" +
+					Arrays.toString(this.colors) + "]";
+		}
+	}
+}
@@ -0,0 +1,246 @@
+/*Copyright (c) 2017 Fantastic Fantasy All rights reserved.
+ *
+ * Permission to use, copy, modify and/or redistribute in source or binary form
+ * is hereby granted, free of charge, subject to the following conditions:
+ *
+ * - Redistribution of source code shall include the above copyright notice,
+ *  this list of conditions and the following disclaimer.
+ *
+ * - Redistribution in binary form shall include the above copyright notice,
+ *  this list of conditions and the following disclaimer in the documentation
+ *  and/or other materials provided with the distribution.
+ *
+ * - Neither the name Object Oriented Lightweight Render Engine nor the names
+ *  of its contributors may be used to endorse or promote products derived
+ *  from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE
+ * OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package net.fantasticfantasy.oolwre.render.target;
+
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.Map;
+import net.fantasticfantasy.oolwre.Window;
+import net.fantasticfantasy.oolwre.render.data.DataProvider;
+import net.fantasticfantasy.oolwre.render.target.RenderTarget.Desc;
+
+/**A <code>RenderTargetPool</code> recycles transient {@link RenderTarget}s
+ * across frames. Targets are {@link #acquire(Desc) acquired} for a pass and
+ * {@link #release(RenderTarget) released} when their content is no longer
+ * needed; a released target is handed out again for an equal {@link Desc},
+ * so effect chains reuse the same few targets every frame.<br>
+ * <br>
+ * Window-relative targets are only reallocated when the window size given
+ * to {@link #beginFrame(int, int)} actually changes. Targets left unused
+ * for more than {@link #getMaxIdleFrames()} frames are deleted.
+ */
+public class RenderTargetPool {
+	
+	private final DataProvider data;
+	private final Map<Desc, ArrayDeque<RenderTarget>> free;
+	private final Map<Desc, Desc> resolved;
+	private final Map<RenderTarget, Boolean> used;
+	private int maxIdleFrames;
+	private int windowWidth;
+	private int windowHeight;
+	private int generation;
+	private long frame;
+	private int freeCount;
+	private long created;
+	
+	/**Constructs a {@link RenderTargetPool} using the current {@link Thread}'s
+	 * {@link DataProvider}.
+	 */
+	public RenderTargetPool() {
+		this(DataProvider.get());
+	}
+	
+	/**Constructs a {@link RenderTargetPool}.
+	 * 
+	 * @param data - The {@link DataProvider} generating the names
+	 */
+	public RenderTargetPool(DataProvider data) {
+		if (data == null) {
+			throw new NullPointerException("Data provider is null!");
+		}
+		this.data = data;
+		this.free = new HashMap<>();
+		this.resolved = new HashMap<>();
+		this.used = new IdentityHashMap<>();
+		this.maxIdleFrames = 3;
+	}
+	
+	/**Starts a frame for the current size of <code>window</code>.
+	 * 
+	 * @param window - The {@link Window}
+	 * 
+	 * @see #beginFrame(int, int)
+	 */
+	public void beginFrame(Window window) {
+		this.beginFrame(window.getWidth(), window.getHeight());
+	}
+	
+	/**Starts a frame. If the window size changed, the free window-relative
+	 * targets are deleted, and those still in use are deleted once released.
+	 * The targets idle for too long are deleted as well.
+	 * 
+	 * @param windowWidth - The window width
+	 * @param windowHeight - The window height
+	 */
+	public void beginFrame(int windowWidth, int windowHeight) {
+		this.frame++;
+		if (windowWidth != this.windowWidth || windowHeight != this.windowHeight) {
+			this.windowWidth = windowWidth;
+			this.windowHeight = windowHeight;
+			this.generation++;
+			this.resolved.clear();
+			this.evict(true);
+		} else {
+			this.evict(false);
+		}
+	}
+	
+	/**Returns a {@link RenderTarget} matching <code>desc</code>, recycled if
+	 * one is free, allocated otherwise. It must be {@link
+	 * #release(RenderTarget) released} to this pool.
+	 * 
+	 * @param desc - The {@link Desc}
+	 */
+	public RenderTarget acquire(Desc desc) {
+		Desc key = desc;
+		if (desc.isRelative()) {
+			if (this.windowWidth <= 0 || this.windowHeight <= 0) {
+				throw new IllegalStateException("No window size, call beginFrame first!");
+			}
+			key = this.resolved.get(desc);
+			if (key == null) {
+				key = desc.resolve(this.windowWidth, this.windowHeight);
+				this.resolved.put(desc, key);
+			}
+		}
+		ArrayDeque<RenderTarget> targets = this.free.get(key);
+		RenderTarget target = targets == null ? null : targets.pollLast();
+		if (target != null) {
+			this.freeCount--;
+		} else {
+			target = new RenderTarget(this.data, key);
+			this.created++;
+		}
+		target.source = desc;
+		target.generation = this.generation;
+		this.used.put(target, Boolean.TRUE);
+		return target;
+	}
+	
+	/**Gives <code>target</code> back to this pool, which may hand it out
+	 * again, so its content must not be used anymore.
+	 * 
+	 * @param target - The {@link RenderTarget}, acquired from this pool
+	 */
+	public void release(RenderTarget target) {
+		if (this.used.remove(target) == null) {
+			throw new IllegalArgumentException("Target not acquired from this pool!");
+		}
+		if (target.source.isRelative() && target.generation != this.generation) {
+			target.destroy();
+			return;
+		}
+		target.lastUsedFrame = this.frame;
+		ArrayDeque<RenderTarget> targets = this.free.get(target.getDesc());
+		if (targets == null) {
+			targets = new ArrayDeque<>();
+			this.free.put(target.getDesc(), targets);
+		}
+		targets.addLast(target);
+		this.freeCount++;
+	}
+	
+	public int getMaxIdleFrames() {
+		return this.maxIdleFrames;
+	}
+	
+	/**Sets the number of frames a free target is kept before being deleted.
+	 * 
+	 * @param maxIdleFrames - The number of frames
+	 */
+	public void setMaxIdleFrames(int maxIdleFrames) {
+		if (maxIdleFrames < 0) {
+			throw new IllegalArgumentException("'maxIdleFrames' < 0 (" + maxIdleFrames + ")");
+		}
+		this.maxIdleFrames = maxIdleFrames;
+	}
+	
+	/**Returns the number of targets waiting to be recycled.
+	 */
+	public int getFreeCount() {
+		return this.freeCount;
+	}
+	
+	/**Returns the number of targets currently acquired.
+	 */
+	public int getUsedCount() {
+		return this.used.size();
+	}
+	
+	/**Returns the number of targets allocated since the creation of this
+	 * pool.
+	 */
+	public long getCreatedCount() {
+		return this.created;
+	}
+	
+	/**Deletes the free targets.
+	 */
+	public void clear() {
+		for (ArrayDeque<RenderTarget> targets : this.free.values()) {
+			for (RenderTarget target : targets) {
+				target.destroy();
+			}
+		}
+		this.free.clear();
+		this.freeCount = 0;
+	}
+	
+	/**Deletes every target, including those still acquired.
+	 */
+	public void destroy() {
+		this.clear();
+		for (RenderTarget target : this.used.keySet()) {
+			target.destroy();
+		}
+		this.used.clear();
+		this.resolved.clear();
+	}
+	
+	private void evict(boolean resized) {
+		Iterator<ArrayDeque<RenderTarget>> it = this.free.values().iterator();
+		while (it.hasNext()) {
+			ArrayDeque<RenderTarget> targets = it.next();
+			Iterator<RenderTarget> targetIt = targets.iterator();
+			while (targetIt.hasNext()) {
+				RenderTarget target = targetIt.next();
+				boolean stale = resized && target.source.isRelative();
+				if (stale || this.frame - target.lastUsedFrame > this.maxIdleFrames) {
+					target.destroy();
+					targetIt.remove();
+					this.freeCount--;
+				}
+			}
+			if (targets.isEmpty()) {
+				it.remove();
+			}
+		}
+	}
+}
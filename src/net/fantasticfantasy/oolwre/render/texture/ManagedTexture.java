@@ -0,0 +1,114 @@
+/*Copyright (c) 2017 Fantastic Fantasy All rights reserved.
+ *
+ * Permission to use, copy, modify and/or redistribute in source or binary form
+ * is hereby granted, free of charge, subject to the following conditions:
+ *
+ * - Redistribution of source code shall include the above copyright notice,
+ *  this list of conditions and the following disclaimer.
+ *
+ * - Redistribution in binary form shall include the above copyright notice,
+ *  this list of conditions and the following disclaimer in the documentation
+ *  and/or other materials provided with the distribution.
+ *
+ * - Neither the name Object Oriented Lightweight Render Engine nor the names
+ *  of its contributors may be used to endorse or promote products derived
+ *  from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE
+ * OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package net.fantasticfantasy.oolwre.render.texture;
+
+import net.fantasticfantasy.oolwre.image.Image;
+import net.fantasticfantasy.oolwre.render.data.Texture;
+
+/**A <code>ManagedTexture</code> is a 2D texture whose residency is handled by
+ * a {@link TextureResidencyManager}. Its {@link Texture} may be evicted,
+ * reduced or replaced between frames, so it must be fetched again with
+ * {@link #getTexture()} every time it is bound.
+ */
+public final class ManagedTexture {
+	
+	static final int EVICTED = 0, RESIDENT = 1, REMOVED = 2;
+	static final int LOAD_NONE = 0, LOAD_QUEUED = 1, LOAD_DECODING = 2;
+	
+	final TextureSource source;
+	final boolean mipmapped;
+	Texture texture;
+	int state;
+	int load;
+	int width;
+	int height;
+	int levels;
+	int droppedLevels;
+	long bytes;
+	/**The size of the load rejected as larger than the budget*/
+	long rejectedBytes;
+	long lastUsedFrame;
+	boolean onScreen;
+	long requestOrder;
+	ManagedTexture prev;
+	ManagedTexture next;
+	volatile Image decoded;
+	volatile Throwable error;
+	
+	ManagedTexture(TextureSource source, boolean mipmapped) {
+		this.source = source;
+		this.mipmapped = mipmapped;
+	}
+	
+	/**Returns the resident {@link Texture}, or <code>null</code> if it is not
+	 * resident.
+	 */
+	public Texture getTexture() {
+		return this.texture;
+	}
+	
+	public boolean isResident() {
+		return this.state == RESIDENT;
+	}
+	
+	/**Returns the width of the resident level 0, 0 if not resident.
+	 */
+	public int getWidth() {
+		return this.texture == null ? 0 : this.width;
+	}
+	
+	/**Returns the height of the resident level 0, 0 if not resident.
+	 */
+	public int getHeight() {
+		return this.texture == null ? 0 : this.height;
+	}
+	
+	/**Returns the number of top mipmap levels dropped to save memory.
+	 */
+	public int getDroppedLevels() {
+		return this.droppedLevels;
+	}
+	
+	/**Returns the estimated size of the resident texture in bytes.
+	 */
+	public long getResidentBytes() {
+		return this.texture == null ? 0 : this.bytes;
+	}
+	
+	public long getLastUsedFrame() {
+		return this.lastUsedFrame;
+	}
+	
+	/**Returns the error raised by the last load, or <code>null</code>. The
+	 * texture is not loaded again until
+	 * {@link TextureResidencyManager#retry(ManagedTexture) retried}.
+	 */
+	public Throwable getError() {
+		return this.error;
+	}
+}
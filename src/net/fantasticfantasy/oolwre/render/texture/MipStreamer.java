@@ -0,0 +1,424 @@
+/*Copyright (c) 2017 Fantastic Fantasy All rights reserved.
+ *
+ * Permission to use, copy, modify and/or redistribute in source or binary form
+ * is hereby granted, free of charge, subject to the following conditions:
+ *
+ * - Redistribution of source code shall include the above copyright notice,
+ *  this list of conditions and the following disclaimer.
+ *
+ * - Redistribution in binary form shall include the above copyright notice,
+ *  this list of conditions and the following disclaimer in the documentation
+ *  and/or other materials provided with the distribution.
+ *
+ * - Neither the name Object Oriented Lightweight Render Engine nor the names
+ *  of its contributors may be used to endorse or promote products derived
+ *  from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE
+ * OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package net.fantasticfantasy.oolwre.render.texture;
+
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import org.lwjgl.opengl.GL11;
+import org.lwjgl.opengl.GL12;
+import org.lwjgl.stb.STBImage;
+import org.lwjgl.system.MemoryUtil;
+import net.fantasticfantasy.oolwre.CapabilityProvider;
+import net.fantasticfantasy.oolwre.image.Image;
+import net.fantasticfantasy.oolwre.io.ImageIO;
+import net.fantasticfantasy.oolwre.render.data.Texture;
+import net.fantasticfantasy.oolwre.render.data.Texture.Target;
+import net.fantasticfantasy.oolwre.render.data.Type;
+
+/**A <code>MipStreamer</code> uploads the mipmap levels of
+ * {@link StreamedTexture}s progressively, driven by their size on screen.<br>
+ * <br>
+ * A texture is decoded with {@link ImageIO} and its mipmap chain built on a
+ * background thread the first time it is
+ * {@link #report(StreamedTexture, float) reported}. Its smallest levels, up
+ * to {@value #TAIL_SIZE} pixels, are then uploaded at once. Every frame, the
+ * finest level needed by each texture is derived from its reported screen
+ * size, and the missing levels are uploaded one at a time, coarse to fine,
+ * the textures furthest from their needed level first, until the upload
+ * budget of the frame is spent. <code>GL_TEXTURE_BASE_LEVEL</code> is clamped
+ * to the finest uploaded level, the finer levels being left undefined, so
+ * that the memory of a level is only used once it is needed.<br>
+ * <br>
+ * The decoded chain is kept in memory until level 0 is uploaded. Textures are
+ * uploaded as <code>RGBA8</code>.
+ */
+public class MipStreamer {
+	
+	/**The size of the levels uploaded as soon as a texture is decoded*/
+	public static final int TAIL_SIZE = 64;
+	
+	private static final double LN2 = Math.log(2.0);
+	private static final int RGBA8_SIZE = 4;
+	
+	private final CapabilityProvider provider;
+	private final ExecutorService decoder;
+	private final ConcurrentLinkedQueue<StreamedTexture> decoded;
+	private final List<StreamedTexture> streaming;
+	private final PriorityQueue<StreamedTexture> candidates;
+	private long uploadBudget;
+	private float lodBias;
+	private long frame;
+	private long uploadedBytes;
+	private long totalUploadedBytes;
+	
+	/**Constructs a {@link MipStreamer} using the current {@link Thread}'s
+	 * {@link CapabilityProvider}, with one decoding thread.
+	 * 
+	 * @param uploadBudget - The number of bytes uploaded per frame
+	 */
+	public MipStreamer(long uploadBudget) {
+		this(CapabilityProvider.get(), uploadBudget, 1);
+	}
+	
+	/**Constructs a {@link MipStreamer}.
+	 * 
+	 * @param provider - The {@link CapabilityProvider}
+	 * @param uploadBudget - The number of bytes uploaded per frame
+	 * @param threads - The number of decoding threads
+	 */
+	public MipStreamer(CapabilityProvider provider, long uploadBudget, int threads) {
+		if (provider == null) {
+			throw new NullPointerException("Capability provider is null!");
+		} else if (threads <= 0) {
+			throw new IllegalArgumentException("'threads' <= 0 (" + threads + ")");
+		} else if (!provider.getCapabilities().OpenGL12) {
+			throw new UnsupportedOperationException("There is no supported extension to clamp texture levels!");
+		}
+		this.setUploadBudget(uploadBudget);
+		this.provider = provider;
+		this.decoder = Executors.newFixedThreadPool(threads, new ThreadFactory() {
+			@Override
+			public Thread newThread(Runnable r) {
+				Thread thread = new Thread(r, "OOLWRE Mip Decoder");
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+		this.decoded = new ConcurrentLinkedQueue<>();
+		this.streaming = new ArrayList<>();
+		this.candidates = new PriorityQueue<>(64, new Comparator<StreamedTexture>() {
+			@Override
+			public int compare(StreamedTexture a, StreamedTexture b) {
+				int deficitA = a.baseLevel - a.requiredLevel;
+				int deficitB = b.baseLevel - b.requiredLevel;
+				if (deficitA != deficitB) {
+					return deficitA > deficitB ? -1 : 1;
+				}
+				return Float.compare(b.screenSize, a.screenSize);
+			}
+		});
+	}
+	
+	/**Registers the texture read from <code>source</code>, which is decoded
+	 * when first reported.
+	 * 
+	 * @param source - The {@link TextureSource}
+	 */
+	public StreamedTexture register(TextureSource source) {
+		if (source == null) {
+			throw new NullPointerException("Source is null!");
+		}
+		return new StreamedTexture(source);
+	}
+	
+	/**Registers the texture read from <code>file</code>.
+	 * 
+	 * @param file - The image file
+	 */
+	public StreamedTexture register(Path file) {
+		return this.register(new PathTextureSource(file));
+	}
+	
+	/**Reports the size of <code>texture</code> on screen during the current
+	 * frame, the largest size reported in a frame being kept. The first report
+	 * starts decoding the texture.
+	 * 
+	 * @param texture - The {@link StreamedTexture}
+	 * @param screenSize - The size in pixels covered on screen by the largest
+	 * side of the texture, at its level 0
+	 */
+	public void report(StreamedTexture texture, float screenSize) {
+		if (texture.state == StreamedTexture.REMOVED) {
+			throw new IllegalArgumentException("Texture is unregistered!");
+		}
+		if (texture.requiredFrame != this.frame) {
+			texture.requiredFrame = this.frame;
+			texture.screenSize = screenSize;
+		} else if (screenSize > texture.screenSize) {
+			texture.screenSize = screenSize;
+		}
+		if (texture.state == StreamedTexture.IDLE && texture.error == null) {
+			this.decode(texture);
+		}
+	}
+	
+	/**Ends the current frame: creates the decoded textures with their
+	 * smallest levels, then uploads the levels needed by the sizes reported
+	 * during the frame, within the upload budget.
+	 */
+	public void update() {
+		StreamedTexture texture;
+		while ((texture = this.decoded.poll()) != null) {
+			if (texture.state == StreamedTexture.REMOVED) {
+				free(texture);
+			} else if (texture.mips == null) {
+				texture.state = StreamedTexture.IDLE;
+			} else {
+				this.create(texture);
+			}
+		}
+		this.candidates.clear();
+		for (int i = 0; i < this.streaming.size(); i++) {
+			texture = this.streaming.get(i);
+			texture.requiredLevel = texture.requiredFrame == this.frame ? this.requiredLevel(texture) :
+					texture.baseLevel;
+			if (texture.baseLevel > texture.requiredLevel) {
+				this.candidates.add(texture);
+			}
+		}
+		long spent = 0;
+		while ((texture = this.candidates.poll()) != null) {
+			int level = texture.baseLevel - 1;
+			long bytes = levelBytes(texture, level);
+			if (spent > 0 && spent + bytes > this.uploadBudget) {
+				continue;
+			}
+			this.upload(texture, level);
+			spent += bytes;
+			if (texture.baseLevel > texture.requiredLevel) {
+				this.candidates.add(texture);
+			}
+		}
+		this.uploadedBytes = spent;
+		this.totalUploadedBytes += spent;
+		for (int i = this.streaming.size() - 1; i >= 0; i--) {
+			texture = this.streaming.get(i);
+			if (texture.baseLevel == 0) {
+				free(texture);
+				int last = this.streaming.size() - 1;
+				this.streaming.set(i, this.streaming.get(last));
+				this.streaming.remove(last);
+			}
+		}
+		this.frame++;
+	}
+	
+	/**Deletes the texture and its decoded levels, and forgets it.
+	 * 
+	 * @param texture - The {@link StreamedTexture}
+	 */
+	public void unregister(StreamedTexture texture) {
+		if (texture.state == StreamedTexture.READY) {
+			this.streaming.remove(texture);
+			free(texture);
+		}
+		if (texture.texture != null) {
+			texture.texture.destroy();
+			texture.texture = null;
+		}
+		texture.state = StreamedTexture.REMOVED;
+	}
+	
+	public long getUploadBudget() {
+		return this.uploadBudget;
+	}
+	
+	public void setUploadBudget(long uploadBudget) {
+		if (uploadBudget <= 0) {
+			throw new IllegalArgumentException("'uploadBudget' <= 0 (" + uploadBudget + ")");
+		}
+		this.uploadBudget = uploadBudget;
+	}
+	
+	public float getLodBias() {
+		return this.lodBias;
+	}
+	
+	/**Sets the bias added to the needed levels, positive values streaming
+	 * coarser levels.
+	 * 
+	 * @param lodBias - The level bias
+	 */
+	public void setLodBias(float lodBias) {
+		this.lodBias = lodBias;
+	}
+	
+	/**Returns the number of bytes uploaded by the last {@link #update()}.
+	 */
+	public long getUploadedBytes() {
+		return this.uploadedBytes;
+	}
+	
+	public long getTotalUploadedBytes() {
+		return this.totalUploadedBytes;
+	}
+	
+	/**Returns the number of textures with levels left to upload.
+	 */
+	public int getStreamingCount() {
+		return this.streaming.size();
+	}
+	
+	/**Stops the decoding threads and releases the decoded levels. The
+	 * textures themselves are left to their owners.
+	 */
+	public void destroy() {
+		this.decoder.shutdownNow();
+		for (StreamedTexture texture : this.streaming) {
+			free(texture);
+		}
+		this.streaming.clear();
+		StreamedTexture texture;
+		while ((texture = this.decoded.poll()) != null) {
+			free(texture);
+		}
+	}
+	
+	private void decode(final StreamedTexture texture) {
+		texture.state = StreamedTexture.DECODING;
+		this.decoder.execute(new Runnable() {
+			@Override
+			public void run() {
+				try {
+					Image image;
+					InputStream in = texture.source.open();
+					try {
+						image = ImageIO.readImage(in, Math.max(texture.source.getSizeHint(), 1), 4);
+					} finally {
+						in.close();
+					}
+					ByteBuffer pixels = (ByteBuffer) image.getBuffer();
+					try {
+						buildChain(texture, pixels, image.getWidth(), image.getHeight());
+					} finally {
+						STBImage.stbi_image_free(pixels);
+					}
+				} catch (Throwable t) {
+					texture.error = t;
+					free(texture);
+				} finally {
+					MipStreamer.this.decoded.add(texture);
+				}
+			}
+		});
+	}
+	
+	/**Creates the texture of a decoded chain and uploads its smallest levels.
+	 */
+	private void create(StreamedTexture texture) {
+		texture.state = StreamedTexture.READY;
+		texture.baseLevel = texture.levels;
+		Texture gl = Texture.create(this.provider);
+		gl.bind(Target.TEXTURE_2D);
+		GL11.glTexParameteri(GL11.GL_TEXTURE_2D, GL12.GL_TEXTURE_MAX_LEVEL, texture.levels - 1);
+		GL11.glTexParameteri(GL11.GL_TEXTURE_2D, GL11.GL_TEXTURE_MIN_FILTER, GL11.GL_LINEAR_MIPMAP_LINEAR);
+		GL11.glTexParameteri(GL11.GL_TEXTURE_2D, GL11.GL_TEXTURE_MAG_FILTER, GL11.GL_LINEAR);
+		gl.unbind(Target.TEXTURE_2D);
+		texture.texture = gl;
+		int level = texture.levels - 1;
+		do {
+			this.upload(texture, level--);
+		} while (level >= 0 && Math.max(texture.width >> level, texture.height >> level) <= TAIL_SIZE);
+		this.streaming.add(texture);
+	}
+	
+	private void upload(StreamedTexture texture, int level) {
+		int w = Math.max(1, texture.width >> level);
+		int h = Math.max(1, texture.height >> level);
+		texture.texture.bind(Target.TEXTURE_2D);
+		texture.texture.texImage2D(Target.TEXTURE_2D, level, Texture.Format.RGBA8, w, h, 0, Image.Format.RGBA,
+				Type.UNSIGNED_BYTE, texture.mips[level]);
+		GL11.glTexParameteri(GL11.GL_TEXTURE_2D, GL12.GL_TEXTURE_BASE_LEVEL, level);
+		texture.texture.unbind(Target.TEXTURE_2D);
+		texture.baseLevel = level;
+	}
+	
+	private int requiredLevel(StreamedTexture texture) {
+		int size = Math.max(texture.width, texture.height);
+		if (!(texture.screenSize > 0.0F)) {
+			return texture.levels - 1;
+		}
+		int level = (int) Math.floor(Math.log(size / texture.screenSize) / LN2 + this.lodBias);
+		return Math.max(0, Math.min(level, texture.levels - 1));
+	}
+	
+	private static long levelBytes(StreamedTexture texture, int level) {
+		return (long) Math.max(1, texture.width >> level) * Math.max(1, texture.height >> level) * RGBA8_SIZE;
+	}
+	
+	/**Copies <code>pixels</code> as level 0 and builds the following levels
+	 * with a 2x2 box filter. Called on a decoding thread.
+	 */
+	private static void buildChain(StreamedTexture texture, ByteBuffer pixels, int width, int height) {
+		int levels = 32 - Integer.numberOfLeadingZeros(Math.max(width, height));
+		ByteBuffer[] mips = new ByteBuffer[levels];
+		mips[0] = MemoryUtil.memAlloc(width * height * RGBA8_SIZE);
+		MemoryUtil.memCopy(MemoryUtil.memAddress(pixels), MemoryUtil.memAddress(mips[0]), mips[0].remaining());
+		for (int level = 1; level < levels; level++) {
+			int sw = Math.max(1, width >> (level - 1));
+			int sh = Math.max(1, height >> (level - 1));
+			int dw = Math.max(1, width >> level);
+			int dh = Math.max(1, height >> level);
+			mips[level] = MemoryUtil.memAlloc(dw * dh * RGBA8_SIZE);
+			downsample(mips[level - 1], sw, sh, mips[level], dw, dh);
+		}
+		texture.width = width;
+		texture.height = height;
+		texture.levels = levels;
+		texture.mips = mips;
+	}
+	
+	private static void downsample(ByteBuffer src, int sw, int sh, ByteBuffer dst, int dw, int dh) {
+		int stride = sw * RGBA8_SIZE;
+		for (int y = 0; y < dh; y++) {
+			int row0 = Math.min(y << 1, sh - 1) * stride;
+			int row1 = Math.min((y << 1) + 1, sh - 1) * stride;
+			for (int x = 0; x < dw; x++) {
+				int col0 = Math.min(x << 1, sw - 1) * RGBA8_SIZE;
+				int col1 = Math.min((x << 1) + 1, sw - 1) * RGBA8_SIZE;
+				int out = (y * dw + x) * RGBA8_SIZE;
+				for (int c = 0; c < RGBA8_SIZE; c++) {
+					int sum = (src.get(row0 + col0 + c) & 0xFF) + (src.get(row0 + col1 + c) & 0xFF) +
+							(src.get(row1 + col0 + c) & 0xFF) + (src.get(row1 + col1 + c) & 0xFF);
+					dst.put(out + c, (byte) ((sum + 2) >> 2));
+				}
+			}
+		}
+	}
+	
+	private static void free(StreamedTexture texture) {
+		ByteBuffer[] mips = texture.mips;
+		texture.mips = null;
+		if (mips != null) {
+			for (ByteBuffer mip : mips) {
+				if (mip != null) {
+					MemoryUtil.memFree(mip);
+				}
+			}
+		}
+	}
+}
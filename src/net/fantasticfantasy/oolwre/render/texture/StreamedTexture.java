@@ -0,0 +1,107 @@
+/*Copyright (c) 2017 Fantastic Fantasy All rights reserved.
+ *
+ * Permission to use, copy, modify and/or redistribute in source or binary form
+ * is hereby granted, free of charge, subject to the following conditions:
+ *
+ * - Redistribution of source code shall include the above copyright notice,
+ *  this list of conditions and the following disclaimer.
+ *
+ * - Redistribution in binary form shall include the above copyright notice,
+ *  this list of conditions and the following disclaimer in the documentation
+ *  and/or other materials provided with the distribution.
+ *
+ * - Neither the name Object Oriented Lightweight Render Engine nor the names
+ *  of its contributors may be used to endorse or promote products derived
+ *  from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE
+ * OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package net.fantasticfantasy.oolwre.render.texture;
+
+import java.nio.ByteBuffer;
+import net.fantasticfantasy.oolwre.render.data.Texture;
+
+/**A <code>StreamedTexture</code> is a mipmapped 2D texture whose levels are
+ * uploaded progressively by a {@link MipStreamer}, smallest first. Its base
+ * level is clamped to the finest level uploaded, so it can be sampled as soon
+ * as its smallest levels are resident.
+ */
+public final class StreamedTexture {
+	
+	static final int IDLE = 0, DECODING = 1, READY = 2, REMOVED = 3;
+	
+	final TextureSource source;
+	Texture texture;
+	int state;
+	int width;
+	int height;
+	int levels;
+	int baseLevel;
+	int requiredLevel;
+	long requiredFrame;
+	float screenSize;
+	ByteBuffer[] mips;
+	volatile Throwable error;
+	
+	StreamedTexture(TextureSource source) {
+		this.source = source;
+	}
+	
+	/**Returns the {@link Texture}, or <code>null</code> until its smallest
+	 * levels are uploaded.
+	 */
+	public Texture getTexture() {
+		return this.texture;
+	}
+	
+	/**Returns the width of level 0, 0 until decoded.
+	 */
+	public int getWidth() {
+		return this.width;
+	}
+	
+	/**Returns the height of level 0, 0 until decoded.
+	 */
+	public int getHeight() {
+		return this.height;
+	}
+	
+	/**Returns the number of levels of the complete texture.
+	 */
+	public int getLevelCount() {
+		return this.levels;
+	}
+	
+	/**Returns the finest level uploaded, {@link #getLevelCount()} if none.
+	 */
+	public int getBaseLevel() {
+		return this.baseLevel;
+	}
+	
+	/**Returns the finest level required by the last reported frame.
+	 */
+	public int getRequiredLevel() {
+		return this.requiredLevel;
+	}
+	
+	/**Returns whether or not every level is uploaded.
+	 */
+	public boolean isComplete() {
+		return this.texture != null && this.baseLevel == 0;
+	}
+	
+	/**Returns the error raised by decoding, or <code>null</code>.
+	 */
+	public Throwable getError() {
+		return this.error;
+	}
+}
@@ -0,0 +1,406 @@
+/*Copyright (c) 2017 Fantastic Fantasy All rights reserved.
+ *
+ * Permission to use, copy, modify and/or redistribute in source or binary form
+ * is hereby granted, free of charge, subject to the following conditions:
+ *
+ * - Redistribution of source code shall include the above copyright notice,
+ *  this list of conditions and the following disclaimer.
+ *
+ * - Redistribution in binary form shall include the above copyright notice,
+ *  this list of conditions and the following disclaimer in the documentation
+ *  and/or other materials provided with the distribution.
+ *
+ * - Neither the name Object Oriented Lightweight Render Engine nor the names
+ *  of its contributors may be used to endorse or promote products derived
+ *  from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE
+ * OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package net.fantasticfantasy.oolwre.render.texture;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.lwjgl.opengl.ARBFramebufferObject;
+import org.lwjgl.opengl.GL11;
+import org.lwjgl.opengl.GL12;
+import org.lwjgl.opengl.GL30;
+import org.lwjgl.opengl.GLCapabilities;
+import net.fantasticfantasy.oolwre.CapabilityProvider;
+import net.fantasticfantasy.oolwre.image.Image;
+import net.fantasticfantasy.oolwre.render.data.Texture;
+import net.fantasticfantasy.oolwre.render.data.Texture.Format;
+import net.fantasticfantasy.oolwre.render.data.Texture.Target;
+import net.fantasticfantasy.oolwre.render.data.Type;
+import net.fantasticfantasy.oolwre.util.primitive.IntArrayList;
+
+/**A <code>TextureArrayPool</code> groups textures of the same size and
+ * {@link Format} as layers of {@link Target#TEXTURE_2D_ARRAY} textures, so
+ * that draws which only differ by their texture can share a single binding
+ * and select their {@link Layer#getIndex() layer} in the shader.<br>
+ * <br>
+ * Each array is allocated with a fixed number of layers when the first layer
+ * of its size and format is needed; another array is created once it is full.
+ * Freed layers are reused by the next allocations, and empty arrays are only
+ * deleted by {@link #trim()}. When mipmapped, the levels of the arrays whose
+ * layers changed are regenerated by {@link #update()}, once per array. This
+ * requires OpenGL 3.0 or <code>EXT_texture_array</code>.
+ */
+public class TextureArrayPool {
+	
+	private final CapabilityProvider provider;
+	private final int layersPerArray;
+	private final boolean mipmapped;
+	private final Map<Key, List<TextureArray>> groups;
+	private final List<TextureArray> dirty;
+	private int arrayCount;
+	private int layerCount;
+	
+	/**Constructs a {@link TextureArrayPool} using the current {@link Thread}'s
+	 * {@link CapabilityProvider}.
+	 * 
+	 * @param layersPerArray - The number of layers of each array, clamped to
+	 * the limit of the context
+	 * @param mipmapped - Whether or not the arrays have mipmaps
+	 */
+	public TextureArrayPool(int layersPerArray, boolean mipmapped) {
+		this(CapabilityProvider.get(), layersPerArray, mipmapped);
+	}
+	
+	/**Constructs a {@link TextureArrayPool}.
+	 * 
+	 * @param provider - The {@link CapabilityProvider}, whose context must be
+	 * current
+	 * @param layersPerArray - The number of layers of each array, clamped to
+	 * the limit of the context
+	 * @param mipmapped - Whether or not the arrays have mipmaps
+	 */
+	public TextureArrayPool(CapabilityProvider provider, int layersPerArray, boolean mipmapped) {
+		if (provider == null) {
+			throw new NullPointerException("Capability provider is null!");
+		} else if (layersPerArray <= 0) {
+			throw new IllegalArgumentException("'layersPerArray' <= 0 (" + layersPerArray + ")");
+		} else if (!isSupported(provider)) {
+			throw new UnsupportedOperationException("There is no supported extension to create texture arrays!");
+		}
+		GLCapabilities caps = provider.getCapabilities();
+		if (mipmapped && !(caps.OpenGL30 || caps.GL_ARB_framebuffer_object)) {
+			throw new UnsupportedOperationException("There is no supported extension to generate mipmaps!");
+		}
+		this.provider = provider;
+		this.layersPerArray = Math.min(layersPerArray, GL11.glGetInteger(GL30.GL_MAX_ARRAY_TEXTURE_LAYERS));
+		this.mipmapped = mipmapped;
+		this.groups = new HashMap<>();
+		this.dirty = new ArrayList<>();
+	}
+	
+	/**Allocates a layer of <code>width * height</code> pixels of
+	 * <code>format</code>. Its content is undefined until uploaded.
+	 * 
+	 * @param width - The width of the layer
+	 * @param height - The height of the layer
+	 * @param format - The internal {@link Format}
+	 */
+	public Layer allocate(int width, int height, Format format) {
+		if (format == null) {
+			throw new NullPointerException("Format is null!");
+		} else if (width <= 0) {
+			throw new IllegalArgumentException("'width' <= 0 (" + width + ")");
+		} else if (height <= 0) {
+			throw new IllegalArgumentException("'height' <= 0 (" + height + ")");
+		}
+		Key key = new Key(width, height, format);
+		List<TextureArray> arrays = this.groups.get(key);
+		if (arrays == null) {
+			arrays = new ArrayList<>();
+			this.groups.put(key, arrays);
+		}
+		TextureArray array = null;
+		for (int i = 0; i < arrays.size(); i++) {
+			if (arrays.get(i).used < this.layersPerArray) {
+				array = arrays.get(i);
+				break;
+			}
+		}
+		if (array == null) {
+			array = this.createArray(key);
+			arrays.add(array);
+		}
+		int index = array.free.isEmpty() ? array.next++ : array.free.removeLast();
+		array.used++;
+		this.layerCount++;
+		return new Layer(array, index);
+	}
+	
+	/**Allocates a layer of the size of <code>image</code> and uploads it.
+	 * 
+	 * @param image - The {@link Image}, whose buffer must be a {@link ByteBuffer}
+	 * @param imgFormat - The {@link Image.Format} of the pixels
+	 * @param format - The internal {@link Format}
+	 */
+	public Layer allocate(Image image, Image.Format imgFormat, Format format) {
+		Layer layer = this.allocate(image.getWidth(), image.getHeight(), format);
+		this.upload(layer, imgFormat, Type.UNSIGNED_BYTE, (ByteBuffer) image.getBuffer());
+		return layer;
+	}
+	
+	/**Uploads the pixels of <code>layer</code>, in the pixel format and type
+	 * of its {@link Format}.
+	 * 
+	 * @param layer - The {@link Layer}
+	 * @param pixels - The pixels
+	 */
+	public void upload(Layer layer, ByteBuffer pixels) {
+		this.upload(layer, layer.getFormat().getPixelFormat(), layer.getFormat().getPixelType(), pixels);
+	}
+	
+	/**Uploads the pixels of <code>layer</code>.
+	 * 
+	 * @param layer - The {@link Layer}
+	 * @param imgFormat - The {@link Image.Format} of the pixels
+	 * @param type - The {@link Type} of the pixels
+	 * @param pixels - The pixels
+	 */
+	public void upload(Layer layer, Image.Format imgFormat, Type type, ByteBuffer pixels) {
+		this.checkLayer(layer);
+		if (pixels == null) {
+			throw new NullPointerException("Pixels are null!");
+		}
+		TextureArray array = layer.array;
+		array.texture.bind(Target.TEXTURE_2D_ARRAY);
+		array.texture.texSubImage3D(Target.TEXTURE_2D_ARRAY, 0, 0, 0, layer.index, array.key.width,
+				array.key.height, 1, imgFormat, type, pixels);
+		array.texture.unbind(Target.TEXTURE_2D_ARRAY);
+		if (this.mipmapped && !array.dirty) {
+			array.dirty = true;
+			this.dirty.add(array);
+		}
+	}
+	
+	/**Frees <code>layer</code>, which may be returned by a later allocation.
+	 * 
+	 * @param layer - The {@link Layer}
+	 */
+	public void free(Layer layer) {
+		this.checkLayer(layer);
+		layer.freed = true;
+		layer.array.free.add(layer.index);
+		layer.array.used--;
+		this.layerCount--;
+	}
+	
+	/**Regenerates the mipmaps of the arrays uploaded to since the last call.
+	 */
+	public void update() {
+		for (int i = 0; i < this.dirty.size(); i++) {
+			TextureArray array = this.dirty.get(i);
+			array.dirty = false;
+			if (array.texture != null) {
+				array.texture.bind(Target.TEXTURE_2D_ARRAY);
+				ARBFramebufferObject.glGenerateMipmap(Target.TEXTURE_2D_ARRAY.glValue());
+				array.texture.unbind(Target.TEXTURE_2D_ARRAY);
+			}
+		}
+		this.dirty.clear();
+	}
+	
+	/**Deletes the arrays without allocated layers.
+	 */
+	public void trim() {
+		for (List<TextureArray> arrays : this.groups.values()) {
+			for (int i = arrays.size() - 1; i >= 0; i--) {
+				TextureArray array = arrays.get(i);
+				if (array.used == 0) {
+					this.destroyArray(array);
+					arrays.remove(i);
+				}
+			}
+		}
+	}
+	
+	public int getLayersPerArray() {
+		return this.layersPerArray;
+	}
+	
+	public boolean isMipmapped() {
+		return this.mipmapped;
+	}
+	
+	/**Returns the number of arrays, empty ones included.
+	 */
+	public int getArrayCount() {
+		return this.arrayCount;
+	}
+	
+	/**Returns the number of allocated layers.
+	 */
+	public int getLayerCount() {
+		return this.layerCount;
+	}
+	
+	/**Deletes every array. The allocated {@link Layer}s become invalid.
+	 */
+	public void destroy() {
+		for (List<TextureArray> arrays : this.groups.values()) {
+			for (TextureArray array : arrays) {
+				this.destroyArray(array);
+			}
+		}
+		this.groups.clear();
+		this.dirty.clear();
+		this.layerCount = 0;
+	}
+	
+	/**Returns whether or not texture arrays are supported.
+	 * 
+	 * @param provider - The {@link CapabilityProvider}
+	 */
+	public static boolean isSupported(CapabilityProvider provider) {
+		GLCapabilities caps = provider.getCapabilities();
+		return caps.OpenGL30 || caps.GL_EXT_texture_array;
+	}
+	
+	private TextureArray createArray(Key key) {
+		int levels = 1;
+		if (this.mipmapped) {
+			levels = 32 - Integer.numberOfLeadingZeros(Math.max(key.width, key.height));
+		}
+		Texture texture = Texture.create(this.provider);
+		texture.bind(Target.TEXTURE_2D_ARRAY);
+		int target = Target.TEXTURE_2D_ARRAY.glValue();
+		for (int level = 0; level < levels; level++) {
+			texture.texImage3D(Target.TEXTURE_2D_ARRAY, level, key.format, Math.max(1, key.width >> level),
+					Math.max(1, key.height >> level), this.layersPerArray, 0, key.format.getPixelFormat(),
+					key.format.getPixelType(), (ByteBuffer) null);
+		}
+		GL11.glTexParameteri(target, GL12.GL_TEXTURE_MAX_LEVEL, levels - 1);
+		GL11.glTexParameteri(target, GL11.GL_TEXTURE_MIN_FILTER, this.mipmapped ? GL11.GL_LINEAR_MIPMAP_LINEAR :
+				GL11.GL_LINEAR);
+		GL11.glTexParameteri(target, GL11.GL_TEXTURE_MAG_FILTER, GL11.GL_LINEAR);
+		texture.unbind(Target.TEXTURE_2D_ARRAY);
+		this.arrayCount++;
+		return new TextureArray(key, texture, this.layersPerArray);
+	}
+	
+	private void destroyArray(TextureArray array) {
+		if (array.texture != null) {
+			array.texture.destroy();
+			array.texture = null;
+			this.arrayCount--;
+		}
+	}
+	
+	private void checkLayer(Layer layer) {
+		if (layer == null) {
+			throw new NullPointerException("Layer is null!");
+		} else if (layer.freed || layer.array.texture == null) {
+			throw new IllegalArgumentException("Layer is freed!");
+		}
+	}
+	
+	/**A <code>Layer</code> is a layer of a texture array allocated by a
+	 * {@link TextureArrayPool}. Layers of the same size and {@link Format}
+	 * usually share their {@link #getTexture() texture}.
+	 */
+	public static final class Layer {
+		
+		private final TextureArray array;
+		private final int index;
+		private boolean freed;
+		
+		private Layer(TextureArray array, int index) {
+			this.array = array;
+			this.index = index;
+		}
+		
+		/**Returns the {@link Target#TEXTURE_2D_ARRAY} texture holding this
+		 * layer.
+		 */
+		public Texture getTexture() {
+			return this.array.texture;
+		}
+		
+		/**Returns the index of this layer, the third texture coordinate of the
+		 * <code>sampler2DArray</code> sampling it.
+		 */
+		public int getIndex() {
+			return this.index;
+		}
+		
+		/**Binds the texture holding this layer.
+		 */
+		public void bind() {
+			this.array.texture.bind(Target.TEXTURE_2D_ARRAY);
+		}
+		
+		public int getWidth() {
+			return this.array.key.width;
+		}
+		
+		public int getHeight() {
+			return this.array.key.height;
+		}
+		
+		public Format getFormat() {
+			return this.array.key.format;
+		}
+		
+		public boolean isFreed() {
+			return this.freed;
+		}
+	}
+	
+	private static final class TextureArray {
+		
+		private final Key key;
+		private final IntArrayList free;
+		private Texture texture;
+		private int next;
+		private int used;
+		private boolean dirty;
+		
+		private TextureArray(Key key, Texture texture, int layers) {
+			this.key = key;
+			this.texture = texture;
+			this.free = new IntArrayList(Math.min(layers, 16));
+		}
+	}
+	
+	private static final class Key {
+		
+		private final int width;
+		private final int height;
+		private final Format format;
+		
+		private Key(int width, int height, Format format) {
+			this.width = width;
+			this.height = height;
+			this.format = format;
+		}
+		
+		@Override
+		public int hashCode() {
+			return (31 * this.width + this.height) * 31 + this.format.hashCode();
+		}
+		
+		@Override
+		public boolean equals(Object obj) {
+			if (!(obj instanceof Key)) {
+				return false;
+			}
+			Key other = (Key) obj;
+			return other.width == this.width && other.height == this.height && other.format == this.format;
+		}
+	}
+}
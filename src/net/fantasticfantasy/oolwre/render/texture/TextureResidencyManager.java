@@ -0,0 +1,617 @@
+/*Copyright (c) 2017 Fantastic Fantasy All rights reserved.
+ *
+ * Permission to use, copy, modify and/or redistribute in source or binary form
+ * is hereby granted, free of charge, subject to the following conditions:
+ *
+ * - Redistribution of source code shall include the above copyright notice,
+ *  this list of conditions and the following disclaimer.
+ *
+ * - Redistribution in binary form shall include the above copyright notice,
+ *  this list of conditions and the following disclaimer in the documentation
+ *  and/or other materials provided with the distribution.
+ *
+ * - Neither the name Object Oriented Lightweight Render Engine nor the names
+ *  of its contributors may be used to endorse or promote products derived
+ *  from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE
+ * OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package net.fantasticfantasy.oolwre.render.texture;
+
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import org.lwjgl.opengl.ARBFramebufferObject;
+import org.lwjgl.opengl.GL11;
+import org.lwjgl.opengl.GL12;
+import org.lwjgl.opengl.GLCapabilities;
+import org.lwjgl.stb.STBImage;
+import net.fantasticfantasy.oolwre.CapabilityProvider;
+import net.fantasticfantasy.oolwre.image.Image;
+import net.fantasticfantasy.oolwre.io.ImageIO;
+import net.fantasticfantasy.oolwre.render.data.DataProvider;
+import net.fantasticfantasy.oolwre.render.data.Framebuffer;
+import net.fantasticfantasy.oolwre.render.data.Texture;
+import net.fantasticfantasy.oolwre.render.data.Texture.Target;
+import net.fantasticfantasy.oolwre.render.data.Type;
+
+/**A <code>TextureResidencyManager</code> keeps the {@link ManagedTexture}s
+ * it streams within a memory budget. Every texture used in a frame is
+ * {@link #request(ManagedTexture, boolean) requested}; textures which are not
+ * resident are decoded from their {@link TextureSource} on a background
+ * thread, on-screen requests first, and uploaded by {@link #update()}, a
+ * limited number per frame.<br>
+ * <br>
+ * When the estimated size of the resident textures exceeds the budget, the
+ * least recently used textures are evicted. Textures used during the last
+ * frame are not evicted but reduced instead, by dropping their top mipmap
+ * level, and restored once they are requested on screen and fit again.<br>
+ * <br>
+ * Textures are uploaded as <code>RGBA8</code>. Every method but the decoding
+ * must be called on the thread of the context.
+ */
+public class TextureResidencyManager {
+	
+	private static final int RGBA8_SIZE = 4;
+	
+	private final CapabilityProvider provider;
+	private final DataProvider data;
+	private final boolean mipmaps;
+	private final ExecutorService decoder;
+	private final PriorityQueue<ManagedTexture> requests;
+	private final ConcurrentLinkedQueue<ManagedTexture> decoded;
+	private final List<ManagedTexture> waiting;
+	private final List<ManagedTexture> oversized;
+	private Framebuffer scratch;
+	private ManagedTexture head;
+	private ManagedTexture tail;
+	private long budget;
+	private long residentBytes;
+	private int residentCount;
+	private int maxUploadsPerFrame;
+	private int maxDecoding;
+	private int decoding;
+	private int requestTimeout;
+	private long frame;
+	private long requestOrder;
+	private long evictions;
+	private long droppedLevels;
+	
+	/**Constructs a {@link TextureResidencyManager} using the current
+	 * {@link Thread}'s {@link CapabilityProvider} and {@link DataProvider}.
+	 * 
+	 * @param budget - The budget in bytes
+	 */
+	public TextureResidencyManager(long budget) {
+		this(CapabilityProvider.get(), DataProvider.get(), budget, 1);
+	}
+	
+	/**Constructs a {@link TextureResidencyManager}.
+	 * 
+	 * @param provider - The {@link CapabilityProvider}
+	 * @param data - The {@link DataProvider} generating the framebuffer used to
+	 * drop mipmap levels
+	 * @param budget - The budget in bytes
+	 * @param threads - The number of decoding threads
+	 */
+	public TextureResidencyManager(CapabilityProvider provider, DataProvider data, long budget, int threads) {
+		if (provider == null) {
+			throw new NullPointerException("Capability provider is null!");
+		} else if (data == null) {
+			throw new NullPointerException("Data provider is null!");
+		} else if (threads <= 0) {
+			throw new IllegalArgumentException("'threads' <= 0 (" + threads + ")");
+		}
+		if (budget <= 0) {
+			throw new IllegalArgumentException("'budget' <= 0 (" + budget + ")");
+		}
+		this.budget = budget;
+		GLCapabilities caps = provider.getCapabilities();
+		this.provider = provider;
+		this.data = data;
+		this.mipmaps = caps.OpenGL30 || caps.GL_ARB_framebuffer_object;
+		this.decoder = Executors.newFixedThreadPool(threads, new ThreadFactory() {
+			@Override
+			public Thread newThread(Runnable r) {
+				Thread thread = new Thread(r, "OOLWRE Texture Decoder");
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+		this.requests = new PriorityQueue<>(64, new Comparator<ManagedTexture>() {
+			@Override
+			public int compare(ManagedTexture a, ManagedTexture b) {
+				if (a.onScreen != b.onScreen) {
+					return a.onScreen ? -1 : 1;
+				}
+				return Long.compare(a.requestOrder, b.requestOrder);
+			}
+		});
+		this.decoded = new ConcurrentLinkedQueue<>();
+		this.waiting = new ArrayList<>();
+		this.oversized = new ArrayList<>();
+		this.maxUploadsPerFrame = 4;
+		this.maxDecoding = threads * 2;
+		this.requestTimeout = 30;
+	}
+	
+	/**Registers a texture, which is not resident until requested.
+	 * 
+	 * @param source - The {@link TextureSource}
+	 * @param mipmapped - Whether or not mipmaps are generated
+	 */
+	public ManagedTexture register(TextureSource source, boolean mipmapped) {
+		if (source == null) {
+			throw new NullPointerException("Source is null!");
+		}
+		return new ManagedTexture(source, mipmapped);
+	}
+	
+	/**Registers a texture read from a file.
+	 * 
+	 * @param file - The path of the encoded image
+	 * @param mipmapped - Whether or not mipmaps are generated
+	 */
+	public ManagedTexture register(Path file, boolean mipmapped) {
+		return this.register(new PathTextureSource(file), mipmapped);
+	}
+	
+	/**Marks <code>texture</code> as used during the current frame, and queues
+	 * its loading if it is not resident. A reduced texture requested on
+	 * screen is queued to be restored if its full size fits in the budget. A
+	 * texture whose last load {@link ManagedTexture#getError() failed} is not
+	 * queued again until it is {@link #retry(ManagedTexture) retried}.
+	 * 
+	 * @param texture - The {@link ManagedTexture}
+	 * @param onScreen - Whether or not the texture is visible, visible
+	 * textures being loaded first
+	 * 
+	 * @return Whether or not the texture is resident and can be bound
+	 */
+	public boolean request(ManagedTexture texture, boolean onScreen) {
+		if (texture.state == ManagedTexture.REMOVED) {
+			throw new IllegalArgumentException("Texture is unregistered!");
+		}
+		texture.lastUsedFrame = this.frame;
+		if (texture.state == ManagedTexture.RESIDENT) {
+			this.moveToTail(texture);
+			if (onScreen && texture.droppedLevels > 0 && texture.load == ManagedTexture.LOAD_NONE &&
+					texture.error == null) {
+				int dropped = texture.droppedLevels;
+				long fullBytes = estimateBytes(texture.width << dropped, texture.height << dropped,
+						texture.levels + dropped);
+				//Restoring a texture that cannot fit would reduce the others, then fail and start again
+				if (this.residentBytes - texture.bytes + fullBytes <= this.budget) {
+					this.enqueue(texture, true);
+				}
+			}
+			return true;
+		}
+		if (texture.load == ManagedTexture.LOAD_NONE) {
+			if (texture.error == null) {
+				this.enqueue(texture, onScreen);
+			}
+		} else if (texture.load == ManagedTexture.LOAD_QUEUED && onScreen && !texture.onScreen) {
+			this.requests.remove(texture);
+			texture.onScreen = true;
+			this.requests.add(texture);
+		}
+		return false;
+	}
+	
+	/**Clears the {@link ManagedTexture#getError() error} of the last load of
+	 * <code>texture</code>, so that the next {@link #request(ManagedTexture,
+	 * boolean) request} loads it again. This has no effect while the texture
+	 * is being loaded.
+	 * 
+	 * @param texture - The {@link ManagedTexture}
+	 */
+	public void retry(ManagedTexture texture) {
+		if (texture.load == ManagedTexture.LOAD_NONE) {
+			texture.error = null;
+			this.oversized.remove(texture);
+		}
+	}
+	
+	/**Starts a frame: uploads the decoded textures, enforces the budget and
+	 * starts decoding the most urgent requests. Requests not renewed for
+	 * {@link #getRequestTimeout()} frames are dropped. Decoded textures which
+	 * do not fit in the budget yet wait, without being decoded again, until
+	 * enough memory is released.
+	 */
+	public void update() {
+		this.frame++;
+		ManagedTexture texture;
+		int uploads = 0;
+		for (int i = 0; i < this.waiting.size() && uploads < this.maxUploadsPerFrame;) {
+			int result = this.finishLoad(this.waiting.get(i));
+			if (result < 0) {
+				i++;
+			} else {
+				this.waiting.remove(i);
+				uploads += result;
+			}
+		}
+		while (uploads < this.maxUploadsPerFrame && (texture = this.decoded.poll()) != null) {
+			this.decoding--;
+			int result = this.finishLoad(texture);
+			if (result < 0) {
+				this.waiting.add(texture);
+			} else {
+				uploads += result;
+			}
+		}
+		if (this.residentBytes > this.budget) {
+			this.makeRoom(0, null);
+		}
+		while (this.decoding < this.maxDecoding && (texture = this.requests.poll()) != null) {
+			if (texture.state == ManagedTexture.REMOVED || this.frame - texture.lastUsedFrame > this.requestTimeout) {
+				texture.load = ManagedTexture.LOAD_NONE;
+				continue;
+			}
+			this.decode(texture);
+		}
+	}
+	
+	/**Evicts <code>texture</code> and forgets it.
+	 * 
+	 * @param texture - The {@link ManagedTexture}
+	 */
+	public void unregister(ManagedTexture texture) {
+		if (texture.state == ManagedTexture.RESIDENT) {
+			this.evict(texture);
+		}
+		if (texture.load == ManagedTexture.LOAD_QUEUED) {
+			this.requests.remove(texture);
+			texture.load = ManagedTexture.LOAD_NONE;
+		}
+		this.oversized.remove(texture);
+		texture.state = ManagedTexture.REMOVED;
+	}
+	
+	public long getBudget() {
+		return this.budget;
+	}
+	
+	/**Sets the budget, enforced by the next {@link #update()}. Textures
+	 * rejected as larger than the previous budget are loaded again on their
+	 * next request if they fit in the new one.
+	 * 
+	 * @param budget - The budget in bytes
+	 */
+	public void setBudget(long budget) {
+		if (budget <= 0) {
+			throw new IllegalArgumentException("'budget' <= 0 (" + budget + ")");
+		}
+		this.budget = budget;
+		for (int i = this.oversized.size() - 1; i >= 0; i--) {
+			ManagedTexture texture = this.oversized.get(i);
+			if (texture.rejectedBytes <= budget) {
+				texture.error = null;
+				this.oversized.remove(i);
+			}
+		}
+	}
+	
+	public int getMaxUploadsPerFrame() {
+		return this.maxUploadsPerFrame;
+	}
+	
+	public void setMaxUploadsPerFrame(int maxUploadsPerFrame) {
+		if (maxUploadsPerFrame <= 0) {
+			throw new IllegalArgumentException("'maxUploadsPerFrame' <= 0 (" + maxUploadsPerFrame + ")");
+		}
+		this.maxUploadsPerFrame = maxUploadsPerFrame;
+	}
+	
+	public int getRequestTimeout() {
+		return this.requestTimeout;
+	}
+	
+	public void setRequestTimeout(int requestTimeout) {
+		if (requestTimeout < 0) {
+			throw new IllegalArgumentException("'requestTimeout' < 0 (" + requestTimeout + ")");
+		}
+		this.requestTimeout = requestTimeout;
+	}
+	
+	/**Returns the estimated size of the resident textures in bytes.
+	 */
+	public long getResidentBytes() {
+		return this.residentBytes;
+	}
+	
+	public int getResidentCount() {
+		return this.residentCount;
+	}
+	
+	/**Returns the number of textures queued, being decoded or waiting for
+	 * room in the budget.
+	 */
+	public int getPendingCount() {
+		return this.requests.size() + this.decoding + this.waiting.size();
+	}
+	
+	public long getEvictionCount() {
+		return this.evictions;
+	}
+	
+	/**Returns the number of mipmap levels dropped to save memory.
+	 */
+	public long getDroppedLevelCount() {
+		return this.droppedLevels;
+	}
+	
+	public long getFrame() {
+		return this.frame;
+	}
+	
+	/**Evicts every texture and stops the decoding threads.
+	 */
+	public void destroy() {
+		while (this.head != null) {
+			this.evict(this.head);
+		}
+		this.requests.clear();
+		this.oversized.clear();
+		this.decoder.shutdownNow();
+		this.decoded.addAll(this.waiting);
+		this.waiting.clear();
+		ManagedTexture texture;
+		while ((texture = this.decoded.poll()) != null) {
+			Image image = texture.decoded;
+			texture.decoded = null;
+			if (image != null) {
+				STBImage.stbi_image_free((ByteBuffer) image.getBuffer());
+			}
+		}
+		if (this.scratch != null) {
+			this.scratch.destroy();
+			this.scratch = null;
+		}
+	}
+	
+	private void enqueue(ManagedTexture texture, boolean onScreen) {
+		texture.load = ManagedTexture.LOAD_QUEUED;
+		texture.onScreen = onScreen;
+		texture.requestOrder = this.requestOrder++;
+		this.requests.add(texture);
+	}
+	
+	private void decode(final ManagedTexture texture) {
+		texture.load = ManagedTexture.LOAD_DECODING;
+		texture.error = null;
+		this.decoding++;
+		this.decoder.execute(new Runnable() {
+			@Override
+			public void run() {
+				try {
+					InputStream in = texture.source.open();
+					try {
+						texture.decoded = ImageIO.readImage(in, Math.max(texture.source.getSizeHint(), 1), 4);
+					} finally {
+						in.close();
+					}
+				} catch (Throwable t) {
+					texture.error = t;
+				} finally {
+					TextureResidencyManager.this.decoded.add(texture);
+				}
+			}
+		});
+	}
+	
+	/**Uploads the decoded image of <code>texture</code> and releases it,
+	 * unless the texture is not resident and must wait for room in the budget.
+	 * Images of unregistered or expired requests are released unused.
+	 * 
+	 * @return 1 if the image was uploaded, 0 if it was released unused, or -1
+	 * if it waits
+	 */
+	private int finishLoad(ManagedTexture texture) {
+		Image image = texture.decoded;
+		if (image == null) {
+			texture.load = ManagedTexture.LOAD_NONE;
+			return 0;
+		}
+		int result = 0;
+		if (texture.state != ManagedTexture.REMOVED && this.frame - texture.lastUsedFrame <= this.requestTimeout) {
+			if (this.upload(texture, image)) {
+				result = 1;
+			} else if (texture.state != ManagedTexture.RESIDENT && texture.error == null) {
+				return -1;
+			}
+		}
+		texture.decoded = null;
+		texture.load = ManagedTexture.LOAD_NONE;
+		STBImage.stbi_image_free((ByteBuffer) image.getBuffer());
+		return result;
+	}
+	
+	/**Uploads a decoded image, replacing the reduced texture of a restore,
+	 * after making room for it. A texture larger than the whole budget is
+	 * rejected with an {@link ManagedTexture#getError() error}.
+	 * 
+	 * @return Whether or not the image was uploaded
+	 */
+	private boolean upload(ManagedTexture texture, Image image) {
+		int width = image.getWidth();
+		int height = image.getHeight();
+		int levels = texture.mipmapped && this.mipmaps ? levelCount(width, height) : 1;
+		long bytes = estimateBytes(width, height, levels);
+		boolean restore = texture.state == ManagedTexture.RESIDENT;
+		long growth = restore ? bytes - texture.bytes : bytes;
+		if (bytes > this.budget) {
+			texture.error = new IllegalStateException("Texture larger than the budget! (" + bytes + " bytes)");
+			texture.rejectedBytes = bytes;
+			this.oversized.add(texture);
+			return false;
+		}
+		this.makeRoom(growth, texture);
+		if (this.residentBytes + growth > this.budget) {
+			return false;
+		}
+		Texture gl = Texture.create(this.provider);
+		gl.bind(Target.TEXTURE_2D);
+		gl.texImage2D(Target.TEXTURE_2D, 0, Texture.Format.RGBA8, width, height, 0, Image.Format.RGBA,
+				Type.UNSIGNED_BYTE, (ByteBuffer) image.getBuffer());
+		setLevels(levels);
+		if (levels > 1) {
+			ARBFramebufferObject.glGenerateMipmap(GL11.GL_TEXTURE_2D);
+		}
+		gl.unbind(Target.TEXTURE_2D);
+		if (restore) {
+			texture.texture.destroy();
+			this.residentBytes -= texture.bytes;
+		} else {
+			this.link(texture);
+			this.residentCount++;
+		}
+		texture.texture = gl;
+		texture.state = ManagedTexture.RESIDENT;
+		texture.width = width;
+		texture.height = height;
+		texture.levels = levels;
+		texture.droppedLevels = 0;
+		texture.bytes = bytes;
+		this.residentBytes += bytes;
+		return true;
+	}
+	
+	/**Evicts or reduces the least recently used textures until
+	 * <code>bytes</code> more fit in the budget, or until every texture used
+	 * during the last frame was visited once.
+	 */
+	private void makeRoom(long bytes, ManagedTexture keep) {
+		int visits = this.residentCount;
+		while (this.residentBytes + bytes > this.budget && this.head != null && visits > 0) {
+			ManagedTexture victim = this.head;
+			if (victim != keep && this.frame - victim.lastUsedFrame > 1) {
+				this.evict(victim);
+				continue;
+			}
+			if (victim != keep && victim.levels > 1) {
+				this.dropTopLevel(victim);
+			}
+			this.moveToTail(victim);
+			visits--;
+		}
+	}
+	
+	private void evict(ManagedTexture texture) {
+		this.unlink(texture);
+		texture.texture.destroy();
+		texture.texture = null;
+		texture.state = ManagedTexture.EVICTED;
+		texture.droppedLevels = 0;
+		this.residentBytes -= texture.bytes;
+		this.residentCount--;
+		this.evictions++;
+	}
+	
+	/**Replaces the texture by a copy without its level 0, each level being
+	 * copied from the next one through a framebuffer.
+	 */
+	private void dropTopLevel(ManagedTexture texture) {
+		if (this.scratch == null) {
+			this.scratch = new Framebuffer(this.data);
+		}
+		int width = Math.max(1, texture.width >> 1);
+		int height = Math.max(1, texture.height >> 1);
+		int levels = texture.levels - 1;
+		Texture gl = Texture.create(this.provider);
+		gl.bind(Target.TEXTURE_2D);
+		setLevels(levels);
+		for (int level = 0; level < levels; level++) {
+			int w = Math.max(1, width >> level);
+			int h = Math.max(1, height >> level);
+			gl.texImage2D(Target.TEXTURE_2D, level, Texture.Format.RGBA8, w, h, 0, Image.Format.RGBA,
+					Type.UNSIGNED_BYTE, (ByteBuffer) null);
+			this.scratch.attachColor(0, texture.texture, level + 1);
+			this.scratch.readBuffer(0);
+			GL11.glCopyTexSubImage2D(GL11.GL_TEXTURE_2D, level, 0, 0, 0, 0, w, h);
+		}
+		this.scratch.attachColor(0, null, 0);
+		Framebuffer.unbind();
+		gl.unbind(Target.TEXTURE_2D);
+		texture.texture.destroy();
+		long bytes = estimateBytes(width, height, levels);
+		this.residentBytes += bytes - texture.bytes;
+		texture.texture = gl;
+		texture.width = width;
+		texture.height = height;
+		texture.levels = levels;
+		texture.bytes = bytes;
+		texture.droppedLevels++;
+		this.droppedLevels++;
+	}
+	
+	private static void setLevels(int levels) {
+		GL11.glTexParameteri(GL11.GL_TEXTURE_2D, GL12.GL_TEXTURE_MAX_LEVEL, levels - 1);
+		GL11.glTexParameteri(GL11.GL_TEXTURE_2D, GL11.GL_TEXTURE_MIN_FILTER,
+				levels > 1 ? GL11.GL_LINEAR_MIPMAP_LINEAR : GL11.GL_LINEAR);
+		GL11.glTexParameteri(GL11.GL_TEXTURE_2D, GL11.GL_TEXTURE_MAG_FILTER, GL11.GL_LINEAR);
+	}
+	
+	private static int levelCount(int width, int height) {
+		return 32 - Integer.numberOfLeadingZeros(Math.max(width, height));
+	}
+	
+	private static long estimateBytes(int width, int height, int levels) {
+		long bytes = 0;
+		for (int level = 0; level < levels; level++) {
+			bytes += (long) Math.max(1, width >> level) * Math.max(1, height >> level) * RGBA8_SIZE;
+		}
+		return bytes;
+	}
+	
+	private void link(ManagedTexture texture) {
+		texture.prev = this.tail;
+		texture.next = null;
+		if (this.tail == null) {
+			this.head = texture;
+		} else {
+			this.tail.next = texture;
+		}
+		this.tail = texture;
+	}
+	
+	private void unlink(ManagedTexture texture) {
+		if (texture.prev == null) {
+			this.head = texture.next;
+		} else {
+			texture.prev.next = texture.next;
+		}
+		if (texture.next == null) {
+			this.tail = texture.prev;
+		} else {
+			texture.next.prev = texture.prev;
+		}
+		texture.prev = null;
+		texture.next = null;
+	}
+	
+	private void moveToTail(ManagedTexture texture) {
+		if (this.tail != texture) {
+			this.unlink(texture);
+			this.link(texture);
+		}
+	}
+}
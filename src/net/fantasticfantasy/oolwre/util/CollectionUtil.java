@@ -45,12 +45,18 @@ import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import net.fantasticfantasy.oolwre.math.OOLWREMath;
 
 /**The <code>CollectionUtil</code> class offers many methods
  * useful when dealing with the Java Collection Framework and
  * the Native I/O, such as conversions, storing and loading from
  * buffers, concatenating and getting non-null elements from
- * collections that allows them. 
+ * collections that allows them.<br><br>
+ * The conversions between primitive and boxed types allocate an object per
+ * element; lists and maps of primitives are better kept in the collections
+ * of {@link net.fantasticfantasy.oolwre.util.primitive}, such as
+ * {@link net.fantasticfantasy.oolwre.util.primitive.FloatArrayList
+ * FloatArrayList}, which copy to NIO buffers in bulk.
  */
 public class CollectionUtil {
 	
@@ -1032,6 +1038,390 @@ public class CollectionUtil {
 		return narray;
 	}
 	
+	/**Converts <code>len</code> elements of <code>src</code>, from
+	 * <code>srcoff</code>, into <code>dest</code>, from <code>destoff</code>,
+	 * with the same semantics as a Java cast. Nothing is allocated, and the
+	 * loop is simple enough for the JIT compiler to vectorize it. The other
+	 * <code>convert</code> methods work the same way.
+	 * 
+	 * @param src - The source array
+	 * @param srcoff - The source offset
+	 * @param dest - The destination array
+	 * @param destoff - The destination offset
+	 * @param len - The number of elements
+	 * 
+	 * @throws IndexOutOfBoundsException If a range exceeds its array
+	 */
+	public static void convert(byte[] src, int srcoff, short[] dest, int destoff, int len) {
+		checkRanges(src.length, srcoff, dest.length, destoff, len);
+		for (int i = 0; i < len; i++) {
+			dest[destoff + i] = src[srcoff + i];
+		}
+	}
+	
+	public static void convert(byte[] src, int srcoff, int[] dest, int destoff, int len) {
+		checkRanges(src.length, srcoff, dest.length, destoff, len);
+		for (int i = 0; i < len; i++) {
+			dest[destoff + i] = src[srcoff + i];
+		}
+	}
+	
+	public static void convert(byte[] src, int srcoff, long[] dest, int destoff, int len) {
+		checkRanges(src.length, srcoff, dest.length, destoff, len);
+		for (int i = 0; i < len; i++) {
+			dest[destoff + i] = src[srcoff + i];
+		}
+	}
+	
+	public static void convert(byte[] src, int srcoff, float[] dest, int destoff, int len) {
+		checkRanges(src.length, srcoff, dest.length, destoff, len);
+		for (int i = 0; i < len; i++) {
+			dest[destoff + i] = src[srcoff + i];
+		}
+	}
+	
+	public static void convert(byte[] src, int srcoff, double[] dest, int destoff, int len) {
+		checkRanges(src.length, srcoff, dest.length, destoff, len);
+		for (int i = 0; i < len; i++) {
+			dest[destoff + i] = src[srcoff + i];
+		}
+	}
+	
+	public static void convert(short[] src, int srcoff, byte[] dest, int destoff, int len) {
+		checkRanges(src.length, srcoff, dest.length, destoff, len);
+		for (int i = 0; i < len; i++) {
+			dest[destoff + i] = (byte) src[srcoff + i];
+		}
+	}
+	
+	public static void convert(short[] src, int srcoff, int[] dest, int destoff, int len) {
+		checkRanges(src.length, srcoff, dest.length, destoff, len);
+		for (int i = 0; i < len; i++) {
+			dest[destoff + i] = src[srcoff + i];
+		}
+	}
+	
+	public static void convert(short[] src, int srcoff, long[] dest, int destoff, int len) {
+		checkRanges(src.length, srcoff, dest.length, destoff, len);
+		for (int i = 0; i < len; i++) {
+			dest[destoff + i] = src[srcoff + i];
+		}
+	}
+	
+	public static void convert(short[] src, int srcoff, float[] dest, int destoff, int len) {
+		checkRanges(src.length, srcoff, dest.length, destoff, len);
+		for (int i = 0; i < len; i++) {
+			dest[destoff + i] = src[srcoff + i];
+		}
+	}
+	
+	public static void convert(short[] src, int srcoff, double[] dest, int destoff, int len) {
+		checkRanges(src.length, srcoff, dest.length, destoff, len);
+		for (int i = 0; i < len; i++) {
+			dest[destoff + i] = src[srcoff + i];
+		}
+	}
+	
+	public static void convert(int[] src, int srcoff, byte[] dest, int destoff, int len) {
+		checkRanges(src.length, srcoff, dest.length, destoff, len);
+		for (int i = 0; i < len; i++) {
+			dest[destoff + i] = (byte) src[srcoff + i];
+		}
+	}
+	
+	public static void convert(int[] src, int srcoff, short[] dest, int destoff, int len) {
+		checkRanges(src.length, srcoff, dest.length, destoff, len);
+		for (int i = 0; i < len; i++) {
+			dest[destoff + i] = (short) src[srcoff + i];
+		}
+	}
+	
+	public static void convert(int[] src, int srcoff, long[] dest, int destoff, int len) {
+		checkRanges(src.length, srcoff, dest.length, destoff, len);
+		for (int i = 0; i < len; i++) {
+			dest[destoff + i] = src[srcoff + i];
+		}
+	}
+	
+	public static void convert(int[] src, int srcoff, float[] dest, int destoff, int len) {
+		checkRanges(src.length, srcoff, dest.length, destoff, len);
+		for (int i = 0; i < len; i++) {
+			dest[destoff + i] = src[srcoff + i];
+		}
+	}
+	
+	public static void convert(int[] src, int srcoff, double[] dest, int destoff, int len) {
+		checkRanges(src.length, srcoff, dest.length, destoff, len);
+		for (int i = 0; i < len; i++) {
+			dest[destoff + i] = src[srcoff + i];
+		}
+	}
+	
+	public static void convert(long[] src, int srcoff, byte[] dest, int destoff, int len) {
+		checkRanges(src.length, srcoff, dest.length, destoff, len);
+		for (int i = 0; i < len; i++) {
+			dest[destoff + i] = (byte) src[srcoff + i];
+		}
+	}
+	
+	public static void convert(long[] src, int srcoff, short[] dest, int destoff, int len) {
+		checkRanges(src.length, srcoff, dest.length, destoff, len);
+		for (int i = 0; i < len; i++) {
+			dest[destoff + i] = (short) src[srcoff + i];
+		}
+	}
+	
+	public static void convert(long[] src, int srcoff, int[] dest, int destoff, int len) {
+		checkRanges(src.length, srcoff, dest.length, destoff, len);
+		for (int i = 0; i < len; i++) {
+			dest[destoff + i] = (int) src[srcoff + i];
+		}
+	}
+	
+	public static void convert(long[] src, int srcoff, float[] dest, int destoff, int len) {
+		checkRanges(src.length, srcoff, dest.length, destoff, len);
+		for (int i = 0; i < len; i++) {
+			dest[destoff + i] = src[srcoff + i];
+		}
+	}
+	
+	public static void convert(long[] src, int srcoff, double[] dest, int destoff, int len) {
+		checkRanges(src.length, srcoff, dest.length, destoff, len);
+		for (int i = 0; i < len; i++) {
+			dest[destoff + i] = src[srcoff + i];
+		}
+	}
+	
+	public static void convert(float[] src, int srcoff, byte[] dest, int destoff, int len) {
+		checkRanges(src.length, srcoff, dest.length, destoff, len);
+		for (int i = 0; i < len; i++) {
+			dest[destoff + i] = (byte) src[srcoff + i];
+		}
+	}
+	
+	public static void convert(float[] src, int srcoff, short[] dest, int destoff, int len) {
+		checkRanges(src.length, srcoff, dest.length, destoff, len);
+		for (int i = 0; i < len; i++) {
+			dest[destoff + i] = (short) src[srcoff + i];
+		}
+	}
+	
+	public static void convert(float[] src, int srcoff, int[] dest, int destoff, int len) {
+		checkRanges(src.length, srcoff, dest.length, destoff, len);
+		for (int i = 0; i < len; i++) {
+			dest[destoff + i] = (int) src[srcoff + i];
+		}
+	}
+	
+	public static void convert(float[] src, int srcoff, long[] dest, int destoff, int len) {
+		checkRanges(src.length, srcoff, dest.length, destoff, len);
+		for (int i = 0; i < len; i++) {
+			dest[destoff + i] = (long) src[srcoff + i];
+		}
+	}
+	
+	public static void convert(float[] src, int srcoff, double[] dest, int destoff, int len) {
+		checkRanges(src.length, srcoff, dest.length, destoff, len);
+		for (int i = 0; i < len; i++) {
+			dest[destoff + i] = src[srcoff + i];
+		}
+	}
+	
+	public static void convert(double[] src, int srcoff, byte[] dest, int destoff, int len) {
+		checkRanges(src.length, srcoff, dest.length, destoff, len);
+		for (int i = 0; i < len; i++) {
+			dest[destoff + i] = (byte) src[srcoff + i];
+		}
+	}
+	
+	public static void convert(double[] src, int srcoff, short[] dest, int destoff, int len) {
+		checkRanges(src.length, srcoff, dest.length, destoff, len);
+		for (int i = 0; i < len; i++) {
+			dest[destoff + i] = (short) src[srcoff + i];
+		}
+	}
+	
+	public static void convert(double[] src, int srcoff, int[] dest, int destoff, int len) {
+		checkRanges(src.length, srcoff, dest.length, destoff, len);
+		for (int i = 0; i < len; i++) {
+			dest[destoff + i] = (int) src[srcoff + i];
+		}
+	}
+	
+	public static void convert(double[] src, int srcoff, long[] dest, int destoff, int len) {
+		checkRanges(src.length, srcoff, dest.length, destoff, len);
+		for (int i = 0; i < len; i++) {
+			dest[destoff + i] = (long) src[srcoff + i];
+		}
+	}
+	
+	public static void convert(double[] src, int srcoff, float[] dest, int destoff, int len) {
+		checkRanges(src.length, srcoff, dest.length, destoff, len);
+		for (int i = 0; i < len; i++) {
+			dest[destoff + i] = (float) src[srcoff + i];
+		}
+	}
+	
+	/**Converts <code>len</code> values of <code>src</code>, clamped between 0
+	 * and 1, to unsigned normalized 8 bits integers.
+	 * 
+	 * @param src - The source array
+	 * @param srcoff - The source offset
+	 * @param dest - The destination array
+	 * @param destoff - The destination offset
+	 * @param len - The number of values
+	 */
+	public static void toUnorm8(float[] src, int srcoff, byte[] dest, int destoff, int len) {
+		checkRanges(src.length, srcoff, dest.length, destoff, len);
+		for (int i = 0; i < len; i++) {
+			dest[destoff + i] = OOLWREMath.toUnorm8(src[srcoff + i]);
+		}
+	}
+	
+	/**Converts <code>len</code> unsigned normalized 8 bits integers of
+	 * <code>src</code> to floats between 0 and 1.
+	 * 
+	 * @param src - The source array
+	 * @param srcoff - The source offset
+	 * @param dest - The destination array
+	 * @param destoff - The destination offset
+	 * @param len - The number of values
+	 */
+	public static void fromUnorm8(byte[] src, int srcoff, float[] dest, int destoff, int len) {
+		checkRanges(src.length, srcoff, dest.length, destoff, len);
+		for (int i = 0; i < len; i++) {
+			dest[destoff + i] = OOLWREMath.fromUnorm8(src[srcoff + i]);
+		}
+	}
+	
+	/**Converts <code>len</code> values of <code>src</code>, clamped between -1
+	 * and 1, to signed normalized 8 bits integers.
+	 * 
+	 * @param src - The source array
+	 * @param srcoff - The source offset
+	 * @param dest - The destination array
+	 * @param destoff - The destination offset
+	 * @param len - The number of values
+	 */
+	public static void toSnorm8(float[] src, int srcoff, byte[] dest, int destoff, int len) {
+		checkRanges(src.length, srcoff, dest.length, destoff, len);
+		for (int i = 0; i < len; i++) {
+			dest[destoff + i] = OOLWREMath.toSnorm8(src[srcoff + i]);
+		}
+	}
+	
+	/**Converts <code>len</code> signed normalized 8 bits integers of
+	 * <code>src</code> to floats between -1 and 1.
+	 * 
+	 * @param src - The source array
+	 * @param srcoff - The source offset
+	 * @param dest - The destination array
+	 * @param destoff - The destination offset
+	 * @param len - The number of values
+	 */
+	public static void fromSnorm8(byte[] src, int srcoff, float[] dest, int destoff, int len) {
+		checkRanges(src.length, srcoff, dest.length, destoff, len);
+		for (int i = 0; i < len; i++) {
+			dest[destoff + i] = OOLWREMath.fromSnorm8(src[srcoff + i]);
+		}
+	}
+	
+	/**Converts <code>len</code> values of <code>src</code>, clamped between 0
+	 * and 1, to unsigned normalized 16 bits integers.
+	 * 
+	 * @param src - The source array
+	 * @param srcoff - The source offset
+	 * @param dest - The destination array
+	 * @param destoff - The destination offset
+	 * @param len - The number of values
+	 */
+	public static void toUnorm16(float[] src, int srcoff, short[] dest, int destoff, int len) {
+		checkRanges(src.length, srcoff, dest.length, destoff, len);
+		for (int i = 0; i < len; i++) {
+			dest[destoff + i] = OOLWREMath.toUnorm16(src[srcoff + i]);
+		}
+	}
+	
+	/**Converts <code>len</code> unsigned normalized 16 bits integers of
+	 * <code>src</code> to floats between 0 and 1.
+	 * 
+	 * @param src - The source array
+	 * @param srcoff - The source offset
+	 * @param dest - The destination array
+	 * @param destoff - The destination offset
+	 * @param len - The number of values
+	 */
+	public static void fromUnorm16(short[] src, int srcoff, float[] dest, int destoff, int len) {
+		checkRanges(src.length, srcoff, dest.length, destoff, len);
+		for (int i = 0; i < len; i++) {
+			dest[destoff + i] = OOLWREMath.fromUnorm16(src[srcoff + i]);
+		}
+	}
+	
+	/**Converts <code>len</code> values of <code>src</code>, clamped between -1
+	 * and 1, to signed normalized 16 bits integers.
+	 * 
+	 * @param src - The source array
+	 * @param srcoff - The source offset
+	 * @param dest - The destination array
+	 * @param destoff - The destination offset
+	 * @param len - The number of values
+	 */
+	public static void toSnorm16(float[] src, int srcoff, short[] dest, int destoff, int len) {
+		checkRanges(src.length, srcoff, dest.length, destoff, len);
+		for (int i = 0; i < len; i++) {
+			dest[destoff + i] = OOLWREMath.toSnorm16(src[srcoff + i]);
+		}
+	}
+	
+	/**Converts <code>len</code> signed normalized 16 bits integers of
+	 * <code>src</code> to floats between -1 and 1.
+	 * 
+	 * @param src - The source array
+	 * @param srcoff - The source offset
+	 * @param dest - The destination array
+	 * @param destoff - The destination offset
+	 * @param len - The number of values
+	 */
+	public static void fromSnorm16(short[] src, int srcoff, float[] dest, int destoff, int len) {
+		checkRanges(src.length, srcoff, dest.length, destoff, len);
+		for (int i = 0; i < len; i++) {
+			dest[destoff + i] = OOLWREMath.fromSnorm16(src[srcoff + i]);
+		}
+	}
+	
+	/**Converts <code>len</code> values of <code>src</code> to IEEE 754
+	 * half-precision floats.
+	 * 
+	 * @param src - The source array
+	 * @param srcoff - The source offset
+	 * @param dest - The destination array
+	 * @param destoff - The destination offset
+	 * @param len - The number of values
+	 */
+	public static void toHalfFloat(float[] src, int srcoff, short[] dest, int destoff, int len) {
+		checkRanges(src.length, srcoff, dest.length, destoff, len);
+		for (int i = 0; i < len; i++) {
+			dest[destoff + i] = OOLWREMath.toHalfFloat(src[srcoff + i]);
+		}
+	}
+	
+	/**Converts <code>len</code> IEEE 754 half-precision floats of
+	 * <code>src</code> to floats.
+	 * 
+	 * @param src - The source array
+	 * @param srcoff - The source offset
+	 * @param dest - The destination array
+	 * @param destoff - The destination offset
+	 * @param len - The number of values
+	 */
+	public static void fromHalfFloat(short[] src, int srcoff, float[] dest, int destoff, int len) {
+		checkRanges(src.length, srcoff, dest.length, destoff, len);
+		for (int i = 0; i < len; i++) {
+			dest[destoff + i] = OOLWREMath.fromHalfFloat(src[srcoff + i]);
+		}
+	}
+	
 	public static void store(Byte[] src, ByteBuffer dest) {
 		for (byte b : src) {
 			dest.put(b);
@@ -1511,5 +1901,12 @@ public class CollectionUtil {
 	public static String toString(Set<?> set) {
 		return toString(setToArray(set));
 	}
+	
+	private static void checkRanges(int srclen, int srcoff, int destlen, int destoff, int len) {
+		if (len < 0 || srcoff < 0 || destoff < 0 || srcoff > srclen - len || destoff > destlen - len) {
+			throw new IndexOutOfBoundsException("Range out of bounds (srcoff=" + srcoff + ", destoff=" +
+					destoff + ", len=" + len + ")");
+		}
+	}
 }
 
@@ -0,0 +1,152 @@
+/*Copyright (c) 2017 Fantastic Fantasy All rights reserved.
+ *
+ * Permission to use, copy, modify and/or redistribute in source or binary form
+ * is hereby granted, free of charge, subject to the following conditions:
+ *
+ * - Redistribution of source code shall include the above copyright notice,
+ *  this list of conditions and the following disclaimer.
+ *
+ * - Redistribution in binary form shall include the above copyright notice,
+ *  this list of conditions and the following disclaimer in the documentation
+ *  and/or other materials provided with the distribution.
+ *
+ * - Neither the name Object Oriented Lightweight Render Engine nor the names
+ *  of its contributors may be used to endorse or promote products derived
+ *  from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE
+ * OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package net.fantasticfantasy.oolwre.util;
+
+import java.util.Arrays;
+
+/**An <code>EnumLookup</code> finds the <code>enum</code> constant standing
+ * for an <code>int</code> value, such as an OpenGL or GLFW value, in constant
+ * time and without allocation.<br>
+ * The table is built once, usually in the static initializer of the
+ * <code>enum</code>. When the values span a small range, it is a dense array
+ * indexed by the value; otherwise it is an open-addressing hash table. When
+ * several constants stand for the same value, the first one is returned, as
+ * a linear scan of <code>values()</code> would.
+ *
+ * @param <E> The <code>enum</code> type
+ */
+public final class EnumLookup<E extends Enum<E>> {
+	
+	/**The largest range of values stored in a dense array. */
+	private static final int MAX_DENSE_SPAN = 1024;
+	
+	private final int min;
+	private final Object[] dense;
+	private final int[] keys;
+	private final Object[] constants;
+	private final int mask;
+	
+	/**Constructs an {@link EnumLookup}.
+	 * 
+	 * @param constants - The constants, usually <code>values()</code>
+	 * @param values - The value of every constant
+	 */
+	public EnumLookup(E[] constants, int[] values) {
+		if (constants.length != values.length) {
+			throw new IllegalArgumentException("'constants' and 'values' lengths differ (" +
+					constants.length + " != " + values.length + ")");
+		}
+		int min = Integer.MAX_VALUE;
+		int max = Integer.MIN_VALUE;
+		for (int value : values) {
+			min = Math.min(min, value);
+			max = Math.max(max, value);
+		}
+		if (values.length > 0 && (long) max - min < MAX_DENSE_SPAN) {
+			this.min = min;
+			this.dense = new Object[max - min + 1];
+			for (int i = values.length - 1; i >= 0; i--) {
+				this.dense[values[i] - min] = constants[i];
+			}
+			this.keys = null;
+			this.constants = null;
+			this.mask = 0;
+		} else {
+			int size = Integer.highestOneBit(Math.max(values.length, 1) * 4 - 1) << 1;
+			this.min = 0;
+			this.dense = null;
+			this.keys = new int[size];
+			this.constants = new Object[size];
+			this.mask = size - 1;
+			for (int i = 0; i < values.length; i++) {
+				int slot = hash(values[i]) & this.mask;
+				while (this.constants[slot] != null && this.keys[slot] != values[i]) {
+					slot = (slot + 1) & this.mask;
+				}
+				if (this.constants[slot] == null) {
+					this.keys[slot] = values[i];
+					this.constants[slot] = constants[i];
+				}
+			}
+		}
+	}
+	
+	/**Creates an {@link EnumLookup} of {@link GlConstant}s, keyed by their
+	 * {@link GlConstant#glValue()}.
+	 * 
+	 * @param <E> The <code>enum</code> type
+	 * 
+	 * @param constants - The constants, usually <code>values()</code>
+	 */
+	public static <E extends Enum<E> & GlConstant> EnumLookup<E> of(E[] constants) {
+		int[] values = new int[constants.length];
+		for (int i = 0; i < constants.length; i++) {
+			values[i] = constants[i].glValue();
+		}
+		return new EnumLookup<>(constants, values);
+	}
+	
+	/**Returns the constant standing for <code>value</code>, or
+	 * <code>null</code> if there is none.
+	 * 
+	 * @param value - The value
+	 */
+	@SuppressWarnings("unchecked")
+	public E get(int value) {
+		if (this.dense != null) {
+			int index = value - this.min;
+			return index >= 0 && index < this.dense.length ? (E) this.dense[index] : null;
+		}
+		int slot = hash(value) & this.mask;
+		Object constant;
+		while ((constant = this.constants[slot]) != null) {
+			if (this.keys[slot] == value) {
+				return (E) constant;
+			}
+			slot = (slot + 1) & this.mask;
+		}
+		return null;
+	}
+	
+	/**Returns whether or not the constants are stored in a dense array.
+	 */
+	public boolean isDense() {
+		return this.dense != null;
+	}
+	
+	@Override
+	public String toString() {
+		return this.getClass().getName() + "{dense=" + this.isDense() + ",table=" +
+				Arrays.toString(this.dense != null ? this.dense : this.constants) + "}";
+	}
+	
+	private static int hash(int value) {
+		int h = value * 0x9E3779B9;
+		return h ^ (h >>> 16);
+	}
+}
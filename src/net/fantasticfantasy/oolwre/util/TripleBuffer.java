@@ -0,0 +1,156 @@
+/*Copyright (c) 2017 Fantastic Fantasy All rights reserved.
+ *
+ * Permission to use, copy, modify and/or redistribute in source or binary form
+ * is hereby granted, free of charge, subject to the following conditions:
+ *
+ * - Redistribution of source code shall include the above copyright notice,
+ *  this list of conditions and the following disclaimer.
+ *
+ * - Redistribution in binary form shall include the above copyright notice,
+ *  this list of conditions and the following disclaimer in the documentation
+ *  and/or other materials provided with the distribution.
+ *
+ * - Neither the name Object Oriented Lightweight Render Engine nor the names
+ *  of its contributors may be used to endorse or promote products derived
+ *  from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE
+ * OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package net.fantasticfantasy.oolwre.util;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**A <code>TripleBuffer</code> hands objects over from a producer thread to a
+ * consumer thread without locks nor waiting: the producer fills the back
+ * object and publishes it, the consumer takes the latest published object as
+ * its front object, and the third object sits between them. Neither side ever
+ * blocks the other; when the producer is faster, unread objects are
+ * overwritten and only the latest one is seen.<br><br>
+ * The objects are reused: after {@link #publish()}, the object returned by
+ * {@link #getWriteBuffer()} holds stale data and must be fully rewritten.
+ * Exactly one thread may produce and one thread may consume.
+ *
+ * @param <T> The type of the objects exchanged
+ */
+public class TripleBuffer<T> {
+	
+	private static final int INDEX_MASK = 3,
+							FRESH = 4;
+	
+	private final Object[] buffers;
+	private final long[] stamps;
+	private final AtomicInteger middle;
+	private int back;
+	private int front;
+	private volatile long published;
+	private volatile long consumed;
+	private volatile long overwritten;
+	
+	/**Constructs a {@link TripleBuffer} exchanging the given objects.
+	 * 
+	 * @param first - The first object, initially written by the producer
+	 * @param second - The second object
+	 * @param third - The third object, initially read by the consumer
+	 */
+	public TripleBuffer(T first, T second, T third) {
+		if (first == null || second == null || third == null) {
+			throw new NullPointerException("Buffer is null!");
+		}
+		this.buffers = new Object[] {first, second, third};
+		this.stamps = new long[3];
+		this.back = 0;
+		this.middle = new AtomicInteger(1);
+		this.front = 2;
+	}
+	
+	/**Returns the object to fill before {@link #publish()}. Producer side.
+	 */
+	@SuppressWarnings("unchecked")
+	public T getWriteBuffer() {
+		return (T) this.buffers[this.back];
+	}
+	
+	/**Publishes the object returned by {@link #getWriteBuffer()}, stamped with
+	 * the current {@link System#nanoTime()}. Producer side.
+	 */
+	public void publish() {
+		this.publish(System.nanoTime());
+	}
+	
+	/**Publishes the object returned by {@link #getWriteBuffer()}. Producer side.
+	 * 
+	 * @param stamp - A {@link System#nanoTime()} value attached to the object,
+	 * such as the time of the oldest input it reflects
+	 */
+	public void publish(long stamp) {
+		this.stamps[this.back] = stamp;
+		int previous = this.middle.getAndSet(this.back | FRESH);
+		if ((previous & FRESH) != 0) {
+			this.overwritten++;
+		}
+		this.back = previous & INDEX_MASK;
+		this.published++;
+	}
+	
+	/**Takes the latest published object as the front object, if any was
+	 * published since the last call. Consumer side.
+	 * 
+	 * @return Whether or not the front object changed
+	 */
+	public boolean update() {
+		if ((this.middle.get() & FRESH) == 0) {
+			return false;
+		}
+		this.front = this.middle.getAndSet(this.front) & INDEX_MASK;
+		this.consumed++;
+		return true;
+	}
+	
+	/**Returns whether or not an object was published since the last
+	 * {@link #update()}. May be called from any thread.
+	 */
+	public boolean hasUpdate() {
+		return (this.middle.get() & FRESH) != 0;
+	}
+	
+	/**Returns the front object. Consumer side.
+	 */
+	@SuppressWarnings("unchecked")
+	public T getReadBuffer() {
+		return (T) this.buffers[this.front];
+	}
+	
+	/**Returns the stamp the front object was published with. Consumer side.
+	 */
+	public long getReadStamp() {
+		return this.stamps[this.front];
+	}
+	
+	/**Returns the number of objects published.
+	 */
+	public long getPublishedCount() {
+		return this.published;
+	}
+	
+	/**Returns the number of objects taken by the consumer.
+	 */
+	public long getConsumedCount() {
+		return this.consumed;
+	}
+	
+	/**Returns the number of published objects overwritten before the consumer
+	 * could take them.
+	 */
+	public long getOverwrittenCount() {
+		return this.overwritten;
+	}
+}
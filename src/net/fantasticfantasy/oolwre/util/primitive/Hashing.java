@@ -0,0 +1,67 @@
+/*Copyright (c) 2017 Fantastic Fantasy All rights reserved.
+ *
+ * Permission to use, copy, modify and/or redistribute in source or binary form
+ * is hereby granted, free of charge, subject to the following conditions:
+ *
+ * - Redistribution of source code shall include the above copyright notice,
+ *  this list of conditions and the following disclaimer.
+ *
+ * - Redistribution in binary form shall include the above copyright notice,
+ *  this list of conditions and the following disclaimer in the documentation
+ *  and/or other materials provided with the distribution.
+ *
+ * - Neither the name Object Oriented Lightweight Render Engine nor the names
+ *  of its contributors may be used to endorse or promote products derived
+ *  from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE
+ * OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package net.fantasticfantasy.oolwre.util.primitive;
+
+/**Hashing helpers shared by the open-addressing maps of this package.
+ */
+final class Hashing {
+	
+	/**The maximum ratio of used slots, beyond which a table is grown. */
+	static final float LOAD_FACTOR = 0.5f;
+	
+	static final int MAX_CAPACITY = 1 << 30;
+	
+	/**@STATIC_MODULE_CLASS*/
+	private Hashing() {}
+	
+	/**Scrambles the bits of <code>key</code> so that close keys land in
+	 * distant slots.
+	 * 
+	 * @param key - The key
+	 */
+	static int mix(int key) {
+		int h = key * 0x9E3779B9;
+		return h ^ (h >>> 16);
+	}
+	
+	/**Returns the power of two table size able to hold <code>expected</code>
+	 * keys.
+	 * 
+	 * @param expected - The expected number of keys
+	 */
+	static int tableSize(int expected) {
+		if (expected < 0) {
+			throw new IllegalArgumentException("'expected' < 0 (" + expected + ")");
+		}
+		long needed = Math.max(2, (long) Math.ceil(expected / LOAD_FACTOR));
+		if (needed > MAX_CAPACITY) {
+			throw new IllegalArgumentException("'expected' too large (" + expected + ")");
+		}
+		return Integer.highestOneBit((int) needed - 1) << 1;
+	}
+}
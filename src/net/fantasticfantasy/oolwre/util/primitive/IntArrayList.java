@@ -0,0 +1,340 @@
+/*Copyright (c) 2017 Fantastic Fantasy All rights reserved.
+ *
+ * Permission to use, copy, modify and/or redistribute in source or binary form
+ * is hereby granted, free of charge, subject to the following conditions:
+ *
+ * - Redistribution of source code shall include the above copyright notice,
+ *  this list of conditions and the following disclaimer.
+ *
+ * - Redistribution in binary form shall include the above copyright notice,
+ *  this list of conditions and the following disclaimer in the documentation
+ *  and/or other materials provided with the distribution.
+ *
+ * - Neither the name Object Oriented Lightweight Render Engine nor the names
+ *  of its contributors may be used to endorse or promote products derived
+ *  from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE
+ * OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package net.fantasticfantasy.oolwre.util.primitive;
+
+import java.nio.IntBuffer;
+import java.util.Arrays;
+import org.lwjgl.system.MemoryUtil;
+import net.fantasticfantasy.oolwre.render.data.BufferObject;
+import net.fantasticfantasy.oolwre.render.data.BufferObject.BufferAccessFrequency;
+import net.fantasticfantasy.oolwre.render.data.BufferObject.BufferAccessNature;
+import net.fantasticfantasy.oolwre.render.data.BufferObject.Target;
+
+/**An <code>IntArrayList</code> is a growable list of <code>int</code>s backed
+ * by an <code>int[]</code>, without boxing. The elements can be copied in bulk
+ * to NIO buffers and {@link BufferObject}s.
+ */
+public class IntArrayList {
+	
+	private static final int DEFAULT_CAPACITY = 16;
+	
+	private int[] elements;
+	private int size;
+	
+	/**Constructs an empty {@link IntArrayList}.
+	 */
+	public IntArrayList() {
+		this(DEFAULT_CAPACITY);
+	}
+	
+	/**Constructs an empty {@link IntArrayList}.
+	 * 
+	 * @param capacity - The initial capacity
+	 */
+	public IntArrayList(int capacity) {
+		if (capacity < 0) {
+			throw new IllegalArgumentException("'capacity' < 0 (" + capacity + ")");
+		}
+		this.elements = new int[capacity];
+	}
+	
+	/**Constructs an {@link IntArrayList} holding a copy of <code>src</code>.
+	 * 
+	 * @param src - The elements
+	 */
+	public IntArrayList(int[] src) {
+		this.elements = Arrays.copyOf(src, src.length);
+		this.size = src.length;
+	}
+	
+	public void add(int element) {
+		if (this.size == this.elements.length) {
+			this.grow(this.size + 1);
+		}
+		this.elements[this.size++] = element;
+	}
+	
+	public void add(int v0, int v1) {
+		this.ensureCapacity(this.size + 2);
+		this.elements[this.size++] = v0;
+		this.elements[this.size++] = v1;
+	}
+	
+	public void add(int v0, int v1, int v2) {
+		this.ensureCapacity(this.size + 3);
+		this.elements[this.size++] = v0;
+		this.elements[this.size++] = v1;
+		this.elements[this.size++] = v2;
+	}
+	
+	public void add(int v0, int v1, int v2, int v3) {
+		this.ensureCapacity(this.size + 4);
+		this.elements[this.size++] = v0;
+		this.elements[this.size++] = v1;
+		this.elements[this.size++] = v2;
+		this.elements[this.size++] = v3;
+	}
+	
+	public void addAll(int[] src) {
+		this.addAll(src, 0, src.length);
+	}
+	
+	/**Appends <code>len</code> elements of <code>src</code>, from
+	 * <code>off</code>.
+	 * 
+	 * @param src - The source array
+	 * @param off - The source offset
+	 * @param len - The number of elements
+	 */
+	public void addAll(int[] src, int off, int len) {
+		this.ensureCapacity(this.size + len);
+		System.arraycopy(src, off, this.elements, this.size, len);
+		this.size += len;
+	}
+	
+	public void addAll(IntArrayList src) {
+		this.addAll(src.elements, 0, src.size);
+	}
+	
+	/**Appends the remaining elements of <code>src</code>, advancing its
+	 * position.
+	 * 
+	 * @param src - The source buffer
+	 */
+	public void load(IntBuffer src) {
+		int len = src.remaining();
+		this.ensureCapacity(this.size + len);
+		src.get(this.elements, this.size, len);
+		this.size += len;
+	}
+	
+	/**Copies the elements to <code>dest</code>, advancing its position.
+	 * 
+	 * @param dest - The destination buffer
+	 */
+	public void store(IntBuffer dest) {
+		dest.put(this.elements, 0, this.size);
+	}
+	
+	/**Copies the elements to a new direct buffer, which must be released with
+	 * {@link MemoryUtil#memFree(java.nio.Buffer)}.
+	 */
+	public IntBuffer toBuffer() {
+		IntBuffer buffer = MemoryUtil.memAllocInt(this.size);
+		buffer.put(this.elements, 0, this.size).flip();
+		return buffer;
+	}
+	
+	/**Creates and initializes the data store of <code>buffer</code>, bound
+	 * to <code>target</code>, with the elements.
+	 * 
+	 * @param buffer - The {@link BufferObject}
+	 * @param target - The bound target
+	 * @param accessFrequency - The access frequency
+	 * @param accessNature - The access nature
+	 */
+	public void bufferData(BufferObject buffer, Target target, BufferAccessFrequency accessFrequency,
+			BufferAccessNature accessNature) {
+		if (this.size == this.elements.length) {
+			buffer.bufferData(target, this.elements, accessFrequency, accessNature);
+			return;
+		}
+		IntBuffer data = this.toBuffer();
+		try {
+			buffer.bufferData(target, data, accessFrequency, accessNature);
+		} finally {
+			MemoryUtil.memFree(data);
+		}
+	}
+	
+	/**Updates the data store of <code>buffer</code>, bound to
+	 * <code>target</code>, with the elements.
+	 * 
+	 * @param buffer - The {@link BufferObject}
+	 * @param target - The bound target
+	 * @param offset - The offset in the data store, in bytes
+	 */
+	public void bufferSubData(BufferObject buffer, Target target, long offset) {
+		if (this.size == this.elements.length) {
+			buffer.bufferSubData(target, offset, this.elements);
+			return;
+		}
+		IntBuffer data = this.toBuffer();
+		try {
+			buffer.bufferSubData(target, offset, data);
+		} finally {
+			MemoryUtil.memFree(data);
+		}
+	}
+	
+	public int get(int index) {
+		this.checkIndex(index);
+		return this.elements[index];
+	}
+	
+	public void set(int index, int element) {
+		this.checkIndex(index);
+		this.elements[index] = element;
+	}
+	
+	/**Removes and returns the last element.
+	 */
+	public int removeLast() {
+		if (this.size == 0) {
+			throw new IllegalStateException("List is empty!");
+		}
+		return this.elements[--this.size];
+	}
+	
+	/**Returns the index of the first occurrence of <code>element</code>, or
+	 * <code>-1</code>.
+	 * 
+	 * @param element - The element
+	 */
+	public int indexOf(int element) {
+		for (int i = 0; i < this.size; i++) {
+			if (this.elements[i] == element) {
+				return i;
+			}
+		}
+		return -1;
+	}
+	
+	public boolean contains(int element) {
+		return this.indexOf(element) >= 0;
+	}
+	
+	public int size() {
+		return this.size;
+	}
+	
+	public boolean isEmpty() {
+		return this.size == 0;
+	}
+	
+	/**Removes every element, keeping the capacity.
+	 */
+	public void clear() {
+		this.size = 0;
+	}
+	
+	/**Sets the size, growing the list with zeros if needed.
+	 * 
+	 * @param size - The new size
+	 */
+	public void resize(int size) {
+		if (size < 0) {
+			throw new IllegalArgumentException("'size' < 0 (" + size + ")");
+		}
+		this.ensureCapacity(size);
+		if (size > this.size) {
+			Arrays.fill(this.elements, this.size, size, 0);
+		}
+		this.size = size;
+	}
+	
+	public void ensureCapacity(int capacity) {
+		if (capacity > this.elements.length) {
+			this.grow(capacity);
+		}
+	}
+	
+	public void trimToSize() {
+		if (this.size < this.elements.length) {
+			this.elements = Arrays.copyOf(this.elements, this.size);
+		}
+	}
+	
+	public int capacity() {
+		return this.elements.length;
+	}
+	
+	/**Returns the backing array, valid until the list grows. Only the first
+	 * {@link #size()} elements belong to the list.
+	 */
+	public int[] elements() {
+		return this.elements;
+	}
+	
+	/**Returns a copy of the elements.
+	 */
+	public int[] toArray() {
+		return Arrays.copyOf(this.elements, this.size);
+	}
+	
+	@Override
+	public int hashCode() {
+		int hash = 1;
+		for (int i = 0; i < this.size; i++) {
+			hash = 31 * hash + this.elements[i];
+		}
+		return hash;
+	}
+	
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj) {
+			return true;
+		}
+		if (!(obj instanceof IntArrayList)) {
+			return false;
+		}
+		IntArrayList other = (IntArrayList) obj;
+		if (other.size != this.size) {
+			return false;
+		}
+		for (int i = 0; i < this.size; i++) {
+			if (other.elements[i] != this.elements[i]) {
+				return false;
+			}
+		}
+		return true;
+	}
+	
+	@Override
+	public String toString() {
+		return Arrays.toString(this.toArray());
+	}
+	
+	private void grow(int minCapacity) {
+		if (minCapacity < 0) {
+			throw new OutOfMemoryError("List too large!");
+		}
+		int capacity = Math.max(this.elements.length + (this.elements.length >> 1), DEFAULT_CAPACITY);
+		if (capacity < minCapacity || capacity < 0) {
+			capacity = minCapacity;
+		}
+		this.elements = Arrays.copyOf(this.elements, capacity);
+	}
+	
+	private void checkIndex(int index) {
+		if (index < 0 || index >= this.size) {
+			throw new IndexOutOfBoundsException("'index' not in [0, " + this.size + ") (" + index + ")");
+		}
+	}
+}
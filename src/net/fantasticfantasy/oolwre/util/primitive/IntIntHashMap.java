@@ -0,0 +1,330 @@
+/*Copyright (c) 2017 Fantastic Fantasy All rights reserved.
+ *
+ * Permission to use, copy, modify and/or redistribute in source or binary form
+ * is hereby granted, free of charge, subject to the following conditions:
+ *
+ * - Redistribution of source code shall include the above copyright notice,
+ *  this list of conditions and the following disclaimer.
+ *
+ * - Redistribution in binary form shall include the above copyright notice,
+ *  this list of conditions and the following disclaimer in the documentation
+ *  and/or other materials provided with the distribution.
+ *
+ * - Neither the name Object Oriented Lightweight Render Engine nor the names
+ *  of its contributors may be used to endorse or promote products derived
+ *  from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE
+ * OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package net.fantasticfantasy.oolwre.util.primitive;
+
+import java.nio.IntBuffer;
+import java.util.Arrays;
+
+/**An <code>IntIntHashMap</code> maps <code>int</code> keys to
+ * <code>int</code> values without boxing, in an open-addressing table with
+ * linear probing. Absent keys map to the {@link #getMissingValue() missing
+ * value}, <code>0</code> unless specified.
+ */
+public class IntIntHashMap {
+	
+	private static final int FREE = 0;
+	
+	private final int missingValue;
+	private int[] keys;
+	private int[] values;
+	private int mask;
+	private int size;
+	private int threshold;
+	private boolean hasFreeKey;
+	private int freeValue;
+	
+	/**Constructs an empty {@link IntIntHashMap}.
+	 */
+	public IntIntHashMap() {
+		this(8, 0);
+	}
+	
+	/**Constructs an empty {@link IntIntHashMap}.
+	 * 
+	 * @param expected - The expected number of keys
+	 * @param missingValue - The value returned for absent keys
+	 */
+	public IntIntHashMap(int expected, int missingValue) {
+		this.missingValue = missingValue;
+		this.allocate(Hashing.tableSize(expected));
+	}
+	
+	/**Maps <code>key</code> to <code>value</code>.
+	 * 
+	 * @param key - The key
+	 * @param value - The value
+	 * 
+	 * @return The previous value, or the missing value
+	 */
+	public int put(int key, int value) {
+		if (key == FREE) {
+			int previous = this.hasFreeKey ? this.freeValue : this.missingValue;
+			if (!this.hasFreeKey) {
+				this.hasFreeKey = true;
+				this.size++;
+			}
+			this.freeValue = value;
+			return previous;
+		}
+		int slot = Hashing.mix(key) & this.mask;
+		int k;
+		while ((k = this.keys[slot]) != FREE) {
+			if (k == key) {
+				int previous = this.values[slot];
+				this.values[slot] = value;
+				return previous;
+			}
+			slot = (slot + 1) & this.mask;
+		}
+		this.keys[slot] = key;
+		this.values[slot] = value;
+		if (++this.size > this.threshold) {
+			this.rehash(this.keys.length << 1);
+		}
+		return this.missingValue;
+	}
+	
+	/**Adds <code>delta</code> to the value of <code>key</code>, absent keys
+	 * counting as the missing value.
+	 * 
+	 * @param key - The key
+	 * @param delta - The increment
+	 * 
+	 * @return The new value
+	 */
+	public int addTo(int key, int delta) {
+		int value = this.get(key) + delta;
+		this.put(key, value);
+		return value;
+	}
+	
+	/**Returns the value of <code>key</code>, or the missing value.
+	 * 
+	 * @param key - The key
+	 */
+	public int get(int key) {
+		if (key == FREE) {
+			return this.hasFreeKey ? this.freeValue : this.missingValue;
+		}
+		int slot = Hashing.mix(key) & this.mask;
+		int k;
+		while ((k = this.keys[slot]) != FREE) {
+			if (k == key) {
+				return this.values[slot];
+			}
+			slot = (slot + 1) & this.mask;
+		}
+		return this.missingValue;
+	}
+	
+	public boolean containsKey(int key) {
+		if (key == FREE) {
+			return this.hasFreeKey;
+		}
+		return this.find(key) >= 0;
+	}
+	
+	/**Removes <code>key</code>.
+	 * 
+	 * @param key - The key
+	 * 
+	 * @return The removed value, or the missing value
+	 */
+	public int remove(int key) {
+		if (key == FREE) {
+			if (!this.hasFreeKey) {
+				return this.missingValue;
+			}
+			this.hasFreeKey = false;
+			this.size--;
+			return this.freeValue;
+		}
+		int slot = this.find(key);
+		if (slot < 0) {
+			return this.missingValue;
+		}
+		int previous = this.values[slot];
+		this.shiftKeys(slot);
+		this.size--;
+		return previous;
+	}
+	
+	public int size() {
+		return this.size;
+	}
+	
+	public boolean isEmpty() {
+		return this.size == 0;
+	}
+	
+	/**Removes every key, keeping the capacity.
+	 */
+	public void clear() {
+		Arrays.fill(this.keys, FREE);
+		this.hasFreeKey = false;
+		this.size = 0;
+	}
+	
+	public int getMissingValue() {
+		return this.missingValue;
+	}
+	
+	/**Passes every mapping to <code>visitor</code>, in no particular order.
+	 * The map must not be modified meanwhile.
+	 * 
+	 * @param visitor - The {@link Visitor}
+	 */
+	public void forEach(Visitor visitor) {
+		if (this.hasFreeKey) {
+			visitor.visit(FREE, this.freeValue);
+		}
+		for (int i = 0; i < this.keys.length; i++) {
+			if (this.keys[i] != FREE) {
+				visitor.visit(this.keys[i], this.values[i]);
+			}
+		}
+	}
+	
+	/**Copies the keys and the values to <code>keys</code> and
+	 * <code>values</code>, in the same order, advancing their positions.
+	 * 
+	 * @param keys - The destination of the keys, or <code>null</code>
+	 * @param values - The destination of the values, or <code>null</code>
+	 */
+	public void store(IntBuffer keys, IntBuffer values) {
+		if (this.hasFreeKey) {
+			if (keys != null) {
+				keys.put(FREE);
+			}
+			if (values != null) {
+				values.put(this.freeValue);
+			}
+		}
+		for (int i = 0; i < this.keys.length; i++) {
+			if (this.keys[i] != FREE) {
+				if (keys != null) {
+					keys.put(this.keys[i]);
+				}
+				if (values != null) {
+					values.put(this.values[i]);
+				}
+			}
+		}
+	}
+	
+	/**Returns the keys, in the order of {@link #values()}.
+	 */
+	public int[] keys() {
+		int[] keys = new int[this.size];
+		this.store(IntBuffer.wrap(keys), null);
+		return keys;
+	}
+	
+	/**Returns the values, in the order of {@link #keys()}.
+	 */
+	public int[] values() {
+		int[] values = new int[this.size];
+		this.store(null, IntBuffer.wrap(values));
+		return values;
+	}
+	
+	@Override
+	public String toString() {
+		final StringBuilder builder = new StringBuilder("{");
+		this.forEach(new Visitor() {
+			@Override
+			public void visit(int key, int value) {
+				if (builder.length() > 1) {
+					builder.append(", ");
+				}
+				builder.append(key).append('=').append(value);
+			}
+		});
+		return builder.append('}').toString();
+	}
+	
+	private int find(int key) {
+		int slot = Hashing.mix(key) & this.mask;
+		int k;
+		while ((k = this.keys[slot]) != FREE) {
+			if (k == key) {
+				return slot;
+			}
+			slot = (slot + 1) & this.mask;
+		}
+		return -1;
+	}
+	
+	/**Empties <code>slot</code>, moving back the following keys of its
+	 * cluster so that no probe sequence is broken.
+	 */
+	private void shiftKeys(int slot) {
+		int last;
+		while (true) {
+			last = slot;
+			slot = (slot + 1) & this.mask;
+			int k;
+			while (true) {
+				if ((k = this.keys[slot]) == FREE) {
+					this.keys[last] = FREE;
+					return;
+				}
+				int home = Hashing.mix(k) & this.mask;
+				if (last <= slot ? last >= home || home > slot : last >= home && home > slot) {
+					break;
+				}
+				slot = (slot + 1) & this.mask;
+			}
+			this.keys[last] = k;
+			this.values[last] = this.values[slot];
+		}
+	}
+	
+	private void allocate(int capacity) {
+		this.keys = new int[capacity];
+		this.values = new int[capacity];
+		this.mask = capacity - 1;
+		this.threshold = (int) (capacity * Hashing.LOAD_FACTOR);
+	}
+	
+	private void rehash(int capacity) {
+		if (capacity > Hashing.MAX_CAPACITY) {
+			throw new IllegalStateException("Map too large!");
+		}
+		int[] keys = this.keys;
+		int[] values = this.values;
+		this.allocate(capacity);
+		for (int i = 0; i < keys.length; i++) {
+			if (keys[i] != FREE) {
+				int slot = Hashing.mix(keys[i]) & this.mask;
+				while (this.keys[slot] != FREE) {
+					slot = (slot + 1) & this.mask;
+				}
+				this.keys[slot] = keys[i];
+				this.values[slot] = values[i];
+			}
+		}
+	}
+	
+	/**Visits the mappings of an {@link IntIntHashMap}.
+	 */
+	public static interface Visitor {
+		
+		public void visit(int key, int value);
+	}
+}
@@ -0,0 +1,323 @@
+/*Copyright (c) 2017 Fantastic Fantasy All rights reserved.
+ *
+ * Permission to use, copy, modify and/or redistribute in source or binary form
+ * is hereby granted, free of charge, subject to the following conditions:
+ *
+ * - Redistribution of source code shall include the above copyright notice,
+ *  this list of conditions and the following disclaimer.
+ *
+ * - Redistribution in binary form shall include the above copyright notice,
+ *  this list of conditions and the following disclaimer in the documentation
+ *  and/or other materials provided with the distribution.
+ *
+ * - Neither the name Object Oriented Lightweight Render Engine nor the names
+ *  of its contributors may be used to endorse or promote products derived
+ *  from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE
+ * OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package net.fantasticfantasy.oolwre.util.primitive;
+
+import java.nio.IntBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**An <code>IntObjectHashMap</code> maps <code>int</code> keys to objects
+ * without boxing the keys, in an open-addressing table with linear probing.
+ * Absent keys map to <code>null</code>, and <code>null</code> values are not
+ * allowed.
+ *
+ * @param <V> The type of the values
+ */
+public class IntObjectHashMap<V> {
+	
+	private static final int FREE = 0;
+	
+	private int[] keys;
+	private Object[] values;
+	private int mask;
+	private int size;
+	private int threshold;
+	private boolean hasFreeKey;
+	private V freeValue;
+	
+	/**Constructs an empty {@link IntObjectHashMap}.
+	 */
+	public IntObjectHashMap() {
+		this(8);
+	}
+	
+	/**Constructs an empty {@link IntObjectHashMap}.
+	 * 
+	 * @param expected - The expected number of keys
+	 */
+	public IntObjectHashMap(int expected) {
+		this.allocate(Hashing.tableSize(expected));
+	}
+	
+	/**Maps <code>key</code> to <code>value</code>.
+	 * 
+	 * @param key - The key
+	 * @param value - The value
+	 * 
+	 * @return The previous value, or <code>null</code>
+	 */
+	@SuppressWarnings("unchecked")
+	public V put(int key, V value) {
+		if (value == null) {
+			throw new NullPointerException("Value is null!");
+		}
+		if (key == FREE) {
+			V previous = this.freeValue;
+			if (!this.hasFreeKey) {
+				this.hasFreeKey = true;
+				this.size++;
+			}
+			this.freeValue = value;
+			return previous;
+		}
+		int slot = Hashing.mix(key) & this.mask;
+		int k;
+		while ((k = this.keys[slot]) != FREE) {
+			if (k == key) {
+				V previous = (V) this.values[slot];
+				this.values[slot] = value;
+				return previous;
+			}
+			slot = (slot + 1) & this.mask;
+		}
+		this.keys[slot] = key;
+		this.values[slot] = value;
+		if (++this.size > this.threshold) {
+			this.rehash(this.keys.length << 1);
+		}
+		return null;
+	}
+	
+	/**Returns the value of <code>key</code>, or <code>null</code>.
+	 * 
+	 * @param key - The key
+	 */
+	@SuppressWarnings("unchecked")
+	public V get(int key) {
+		if (key == FREE) {
+			return this.freeValue;
+		}
+		int slot = Hashing.mix(key) & this.mask;
+		int k;
+		while ((k = this.keys[slot]) != FREE) {
+			if (k == key) {
+				return (V) this.values[slot];
+			}
+			slot = (slot + 1) & this.mask;
+		}
+		return null;
+	}
+	
+	public boolean containsKey(int key) {
+		if (key == FREE) {
+			return this.hasFreeKey;
+		}
+		return this.find(key) >= 0;
+	}
+	
+	/**Removes <code>key</code>.
+	 * 
+	 * @param key - The key
+	 * 
+	 * @return The removed value, or <code>null</code>
+	 */
+	@SuppressWarnings("unchecked")
+	public V remove(int key) {
+		if (key == FREE) {
+			V previous = this.freeValue;
+			if (this.hasFreeKey) {
+				this.hasFreeKey = false;
+				this.freeValue = null;
+				this.size--;
+			}
+			return previous;
+		}
+		int slot = this.find(key);
+		if (slot < 0) {
+			return null;
+		}
+		V previous = (V) this.values[slot];
+		this.shiftKeys(slot);
+		this.size--;
+		return previous;
+	}
+	
+	public int size() {
+		return this.size;
+	}
+	
+	public boolean isEmpty() {
+		return this.size == 0;
+	}
+	
+	/**Removes every key, keeping the capacity.
+	 */
+	public void clear() {
+		Arrays.fill(this.keys, FREE);
+		Arrays.fill(this.values, null);
+		this.hasFreeKey = false;
+		this.freeValue = null;
+		this.size = 0;
+	}
+	
+	/**Passes every mapping to <code>visitor</code>, in no particular order.
+	 * The map must not be modified meanwhile.
+	 * 
+	 * @param visitor - The {@link Visitor}
+	 */
+	@SuppressWarnings("unchecked")
+	public void forEach(Visitor<? super V> visitor) {
+		if (this.hasFreeKey) {
+			visitor.visit(FREE, this.freeValue);
+		}
+		for (int i = 0; i < this.keys.length; i++) {
+			if (this.keys[i] != FREE) {
+				visitor.visit(this.keys[i], (V) this.values[i]);
+			}
+		}
+	}
+	
+	/**Copies the keys to <code>dest</code>, in the order of
+	 * {@link #values()}, advancing its position.
+	 * 
+	 * @param dest - The destination buffer
+	 */
+	public void storeKeys(IntBuffer dest) {
+		if (this.hasFreeKey) {
+			dest.put(FREE);
+		}
+		for (int i = 0; i < this.keys.length; i++) {
+			if (this.keys[i] != FREE) {
+				dest.put(this.keys[i]);
+			}
+		}
+	}
+	
+	/**Returns the keys, in the order of {@link #values()}.
+	 */
+	public int[] keys() {
+		int[] keys = new int[this.size];
+		this.storeKeys(IntBuffer.wrap(keys));
+		return keys;
+	}
+	
+	/**Returns the values, in the order of {@link #keys()}.
+	 */
+	@SuppressWarnings("unchecked")
+	public List<V> values() {
+		List<V> values = new ArrayList<>(this.size);
+		if (this.hasFreeKey) {
+			values.add(this.freeValue);
+		}
+		for (int i = 0; i < this.keys.length; i++) {
+			if (this.keys[i] != FREE) {
+				values.add((V) this.values[i]);
+			}
+		}
+		return values;
+	}
+	
+	@Override
+	public String toString() {
+		final StringBuilder builder = new StringBuilder("{");
+		this.forEach(new Visitor<V>() {
+			@Override
+			public void visit(int key, V value) {
+				if (builder.length() > 1) {
+					builder.append(", ");
+				}
+				builder.append(key).append('=').append(value);
+			}
+		});
+		return builder.append('}').toString();
+	}
+	
+	private int find(int key) {
+		int slot = Hashing.mix(key) & this.mask;
+		int k;
+		while ((k = this.keys[slot]) != FREE) {
+			if (k == key) {
+				return slot;
+			}
+			slot = (slot + 1) & this.mask;
+		}
+		return -1;
+	}
+	
+	/**Empties <code>slot</code>, moving back the following keys of its
+	 * cluster so that no probe sequence is broken.
+	 */
+	private void shiftKeys(int slot) {
+		int last;
+		while (true) {
+			last = slot;
+			slot = (slot + 1) & this.mask;
+			int k;
+			while (true) {
+				if ((k = this.keys[slot]) == FREE) {
+					this.keys[last] = FREE;
+					this.values[last] = null;
+					return;
+				}
+				int home = Hashing.mix(k) & this.mask;
+				if (last <= slot ? last >= home || home > slot : last >= home && home > slot) {
+					break;
+				}
+				slot = (slot + 1) & this.mask;
+			}
+			this.keys[last] = k;
+			this.values[last] = this.values[slot];
+		}
+	}
+	
+	private void allocate(int capacity) {
+		this.keys = new int[capacity];
+		this.values = new Object[capacity];
+		this.mask = capacity - 1;
+		this.threshold = (int) (capacity * Hashing.LOAD_FACTOR);
+	}
+	
+	private void rehash(int capacity) {
+		if (capacity > Hashing.MAX_CAPACITY) {
+			throw new IllegalStateException("Map too large!");
+		}
+		int[] keys = this.keys;
+		Object[] values = this.values;
+		this.allocate(capacity);
+		for (int i = 0; i < keys.length; i++) {
+			if (keys[i] != FREE) {
+				int slot = Hashing.mix(keys[i]) & this.mask;
+				while (this.keys[slot] != FREE) {
+					slot = (slot + 1) & this.mask;
+				}
+				this.keys[slot] = keys[i];
+				this.values[slot] = values[i];
+			}
+		}
+	}
+	
+	/**Visits the mappings of an {@link IntObjectHashMap}.
+	 * 
+	 * @param <V> The type of the values
+	 */
+	public static interface Visitor<V> {
+		
+		public void visit(int key, V value);
+	}
+}
@@ -0,0 +1,127 @@
+/*Copyright (c) 2017 Fantastic Fantasy All rights reserved.
+ *
+ * Permission to use, copy and/or modify is hereby granted, free of charge,
+ * subject to the following conditions:
+ *
+ * - Redistribution of source code shall include the above copyright notice,
+ *  this list of conditions and the following disclaimer.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE
+ * OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package test.oolwre;
+
+import java.util.Arrays;
+import java.util.Random;
+import net.fantasticfantasy.oolwre.event.KeyboardListener;
+import net.fantasticfantasy.oolwre.render.data.Texture;
+
+/**Compares EnumLookup with the linear scan of values() it replaced, for a
+ * dense table (the GLFW keys) and a hashed one (the texture formats).
+ */
+public class EnumLookupBenchmark {
+	
+	private static final int LOOKUPS = 1 << 20;
+	private static final int WARMUP = 20;
+	private static final int ROUNDS = 50;
+	
+	/**Prevents the rounds from being optimized away*/
+	private static long sink;
+	
+	public static void main(String[] args) {
+		Random random = new Random(42L);
+		KeyboardListener.Key[] keys = KeyboardListener.Key.values();
+		final int[] keyValues = new int[LOOKUPS];
+		for (int i = 0; i < LOOKUPS; i++) {
+			keyValues[i] = keys[random.nextInt(keys.length)].glfwValue();
+		}
+		Texture.Format[] formats = Texture.Format.values();
+		final int[] formatValues = new int[LOOKUPS];
+		for (int i = 0; i < LOOKUPS; i++) {
+			formatValues[i] = formats[random.nextInt(formats.length)].glValue();
+		}
+		System.out.println(LOOKUPS + " lookups per round, " + keys.length + " keys, " + formats.length
+				+ " formats:");
+		
+		run("Key, values() scan", new Runnable() {
+			public void run() {
+				long sum = 0;
+				for (int i = 0; i < LOOKUPS; i++) {
+					sum += scanKey(keyValues[i]).ordinal();
+				}
+				sink += sum;
+			}
+		});
+		run("Key, EnumLookup", new Runnable() {
+			public void run() {
+				long sum = 0;
+				for (int i = 0; i < LOOKUPS; i++) {
+					sum += KeyboardListener.Key.forGlfwValue(keyValues[i]).ordinal();
+				}
+				sink += sum;
+			}
+		});
+		run("Texture.Format, values() scan", new Runnable() {
+			public void run() {
+				long sum = 0;
+				for (int i = 0; i < LOOKUPS; i++) {
+					sum += scanFormat(formatValues[i]).ordinal();
+				}
+				sink += sum;
+			}
+		});
+		run("Texture.Format, EnumLookup", new Runnable() {
+			public void run() {
+				long sum = 0;
+				for (int i = 0; i < LOOKUPS; i++) {
+					sum += Texture.Format.forGlValue(formatValues[i]).ordinal();
+				}
+				sink += sum;
+			}
+		});
+		System.out.println("(" + sink + ")");
+	}
+	
+	/**The lookup of KeyboardListener.Key before EnumLookup*/
+	private static KeyboardListener.Key scanKey(int value) {
+		for (KeyboardListener.Key key : KeyboardListener.Key.values()) {
+			if (key.glfwValue() == value) {
+				return key;
+			}
+		}
+		return null;
+	}
+	
+	/**The lookup of Texture.Format before EnumLookup*/
+	private static Texture.Format scanFormat(int value) {
+		for (Texture.Format format : Texture.Format.values()) {
+			if (format.glValue() == value) {
+				return format;
+			}
+		}
+		return null;
+	}
+	
+	private static void run(String name, Runnable round) {
+		for (int i = 0; i < WARMUP; i++) {
+			round.run();
+		}
+		long[] times = new long[ROUNDS];
+		for (int i = 0; i < ROUNDS; i++) {
+			long start = System.nanoTime();
+			round.run();
+			times[i] = System.nanoTime() - start;
+		}
+		Arrays.sort(times);
+		System.out.printf("%s:%n\tmedian %.2f ms, %.2f ns per lookup%n", name, times[ROUNDS / 2] / 1e6,
+				(double) times[ROUNDS / 2] / LOOKUPS);
+	}
+}
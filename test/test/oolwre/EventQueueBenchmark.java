@@ -0,0 +1,122 @@
+/*Copyright (c) 2017 Fantastic Fantasy All rights reserved.
+ *
+ * Permission to use, copy and/or modify is hereby granted, free of charge,
+ * subject to the following conditions:
+ *
+ * - Redistribution of source code shall include the above copyright notice,
+ *  this list of conditions and the following disclaimer.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE
+ * OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package test.oolwre;
+
+import java.util.concurrent.locks.LockSupport;
+import net.fantasticfantasy.oolwre.FrameTimeHistogram;
+import net.fantasticfantasy.oolwre.event.EventQueue;
+
+/**Measures the throughput and the latency of an EventQueue read by another
+ * thread, as when a WindowEventsHandler is dispatched off the polling thread.
+ */
+public class EventQueueBenchmark {
+	
+	private static final int CAPACITY = 1024;
+	private static final long SATURATED_EVENTS = 20000000L;
+	private static final int BURST = 64;
+	private static final int BURSTS = 20000;
+	private static final long BURST_PERIOD = 250000L;
+	
+	public static void main(String[] args) throws InterruptedException {
+		saturated();
+		bursts();
+	}
+	
+	/**Posts as fast as possible and counts the events read and dropped*/
+	private static void saturated() throws InterruptedException {
+		final EventQueue queue = new EventQueue(CAPACITY);
+		Reader reader = new Reader(queue);
+		reader.start();
+		long start = System.nanoTime();
+		for (long i = 0; i < SATURATED_EVENTS; i++) {
+			while (!queue.postCursorPos(i, i, System.nanoTime())) {
+				Thread.yield();
+			}
+		}
+		reader.finish();
+		double seconds = (System.nanoTime() - start) / 1e9;
+		System.out.println("Saturated, " + SATURATED_EVENTS + " events:");
+		System.out.printf("\t%.1f million events per second%n", SATURATED_EVENTS / seconds / 1e6);
+		System.out.println("\t" + queue.getDroppedCount() + " posts refused while the ring was full");
+		print(reader.latencies);
+	}
+	
+	/**Posts bursts of events at the pace of a fast polling loop*/
+	private static void bursts() throws InterruptedException {
+		final EventQueue queue = new EventQueue(CAPACITY);
+		Reader reader = new Reader(queue);
+		reader.start();
+		long next = System.nanoTime();
+		for (int b = 0; b < BURSTS; b++) {
+			long wait;
+			while ((wait = next - System.nanoTime()) > 0) {
+				LockSupport.parkNanos(wait);
+			}
+			for (int i = 0; i < BURST; i++) {
+				queue.postKey(i, i, 1, 0, System.nanoTime());
+			}
+			next += BURST_PERIOD;
+		}
+		reader.finish();
+		System.out.println("Bursts of " + BURST + " events every " + BURST_PERIOD / 1000 + "us:");
+		System.out.println("\t" + queue.getDroppedCount() + " events dropped");
+		print(reader.latencies);
+	}
+	
+	private static void print(FrameTimeHistogram latencies) {
+		System.out.printf("\tlatency p50 %.2fus, p99 %.2fus, max %.2fus%n", latencies.getPercentile(0.5) / 1e3,
+				latencies.getPercentile(0.99) / 1e3, latencies.getMax() / 1e3);
+	}
+	
+	/**Drains a cursor until the producer is done and the cursor is empty*/
+	private static class Reader extends Thread implements EventQueue.Handler {
+		
+		private final EventQueue.Cursor cursor;
+		private final FrameTimeHistogram latencies;
+		private volatile boolean done;
+		private long now;
+		
+		private Reader(EventQueue queue) {
+			this.cursor = queue.createCursor();
+			this.latencies = new FrameTimeHistogram(100L, 100000);
+		}
+		
+		@Override
+		public void run() {
+			while (!this.done || this.cursor.available() > 0) {
+				this.now = System.nanoTime();
+				if (this.cursor.drain(this) == 0) {
+					Thread.yield();
+				}
+			}
+			this.cursor.close();
+		}
+		
+		private void finish() throws InterruptedException {
+			this.done = true;
+			this.join();
+		}
+		
+		@Override
+		public void handle(EventQueue.Event event) {
+			this.latencies.record(this.now - event.getTime());
+		}
+	}
+}
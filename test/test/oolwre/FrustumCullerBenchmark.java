@@ -0,0 +1,85 @@
+/*Copyright (c) 2017 Fantastic Fantasy All rights reserved.
+ *
+ * Permission to use, copy and/or modify is hereby granted, free of charge,
+ * subject to the following conditions:
+ *
+ * - Redistribution of source code shall include the above copyright notice,
+ *  this list of conditions and the following disclaimer.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE
+ * OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package test.oolwre;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import net.fantasticfantasy.oolwre.render.culling.BoundsArray;
+import net.fantasticfantasy.oolwre.render.culling.Frustum;
+import net.fantasticfantasy.oolwre.render.culling.FrustumCuller;
+
+/**Measures the time taken by a FrustumCuller to cull one million bounds, on
+ * the calling thread and on the common ForkJoinPool.
+ */
+public class FrustumCullerBenchmark {
+	
+	private static final int BOUNDS = 1000000;
+	private static final int WARMUP = 50;
+	private static final int RUNS = 200;
+	
+	public static void main(String[] args) {
+		BoundsArray bounds = new BoundsArray(BOUNDS);
+		Random random = new Random(42L);
+		for (int i = 0; i < BOUNDS; i++) {
+			int entry = bounds.add();
+			float x = random.nextFloat() * 2000f - 1000f;
+			float y = random.nextFloat() * 2000f - 1000f;
+			float z = random.nextFloat() * 2000f - 1000f;
+			float size = random.nextFloat() * 4f;
+			if ((i & 1) == 0) {
+				bounds.setSphere(entry, x, y, z, size);
+			} else {
+				bounds.setAABB(entry, x, y, z, x + size, y + size * 0.5f, z + size * 2f);
+			}
+		}
+		//90 degrees field of view, looking down -z from the origin
+		Frustum frustum = new Frustum();
+		frustum.setPlane(Frustum.LEFT, 1f, 0f, -1f, 0f);
+		frustum.setPlane(Frustum.RIGHT, -1f, 0f, -1f, 0f);
+		frustum.setPlane(Frustum.BOTTOM, 0f, 1f, -1f, 0f);
+		frustum.setPlane(Frustum.TOP, 0f, -1f, -1f, 0f);
+		frustum.setPlane(Frustum.NEAR, 0f, 0f, -1f, -0.1f);
+		frustum.setPlane(Frustum.FAR, 0f, 0f, 1f, 1000f);
+		int[] visible = new int[BOUNDS];
+		
+		System.out.println(BOUNDS + " bounds, " + Runtime.getRuntime().availableProcessors() + " processors, "
+				+ ForkJoinPool.commonPool().getParallelism() + " pool threads:");
+		run("Calling thread", new FrustumCuller(null, FrustumCuller.DEFAULT_CHUNK_SIZE), frustum, bounds, visible);
+		run("Common pool", new FrustumCuller(), frustum, bounds, visible);
+	}
+	
+	private static void run(String name, FrustumCuller culler, Frustum frustum, BoundsArray bounds, int[] visible) {
+		int count = 0;
+		for (int i = 0; i < WARMUP; i++) {
+			count = culler.cull(frustum, bounds, visible);
+		}
+		long[] times = new long[RUNS];
+		for (int i = 0; i < RUNS; i++) {
+			long start = System.nanoTime();
+			count = culler.cull(frustum, bounds, visible);
+			times[i] = System.nanoTime() - start;
+		}
+		Arrays.sort(times);
+		System.out.println(name + ", " + count + " visible:");
+		System.out.printf("\tbest %.3f ms, median %.3f ms, %.2f ns per bound%n", times[0] / 1e6,
+				times[RUNS / 2] / 1e6, (double) times[RUNS / 2] / bounds.size());
+	}
+}
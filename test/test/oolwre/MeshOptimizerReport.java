@@ -0,0 +1,122 @@
+/*Copyright (c) 2017 Fantastic Fantasy All rights reserved.
+ *
+ * Permission to use, copy and/or modify is hereby granted, free of charge,
+ * subject to the following conditions:
+ *
+ * - Redistribution of source code shall include the above copyright notice,
+ *  this list of conditions and the following disclaimer.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE
+ * OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package test.oolwre;
+
+import java.util.Random;
+import net.fantasticfantasy.oolwre.render.mesh.MeshOptimizer;
+import net.fantasticfantasy.oolwre.render.mesh.QuantizedMesh;
+
+/**Runs the MeshOptimizer pipeline on unwelded spheres with shuffled triangles
+ * and reports the average cache miss ratio and the size in bytes after every
+ * step.
+ */
+public class MeshOptimizerReport {
+	
+	/**Position, normal and texture coordinates*/
+	private static final int STRIDE = 8;
+	
+	public static void main(String[] args) {
+		report(32, 16);
+		report(256, 128);
+	}
+	
+	private static void report(int segments, int rings) {
+		int triangleCount = segments * rings * 2;
+		int indexCount = triangleCount * 3;
+		float[] vertices = new float[indexCount * STRIDE];
+		int[] indices = new int[indexCount];
+		Random random = new Random(42L);
+		int[] order = new int[triangleCount];
+		for (int t = 0; t < triangleCount; t++) {
+			int swap = random.nextInt(t + 1);
+			order[t] = order[swap];
+			order[swap] = t;
+		}
+		int t = 0;
+		for (int r = 0; r < rings; r++) {
+			for (int s = 0; s < segments; s++) {
+				int first = order[t++] * 3, second = order[t++] * 3;
+				putVertex(vertices, first, s, r, segments, rings);
+				putVertex(vertices, first + 1, s, r + 1, segments, rings);
+				putVertex(vertices, first + 2, s + 1, r + 1, segments, rings);
+				putVertex(vertices, second, s, r, segments, rings);
+				putVertex(vertices, second + 1, s + 1, r + 1, segments, rings);
+				putVertex(vertices, second + 2, s + 1, r, segments, rings);
+			}
+		}
+		for (int i = 0; i < indexCount; i++) {
+			indices[i] = i;
+		}
+		int cache = MeshOptimizer.CACHE_SIZE;
+		int vertexCount = indexCount;
+		System.out.println("Sphere, " + segments + "x" + rings + ", " + triangleCount + " triangles:");
+		print("Unwelded", indices, indexCount, vertexCount, cache);
+		
+		vertexCount = MeshOptimizer.weldVertices(vertices, STRIDE, vertexCount, indices, indexCount);
+		print("Welded", indices, indexCount, vertexCount, cache);
+		
+		long start = System.nanoTime();
+		MeshOptimizer.optimizeVertexCache(indices, indexCount, vertexCount);
+		long cacheTime = System.nanoTime() - start;
+		print("Vertex cache", indices, indexCount, vertexCount, cache);
+		
+		MeshOptimizer.optimizeOverdraw(indices, indexCount, vertices, STRIDE, 0, vertexCount);
+		print("Overdraw", indices, indexCount, vertexCount, cache);
+		
+		vertexCount = MeshOptimizer.optimizeVertexFetch(vertices, STRIDE, vertexCount, indices, indexCount);
+		print("Vertex fetch", indices, indexCount, vertexCount, cache);
+		System.out.printf("\toptimizeVertexCache took %.2f ms%n", cacheTime / 1e6);
+		
+		QuantizedMesh mesh = MeshOptimizer.quantize(vertices, STRIDE, vertexCount, 0, 3, 6);
+		int indexSize = MeshOptimizer.getIndexType(vertexCount).getSize();
+		long unwelded = (long) indexCount * (STRIDE * 4 + 4);
+		long optimized = mesh.getByteSize() + (long) indexCount * indexSize;
+		System.out.println("\tBytes: " + unwelded + " unwelded, " + (mesh.getOriginalByteSize() + indexCount * 4L)
+				+ " welded, " + optimized + " quantized with " + indexSize + " bytes indices");
+		System.out.printf("\tSaved %.1f%% against welded float vertices%n",
+				100.0 * (1.0 - (double) optimized / (mesh.getOriginalByteSize() + indexCount * 4L)));
+	}
+	
+	private static void print(String step, int[] indices, int indexCount, int vertexCount, int cache) {
+		System.out.printf("\t%-14s %7d vertices, ACMR %.3f (FIFO %d), %.3f (FIFO 16)%n", step, vertexCount,
+				MeshOptimizer.computeACMR(indices, indexCount, vertexCount, cache), cache,
+				MeshOptimizer.computeACMR(indices, indexCount, vertexCount, 16));
+	}
+	
+	/**Writes the vertex of the sphere at segment <code>s</code> and ring
+	 * <code>r</code>, always computed the same way so that it can be welded.
+	 */
+	private static void putVertex(float[] vertices, int vertex, int s, int r, int segments, int rings) {
+		double theta = Math.PI * r / rings;
+		double phi = 2.0 * Math.PI * s / segments;
+		float x = (float) (Math.sin(theta) * Math.cos(phi));
+		float y = (float) Math.cos(theta);
+		float z = (float) (Math.sin(theta) * Math.sin(phi));
+		int i = vertex * STRIDE;
+		vertices[i] = x;
+		vertices[i + 1] = y;
+		vertices[i + 2] = z;
+		vertices[i + 3] = x;
+		vertices[i + 4] = y;
+		vertices[i + 5] = z;
+		vertices[i + 6] = (float) s / segments;
+		vertices[i + 7] = (float) r / rings;
+	}
+}
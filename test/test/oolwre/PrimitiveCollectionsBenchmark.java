@@ -0,0 +1,161 @@
+/*Copyright (c) 2017 Fantastic Fantasy All rights reserved.
+ *
+ * Permission to use, copy and/or modify is hereby granted, free of charge,
+ * subject to the following conditions:
+ *
+ * - Redistribution of source code shall include the above copyright notice,
+ *  this list of conditions and the following disclaimer.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE
+ * OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package test.oolwre;
+
+import java.lang.management.ManagementFactory;
+import java.nio.FloatBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import net.fantasticfantasy.oolwre.util.CollectionUtil;
+import net.fantasticfantasy.oolwre.util.primitive.FloatArrayList;
+import net.fantasticfantasy.oolwre.util.primitive.IntIntHashMap;
+import net.fantasticfantasy.oolwre.util.primitive.IntObjectHashMap;
+import org.lwjgl.BufferUtils;
+
+/**Compares the collections of util.primitive with the boxed paths of
+ * CollectionUtil and the JDK collections they replace, in time and in bytes
+ * allocated per round.
+ */
+public class PrimitiveCollectionsBenchmark {
+	
+	private static final int ELEMENTS = 1000000;
+	private static final int WARMUP = 10;
+	private static final int ROUNDS = 30;
+	
+	private static final com.sun.management.ThreadMXBean THREADS =
+			(com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+	
+	private static final float[] FLOATS = new float[ELEMENTS];
+	private static final int[] KEYS = new int[ELEMENTS];
+	private static final FloatBuffer BUFFER = BufferUtils.createFloatBuffer(ELEMENTS);
+	
+	/**Prevents the rounds from being optimized away*/
+	private static long sink;
+	
+	public static void main(String[] args) {
+		Random random = new Random(42L);
+		for (int i = 0; i < ELEMENTS; i++) {
+			FLOATS[i] = random.nextFloat();
+			KEYS[i] = random.nextInt();
+		}
+		System.out.println(ELEMENTS + " elements per round:");
+		
+		run("Float list to buffer, boxed", new Runnable() {
+			public void run() {
+				List<Float> list = new ArrayList<>();
+				for (int i = 0; i < ELEMENTS; i++) {
+					list.add(FLOATS[i]);
+				}
+				BUFFER.clear();
+				CollectionUtil.store(CollectionUtil.listToArray(list), BUFFER);
+				sink += BUFFER.position();
+			}
+		});
+		run("Float list to buffer, FloatArrayList", new Runnable() {
+			public void run() {
+				FloatArrayList list = new FloatArrayList();
+				for (int i = 0; i < ELEMENTS; i++) {
+					list.add(FLOATS[i]);
+				}
+				BUFFER.clear();
+				list.store(BUFFER);
+				sink += BUFFER.position();
+			}
+		});
+		
+		run("Int to int map, HashMap", new Runnable() {
+			public void run() {
+				Map<Integer, Integer> map = new HashMap<>();
+				for (int i = 0; i < ELEMENTS; i++) {
+					map.put(KEYS[i], i);
+				}
+				long sum = 0;
+				for (int i = 0; i < ELEMENTS; i++) {
+					sum += map.get(KEYS[i]);
+				}
+				sink += sum;
+			}
+		});
+		run("Int to int map, IntIntHashMap", new Runnable() {
+			public void run() {
+				IntIntHashMap map = new IntIntHashMap();
+				for (int i = 0; i < ELEMENTS; i++) {
+					map.put(KEYS[i], i);
+				}
+				long sum = 0;
+				for (int i = 0; i < ELEMENTS; i++) {
+					sum += map.get(KEYS[i]);
+				}
+				sink += sum;
+			}
+		});
+		
+		run("Int to object map, HashMap", new Runnable() {
+			public void run() {
+				Map<Integer, String> map = new HashMap<>();
+				for (int i = 0; i < ELEMENTS; i++) {
+					map.put(KEYS[i], "");
+				}
+				long found = 0;
+				for (int i = 0; i < ELEMENTS; i++) {
+					found += map.get(KEYS[i]) != null ? 1 : 0;
+				}
+				sink += found;
+			}
+		});
+		run("Int to object map, IntObjectHashMap", new Runnable() {
+			public void run() {
+				IntObjectHashMap<String> map = new IntObjectHashMap<>();
+				for (int i = 0; i < ELEMENTS; i++) {
+					map.put(KEYS[i], "");
+				}
+				long found = 0;
+				for (int i = 0; i < ELEMENTS; i++) {
+					found += map.get(KEYS[i]) != null ? 1 : 0;
+				}
+				sink += found;
+			}
+		});
+		System.out.println("(" + sink + ")");
+	}
+	
+	private static void run(String name, Runnable round) {
+		for (int i = 0; i < WARMUP; i++) {
+			round.run();
+		}
+		long[] times = new long[ROUNDS];
+		long allocated = 0;
+		long thread = Thread.currentThread().getId();
+		for (int i = 0; i < ROUNDS; i++) {
+			long bytes = THREADS.getThreadAllocatedBytes(thread);
+			long start = System.nanoTime();
+			round.run();
+			times[i] = System.nanoTime() - start;
+			allocated += THREADS.getThreadAllocatedBytes(thread) - bytes;
+		}
+		Arrays.sort(times);
+		System.out.printf("%s:%n\tmedian %.2f ms, %.1f MB allocated per round%n", name, times[ROUNDS / 2] / 1e6,
+				allocated / (double) ROUNDS / (1 << 20));
+	}
+}
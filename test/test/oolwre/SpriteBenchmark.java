@@ -0,0 +1,231 @@
+/*Copyright (c) 2017 Fantastic Fantasy All rights reserved.
+ *
+ * Permission to use, copy and/or modify is hereby granted, free of charge,
+ * subject to the following conditions:
+ *
+ * - Redistribution of source code shall include the above copyright notice,
+ *  this list of conditions and the following disclaimer.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE
+ * OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package test.oolwre;
+
+import java.nio.ByteBuffer;
+import java.util.Random;
+import org.lwjgl.opengl.GL11;
+import org.lwjgl.system.MemoryUtil;
+import net.fantasticfantasy.oolwre.CapabilityProvider;
+import net.fantasticfantasy.oolwre.HeadlessContext;
+import net.fantasticfantasy.oolwre.InitializationException;
+import net.fantasticfantasy.oolwre.OOLWRE;
+import net.fantasticfantasy.oolwre.OOLWREException;
+import net.fantasticfantasy.oolwre.WindowHints;
+import net.fantasticfantasy.oolwre.image.Image;
+import net.fantasticfantasy.oolwre.render.data.Texture;
+import net.fantasticfantasy.oolwre.render.data.Type;
+import net.fantasticfantasy.oolwre.render.data.shader.Program;
+import net.fantasticfantasy.oolwre.render.data.shader.Shader;
+import net.fantasticfantasy.oolwre.render.sprite.SpriteBatch;
+import net.fantasticfantasy.oolwre.render.sprite.TextureRegion;
+
+/**Measures the throughput of the SpriteBatch in a headless context. The
+ * context API can be given as first argument (NATIVE, EGL or OSMESA), or CPU
+ * to only measure the vertex generation, without any context.
+ */
+public class SpriteBenchmark {
+	
+	private static final int SPRITES_PER_FRAME = 200000;
+	private static final int WARMUP_FRAMES = 20;
+	private static final int FRAMES = 50;
+	private static final int TEXTURES = 8;
+	private static final double TARGET = 1000000.0;
+	
+	private static final String VERTEX_SOURCE =
+			"#version 330 core\n" +
+			"layout(location = 0) in vec2 position;\n" +
+			"layout(location = 1) in vec3 texCoord;\n" +
+			"layout(location = 2) in vec4 color;\n" +
+			"out vec3 vTexCoord;\n" +
+			"out vec4 vColor;\n" +
+			"void main() {\n" +
+			"	vTexCoord = texCoord;\n" +
+			"	vColor = color;\n" +
+			"	gl_Position = vec4(position / vec2(512.0, 384.0) - 1.0, 0.0, 1.0);\n" +
+			"}\n";
+	
+	private static final String FRAGMENT_SOURCE =
+			"#version 330 core\n" +
+			"uniform sampler2D image;\n" +
+			"in vec3 vTexCoord;\n" +
+			"in vec4 vColor;\n" +
+			"out vec4 fragColor;\n" +
+			"void main() {\n" +
+			"	fragColor = texture(image, vTexCoord.xy) * vColor;\n" +
+			"}\n";
+	
+	public static void main(String[] args) {
+		WindowHints.ContextCreationAPI api = WindowHints.ContextCreationAPI.OSMESA;
+		if (args.length > 0 && args[0].equals("CPU")) {
+			boolean passed = runVertexGeneration();
+			System.out.println(passed ? "Target met" : "Target missed");
+			return;
+		} else if (args.length > 0) {
+			api = WindowHints.ContextCreationAPI.valueOf(args[0]);
+		}
+		HeadlessContext context;
+		try {
+			OOLWRE.initHeadless();
+			context = new HeadlessContext(HeadlessContext.createHints(api, 3, 3));
+		} catch (OOLWREException | InitializationException e) {
+			e.printStackTrace();
+			System.exit(-1);
+			return;
+		}
+		CapabilityProvider provider = context.makeContextCurrent();
+		Program program = createProgram(provider);
+		program.enable();
+		Texture[] textures = new Texture[TEXTURES];
+		for (int i = 0; i < TEXTURES; i++) {
+			textures[i] = createTexture(provider, 0xFF000000 | (i * 0x1F3A5B));
+		}
+		TextureRegion[] atlas = new TextureRegion[16];
+		for (int i = 0; i < atlas.length; i++) {
+			atlas[i] = TextureRegion.ofPixels(textures[0], 64, 64, (i & 3) * 16, (i >> 2) * 16, 16, 16);
+		}
+		SpriteBatch batch = new SpriteBatch(provider, 16384);
+		
+		boolean passed = true;
+		passed &= run("Atlas, submission order", batch, atlas, textures, false);
+		passed &= run("8 textures, sorted", batch, atlas, textures, true);
+		
+		batch.destroy();
+		for (Texture texture : textures) {
+			texture.destroy();
+		}
+		program.destroy();
+		context.destroy();
+		OOLWRE.terminate();
+		System.out.println(passed ? "Target met" : "Target missed");
+	}
+	
+	/**Draws the frames of a run and prints its throughput*/
+	private static boolean run(String name, SpriteBatch batch, TextureRegion[] atlas, Texture[] textures,
+			boolean sorted) {
+		Random random = new Random(42);
+		float[] params = new float[SPRITES_PER_FRAME * 4];
+		for (int i = 0; i < params.length; i++) {
+			params[i] = random.nextFloat();
+		}
+		int color = SpriteBatch.packColor(1.0F, 1.0F, 1.0F, 0.5F);
+		long start = 0;
+		for (int frame = 0; frame < WARMUP_FRAMES + FRAMES; frame++) {
+			if (frame == WARMUP_FRAMES) {
+				GL11.glFinish();
+				batch.resetStats();
+				start = System.nanoTime();
+			}
+			batch.begin(Texture.Target.TEXTURE_2D, sorted ? SpriteBatch.SortMode.TEXTURE :
+					SpriteBatch.SortMode.NONE);
+			for (int i = 0, p = 0; i < SPRITES_PER_FRAME; i++, p += 4) {
+				float x = params[p] * 1024.0F;
+				float y = params[p + 1] * 768.0F;
+				float rotation = (i & 1) == 0 ? 0.0F : params[p + 2] * 6.2831855F;
+				if (sorted) {
+					batch.draw(textures[i % TEXTURES], x, y, 16.0F, 16.0F, 8.0F, 8.0F, rotation, 0.0F, 0.0F, 1.0F,
+							1.0F, 0, color);
+				} else {
+					batch.draw(atlas[i & 15], x, y, 16.0F, 16.0F, 8.0F, 8.0F, rotation, color);
+				}
+			}
+			batch.end();
+		}
+		GL11.glFinish();
+		double seconds = (System.nanoTime() - start) / 1e9;
+		double rate = batch.getSpriteCount() / seconds;
+		System.out.println(name + ":");
+		System.out.println("\t" + batch.getVertexCount() / FRAMES + " vertices per frame");
+		System.out.println("\t" + batch.getFlushCount() / FRAMES + " flushes per frame");
+		System.out.printf("\t%.0f sprites per second%n", rate);
+		return rate >= TARGET;
+	}
+	
+	/**Writes the vertices of the frames to client memory with the code of
+	 * SpriteBatch, without batching nor uploading them, and prints the
+	 * throughput.
+	 */
+	private static boolean runVertexGeneration() {
+		Random random = new Random(42);
+		float[] params = new float[SPRITES_PER_FRAME * 4];
+		for (int i = 0; i < params.length; i++) {
+			params[i] = random.nextFloat();
+		}
+		int color = SpriteBatch.packColor(1.0F, 1.0F, 1.0F, 0.5F);
+		int batchSprites = 16384;
+		int quadSize = SpriteBatch.VERTEX_SIZE * 4;
+		ByteBuffer vertices = MemoryUtil.memAlloc(batchSprites * quadSize);
+		long address = MemoryUtil.memAddress(vertices);
+		long start = 0;
+		for (int frame = 0; frame < WARMUP_FRAMES + FRAMES; frame++) {
+			if (frame == WARMUP_FRAMES) {
+				start = System.nanoTime();
+			}
+			for (int i = 0, p = 0; i < SPRITES_PER_FRAME; i++, p += 4) {
+				float x = params[p] * 1024.0F;
+				float y = params[p + 1] * 768.0F;
+				float rotation = (i & 1) == 0 ? 0.0F : params[p + 2] * 6.2831855F;
+				float u = (i & 3) * 0.25F;
+				float v = ((i >> 2) & 3) * 0.25F;
+				SpriteBatch.putQuad(address + (long) (i % batchSprites) * quadSize, x, y, 16.0F, 16.0F, 8.0F,
+						8.0F, rotation, u, v, u + 0.25F, v + 0.25F, 0, color);
+			}
+		}
+		double seconds = (System.nanoTime() - start) / 1e9;
+		double rate = (double) SPRITES_PER_FRAME * FRAMES / seconds;
+		MemoryUtil.memFree(vertices);
+		System.out.println("Vertex generation only:");
+		System.out.println("	" + SPRITES_PER_FRAME * 4 + " vertices per frame");
+		System.out.printf("	%.0f sprites per second%n", rate);
+		return rate >= TARGET;
+	}
+	
+	private static Program createProgram(CapabilityProvider provider) {
+		Shader vertex = Shader.create(provider, Shader.Type.VERTEX);
+		vertex.shaderSource(VERTEX_SOURCE);
+		vertex.compile();
+		Shader fragment = Shader.create(provider, Shader.Type.FRAGMENT);
+		fragment.shaderSource(FRAGMENT_SOURCE);
+		fragment.compile();
+		Program program = Program.create(provider);
+		program.attach(vertex);
+		program.attach(fragment);
+		program.link();
+		program.detach(vertex);
+		program.detach(fragment);
+		vertex.destroy();
+		fragment.destroy();
+		return program;
+	}
+	
+	/**Creates a 1x1 texture of the specified color*/
+	private static Texture createTexture(CapabilityProvider provider, int color) {
+		Texture texture = Texture.create(provider);
+		ByteBuffer pixel = MemoryUtil.memAlloc(4);
+		pixel.putInt(0, color);
+		texture.bind(Texture.Target.TEXTURE_2D);
+		texture.texImage2D(Texture.Target.TEXTURE_2D, 0, Texture.Format.RGBA8, 1, 1, 0, Image.Format.RGBA,
+				Type.UNSIGNED_BYTE, pixel);
+		GL11.glTexParameteri(GL11.GL_TEXTURE_2D, GL11.GL_TEXTURE_MIN_FILTER, GL11.GL_NEAREST);
+		texture.unbind(Texture.Target.TEXTURE_2D);
+		MemoryUtil.memFree(pixel);
+		return texture;
+	}
+}